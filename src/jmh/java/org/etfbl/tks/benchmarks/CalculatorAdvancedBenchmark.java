@@ -0,0 +1,145 @@
+package org.etfbl.tks.benchmarks;
+
+import org.etfbl.tks.AdvancedResultCache;
+import org.etfbl.tks.CalculatorAdvanced;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-benchmarks of <code>CalculatorAdvanced</code>: factorial calculation and exponentiation through
+ * <code>calculateAdvanced</code>, <code>calculatePower</code>, the <code>hasCharacteristic</code> checks,
+ * <code>exponent</code>, and the exception paths of the first three.
+ *
+ * @see CalculatorAdvanced
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculatorAdvancedBenchmark {
+
+    @State(Scope.Thread)
+    public static class Factorial {
+        @Param({ "0", "5", "10" })
+        public double value;
+
+        final CalculatorAdvanced calc = new CalculatorAdvanced();
+    }
+
+    @State(Scope.Thread)
+    public static class Exponentiation {
+        @Param({ "0", "1", "2", "3", "4", "5", "6", "7", "8", "9" })
+        public char action;
+
+        @Param({ "3.0", "46341.0" })
+        public double value;
+
+        final CalculatorAdvanced calc = new CalculatorAdvanced();
+    }
+
+    @State(Scope.Thread)
+    public static class Characteristic {
+        @Param({ "A", "P", "B", "D", "R" })
+        public char characteristic;
+
+        @Param({ "153", "8128", "999999", "33550336" })
+        public double value;
+
+        @Param({ "false", "true" })
+        public boolean cached;
+
+        final CalculatorAdvanced calc = new CalculatorAdvanced();
+
+        @Setup
+        public void setUp() {
+            calc.setCurrentValue(value);
+            calc.setResultCache(cached ? new AdvancedResultCache(AdvancedResultCache.DEFAULT_CAPACITY) : null);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Exponent {
+        @Param({ "2", "7", "13" })
+        public int base;
+
+        @Param({ "0", "3", "9", "31" })
+        public int exponent;
+
+        final CalculatorAdvanced calc = new CalculatorAdvanced();
+    }
+
+    @State(Scope.Thread)
+    public static class Invalid {
+        final CalculatorAdvanced calc = new CalculatorAdvanced();
+    }
+
+    @Benchmark
+    public double factorial(Factorial state) throws NotSupportedOperationException, NumberNotInAreaException {
+        state.calc.setCurrentValue(state.value);
+        state.calc.calculateAdvanced('!');
+        return state.calc.getAsDouble();
+    }
+
+    @Benchmark
+    public double exponentiation(Exponentiation state)
+            throws NotSupportedOperationException, NumberNotInAreaException {
+        state.calc.setCurrentValue(state.value);
+        state.calc.calculateAdvanced(state.action);
+        return state.calc.getAsDouble();
+    }
+
+    @Benchmark
+    public Boolean hasCharacteristic(Characteristic state)
+            throws NotSupportedOperationException, NumberNotInAreaException {
+        return state.calc.hasCharacteristic(state.characteristic);
+    }
+
+    @Benchmark
+    public int exponent(Exponent state) {
+        return state.calc.exponent(state.base, state.exponent);
+    }
+
+    @Benchmark
+    public double calculatePower(Exponent state) throws DivisionByZeroException {
+        state.calc.setCurrentValue(state.base + 0.5);
+        state.calc.calculatePower(state.exponent);
+        return state.calc.getAsDouble();
+    }
+
+    @Benchmark
+    public Exception factorialNotInArea(Invalid state) throws NotSupportedOperationException {
+        state.calc.setCurrentValue(11.0);
+        try {
+            state.calc.calculateAdvanced('!');
+            return null;
+        } catch (NumberNotInAreaException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public Exception unsupportedAction(Invalid state) throws NumberNotInAreaException {
+        try {
+            state.calc.calculateAdvanced('^');
+            return null;
+        } catch (NotSupportedOperationException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public Exception characteristicNotInArea(Invalid state) throws NotSupportedOperationException {
+        state.calc.setCurrentValue(0.5);
+        try {
+            state.calc.hasCharacteristic('P');
+            return null;
+        } catch (NumberNotInAreaException ex) {
+            return ex;
+        }
+    }
+}
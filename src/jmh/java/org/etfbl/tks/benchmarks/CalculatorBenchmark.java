@@ -0,0 +1,87 @@
+package org.etfbl.tks.benchmarks;
+
+import org.etfbl.tks.Calculator;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-benchmarks of <code>Calculator.calculate</code>, for every operator, with small and large accumulator values,
+ * through both the primitive and the boxed API, along with the exception paths (thrown, or reported as status codes).
+ *
+ * @see Calculator
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculatorBenchmark {
+
+    @State(Scope.Thread)
+    public static class Operation {
+        @Param({ "+", "-", "*", "/" })
+        public char operator;
+
+        @Param({ "1.5", "1.0E300" })
+        public double startingValue;
+
+        @Param({ "3.0" })
+        public double operand;
+
+        final Calculator calc = new Calculator();
+    }
+
+    /* the exception paths don't depend on the operator or the accumulator, so they are not run over the grid */
+    @State(Scope.Thread)
+    public static class Invalid {
+        final Calculator calc = new Calculator();
+    }
+
+    @Benchmark
+    public double calculate(Operation state) throws DivisionByZeroException, NotSupportedOperationException {
+        /* the accumulator is reset on each invocation, so that it can't drift into infinities or sub-normals */
+        state.calc.setCurrentValue(state.startingValue);
+        state.calc.calculate(state.operand, state.operator);
+        return state.calc.getAsDouble();
+    }
+
+    @Benchmark
+    public Double calculateBoxed(Operation state) throws DivisionByZeroException, NotSupportedOperationException {
+        state.calc.setCurrentValue(Double.valueOf(state.startingValue));
+        state.calc.calculate(Double.valueOf(state.operand), state.operator);
+        return state.calc.getCurrentValue();
+    }
+
+    @Benchmark
+    public Exception divisionByZero(Invalid state) throws NotSupportedOperationException {
+        try {
+            state.calc.calculate(0.0, '/');
+            return null;
+        } catch (DivisionByZeroException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public Exception unsupportedOperation(Invalid state) throws DivisionByZeroException {
+        try {
+            state.calc.calculate(3.0, '^');
+            return null;
+        } catch (NotSupportedOperationException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public int divisionByZeroStatus(Invalid state) {
+        return state.calc.tryCalculate(0.0, '/');
+    }
+
+    @Benchmark
+    public int unsupportedOperationStatus(Invalid state) {
+        return state.calc.tryCalculate(3.0, '^');
+    }
+}
@@ -0,0 +1,68 @@
+package org.etfbl.tks.benchmarks;
+
+import org.etfbl.tks.CalculatorAdvanced;
+import org.etfbl.tks.CharacteristicQuery;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range-query benchmarks, counting the values of <code>[from, from + length)</code> with a characteristic through
+ * <code>CharacteristicQuery</code> on pools of different sizes, against calling <code>hasCharacteristic</code> for each
+ * value. Scaling with the pool size is only meaningful on a machine with at least as many cores.
+ *
+ * @see CharacteristicQuery
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CharacteristicQueryBenchmark {
+    @Param({ "A", "P" })
+    public char characteristic;
+
+    @Param({ "1", "2", "4", "8" })
+    public int parallelism;
+
+    @Param({ "1", "1000000000" })
+    public long from;
+
+    @Param({ "1048576" })
+    public int length;
+
+    private ForkJoinPool pool;
+    private CharacteristicQuery query;
+    private final CalculatorAdvanced calc = new CalculatorAdvanced();
+
+    @Setup
+    public void setUp() throws NotSupportedOperationException {
+        pool = new ForkJoinPool(parallelism);
+        query = new CharacteristicQuery(characteristic, pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long count() throws NumberNotInAreaException {
+        return query.count(from, from + length - 1);
+    }
+
+    @Benchmark
+    public long oneByOne() throws NotSupportedOperationException, NumberNotInAreaException {
+        long count = 0;
+        for (long value = from; value < from + length; value++) {
+            calc.setCurrentValue(value);
+            if (calc.hasCharacteristic(characteristic))
+                count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,107 @@
+package org.etfbl.tks.benchmarks;
+
+import org.etfbl.tks.CalculatorAdvanced;
+import org.etfbl.tks.ConcurrentCalculator;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention benchmarks of a single accumulator shared by all benchmark threads, comparing the compare-and-set and
+ * the striped <code>ConcurrentCalculator</code> modes against a <code>CalculatorAdvanced</code> whose methods are
+ * <code>synchronized</code>. The thread count can be overridden with JMH's <code>-t</code> option.
+ *
+ * @see ConcurrentCalculator
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ConcurrentCalculatorBenchmark {
+    @Param({ "SYNCHRONIZED", "CAS", "STRIPED" })
+    public String implementation;
+
+    private CalculatorAdvanced calc;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        if (implementation.equals("SYNCHRONIZED"))
+            calc = new SynchronizedCalculator();
+        else calc = new ConcurrentCalculator(0.0, ConcurrentCalculator.Mode.valueOf(implementation));
+    }
+
+    @Benchmark
+    public void add() throws DivisionByZeroException, NotSupportedOperationException {
+        calc.calculate(1.0, '+');
+    }
+
+    @Benchmark
+    public void multiply() throws DivisionByZeroException, NotSupportedOperationException {
+        /* multiplying by one keeps the accumulator from drifting into infinities */
+        calc.calculate(1.0, '*');
+    }
+
+    @Benchmark
+    public double read() {
+        return calc.getAsDouble();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public void mixedAdd() throws DivisionByZeroException, NotSupportedOperationException {
+        calc.calculate(1.0, '-');
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public double mixedRead() {
+        return calc.getAsDouble();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedAdvanced() throws NotSupportedOperationException, NumberNotInAreaException {
+        calc.calculateAdvanced('1');
+    }
+
+    /**
+     * The baseline: every accumulator access is guarded by the instance's monitor.
+     */
+    private static final class SynchronizedCalculator extends CalculatorAdvanced {
+        @Override
+        public synchronized double getAsDouble() {
+            return super.getAsDouble();
+        }
+
+        @Override
+        public synchronized void setCurrentValue(double currentValue) {
+            super.setCurrentValue(currentValue);
+        }
+
+        @Override
+        public synchronized void calculate(double value, char operator)
+                throws DivisionByZeroException, NotSupportedOperationException {
+            super.calculate(value, operator);
+        }
+
+        @Override
+        public synchronized void calculateAdvanced(char action)
+                throws NotSupportedOperationException, NumberNotInAreaException {
+            super.calculateAdvanced(action);
+        }
+
+        @Override
+        public synchronized void calculatePower(int exponent) throws DivisionByZeroException {
+            super.calculatePower(exponent);
+        }
+    }
+}
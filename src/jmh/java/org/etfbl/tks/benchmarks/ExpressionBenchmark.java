@@ -0,0 +1,67 @@
+package org.etfbl.tks.benchmarks;
+
+import org.etfbl.tks.Calculator;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.InvalidExpressionException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.etfbl.tks.expression.CompiledExpression;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-benchmarks of expression evaluation: a pre-compiled expression, <code>Calculator.evaluate</code> (through the
+ * shared expression cache), compilation alone, and the equivalent chain of <code>calculate</code> calls.
+ *
+ * @see CompiledExpression
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+    private static final String EXPRESSION = "(x + 1.5) * y - x / 4";
+
+    private final Calculator calc = new Calculator();
+    private final Map<String, Double> variables = new HashMap<>();
+    private CompiledExpression compiled;
+    private double x = 3.0;
+    private double y = 2.0;
+
+    @Setup
+    public void setUp() throws InvalidExpressionException {
+        compiled = CompiledExpression.compile(EXPRESSION);
+        variables.put("x", x);
+        variables.put("y", y);
+    }
+
+    @Benchmark
+    public double compiled() throws DivisionByZeroException, NumberNotInAreaException {
+        return compiled.evaluate(x, y);
+    }
+
+    @Benchmark
+    public double evaluate() throws InvalidExpressionException, DivisionByZeroException, NumberNotInAreaException {
+        calc.evaluate(EXPRESSION, variables);
+        return calc.getAsDouble();
+    }
+
+    @Benchmark
+    public CompiledExpression compile() throws InvalidExpressionException {
+        return CompiledExpression.compile(EXPRESSION);
+    }
+
+    @Benchmark
+    public double calculateChain() throws DivisionByZeroException, NotSupportedOperationException {
+        calc.setCurrentValue(x);
+        calc.calculate(1.5, '+');
+        calc.calculate(y, '*');
+        calc.calculate(x / 4, '-');
+        return calc.getAsDouble();
+    }
+}
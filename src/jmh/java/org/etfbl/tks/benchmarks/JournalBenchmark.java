@@ -0,0 +1,53 @@
+package org.etfbl.tks.benchmarks;
+
+import org.etfbl.tks.journal.Journal;
+import org.etfbl.tks.journal.JournaledCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks of journaled operations, for a range of group commit sizes (the number of records per force).
+ *
+ * @see JournaledCalculator
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalBenchmark {
+    @Param({ "1", "64", "4096" })
+    public int groupCommitRecords;
+
+    private Path directory;
+    private JournaledCalculator calc;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        calc = new JournaledCalculator(new Journal(directory, Journal.DEFAULT_SEGMENT_RECORDS, groupCommitRecords,
+                Journal.DEFAULT_GROUP_COMMIT_MILLIS, Journal.DEFAULT_SNAPSHOT_INTERVAL));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        calc.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int calculate() {
+        /* adding and subtracting keeps the accumulator bounded */
+        calc.tryCalculate(1.0, '+');
+        return calc.tryCalculate(1.0, '-');
+    }
+}
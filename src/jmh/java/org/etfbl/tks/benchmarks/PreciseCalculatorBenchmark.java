@@ -0,0 +1,94 @@
+package org.etfbl.tks.benchmarks;
+
+import org.etfbl.tks.Calculator;
+import org.etfbl.tks.PreciseCalculator;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the accumulators of a plain <code>Calculator</code>, a <code>PreciseCalculator</code> and a
+ * <code>BigDecimal</code> over chains of price-like operations: adding cents, and multiplying by and dividing by a
+ * factor with a finite decimal expansion (which all stay in the scaled representation), as well as dividing by three,
+ * which promotes the precise accumulator to a <code>BigDecimal</code>.
+ *
+ * @see PreciseCalculator
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreciseCalculatorBenchmark {
+    private static final BigDecimal CENT = new BigDecimal("0.01");
+    private static final BigDecimal FACTOR = new BigDecimal("1.25");
+    private static final BigDecimal THREE = new BigDecimal(3);
+
+    private final Calculator plain = new Calculator();
+    private final PreciseCalculator precise = new PreciseCalculator();
+    private BigDecimal decimal = BigDecimal.ZERO;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        plain.setCurrentValue(1.0);
+        precise.setCurrentValue(1.0);
+        decimal = BigDecimal.ONE;
+    }
+
+    @Benchmark
+    public double addDouble() throws DivisionByZeroException, NotSupportedOperationException {
+        plain.calculate(0.01, '+');
+        return plain.getAsDouble();
+    }
+
+    @Benchmark
+    public double addPrecise() throws DivisionByZeroException, NotSupportedOperationException {
+        precise.calculate(0.01, '+');
+        return precise.getAsDouble();
+    }
+
+    @Benchmark
+    public BigDecimal addBigDecimal() {
+        decimal = decimal.add(CENT, MathContext.DECIMAL128);
+        return decimal;
+    }
+
+    @Benchmark
+    public double scaleDouble() throws DivisionByZeroException, NotSupportedOperationException {
+        plain.calculate(1.25, '*');
+        plain.calculate(1.25, '/');
+        return plain.getAsDouble();
+    }
+
+    @Benchmark
+    public double scalePrecise() throws DivisionByZeroException, NotSupportedOperationException {
+        precise.calculate(1.25, '*');
+        precise.calculate(1.25, '/');
+        return precise.getAsDouble();
+    }
+
+    @Benchmark
+    public BigDecimal scaleBigDecimal() {
+        decimal = decimal.multiply(FACTOR, MathContext.DECIMAL128).divide(FACTOR, MathContext.DECIMAL128);
+        return decimal;
+    }
+
+    @Benchmark
+    public BigDecimal thirdPrecise() throws DivisionByZeroException, NotSupportedOperationException {
+        precise.calculate(3.0, '/');
+        precise.calculate(3.0, '*');
+        /* rounding a promoted accumulator to a double goes through its string form, so the exact value is compared */
+        return precise.getExactValue();
+    }
+
+    @Benchmark
+    public BigDecimal thirdBigDecimal() {
+        decimal = decimal.divide(THREE, MathContext.DECIMAL128).multiply(THREE, MathContext.DECIMAL128);
+        return decimal;
+    }
+}
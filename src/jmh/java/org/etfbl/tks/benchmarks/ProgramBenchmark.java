@@ -0,0 +1,93 @@
+package org.etfbl.tks.benchmarks;
+
+import org.etfbl.tks.CalculatorAdvanced;
+import org.etfbl.tks.CalculatorBatch;
+import org.etfbl.tks.Program;
+import org.etfbl.tks.ProgramRecorder;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies a fixed chain of arithmetic steps (<code>* 2, + 3, - 1, / 4, * 3</code>) to every seed of an array, by
+ * replaying it on a <code>CalculatorAdvanced</code> seed by seed, by applying it step by step to a
+ * <code>CalculatorBatch</code>, and by running a compiled <code>Program</code> (as recorded, and reassociated).
+ *
+ * @see Program
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgramBenchmark {
+    private static final double[] OPERANDS = { 2.0, 3.0, 1.0, 4.0, 3.0 };
+    private static final char[] OPERATORS = { '*', '+', '-', '/', '*' };
+
+    @Param({ "1024", "65536" })
+    public int seeds;
+
+    private double[] initialValues;
+    private double[] values;
+    private final CalculatorAdvanced calc = new CalculatorAdvanced();
+    private CalculatorBatch batch;
+    private Program exact;
+    private Program reassociated;
+
+    @Setup
+    public void setUp() throws DivisionByZeroException, NotSupportedOperationException {
+        Random random = new Random(42);
+        initialValues = new double[seeds];
+        for (int i = 0; i < seeds; i++) {
+            initialValues[i] = random.nextDouble() * 1000.0;
+        }
+        values = new double[seeds];
+        batch = new CalculatorBatch(seeds);
+
+        ProgramRecorder recorder = new ProgramRecorder();
+        for (int i = 0; i < OPERANDS.length; i++) {
+            recorder.calculate(OPERANDS[i], OPERATORS[i]);
+        }
+        exact = recorder.compile();
+        reassociated = recorder.compile(Program.Folding.REASSOCIATE);
+    }
+
+    @Benchmark
+    public double[] replay() throws DivisionByZeroException, NotSupportedOperationException {
+        for (int i = 0; i < seeds; i++) {
+            calc.setCurrentValue(initialValues[i]);
+            for (int step = 0; step < OPERANDS.length; step++) {
+                calc.calculate(OPERANDS[step], OPERATORS[step]);
+            }
+            values[i] = calc.getAsDouble();
+        }
+        return values;
+    }
+
+    @Benchmark
+    public double[] batch() throws NotSupportedOperationException {
+        for (int i = 0; i < seeds; i++) {
+            batch.set(i, initialValues[i]);
+        }
+        for (int step = 0; step < OPERANDS.length; step++) {
+            batch.calculate(OPERANDS[step], OPERATORS[step]);
+        }
+        return batch.copyTo(values);
+    }
+
+    @Benchmark
+    public long[] program() {
+        System.arraycopy(initialValues, 0, values, 0, seeds);
+        return exact.run(values);
+    }
+
+    @Benchmark
+    public long[] programReassociated() {
+        System.arraycopy(initialValues, 0, values, 0, seeds);
+        return reassociated.run(values);
+    }
+}
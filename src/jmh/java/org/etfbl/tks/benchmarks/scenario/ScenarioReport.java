@@ -0,0 +1,236 @@
+package org.etfbl.tks.benchmarks.scenario;
+
+import org.etfbl.tks.metrics.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The outcome of a <code>ScenarioRunner</code> measurement, which can be written as a JSON document, so that the
+ * reports of two builds can be compared by a script. All latencies are in nanoseconds, within 1/16 of the exact value
+ * (see <code>LatencyHistogram</code>); GC pause durations are only reported by the JVM in whole milliseconds.
+ *
+ * @see ScenarioRunner
+ */
+public final class ScenarioReport {
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9, 99.99 };
+    private static final String[] ERROR_NAMES = { "divisionByZero", "notSupported", "notInArea" };
+
+    private final Trace trace;
+    private final int threads;
+    private final ScenarioRunner.ThreadKind threadKind;
+    private final ScenarioRunner.Sharing sharing;
+    private final double targetRate;
+    private final long warmupMillis;
+    private final long durationMillis;
+    private String source = "";
+
+    /* filled in by the runner */
+    final LatencyHistogram[] latencies = new LatencyHistogram[Trace.KINDS];
+    final long[] operations = new long[Trace.KINDS];
+    final long[] errors = new long[ERROR_NAMES.length];
+    final LatencyHistogram gcPauses = new LatencyHistogram();
+    final Map<String, long[]> collectors = new TreeMap<>();
+    long truths;
+    long missed;
+    long allocatedBytes;
+    long elapsedNanos;
+
+    ScenarioReport(Trace trace, int threads, ScenarioRunner.ThreadKind threadKind, ScenarioRunner.Sharing sharing,
+                   double targetRate, long warmupMillis, long durationMillis) {
+        this.trace = trace;
+        this.threads = threads;
+        this.threadKind = threadKind;
+        this.sharing = sharing;
+        this.targetRate = targetRate;
+        this.warmupMillis = warmupMillis;
+        this.durationMillis = durationMillis;
+        for (int kind = 0; kind < Trace.KINDS; kind++) {
+            latencies[kind] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @param source A description of where the trace came from (a file, or the generator's arguments).
+     */
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    /**
+     * @return The number of measured operations.
+     */
+    public long getOperations() {
+        long total = 0;
+        for (long count : operations) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of measured operations which threw an exception.
+     */
+    public long getErrors() {
+        long total = 0;
+        for (long count : errors) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of operations a paced scenario did not issue before the deadline, since the threads fell
+     * behind their schedule (<code>0</code> for a closed loop).
+     */
+    public long getMissedOperations() {
+        return missed;
+    }
+
+    /**
+     * @return The number of measured operations per second.
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0.0 : getOperations() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @param percentile The percentile, in range <code>[0, 100]</code>.
+     * @return The latency of all kinds of operations at the percentile, in nanoseconds.
+     */
+    public long getLatency(double percentile) {
+        return overall().getPercentile(percentile);
+    }
+
+    /**
+     * @return The bytes allocated per measured operation, or <code>-1</code> if they could not be measured.
+     */
+    public double getAllocatedBytesPerOperation() {
+        long count = getOperations();
+        return allocatedBytes < 0 || count == 0 ? -1.0 : (double)allocatedBytes / count;
+    }
+
+    private LatencyHistogram overall() {
+        LatencyHistogram overall = new LatencyHistogram();
+        for (LatencyHistogram histogram : latencies) {
+            overall.add(histogram);
+        }
+        return overall;
+    }
+
+    /**
+     * @return The report as a JSON document.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(2048);
+        json.append("{\n  \"scenario\": {");
+        field(json, "threads", threads).append(',');
+        field(json, "threadKind", threadKind.name()).append(',');
+        field(json, "sharing", sharing.name()).append(',');
+        field(json, "targetRate", targetRate).append(',');
+        field(json, "warmupMillis", warmupMillis).append(',');
+        field(json, "durationMillis", durationMillis).append(',');
+        field(json, "traceSource", source).append(',');
+        field(json, "traceSize", trace.size()).append(',');
+        json.append("\n    \"traceMix\": {");
+        int[] counts = trace.operatorCounts();
+        boolean first = true;
+        for (int operator = 0; operator < counts.length; operator++) {
+            if (counts[operator] == 0)
+                continue;
+            if (!first)
+                json.append(',');
+            first = false;
+            json.append(' ');
+            string(json, String.valueOf((char)operator)).append(": ").append(counts[operator]);
+        }
+        json.append(" }\n  },\n  \"jvm\": {");
+        field(json, "version", System.getProperty("java.version")).append(',');
+        field(json, "vm", System.getProperty("java.vm.name")).append(',');
+        field(json, "processors", Runtime.getRuntime().availableProcessors()).append(',');
+        field(json, "maxHeapBytes", Runtime.getRuntime().maxMemory()).append(',');
+        field(json, "arguments", String.join(" ", ManagementFactory.getRuntimeMXBean().getInputArguments()));
+        json.append("\n  },\n  \"results\": {");
+        field(json, "elapsedNanos", elapsedNanos).append(',');
+        field(json, "operations", getOperations()).append(',');
+        field(json, "throughput", getThroughput()).append(',');
+        field(json, "missedOperations", missed).append(',');
+        field(json, "allocatedBytesPerOperation", getAllocatedBytesPerOperation()).append(',');
+        field(json, "characteristicsTrue", truths).append(',');
+        json.append("\n    \"errors\": {");
+        for (int i = 0; i < errors.length; i++) {
+            field(json.append(i == 0 ? "" : ","), ERROR_NAMES[i], errors[i], "      ");
+        }
+        json.append("\n    },\n    \"latencyNanos\": ");
+        latencies(json, overall());
+        json.append(",\n    \"latencyNanosByKind\": {");
+        for (int kind = 0; kind < Trace.KINDS; kind++) {
+            json.append(kind == 0 ? "\n      " : ",\n      ");
+            string(json, Trace.kindName(kind)).append(": ");
+            latencies(json, latencies[kind]);
+        }
+        json.append("\n    },\n    \"gc\": {");
+        field(json, "pauses", gcPauses.getCount(), "      ").append(',');
+        field(json, "maxPauseNanos", gcPauses.getMax(), "      ").append(',');
+        field(json, "p99PauseNanos", gcPauses.getPercentile(99.0), "      ").append(',');
+        json.append("\n      \"collectors\": {");
+        first = true;
+        for (Map.Entry<String, long[]> collector : collectors.entrySet()) {
+            json.append(first ? "\n        " : ",\n        ");
+            first = false;
+            string(json, collector.getKey()).append(": { \"collections\": ").append(collector.getValue()[0])
+                    .append(", \"timeMillis\": ").append(collector.getValue()[1]).append(" }");
+        }
+        json.append("\n      }\n    }\n  }\n}\n");
+        return json.toString();
+    }
+
+    private static void latencies(StringBuilder json, LatencyHistogram histogram) {
+        json.append("{ \"count\": ").append(histogram.getCount());
+        for (double percentile : PERCENTILES) {
+            json.append(", ");
+            string(json, "p" + (percentile == Math.rint(percentile)
+                    ? String.valueOf((long)percentile) : String.valueOf(percentile)));
+            json.append(": ").append(histogram.getPercentile(percentile));
+        }
+        json.append(", \"max\": ").append(histogram.getMax()).append(" }");
+    }
+
+    private static StringBuilder field(StringBuilder json, String name, Object value) {
+        return field(json, name, value, "    ");
+    }
+
+    private static StringBuilder field(StringBuilder json, String name, Object value, String indent) {
+        json.append('\n').append(indent);
+        string(json, name).append(": ");
+        if (value instanceof String)
+            return string(json, (String)value);
+        if (value instanceof Double)
+            return json.append(String.format(Locale.ROOT, "%.3f", (Double)value));
+        return json.append(value);
+    }
+
+    private static StringBuilder string(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                json.append('\\').append(c);
+            else if (c < 0x20)
+                json.append(String.format("\\u%04x", (int)c));
+            else json.append(c);
+        }
+        return json.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d ops in %.2f s: %.0f ops/s, p50 %.1f us, p99 %.1f us, p99.9 %.1f us, "
+                        + "errors %d, missed %d, %.1f B/op, %d GC pauses (max %d ms)",
+                getOperations(), elapsedNanos / 1e9, getThroughput(), getLatency(50) / 1e3, getLatency(99) / 1e3,
+                getLatency(99.9) / 1e3, getErrors(), missed, getAllocatedBytesPerOperation(), gcPauses.getCount(),
+                gcPauses.getMax() / 1_000_000);
+    }
+}
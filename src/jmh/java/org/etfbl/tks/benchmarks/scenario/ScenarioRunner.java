@@ -0,0 +1,465 @@
+package org.etfbl.tks.benchmarks.scenario;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.etfbl.tks.CalculatorAdvanced;
+import org.etfbl.tks.ConcurrentCalculator;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.etfbl.tks.metrics.LatencyHistogram;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A macro benchmark, replaying a <code>Trace</code> of mixed <code>calculate</code>, <code>calculateAdvanced</code> and
+ * <code>hasCharacteristic</code> calls on a number of threads, through the throwing methods (so the cost of the
+ * exceptions is measured, too). Each thread starts at its own offset of the trace, and wraps around at its end. The
+ * calculators are either owned by the threads (a <code>CalculatorAdvanced</code> each), or a single
+ * <code>ConcurrentCalculator</code> is shared by all of them; since every operation sets the accumulator before
+ * applying its operator, the outcome of shared operations depends on their interleaving, and so may the error counts.
+ *
+ * <p>Without a target rate, every thread replays operations back to back (a closed loop). With one, every thread
+ * replays its share of the rate on a fixed schedule, and the latency of an operation is measured from the time it was
+ * scheduled at, rather than from the time it started, so that an operation delayed by a slow one before it (or by a
+ * GC pause) is accounted for, instead of silently lowering the rate. A thread still behind its schedule at the end of
+ * the measurement stops anyway, and the operations it did not get to are reported as missed.</p>
+ *
+ * <p>Besides the throughput and the latency percentiles (overall and per kind of operation), the report holds the
+ * bytes allocated per operation by the replaying threads (where the JVM supports measuring it per thread, which it
+ * does not for virtual threads), and the GC pauses which ended during the measurement, as reported by the garbage
+ * collectors' notifications. Run it from the packaged benchmarks:</p>
+ *
+ * <pre>
+ *     java -cp target/benchmarks.jar org.etfbl.tks.benchmarks.scenario.ScenarioRunner threads=8 rate=400000 \
+ *          mix=+:50,/:20,P:20,R:10 values=HOT errors=0.01 report=target/scenario.json
+ * </pre>
+ *
+ * @see Trace
+ * @see TraceGenerator
+ */
+public final class ScenarioRunner {
+    /**
+     * The kind of the replaying threads.
+     */
+    public enum ThreadKind {
+        PLATFORM,
+        /** Virtual threads, which require Java 21 or later. */
+        VIRTUAL
+    }
+
+    /**
+     * The assignment of calculators to the replaying threads.
+     */
+    public enum Sharing {
+        /** Every thread replays on a <code>CalculatorAdvanced</code> of its own. */
+        OWNED,
+        /** All threads replay on a single <code>ConcurrentCalculator</code>. */
+        SHARED
+    }
+
+    /* the error indices of the report */
+    static final int DIVISION_BY_ZERO = 0;
+    static final int NOT_SUPPORTED = 1;
+    static final int NOT_IN_AREA = 2;
+
+    /* waits longer than this are parked, shorter ones are spun */
+    private static final long PARK_THRESHOLD_NANOS = 100_000L;
+
+    private final Trace trace;
+    private final int threads;
+    private final ThreadKind threadKind;
+    private final Sharing sharing;
+    private final double targetRate;
+    private final long warmupMillis;
+    private final long durationMillis;
+
+    /**
+     * @param trace The operations to be replayed.
+     * @param threads The number of replaying threads.
+     * @param threadKind The kind of the replaying threads.
+     * @param sharing The assignment of calculators to the threads.
+     * @param targetRate The total number of operations per second, or <code>0</code> for a closed loop.
+     * @param warmupMillis The duration of the warm-up, in milliseconds, which is not measured.
+     * @param durationMillis The duration of the measurement, in milliseconds.
+     * @throws IllegalArgumentException If any of the counts, the rate or the durations are out of range.
+     */
+    public ScenarioRunner(Trace trace, int threads, ThreadKind threadKind, Sharing sharing, double targetRate,
+                          long warmupMillis, long durationMillis) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Expected a positive thread count, received: " + threads);
+        if (!(targetRate >= 0.0 && targetRate <= 1e10))
+            throw new IllegalArgumentException("Expected a target rate in range [0, 1e10], received: " + targetRate);
+        if (warmupMillis < 0 || durationMillis < 1)
+            throw new IllegalArgumentException("Expected a non-negative warm-up and a positive duration, received: "
+                    + warmupMillis + ", " + durationMillis);
+        this.trace = trace;
+        this.threads = threads;
+        this.threadKind = threadKind;
+        this.sharing = sharing;
+        this.targetRate = targetRate;
+        this.warmupMillis = warmupMillis;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Runs the warm-up and the measurement.
+     *
+     * @return The report of the measurement.
+     * @throws InterruptedException If the calling thread is interrupted.
+     * @throws IllegalStateException If a replaying thread fails.
+     * @throws UnsupportedOperationException If virtual threads were requested, but are not available.
+     */
+    public ScenarioReport run() throws InterruptedException {
+        ThreadFactory factory = threadKind == ThreadKind.VIRTUAL ? virtualThreadFactory() : platformThreadFactory();
+        long intervalNanos = targetRate == 0.0 ? 0L : Math.max(1L, Math.round(threads * 1e9 / targetRate));
+        CalculatorAdvanced shared = sharing == Sharing.SHARED ? new ConcurrentCalculator() : null;
+
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] schedule = new long[2];
+        Worker[] workers = new Worker[threads];
+        Thread[] started = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            Worker worker = new Worker(shared != null ? shared : new CalculatorAdvanced(),
+                    (int)((long)trace.size() * t / threads), intervalNanos);
+            workers[t] = worker;
+            started[t] = factory.newThread(() -> {
+                try {
+                    ready.countDown();
+                    start.await();
+                    worker.run(schedule[0], schedule[1]);
+                } catch (Throwable ex) {
+                    worker.failure = ex;
+                }
+            });
+            started[t].start();
+        }
+
+        GcMonitor gc = new GcMonitor();
+        try {
+            ready.await();
+            long begin = System.nanoTime();
+            schedule[0] = begin + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+            schedule[1] = schedule[0] + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+            start.countDown();
+
+            /* the GC is monitored from the end of the warm-up; the replaying threads take their own timestamps */
+            long remaining = schedule[0] - System.nanoTime();
+            if (remaining > 0)
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            gc.start();
+            for (Thread thread : started) {
+                thread.join();
+            }
+            gc.stop();
+        } finally {
+            gc.close();
+        }
+
+        ScenarioReport report = new ScenarioReport(trace, threads, threadKind, sharing, targetRate, warmupMillis,
+                durationMillis);
+        for (Worker worker : workers) {
+            if (worker.failure != null)
+                throw new IllegalStateException("A replaying thread failed", worker.failure);
+            report.elapsedNanos = Math.max(report.elapsedNanos, worker.finishedAt - schedule[0]);
+            for (int kind = 0; kind < Trace.KINDS; kind++) {
+                report.latencies[kind].add(worker.histograms[kind]);
+                report.operations[kind] += worker.histograms[kind].getCount();
+            }
+            for (int i = 0; i < report.errors.length; i++) {
+                report.errors[i] += worker.errors[i];
+            }
+            report.truths += worker.truths;
+            report.missed += worker.missed;
+            report.allocatedBytes = worker.allocatedBytes < 0 || report.allocatedBytes < 0
+                    ? -1L : report.allocatedBytes + worker.allocatedBytes;
+        }
+        gc.fill(report);
+        return report;
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        int[] created = new int[1];
+        return runnable -> new Thread(runnable, "scenario-" + created[0]++);
+    }
+
+    /* looked up reflectively, since the sources are kept compatible with Java 8 */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "scenario-", 0L);
+            return (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on "
+                    + System.getProperty("java.version"), ex);
+        }
+    }
+
+    /* the bytes allocated by the current thread so far, or -1 if the JVM does not measure them */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return -1L;
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)bean;
+        if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled())
+            return -1L;
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * The replay loop of a single thread.
+     */
+    private final class Worker {
+        private final CalculatorAdvanced calc;
+        private final long intervalNanos;
+        private final LatencyHistogram[] histograms = new LatencyHistogram[Trace.KINDS];
+        private final long[] errors = new long[3];
+        private int index;
+        private long truths;
+        private long missed;
+        private long allocatedBytes = -1L;
+        private long finishedAt;
+        private volatile Throwable failure;
+
+        Worker(CalculatorAdvanced calc, int offset, long intervalNanos) {
+            this.calc = calc;
+            this.index = offset;
+            this.intervalNanos = intervalNanos;
+            for (int kind = 0; kind < Trace.KINDS; kind++) {
+                histograms[kind] = new LatencyHistogram();
+            }
+        }
+
+        void run(long measureFrom, long measureUntil) {
+            replay(System.nanoTime(), measureFrom);
+            for (LatencyHistogram histogram : histograms) {
+                histogram.reset();
+            }
+            Arrays.fill(errors, 0L);
+            truths = 0;
+            missed = 0;
+
+            long before = allocatedBytes();
+            replay(measureFrom, measureUntil);
+            finishedAt = System.nanoTime();
+            long after = allocatedBytes();
+            if (before >= 0 && after >= 0)
+                allocatedBytes = after - before;
+        }
+
+        /* replays operations from the current index, either back to back or on schedule, until the deadline */
+        private void replay(long from, long until) {
+            long scheduled = from;
+            while (true) {
+                long now = System.nanoTime();
+                if (intervalNanos != 0) {
+                    if (scheduled - until >= 0)
+                        return;
+                    if (now - until >= 0) {
+                        /* behind schedule at the deadline: the rest of the operations due are never issued */
+                        missed += (until - scheduled + intervalNanos - 1) / intervalNanos;
+                        return;
+                    }
+                    while (scheduled - now > 0) {
+                        if (scheduled - now > PARK_THRESHOLD_NANOS)
+                            LockSupport.parkNanos(scheduled - now - PARK_THRESHOLD_NANOS / 2);
+                        now = System.nanoTime();
+                    }
+                    now = scheduled;
+                    scheduled += intervalNanos;
+                } else if (now - until >= 0) {
+                    return;
+                }
+
+                char operator = trace.operator(index);
+                int kind = Trace.kindOf(operator);
+                int error = apply(kind, operator);
+                histograms[kind].record(System.nanoTime() - now);
+                if (error >= 0)
+                    errors[error]++;
+                if (++index == trace.size())
+                    index = 0;
+            }
+        }
+
+        /* the error index of the operation, or -1 if it succeeds */
+        private int apply(int kind, char operator) {
+            calc.setCurrentValue(trace.accumulator(index));
+            try {
+                if (kind == Trace.CALCULATE) {
+                    calc.calculate(trace.operand(index), operator);
+                } else if (kind == Trace.ADVANCED) {
+                    calc.calculateAdvanced(operator);
+                } else if (calc.hasCharacteristic(operator)) {
+                    truths++;
+                }
+                return -1;
+            } catch (DivisionByZeroException ex) {
+                return DIVISION_BY_ZERO;
+            } catch (NotSupportedOperationException ex) {
+                return NOT_SUPPORTED;
+            } catch (NumberNotInAreaException ex) {
+                return NOT_IN_AREA;
+            }
+        }
+    }
+
+    /**
+     * Collects the GC pauses ending between <code>start</code> and <code>stop</code>, through the notifications of the
+     * garbage collectors, along with the collection counts and times of every collector.
+     */
+    private static final class GcMonitor implements NotificationListener {
+        private final List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+        private final Map<String, long[]> collections = new TreeMap<>();
+        private final LatencyHistogram pauses = new LatencyHistogram();
+        private volatile boolean recording;
+
+        GcMonitor() {
+            for (GarbageCollectorMXBean bean : beans) {
+                if (bean instanceof NotificationEmitter)
+                    ((NotificationEmitter)bean).addNotificationListener(this, null, null);
+            }
+        }
+
+        void start() {
+            for (GarbageCollectorMXBean bean : beans) {
+                collections.put(bean.getName(), new long[] { bean.getCollectionCount(), bean.getCollectionTime() });
+            }
+            recording = true;
+        }
+
+        void stop() {
+            recording = false;
+            for (GarbageCollectorMXBean bean : beans) {
+                long[] counts = collections.get(bean.getName());
+                counts[0] = bean.getCollectionCount() - counts[0];
+                counts[1] = bean.getCollectionTime() - counts[1];
+            }
+        }
+
+        void close() {
+            for (GarbageCollectorMXBean bean : beans) {
+                if (!(bean instanceof NotificationEmitter))
+                    continue;
+                try {
+                    ((NotificationEmitter)bean).removeNotificationListener(this);
+                } catch (javax.management.ListenerNotFoundException ignored) {
+                    /* never registered */
+                }
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!recording || !GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+                    .equals(notification.getType()))
+                return;
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData());
+            /* the concurrent cycles of G1, ZGC and Shenandoah run alongside the application, rather than pause it */
+            String name = info.getGcName();
+            if (name.contains("Cycles") || name.contains("Concurrent"))
+                return;
+            pauses.record(TimeUnit.MILLISECONDS.toNanos(info.getGcInfo().getDuration()));
+        }
+
+        void fill(ScenarioReport report) {
+            report.gcPauses.add(pauses);
+            report.collectors.putAll(collections);
+        }
+    }
+
+    /**
+     * Runs a scenario, given as <code>&lt;key&gt;=&lt;value&gt;</code> arguments, and prints its summary; the JSON
+     * report is written to the <code>report</code> file, or printed if there is none. The trace is either loaded from
+     * the <code>trace</code> file, or generated (and then optionally saved to the <code>save</code> file):
+     *
+     * <ul>
+     *     <li><i><code>mix</code>: the operators and their weights (<code>TraceGenerator.DEFAULT_MIX</code>);</i></li>
+     *     <li><i><code>values</code>: <code>UNIFORM</code>, <code>LOG_UNIFORM</code> (default) or <code>HOT</code>;</i></li>
+     *     <li><i><code>max</code>: the largest value (<code>1000000</code>);</i></li>
+     *     <li><i><code>errors</code>: the share of failing operations (<code>0.01</code>);</i></li>
+     *     <li><i><code>length</code> and <code>seed</code>: the size of the trace (<code>1048576</code>), and the
+     *     seed (<code>42</code>).</i></li>
+     * </ul>
+     *
+     * The scenario is set by <code>threads</code> (the number of available processors), <code>threadKind</code>
+     * (<code>PLATFORM</code> or <code>VIRTUAL</code>), <code>sharing</code> (<code>OWNED</code> or <code>SHARED</code>),
+     * <code>rate</code> (the total operations per second, <code>0</code> for a closed loop), and the <code>warmup</code>
+     * and <code>duration</code> in seconds (<code>5</code> and <code>10</code>).
+     *
+     * @param args The arguments.
+     * @throws Exception If the trace cannot be read or written, or the scenario fails.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1)
+                throw new IllegalArgumentException("Expected a <key>=<value> argument, received: " + arg);
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        Trace trace;
+        String source;
+        if (options.containsKey("trace")) {
+            source = options.remove("trace");
+            trace = Trace.load(Paths.get(source));
+        } else {
+            String mix = option(options, "mix", TraceGenerator.DEFAULT_MIX);
+            String values = option(options, "values", "LOG_UNIFORM").toUpperCase();
+            double max = Double.parseDouble(option(options, "max", "1000000"));
+            double errors = Double.parseDouble(option(options, "errors", "0.01"));
+            int length = Integer.parseInt(option(options, "length", "1048576"));
+            long seed = Long.parseLong(option(options, "seed", "42"));
+            trace = new TraceGenerator(mix, TraceGenerator.Distribution.valueOf(values), max, errors)
+                    .generate(length, seed);
+            source = "generated: mix=" + mix + " values=" + values + " max=" + max + " errors=" + errors
+                    + " length=" + length + " seed=" + seed;
+            if (options.containsKey("save"))
+                trace.save(Paths.get(options.remove("save")));
+        }
+
+        int threads = Integer.parseInt(option(options, "threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        ThreadKind threadKind = ThreadKind.valueOf(option(options, "threadKind", "PLATFORM").toUpperCase());
+        Sharing sharing = Sharing.valueOf(option(options, "sharing", "OWNED").toUpperCase());
+        double rate = Double.parseDouble(option(options, "rate", "0"));
+        long warmup = TimeUnit.SECONDS.toMillis(Long.parseLong(option(options, "warmup", "5")));
+        long duration = TimeUnit.SECONDS.toMillis(Long.parseLong(option(options, "duration", "10")));
+        String reportFile = options.remove("report");
+        if (!options.isEmpty())
+            throw new IllegalArgumentException("Unknown arguments: " + options.keySet());
+
+        ScenarioReport report = new ScenarioRunner(trace, threads, threadKind, sharing, rate, warmup, duration).run();
+        report.setSource(source);
+        System.out.println(report);
+        if (reportFile != null)
+            Files.write(Paths.get(reportFile), report.toJson().getBytes(StandardCharsets.UTF_8));
+        else System.out.println(report.toJson());
+    }
+
+    private static String option(Map<String, String> options, String key, String defaultValue) {
+        String value = options.remove(key);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,188 @@
+package org.etfbl.tks.benchmarks.scenario;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A fixed sequence of calculator operations, replayed by <code>ScenarioRunner</code>. Every operation is independent
+ * of the ones before it: it sets the accumulator to a recorded value, and then applies its operator, so a trace can be
+ * replayed from any offset, by any number of threads, with the same outcome. The kind of an operation follows from its
+ * operator alone:
+ *
+ * <ul>
+ *     <li><i><code>+</code>, <code>-</code>, <code>*</code> and <code>/</code> (and any unknown symbol) are passed to
+ *     <code>calculate</code>, along with the operand;</i></li>
+ *     <li><i><code>!</code> and the digits are passed to <code>calculateAdvanced</code>;</i></li>
+ *     <li><i><code>A</code>, <code>P</code>, <code>B</code>, <code>D</code> and <code>R</code> are passed to
+ *     <code>hasCharacteristic</code>.</i></li>
+ * </ul>
+ *
+ * The operations are kept in primitive arrays, so that replaying them does not allocate. In a file, every operation
+ * is a line of <code>&lt;operator&gt; &lt;accumulator&gt; &lt;operand&gt;</code> (for example, <code>/ 12.5 0</code> or
+ * <code>P 8128 0</code>); blank lines and lines starting with <code>#</code> are skipped.
+ *
+ * @see TraceGenerator
+ */
+public final class Trace {
+    /** The kind of operations passed to <code>calculate</code>. */
+    public static final int CALCULATE = 0;
+    /** The kind of operations passed to <code>calculateAdvanced</code>. */
+    public static final int ADVANCED = 1;
+    /** The kind of operations passed to <code>hasCharacteristic</code>. */
+    public static final int CHARACTERISTIC = 2;
+    /** The number of operation kinds. */
+    public static final int KINDS = 3;
+
+    private static final String[] KIND_NAMES = { "calculate", "calculateAdvanced", "hasCharacteristic" };
+
+    private final char[] operators;
+    private final double[] accumulators;
+    private final double[] operands;
+
+    /**
+     * Creates a trace of the given operations (the arrays are not copied).
+     *
+     * @param operators The operators.
+     * @param accumulators The accumulator values, set before each operator is applied.
+     * @param operands The operands of <code>calculate</code> (ignored by the other kinds).
+     * @throws IllegalArgumentException If the arrays differ in length, or are empty.
+     */
+    public Trace(char[] operators, double[] accumulators, double[] operands) {
+        if (operators.length == 0 || operators.length != accumulators.length || operators.length != operands.length)
+            throw new IllegalArgumentException("Expected non-empty arrays of the same length, received: "
+                    + operators.length + ", " + accumulators.length + ", " + operands.length);
+        this.operators = operators;
+        this.accumulators = accumulators;
+        this.operands = operands;
+    }
+
+    /**
+     * @param operator An operator.
+     * @return The kind of the operation: <code>CALCULATE</code>, <code>ADVANCED</code> or <code>CHARACTERISTIC</code>.
+     */
+    public static int kindOf(char operator) {
+        if (operator == '!' || (operator >= '0' && operator <= '9'))
+            return ADVANCED;
+        if (operator == 'A' || operator == 'P' || operator == 'B' || operator == 'D' || operator == 'R')
+            return CHARACTERISTIC;
+        return CALCULATE;
+    }
+
+    /**
+     * @param kind An operation kind.
+     * @return The name of the method the kind is passed to.
+     */
+    public static String kindName(int kind) {
+        return KIND_NAMES[kind];
+    }
+
+    /**
+     * @return The number of operations.
+     */
+    public int size() {
+        return operators.length;
+    }
+
+    /**
+     * @param index The index of an operation.
+     * @return The operator of the operation.
+     */
+    public char operator(int index) {
+        return operators[index];
+    }
+
+    /**
+     * @param index The index of an operation.
+     * @return The accumulator value the operation starts from.
+     */
+    public double accumulator(int index) {
+        return accumulators[index];
+    }
+
+    /**
+     * @param index The index of an operation.
+     * @return The operand of the operation (only used by <code>calculate</code>).
+     */
+    public double operand(int index) {
+        return operands[index];
+    }
+
+    /**
+     * @return The number of occurrences of every operator, indexed by its (ASCII) code.
+     */
+    public int[] operatorCounts() {
+        int[] counts = new int[128];
+        for (char operator : operators) {
+            counts[operator & 127]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Writes the trace to a file, in the format read by <code>load</code>.
+     *
+     * @param path The destination file, replaced if it exists.
+     * @throws IOException If writing fails.
+     */
+    public void save(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            writer.write("# operator accumulator operand");
+            writer.newLine();
+            for (int i = 0; i < operators.length; i++) {
+                writer.write(operators[i]);
+                writer.write(' ');
+                writer.write(Double.toString(accumulators[i]));
+                writer.write(' ');
+                writer.write(Double.toString(operands[i]));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Reads a trace from a file.
+     *
+     * @param path The source file.
+     * @return The trace.
+     * @throws IOException If reading fails, or a line is malformed (the message holds its number).
+     */
+    public static Trace load(Path path) throws IOException {
+        char[] operators = new char[1024];
+        double[] accumulators = new double[1024];
+        double[] operands = new double[1024];
+        int size = 0, number = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.charAt(0) == '#')
+                    continue;
+                String[] fields = line.split("\\s+");
+                if (fields.length != 3 || fields[0].length() != 1)
+                    throw new IOException("Malformed operation at line " + number + ": " + line);
+                if (size == operators.length) {
+                    operators = Arrays.copyOf(operators, 2 * size);
+                    accumulators = Arrays.copyOf(accumulators, 2 * size);
+                    operands = Arrays.copyOf(operands, 2 * size);
+                }
+                try {
+                    accumulators[size] = Double.parseDouble(fields[1]);
+                    operands[size] = Double.parseDouble(fields[2]);
+                } catch (NumberFormatException ex) {
+                    throw new IOException("Malformed number at line " + number + ": " + line, ex);
+                }
+                operators[size++] = fields[0].charAt(0);
+            }
+        }
+        if (size == 0)
+            throw new IOException("No operations in " + path);
+        return new Trace(Arrays.copyOf(operators, size), Arrays.copyOf(accumulators, size),
+                Arrays.copyOf(operands, size));
+    }
+}
@@ -0,0 +1,154 @@
+package org.etfbl.tks.benchmarks.scenario;
+
+import org.etfbl.tks.CalculatorAdvanced;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates synthetic traces, from a weighted mix of operators, a distribution of the accumulator values and operands,
+ * and a rate of failing operations. The generated values are integral (so that the characteristics can be checked
+ * on them), in range <code>[1, maxValue]</code>; factorials always start from a value within the default factorial
+ * limit. A failing operation replaces a drawn one, keeping its kind: <code>calculate</code> is given a division by zero
+ * or an unsupported operator, while <code>calculateAdvanced</code> and <code>hasCharacteristic</code> are given a value
+ * out of their area.
+ *
+ * <p>The same arguments and seed always produce the same trace.</p>
+ *
+ * @see Trace
+ */
+public final class TraceGenerator {
+    /**
+     * The default mix: mostly basic operations, with a share of advanced ones and characteristic checks.
+     */
+    public static final String DEFAULT_MIX = "+:25,-:15,*:15,/:10,!:5,2:5,3:5,A:5,P:5,B:3,D:3,R:4";
+
+    /**
+     * The distribution of the generated values.
+     */
+    public enum Distribution {
+        /** Every value in range is equally likely. */
+        UNIFORM,
+        /** Every order of magnitude in range is equally likely, so small values dominate. */
+        LOG_UNIFORM,
+        /** Nine in ten values are drawn from a fixed set of <code>HOT_VALUES</code> values, which stay cached. */
+        HOT
+    }
+
+    /** The number of distinct values of the <code>HOT</code> distribution. */
+    public static final int HOT_VALUES = 256;
+
+    private final char[] operators;
+    private final int[] cumulativeWeights;
+    private final Distribution distribution;
+    private final double maxValue;
+    private final double errorRate;
+
+    /**
+     * Creates a new generator.
+     *
+     * @param mix The operators and their weights, as comma-separated <code>&lt;operator&gt;:&lt;weight&gt;</code>
+     *            pairs (for example, <code>+:3,P:1</code>).
+     * @param distribution The distribution of the accumulator values and operands.
+     * @param maxValue The largest generated value, at least <code>1</code> (rounded down to an integer).
+     * @param errorRate The share of failing operations, in range <code>[0, 1]</code>.
+     * @throws IllegalArgumentException If the mix is malformed, or any other argument is out of range.
+     */
+    public TraceGenerator(String mix, Distribution distribution, double maxValue, double errorRate) {
+        if (!(maxValue >= 1.0 && maxValue < 0x1p53))
+            throw new IllegalArgumentException("Expected a maximum value in range [1, 2^53), received: " + maxValue);
+        if (!(errorRate >= 0.0 && errorRate <= 1.0))
+            throw new IllegalArgumentException("Expected an error rate in range [0, 1], received: " + errorRate);
+
+        String[] pairs = mix.split(",");
+        this.operators = new char[pairs.length];
+        this.cumulativeWeights = new int[pairs.length];
+        int total = 0;
+        for (int i = 0; i < pairs.length; i++) {
+            String pair = pairs[i].trim();
+            int weight;
+            try {
+                if (pair.length() < 3 || pair.charAt(1) != ':')
+                    throw new NumberFormatException();
+                weight = Integer.parseInt(pair.substring(2));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Expected an <operator>:<weight> pair, received: " + pair);
+            }
+            if (weight < 0)
+                throw new IllegalArgumentException("Expected a non-negative weight, received: " + pair);
+            operators[i] = pair.charAt(0);
+            total += weight;
+            cumulativeWeights[i] = total;
+        }
+        if (total == 0)
+            throw new IllegalArgumentException("Expected at least one positive weight, received: " + mix);
+        this.distribution = distribution;
+        this.maxValue = Math.floor(maxValue);
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Generates a trace.
+     *
+     * @param length The number of operations.
+     * @param seed The seed of the pseudo-random generator.
+     * @return The trace.
+     */
+    public Trace generate(int length, long seed) {
+        Random random = new Random(seed);
+        double[] hot = new double[HOT_VALUES];
+        for (int i = 0; i < hot.length; i++) {
+            hot[i] = uniform(random);
+        }
+
+        char[] ops = new char[length];
+        double[] accumulators = new double[length];
+        double[] operands = new double[length];
+        int total = cumulativeWeights[cumulativeWeights.length - 1];
+        for (int i = 0; i < length; i++) {
+            int drawn = Arrays.binarySearch(cumulativeWeights, random.nextInt(total) + 1);
+            /* the first operator whose cumulative weight reaches the drawn one */
+            if (drawn < 0)
+                drawn = -drawn - 1;
+            while (drawn > 0 && cumulativeWeights[drawn - 1] == cumulativeWeights[drawn]) {
+                drawn--;
+            }
+            char operator = operators[drawn];
+            int kind = Trace.kindOf(operator);
+            double accumulator = operator == '!'
+                    ? random.nextInt(CalculatorAdvanced.DEFAULT_FACTORIAL_LIMIT + 1) : value(random, hot);
+            double operand = kind == Trace.CALCULATE ? value(random, hot) : 0.0;
+
+            if (errorRate > 0.0 && random.nextDouble() < errorRate) {
+                if (kind == Trace.CALCULATE) {
+                    operator = random.nextBoolean() ? '/' : '^';
+                    operand = 0.0;
+                } else if (kind == Trace.ADVANCED) {
+                    operator = '!';
+                    accumulator = CalculatorAdvanced.DEFAULT_FACTORIAL_LIMIT + 1;
+                } else {
+                    accumulator = 0.5;
+                }
+            }
+            ops[i] = operator;
+            accumulators[i] = accumulator;
+            operands[i] = operand;
+        }
+        return new Trace(ops, accumulators, operands);
+    }
+
+    private double value(Random random, double[] hot) {
+        switch (distribution) {
+            case LOG_UNIFORM:
+                return Math.min(maxValue, Math.floor(Math.exp(random.nextDouble() * Math.log(maxValue + 1.0))));
+            case HOT:
+                return random.nextInt(10) != 0 ? hot[random.nextInt(hot.length)] : uniform(random);
+            default:
+                return uniform(random);
+        }
+    }
+
+    private double uniform(Random random) {
+        return 1.0 + Math.floor(random.nextDouble() * maxValue);
+    }
+}
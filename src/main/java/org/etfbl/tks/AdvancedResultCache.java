@@ -0,0 +1,211 @@
+package org.etfbl.tks;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of advanced operation results, keyed by the operation character and the integer value it was
+ * applied to, such as <code>('P', 33550336)</code> for <code>hasCharacteristic('P')</code>. The results are kept as
+ * raw <code>long</code> values (status codes, or the bits of a <code>double</code>), so neither lookups nor insertions
+ * box.
+ *
+ * <p>The entries are kept in a primitive, open-addressing table, where a key may only reside in the 8 slots following
+ * its hash. Once all of them are taken, an insertion evicts one of them by the CLOCK policy: entries read since the
+ * hand last passed them get a second chance. Lookups are lock-free (each slot is guarded by a version stamp, which is
+ * re-checked after reading the entry), while insertions are serialized. A cache instance can be shared by any number of
+ * <code>CalculatorAdvanced</code> instances, and threads.</p>
+ *
+ * @see CalculatorAdvanced#setResultCache(AdvancedResultCache)
+ */
+public final class AdvancedResultCache {
+    /**
+     * The capacity of the shared cache.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * The largest supported capacity.
+     */
+    public static final int MAX_CAPACITY = 1 << 26;
+
+    private static final int PROBES = 8;
+
+    /* each slot holds a version stamp (odd while being written), the key, the result and the CLOCK reference bit */
+    private static final int STRIDE = 4;
+    private static final int VERSION = 0, KEY = 1, RESULT = 2, REFERENCED = 3;
+    private static final long EMPTY = 0L;
+
+    private static final AdvancedResultCache SHARED = new AdvancedResultCache(DEFAULT_CAPACITY);
+
+    private final int mask;
+    private final int shift;
+    private final AtomicLongArray slots;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /* guarded by this */
+    private int size;
+    private int hand;
+
+    /**
+     * Creates a new, empty cache.
+     *
+     * @param capacity The maximum number of results held by the cache, rounded up to a power of two.
+     * @throws IllegalArgumentException If <code>capacity</code> is out of the range of <code>[8, 2^26]</code>.
+     */
+    public AdvancedResultCache(int capacity) {
+        if (capacity < PROBES || capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("Expected a capacity in range [" + PROBES + ", " + MAX_CAPACITY
+                    + "], received: " + capacity);
+        int slotCount = Integer.highestOneBit(capacity * 2 - 1);
+        this.mask = slotCount - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(slotCount);
+        this.slots = new AtomicLongArray(slotCount * STRIDE);
+    }
+
+    /**
+     * @return The cache shared by all <code>CalculatorAdvanced</code> instances which opt into it.
+     */
+    public static AdvancedResultCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Looks up the result of <code>operation</code>, applied to <code>value</code>.
+     *
+     * @param operation The operation character.
+     * @param value The integer value the operation was applied to.
+     * @param absent The value to be returned if the result is not cached.
+     * @return The cached result, or <code>absent</code>.
+     */
+    public long get(char operation, int value, long absent) {
+        long key = key(operation, value);
+        int index = index(key);
+        for (int probe = 0; probe < PROBES; probe++) {
+            int slot = ((index + probe) & mask) * STRIDE;
+            long version = slots.get(slot + VERSION);
+            if ((version & 1) == 0 && slots.get(slot + KEY) == key) {
+                long result = slots.get(slot + RESULT);
+                if (slots.get(slot + VERSION) == version) {
+                    /* only written when clear, so that hot entries don't bounce their cache lines between readers */
+                    if (slots.get(slot + REFERENCED) == 0)
+                        slots.lazySet(slot + REFERENCED, 1);
+                    hits.increment();
+                    return result;
+                }
+            }
+        }
+        misses.increment();
+        return absent;
+    }
+
+    /**
+     * Caches the result of <code>operation</code>, applied to <code>value</code>, evicting another result if the slots
+     * the key may reside in are all taken.
+     *
+     * @param operation The operation character.
+     * @param value The integer value the operation was applied to.
+     * @param result The result.
+     */
+    public synchronized void put(char operation, int value, long result) {
+        long key = key(operation, value);
+        int index = index(key);
+        int free = -1;
+        for (int probe = 0; probe < PROBES; probe++) {
+            int slot = ((index + probe) & mask) * STRIDE;
+            long current = slots.get(slot + KEY);
+            if (current == key) {
+                write(slot, key, result);
+                return;
+            }
+            if (current == EMPTY && free < 0)
+                free = slot;
+        }
+
+        if (free >= 0) {
+            size++;
+        } else {
+            free = victim(index);
+            evictions.increment();
+        }
+        write(free, key, result);
+    }
+
+    /**
+     * @return The maximum number of results held by the cache.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return The number of results currently held by the cache.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of lookups answered from the cache.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups which found no result.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of results evicted to make room for new ones.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Removes all results and resets the counters.
+     */
+    public synchronized void clear() {
+        for (int slot = 0; slot < slots.length(); slot += STRIDE) {
+            if (slots.get(slot + KEY) != EMPTY)
+                write(slot, EMPTY, 0L);
+        }
+        size = 0;
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    private static long key(char operation, int value) {
+        /* the operation is offset by one, so that no key is EMPTY */
+        return (long)(operation + 1) << 32 | (value & 0xffffffffL);
+    }
+
+    private int index(long key) {
+        return (int)((key * 0x9e3779b97f4a7c15L) >>> shift) & mask;
+    }
+
+    /* the first slot of the key's probe window the CLOCK hand finds unreferenced, clearing the ones it passes */
+    private int victim(int index) {
+        for (int step = 0; ; step++) {
+            int slot = ((index + (hand++ & (PROBES - 1))) & mask) * STRIDE;
+            if (slots.get(slot + REFERENCED) == 0 || step >= 2 * PROBES)
+                return slot;
+            slots.set(slot + REFERENCED, 0);
+        }
+    }
+
+    private void write(int slot, long key, long result) {
+        long version = slots.get(slot + VERSION);
+        slots.set(slot + VERSION, version + 1);
+        slots.set(slot + KEY, key);
+        slots.set(slot + RESULT, result);
+        slots.set(slot + REFERENCED, 0);
+        slots.set(slot + VERSION, version + 2);
+    }
+}
@@ -2,17 +2,30 @@ package org.etfbl.tks;
 
 import org.etfbl.tks.exceptions.*;
 import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.expression.CompiledExpression;
+import org.etfbl.tks.expression.ExpressionCache;
+import org.etfbl.tks.metrics.CalculatorMetrics;
 
-import java.io.FileInputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleSupplier;
 
 /**
  * A simple, base calculator class, with an accumulator-like member, 'currentValue'.
  *
+ * <p>The accumulator is kept as a primitive <code>double</code>. The <code>Double</code>-based methods are retained as
+ * a thin, compatible layer over the primitive ones (<code>calculate(double, char)</code>, <code>getAsDouble()</code>
+ * and <code>setCurrentValue(double)</code>), which never allocate.</p>
+ *
  * @author Ognjen Komadina, ind. 1163/20
  * @since 2024-11-30
  */
-public class Calculator {
-    private Double currentValue = 0.0;
+public class Calculator implements DoubleSupplier {
+    private double currentValue = 0.0;
+    private OperatorRegistry operatorRegistry = OperatorRegistry.shared();
 
     /**
      * Creates a new instance of <code>Calculator</code> class, with the <code>currentValue</code> field set to
@@ -33,24 +46,87 @@ public class Calculator {
         else this.currentValue = 0.0;
     }
 
+    /**
+     * Creates a new instance of <code>Calculator</code> class with the <code>currentValue</code> field set to the
+     * primitive <code>value</code>.
+     *
+     * @param value The value to be assigned for the accumulator.
+     */
+    public Calculator(double value) { this.currentValue = value; }
+
     /**
      * Returns the current value of accumulator (currentValue).
      *
-     * @return The value of currentValue.
+     * @return The value of currentValue, boxed.
      */
     public Double getCurrentValue() {
+        return getAsDouble();
+    }
+
+    /**
+     * Returns the current value of accumulator (currentValue) as a primitive, without boxing.
+     *
+     * @return The value of currentValue.
+     */
+    @Override
+    public double getAsDouble() {
         return currentValue;
     }
 
     /**
-     * Updates the value of accumulator with the input parameter's one.
+     * Updates the value of accumulator with the input parameter's one. A <b>null</b> value resets the accumulator to
+     * <b>zero</b>.
      *
      * @param currentValue The new updated value of acumulator.
      */
     public void setCurrentValue(Double currentValue) {
+        setCurrentValue(currentValue != null ? currentValue : 0.0);
+    }
+
+    /**
+     * Updates the value of accumulator with the primitive input parameter's one.
+     *
+     * @param currentValue The new updated value of acumulator.
+     */
+    public void setCurrentValue(double currentValue) {
         this.currentValue = currentValue;
     }
 
+    /**
+     * @return The registry of the operators this calculator dispatches on.
+     */
+    public OperatorRegistry getOperatorRegistry() {
+        return operatorRegistry;
+    }
+
+    /**
+     * Replaces the registry of the operators this calculator dispatches on (by default,
+     * <code>OperatorRegistry.shared()</code>), so that operators can be added without affecting other calculators.
+     *
+     * @param operatorRegistry The registry.
+     * @see OperatorRegistry
+     */
+    public void setOperatorRegistry(OperatorRegistry operatorRegistry) {
+        this.operatorRegistry = Objects.requireNonNull(operatorRegistry, "operatorRegistry");
+    }
+
+    /**
+     * Boxed variant of <code>calculate(double, char)</code>, where a <b>null</b> operand is treated as <b>zero</b>.
+     *
+     * @param value Value to be used as a second operand in the specified arithmetic operation.
+     * @param operator The arithmetic operation indicator
+     *                 (<code>+</code>, <code>-</code>, <code>*</code>, or <code>/</code>).
+     * @throws DivisionByZeroException If the specified char operators division and the supplied operand is equal to zero.
+     * @throws NotSupportedOperationException If any symbol other than <code>+</code>, <code>-</code>, <code>*</code>
+     *                                        or <code>/</code> is passed as a parameter value of <code>operator</code>.
+     * @see #calculate(double, char)
+     */
+    public void calculate(Double value, char operator)
+            throws DivisionByZeroException, NotSupportedOperationException
+    {
+        /* should signal some kind of ArithmeticException? */
+        calculate(value != null ? value : 0.0, operator);
+    }
 
     /**
      * Performs a basic calculator operation, such as addition, subtraction, multiplication or division. The result of
@@ -64,25 +140,122 @@ public class Calculator {
      * @throws NotSupportedOperationException If any symbol other than <code>+</code>, <code>-</code>, <code>*</code>
      *                                        or <code>/</code> is passed as a parameter value of <code>operator</code>.
      */
-    public void calculate(Double value, char operator)
+    public void calculate(double value, char operator)
             throws DivisionByZeroException, NotSupportedOperationException
     {
-        /* should signal some kind of ArithmeticException? */
-        if (value == null) { value = 0.0; }
-
-        /* reassure that the calculator doesn't break, since a double wrapper is being used */
-        if (this.currentValue == null) { this.currentValue = 0.0; }
-
-        if (operator == '+') {
-            currentValue += value;
-        } else if (operator == '-') {
-            currentValue -= value;
-        } else if (operator == '*') {
-            currentValue *= value;
-        } else if (operator == '/') {
-            if (value == 0.0)
-                throw new DivisionByZeroException("Arithmetic exception - division by zero.");
-            currentValue /= value;
-        } else throw new NotSupportedOperationException("Invalid operand: " + operator);
+        long start = CalculatorMetrics.ENABLED ? CalculatorMetrics.CALCULATE.start(operator) : 0L;
+        int status = tryCalculate(value, operator);
+        if (CalculatorMetrics.ENABLED)
+            CalculatorMetrics.CALCULATE.stop(operator, start, status != Status.OK);
+        if (status == Status.DIVISION_BY_ZERO)
+            throw CalculatorExceptions.divisionByZero();
+        if (status != Status.OK)
+            throw CalculatorExceptions.invalidOperand(operator);
+    }
+
+    /**
+     * Non-throwing variant of <code>calculate(double, char)</code>, signaling failures through the returned status
+     * code instead of exceptions. A failed operation leaves the accumulator unchanged. Besides the built-in ones, any
+     * binary operator registered in the calculator's <code>OperatorRegistry</code> is accepted.
+     *
+     * @param value Value to be used as a second operand in the specified arithmetic operation.
+     * @param operator The arithmetic operation indicator
+     *                 (<code>+</code>, <code>-</code>, <code>*</code>, or <code>/</code>).
+     * @return <code>Status.OK</code>, <code>Status.DIVISION_BY_ZERO</code> or <code>Status.NOT_SUPPORTED</code>.
+     * @see Status
+     */
+    public int tryCalculate(double value, char operator) {
+        OperatorRegistry operators = operatorRegistry;
+        if (operators == OperatorRegistry.shared() && OperatorRegistry.isSharedArithmeticBuiltin()) {
+            switch (operator) {
+                case '+': currentValue += value; return Status.OK;
+                case '-': currentValue -= value; return Status.OK;
+                case '*': currentValue *= value; return Status.OK;
+                case '/':
+                    if (value == 0.0)
+                        return Status.DIVISION_BY_ZERO;
+                    currentValue /= value;
+                    return Status.OK;
+                default: break;
+            }
+        }
+        DoubleBinaryOperator operation = operators.getBinary(operator);
+        if (operation == null)
+            return Status.NOT_SUPPORTED;
+        if (value == 0.0 && operators.rejectsZero(operator))
+            return Status.DIVISION_BY_ZERO;
+        currentValue = operation.applyAsDouble(currentValue, value);
+        return Status.OK;
+    }
+
+    /**
+     * Evaluates an infix expression, such as <code>(1.5 + 2) * 3^2 - 4!</code>, and stores its value into the
+     * accumulator. Refer to <code>evaluate(String, Map)</code> for expressions with variables.
+     *
+     * @param expression The expression text.
+     * @throws InvalidExpressionException If the expression is not syntactically valid, or contains variables.
+     * @throws DivisionByZeroException If a divisor evaluates to zero, or zero is raised to a negative power.
+     * @throws NumberNotInAreaException If the factorial of a value out of the range of <code>[0, 170]</code> is
+     * requested.
+     */
+    public void evaluate(String expression)
+            throws InvalidExpressionException, DivisionByZeroException, NumberNotInAreaException
+    {
+        evaluate(expression, Collections.<String, Double>emptyMap());
+    }
+
+    /**
+     * Evaluates an infix expression with variables, such as <code>x^2 + 2*x*y + y^2</code>, and stores its value into
+     * the accumulator. Supported are the <code>+</code>, <code>-</code>, <code>*</code> and <code>/</code> operators
+     * (with the usual precedence), unary minus, exponentiation (<code>^</code>), factorial (<code>!</code>) and
+     * parentheses. Compiled expressions are kept in the shared <code>ExpressionCache</code>, so re-evaluating the same
+     * expression text with new variable bindings skips parsing.
+     *
+     * @param expression The expression text.
+     * @param variables The values of the expression's variables, by name.
+     * @throws InvalidExpressionException If the expression is not syntactically valid, or one of its variables is not
+     * bound to a (non-null) value.
+     * @throws DivisionByZeroException If a divisor evaluates to zero, or zero is raised to a negative power.
+     * @throws NumberNotInAreaException If the factorial of a value out of the range of <code>[0, 170]</code> is
+     * requested.
+     * @see CompiledExpression
+     */
+    public void evaluate(String expression, Map<String, Double> variables)
+            throws InvalidExpressionException, DivisionByZeroException, NumberNotInAreaException
+    {
+        CompiledExpression compiled = ExpressionCache.shared().get(expression);
+        List<String> names = compiled.getVariables();
+        double[] values = new double[names.size()];
+        for (int i = 0; i < values.length; i++) {
+            Double value = variables.get(names.get(i));
+            if (value == null)
+                throw new InvalidExpressionException("Unbound variable: " + names.get(i));
+            values[i] = value;
+        }
+        setCurrentValue(compiled.evaluate(values));
+    }
+
+    /**
+     * Non-throwing variant of <code>evaluate(String, Map)</code>, signaling failures through the returned status code
+     * instead of exceptions. A failed evaluation leaves the accumulator unchanged.
+     *
+     * @param expression The expression text.
+     * @param variables The values of the expression's variables, by name.
+     * @return <code>Status.OK</code>, <code>Status.INVALID_EXPRESSION</code>, <code>Status.DIVISION_BY_ZERO</code> or
+     * <code>Status.NOT_IN_AREA</code>.
+     * @see Status
+     */
+    public int tryEvaluate(String expression, Map<String, Double> variables) {
+        /* the compiler and evaluator signal errors through exceptions, which are stackless if enabled */
+        try {
+            evaluate(expression, variables);
+            return Status.OK;
+        } catch (InvalidExpressionException ex) {
+            return Status.INVALID_EXPRESSION;
+        } catch (DivisionByZeroException ex) {
+            return Status.DIVISION_BY_ZERO;
+        } catch (NumberNotInAreaException ex) {
+            return Status.NOT_IN_AREA;
+        }
     }
 }
@@ -1,11 +1,25 @@
 package org.etfbl.tks;
 
+import org.etfbl.tks.exceptions.CalculatorExceptions;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
 import org.etfbl.tks.exceptions.NumberNotInAreaException;
 import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.math.ArmstrongNumbers;
+import org.etfbl.tks.math.DivisorSieve;
+import org.etfbl.tks.math.DivisorSums;
+import org.etfbl.tks.math.Factorials;
+import org.etfbl.tks.math.PerfectNumbers;
+import org.etfbl.tks.math.Powers;
+import org.etfbl.tks.math.PrimeSieve;
+import org.etfbl.tks.metrics.CalculatorMetrics;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * An extended calculator class, implementing advanced mathematical operations, such as factorial calculation,
- * exponentiation, calculating the Armstrong and perfect-number properties of accumulator value. For additional
+ * exponentiation, calculating the Armstrong, perfect-number and prime properties of accumulator value. For additional
  * information, refer to the <code>Calculator</code> class, linked below.
  *
  * @author Ognjen Komadina, ind. 1163/20
@@ -13,38 +27,176 @@ import org.etfbl.tks.exceptions.NotSupportedOperationException;
  * @see Calculator
  */
 public class CalculatorAdvanced extends Calculator {
+    /**
+     * The default upper bound of the factorial calculation's range, <code>[0, 10]</code>.
+     */
+    public static final int DEFAULT_FACTORIAL_LIMIT = 10;
+
+    /* the certainty of the primality tests past the long range, with an error probability below 2^-100 */
+    private static final int PRIME_CERTAINTY = 100;
+
+    /* a NaN payload, which no cached result has */
+    private static final long ABSENT = 0x7ff8_dead_0000_0001L;
+
+    private int factorialLimit = DEFAULT_FACTORIAL_LIMIT;
+    private AdvancedResultCache resultCache;
+
+    /**
+     * Returns the upper bound of the range <code>[0, factorialLimit]</code>, out of which calculating the factorial
+     * value of <code>currentValue</code> raises a <code>NumberNotInAreaException</code>.
+     *
+     * @return The current factorial limit.
+     */
+    public int getFactorialLimit() {
+        return factorialLimit;
+    }
+
+    /**
+     * Updates the upper bound of the factorial calculation's range. Factorials up to <code>170!</code> are looked up
+     * in a constant table, so raising the limit does not slow the calculation down.
+     *
+     * @param factorialLimit The new upper bound, in range <code>[0, 170]</code> (the largest factorial representable
+     *                       as a <code>double</code>).
+     * @throws IllegalArgumentException If <code>factorialLimit</code> is out of the range of <code>[0, 170]</code>.
+     * @see Factorials
+     */
+    public void setFactorialLimit(int factorialLimit) {
+        if (factorialLimit < 0 || factorialLimit > Factorials.MAX_DOUBLE)
+            throw new IllegalArgumentException("Expected a factorial limit in range [0, " + Factorials.MAX_DOUBLE
+                    + "], received: " + factorialLimit);
+        this.factorialLimit = factorialLimit;
+    }
+
+    /**
+     * @return The cache of advanced operation results, or <code>null</code> if results are not cached.
+     */
+    public AdvancedResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets the cache of <code>hasCharacteristic</code> results (by default, none). Results only depend on the
+     * characteristic and the integer part of the accumulator, so a single cache, such as
+     * <code>AdvancedResultCache.shared()</code>, can serve any number of calculators. Only the values out of the shared
+     * <code>DivisorSieve</code>'s range are cached, since the divisor sums of the other ones (and factorials and
+     * powers, for <code>calculateAdvanced</code>) are cheaper to look up than a cached result.
+     *
+     * @param resultCache The cache, or <code>null</code> to stop caching results.
+     * @see AdvancedResultCache
+     */
+    public void setResultCache(AdvancedResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
 
     /**
      * The method performs dual responsibility, calculating the factorial value of <code>currentValue</code> (if the
      * value of <code>action</code> is equal to <code>'!'</code>, <code>0x21</code>), or exponentiation (if the provided
-     * value of <code>action</code> is between <code>[0x30, 0x39]</code>).
+     * value of <code>action</code> is between <code>[0x30, 0x39]</code>). Exponentiation raises the integer part of
+     * <code>currentValue</code> by squaring, exactly while the result fits a <code>long</code>; for fractional bases
+     * or exponents above 9, refer to <code>calculatePower</code>.
      *
      * @param action The advanced mathematical calculation to be performed (factorial calculation or exponentiation).
      * @throws NotSupportedOperationException If the value of <code>action</code> is not in the range of
      * <code>[0x30, 0x39]</code> or is not equal to the ASCII value of '<code>!</code>' (<code>0x21</code>)
      * @throws NumberNotInAreaException Calculating the factorial value of <code>currentValue</code> is allowed only if
-     * the floor-value of it is in the range of <code>[0, 10]</code>, otherwise this exception is thrown.
+     * the floor-value of it is in the range of <code>[0, 10]</code> (or <code>[0, factorialLimit]</code>, if the limit
+     * was changed), otherwise this exception is thrown.
      */
     public void calculateAdvanced(char action)
         throws NotSupportedOperationException, NumberNotInAreaException
     {
-        if (this.getCurrentValue() == null || this.getCurrentValue().isNaN() || this.getCurrentValue().isInfinite()) {
-            this.setCurrentValue(0.0);
+        long start = CalculatorMetrics.ENABLED ? CalculatorMetrics.ADVANCED.start(action) : 0L;
+        int status = tryCalculateAdvanced(action);
+        if (CalculatorMetrics.ENABLED)
+            CalculatorMetrics.ADVANCED.stop(action, start, status != Status.OK);
+        if (status == Status.NOT_IN_AREA)
+            throw advancedNotInArea(getAsDouble(), action);
+        if (status != Status.OK)
+            throw CalculatorExceptions.invalidAction(action);
+    }
+
+    /**
+     * Non-throwing variant of <code>calculateAdvanced(char)</code>, signaling failures through the returned status
+     * code instead of exceptions. Same as with <code>calculateAdvanced</code>, a <code>NaN</code> or infinite
+     * accumulator is reset to <code>0</code> first, even if the operation fails afterwards. Besides the built-in ones,
+     * any unary operator registered in the calculator's <code>OperatorRegistry</code> is accepted.
+     *
+     * @param action The advanced mathematical calculation to be performed (factorial calculation or exponentiation).
+     * @return <code>Status.OK</code>, <code>Status.NOT_SUPPORTED</code> or <code>Status.NOT_IN_AREA</code>.
+     * @see Status
+     */
+    public int tryCalculateAdvanced(char action) {
+        double currentValue = getAsDouble();
+        if (Double.isNaN(currentValue) || Double.isInfinite(currentValue)) {
+            currentValue = 0.0;
+            setCurrentValue(currentValue);
+        }
+
+        double result = advanced(currentValue, action);
+        if (Double.isNaN(result))
+            return advancedFailure(action);
+        setCurrentValue(result);
+        return Status.OK;
+    }
+
+    /**
+     * Calculates the result of <code>calculateAdvanced(action)</code> for the (finite) accumulator value
+     * <code>currentValue</code>, without updating the accumulator, through the registered unary operator. Returns
+     * <code>NaN</code> if the operation fails, for the reason given by <code>advancedFailure(action)</code>.
+     */
+    double advanced(double currentValue, char action) {
+        DoubleUnaryOperator operation = getOperatorRegistry().getUnary(action);
+        if (operation == null || operation == OperatorRegistry.FACTORIAL && currentValue > factorialLimit)
+            return Double.NaN;
+        return operation.applyAsDouble(currentValue);
+    }
+
+    /* the status of a calculateAdvanced(action) which failed */
+    int advancedFailure(char action) {
+        return getOperatorRegistry().getUnary(action) == null ? Status.NOT_SUPPORTED : Status.NOT_IN_AREA;
+    }
+
+    /* the range error of calculateAdvanced(action) for currentValue */
+    NumberNotInAreaException advancedNotInArea(double currentValue, char action) {
+        if (getOperatorRegistry().getUnary(action) == OperatorRegistry.FACTORIAL)
+            return CalculatorExceptions.notInArea("Expected a non-negative integer in range [0, " + factorialLimit
+                    + "], received: " + (int)currentValue);
+        return CalculatorExceptions.notInArea("Value out of the domain of " + action + ": " + currentValue);
+    }
+
+    /**
+     * Raises the <code>currentValue</code> accumulator (including its fractional part) to the power of
+     * <code>exponent</code>, by repeated squaring. Unlike <code>calculateAdvanced</code>, any exponent is accepted,
+     * including ones above 9 and negative ones, for which the reciprocal of the positive power is used. Same as with
+     * <code>calculateAdvanced</code>, a <code>NaN</code> or infinite accumulator is reset to <code>0</code> first.
+     *
+     * @param exponent The exponent value.
+     * @throws DivisionByZeroException If <code>exponent</code> is negative and the accumulator is equal to zero.
+     */
+    public void calculatePower(int exponent) throws DivisionByZeroException {
+        if (tryCalculatePower(exponent) != Status.OK)
+            throw CalculatorExceptions.divisionByZero();
+    }
+
+    /**
+     * Non-throwing variant of <code>calculatePower(int)</code>, signaling failures through the returned status code
+     * instead of exceptions.
+     *
+     * @param exponent The exponent value.
+     * @return <code>Status.OK</code> or <code>Status.DIVISION_BY_ZERO</code>.
+     * @see Status
+     */
+    public int tryCalculatePower(int exponent) {
+        double currentValue = getAsDouble();
+        if (Double.isNaN(currentValue) || Double.isInfinite(currentValue)) {
+            currentValue = 0.0;
+            setCurrentValue(currentValue);
         }
 
-        if (action == '!') {
-            if (getCurrentValue() < 0.0 || getCurrentValue() > 10.0)
-                throw new NumberNotInAreaException(
-                        "Expected a non-negative integer in range [0, 10], received: " + getCurrentValue().intValue());
-            int product = 1;
-            for (int i = 1; i <= getCurrentValue().intValue(); i++) {
-                product *= i;
-            }
-            setCurrentValue((double)product);
-        } else if (action >= 0x30 && action <= 0x39) {
-            int exponentValue = (int)action - 0x30;
-            setCurrentValue((double)exponent(getCurrentValue().intValue(), exponentValue));
-        } else throw new NotSupportedOperationException("Invalid action: " + action);
+        if (exponent < 0 && currentValue == 0.0)
+            return Status.DIVISION_BY_ZERO;
+        setCurrentValue(Powers.pow(currentValue, exponent));
+        return Status.OK;
     }
 
     /**
@@ -55,66 +207,263 @@ public class CalculatorAdvanced extends Calculator {
      *     <li><i>Armstrong's number: returns <code>true</code> for an N-digit number, if the sum of it's N-powered
      *     digits is equal to the number itself.</i></li>
      *     <li><i>Perfect number: returns <code>true</code> if the number is equal to the sum of it's common divisors.</i></li>
+     *     <li><i>Abundant number: returns <code>true</code> if the sum of the number's common divisors is greater than
+     *     the number itself.</i></li>
+     *     <li><i>Deficient number: returns <code>true</code> if the sum of the number's common divisors is less than
+     *     the number itself.</i></li>
+     *     <li><i>Prime number: returns <code>true</code> if the number has no divisors other than <code>1</code> and
+     *     itself (<code>1</code> is not a prime).</i></li>
      * </ul>
      *
-     * @param value The characteristic symbol, <code>A</code> for Armstrong condition, and <code>P</code> for the perfect
-     *              number characteristic.
+     * The divisor sums are looked up in the shared <code>DivisorSieve</code>, and the primes in the shared
+     * <code>PrimeSieve</code>, so repeated queries are answered in constant time. Accumulator values past the
+     * <code>int</code> range are checked as by <code>hasCharacteristic(long, char)</code>, and an infinite accumulator
+     * is out of the area. Exactly one of the <code>P</code>, <code>B</code> and <code>D</code> characteristics holds
+     * for any value, where, by this calculator's convention, <code>1</code> is considered a perfect number.
+     *
+     * @param value The characteristic symbol, <code>A</code> for Armstrong condition, <code>P</code> for the perfect
+     *              number characteristic, <code>B</code> for abundant, <code>D</code> for deficient and
+     *              <code>R</code> for prime numbers.
      * @return Boolean logic value, indicating whether the <code>currentValue</code> satisfies the specified characteristic.
-     * @throws NotSupportedOperationException If any ASCII symbol for <code>value</code> other than <code>A</code> or
-     * <code>P</code> is passed.
+     * @throws NotSupportedOperationException If any ASCII symbol for <code>value</code> other than <code>A</code>,
+     * <code>P</code>, <code>B</code>, <code>D</code> or <code>R</code> is passed.
      * @throws NumberNotInAreaException If the <code>currentValue</code> mathematical floor value is less than 1 (i.e.
      * it's integer representation).
      */
     public Boolean hasCharacteristic(char value)
             throws NotSupportedOperationException, NumberNotInAreaException {
-        if (getCurrentValue().intValue() < 1) {
-            throw new NumberNotInAreaException(
-                    "Expected floor value greater than 1, received: " + getCurrentValue().intValue());
-        }
+        long start = CalculatorMetrics.ENABLED ? CalculatorMetrics.CHARACTERISTIC.start(value) : 0L;
+        double currentValue = getAsDouble();
+        int status = accumulatorCharacteristic(currentValue, value);
+        if (CalculatorMetrics.ENABLED)
+            CalculatorMetrics.CHARACTERISTIC.stop(value, start, Status.isError(status));
+        if (status == Status.NOT_IN_AREA)
+            throw characteristicNotInArea(currentValue == Double.POSITIVE_INFINITY ? "Infinity"
+                    : String.valueOf((int)currentValue));
+        return characteristicResult(status);
+    }
+
+    /**
+     * Calculates whether <code>number</code> satisfies the characteristic, same as <code>hasCharacteristic(char)</code>
+     * does for the accumulator (including the convention of <code>1</code> being a perfect number), without changing
+     * the accumulator. Past the <code>int</code> range, no divisor sums are looked up:
+     *
+     * <ul>
+     *     <li><i>Armstrong numbers are looked up in the table of all (88) Armstrong numbers.</i></li>
+     *     <li><i>Perfect numbers are recognized by the Euclid&ndash;Euler theorem, as <code>2^(p-1) * (2^p - 1)</code>,
+     *     where <code>2^p - 1</code> passes the Lucas&ndash;Lehmer test.</i></li>
+     *     <li><i>Abundant and deficient numbers are factored through trial division of the small factors, and
+     *     Pollard's rho method for the large ones, in <code>O(n^(1/4))</code> steps.</i></li>
+     *     <li><i>Primes are tested through the deterministic Miller&ndash;Rabin test of <code>Primes</code>.</i></li>
+     * </ul>
+     *
+     * @param number The value to be checked.
+     * @param value The characteristic symbol (<code>A</code>, <code>P</code>, <code>B</code>, <code>D</code> or
+     *              <code>R</code>).
+     * @return Boolean logic value, indicating whether <code>number</code> satisfies the specified characteristic.
+     * @throws NotSupportedOperationException If any ASCII symbol for <code>value</code> other than <code>A</code>,
+     * <code>P</code>, <code>B</code>, <code>D</code> or <code>R</code> is passed.
+     * @throws NumberNotInAreaException If <code>number</code> is less than 1.
+     * @see PerfectNumbers
+     */
+    public Boolean hasCharacteristic(long number, char value)
+            throws NotSupportedOperationException, NumberNotInAreaException {
+        long start = CalculatorMetrics.ENABLED ? CalculatorMetrics.CHARACTERISTIC.start(value) : 0L;
+        int status = characteristic(number, value);
+        if (CalculatorMetrics.ENABLED)
+            CalculatorMetrics.CHARACTERISTIC.stop(value, start, Status.isError(status));
+        if (status == Status.NOT_IN_AREA)
+            throw characteristicNotInArea(String.valueOf(number));
+        return characteristicResult(status);
+    }
+
+    /**
+     * Calculates whether <code>number</code> satisfies the characteristic, same as
+     * <code>hasCharacteristic(long, char)</code>, for values of any size. Past the <code>long</code> range, primes are
+     * tested through <code>BigInteger.isProbablePrime</code> (with an error probability below <code>2^-100</code>),
+     * while the abundant and deficient characteristics are not supported, since they would require the value to be
+     * factored.
+     *
+     * @param number The value to be checked.
+     * @param value The characteristic symbol (<code>A</code>, <code>P</code>, <code>B</code>, <code>D</code> or
+     *              <code>R</code>).
+     * @return Boolean logic value, indicating whether <code>number</code> satisfies the specified characteristic.
+     * @throws NotSupportedOperationException If any ASCII symbol for <code>value</code> other than <code>A</code>,
+     * <code>P</code>, <code>B</code>, <code>D</code> or <code>R</code> is passed, or <code>B</code> or <code>D</code>
+     * for a value out of the <code>long</code> range.
+     * @throws NumberNotInAreaException If <code>number</code> is less than 1.
+     */
+    public Boolean hasCharacteristic(BigInteger number, char value)
+            throws NotSupportedOperationException, NumberNotInAreaException {
+        long start = CalculatorMetrics.ENABLED ? CalculatorMetrics.CHARACTERISTIC.start(value) : 0L;
+        int status = characteristic(number, value);
+        if (CalculatorMetrics.ENABLED)
+            CalculatorMetrics.CHARACTERISTIC.stop(value, start, Status.isError(status));
+        if (status == Status.NOT_IN_AREA)
+            throw characteristicNotInArea(number.toString());
+        return characteristicResult(status);
+    }
 
+    /* the received value is only formatted once the check has failed, so successful checks do not allocate */
+    private static NumberNotInAreaException characteristicNotInArea(String received) {
+        return CalculatorExceptions.notInArea("Expected floor value greater than 1, received: " + received);
+    }
+
+    private static Boolean characteristicResult(int status) throws NotSupportedOperationException {
+        if (status == Status.NOT_SUPPORTED)
+            throw CalculatorExceptions.notSupported();
+        return status == Status.TRUE;
+    }
+
+    /**
+     * Non-throwing variant of <code>hasCharacteristic(char)</code>, signaling failures through the returned status
+     * code instead of exceptions.
+     *
+     * @param value The characteristic symbol (<code>A</code>, <code>P</code>, <code>B</code>, <code>D</code> or
+     *              <code>R</code>).
+     * @return <code>Status.TRUE</code> or <code>Status.FALSE</code>, or one of <code>Status.NOT_IN_AREA</code> and
+     * <code>Status.NOT_SUPPORTED</code> on failure.
+     * @see Status
+     */
+    public int tryHasCharacteristic(char value) {
+        return accumulatorCharacteristic(getAsDouble(), value);
+    }
+
+    /* accumulator values past the int range are checked as a long (or a BigInteger), rather than saturated */
+    private int accumulatorCharacteristic(double currentValue, char value) {
+        if (!(currentValue >= 0x1p31))
+            return cachedCharacteristic((int)currentValue, value);
+        if (currentValue == Double.POSITIVE_INFINITY)
+            return Status.NOT_IN_AREA;
+        if (currentValue < 0x1p63)
+            return characteristic((long)currentValue, value);
+        return characteristic(new BigDecimal(currentValue).toBigInteger(), value);
+    }
+
+    private int cachedCharacteristic(int currentValue, char value) {
+        AdvancedResultCache cache = resultCache;
+        int tableLimit = value == 'R' ? PrimeSieve.shared().getLimit() : DivisorSieve.shared().getLimit();
+        if (cache == null || currentValue <= tableLimit)
+            return characteristic(currentValue, value);
+
+        long cached = cache.get(value, currentValue, ABSENT);
+        if (cached != ABSENT)
+            return (int)cached;
+        int status = characteristic(currentValue, value);
+        if (!Status.isError(status))
+            cache.put(value, currentValue, status);
+        return status;
+    }
+
+    private static int characteristic(int currentValue, char value) {
+        if (currentValue < 1)
+            return Status.NOT_IN_AREA;
+
+        boolean result;
         if (value == 'A') {
-            int len = String.format("%d", getCurrentValue().intValue()).length(),
-                temp = getCurrentValue().intValue(),
-                digit, sum = 0;
+            result = ArmstrongNumbers.isArmstrong(currentValue);
+        } else if (value == 'P') {
+            result = aliquotSum(currentValue) == currentValue;
+        } else if (value == 'B') {
+            result = aliquotSum(currentValue) > currentValue;
+        } else if (value == 'D') {
+            result = aliquotSum(currentValue) < currentValue;
+        } else if (value == 'R') {
+            result = PrimeSieve.shared().isPrime(currentValue);
+        } else return Status.NOT_SUPPORTED;
+        return result ? Status.TRUE : Status.FALSE;
+    }
 
-            do {
-                digit = temp % 10;
-                temp /= 10;
-                sum += exponent(digit, len);
-            } while (temp > 0);
+    private static int characteristic(long currentValue, char value) {
+        if (currentValue <= Integer.MAX_VALUE)
+            return characteristic((int)Math.max(currentValue, 0L), value);
 
-            return sum == getCurrentValue().intValue();
+        boolean result;
+        if (value == 'A') {
+            result = ArmstrongNumbers.isArmstrong(currentValue);
         } else if (value == 'P') {
-            int sum = 1;
+            result = PerfectNumbers.isPerfect(currentValue);
+        } else if (value == 'B') {
+            result = DivisorSums.abundance(currentValue) > 0;
+        } else if (value == 'D') {
+            result = DivisorSums.abundance(currentValue) < 0;
+        } else if (value == 'R') {
+            result = PrimeSieve.shared().isPrime(currentValue);
+        } else return Status.NOT_SUPPORTED;
+        return result ? Status.TRUE : Status.FALSE;
+    }
 
-            for (int i = 2; i <= getCurrentValue().intValue() / 2; i++) {
-                if (getCurrentValue().intValue() % i == 0) {
-                    sum += i;
-                }
-            }
-            return sum == getCurrentValue().intValue();
-        } else throw new NotSupportedOperationException();
+    private static int characteristic(BigInteger currentValue, char value) {
+        if (currentValue.bitLength() < Long.SIZE)
+            return characteristic(currentValue.longValue(), value);
+        if (currentValue.signum() < 0)
+            return Status.NOT_IN_AREA;
+
+        boolean result;
+        if (value == 'A') {
+            result = ArmstrongNumbers.isArmstrong(currentValue);
+        } else if (value == 'P') {
+            result = PerfectNumbers.isPerfect(currentValue);
+        } else if (value == 'R') {
+            result = currentValue.isProbablePrime(PRIME_CERTAINTY);
+        } else return Status.NOT_SUPPORTED;
+        return result ? Status.TRUE : Status.FALSE;
+    }
+
+    /**
+     * The sum of common (proper) divisors of <code>value</code>, where <code>1</code> is counted as its own divisor.
+     */
+    private static long aliquotSum(int value) {
+        return value == 1 ? 1 : DivisorSieve.shared().aliquotSum(value);
     }
 
     /* [public] for unit-testing purposes */
 
     /**
-     * Raises the <code>value</code> parameter to the <code>exponent</code> value, through repeated multiplication. For
-     * zero-exponent (i.e. <code>a^0</code>) cases, the return value is equal to the mathematical rules, <code>0</code>.
+     * Raises the <code>value</code> parameter to the <code>exponent</code> value, through repeated squaring, in
+     * <code>O(log exponent)</code> multiplications. For zero-exponent (i.e. <code>a^0</code>) cases, the return value
+     * is equal to the mathematical rules, <code>1</code>. Same as with plain <code>int</code> multiplication, results
+     * out of the <code>int</code> range wrap around; refer to <code>Powers</code> for overflow-checked, modular and
+     * <code>BigInteger</code> variants. For negative exponents, the integer part of the reciprocal power is returned
+     * (<code>0</code>, unless <code>value</code> is <code>1</code> or <code>-1</code>).
      *
      * @param value The value to be exponentiated (base).
      * @param exponent The exponent value.
      * @return Mathematical result of <code>value</code>'s exponentiation to the power of <code>exponent</code>.
+     * @throws ArithmeticException If <code>value</code> is zero and <code>exponent</code> is negative.
      */
     public int exponent(int value, int exponent) {
-        if (exponent == 0) return 1;
+        if (!CalculatorMetrics.ENABLED)
+            return power(value, exponent);
+
+        long start = CalculatorMetrics.EXPONENT.start('^');
+        boolean failed = true;
+        try {
+            int result = power(value, exponent);
+            failed = false;
+            return result;
+        } finally {
+            CalculatorMetrics.EXPONENT.stop('^', start, failed);
+        }
+    }
+
+    private static int power(int value, int exponent) {
+        if (exponent < 0) {
+            if (value == 0)
+                throw new ArithmeticException("Arithmetic exception - division by zero.");
+            if (value == 1 || value == -1)
+                return (exponent & 1) == 0 ? 1 : value;
+            return 0;
+        }
 
-        int originalValue = value;
-        while (exponent > 1) {
-            value *= originalValue;
-            exponent--;
+        int result = 1;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0)
+                result *= value;
+            exponent >>>= 1;
+            value *= value;
         }
 
-        return value;
+        return result;
     }
 }
@@ -0,0 +1,255 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * A columnar calculator, holding a fixed number of independent accumulators (lanes) in a single <code>double[]</code>
+ * column. Every operation is applied to all lanes at once, through tight loops the JIT compiler is able to unroll and
+ * auto-vectorize, instead of stepping one <code>Calculator</code> object per accumulator.
+ *
+ * <p>Division by zero does not throw a <code>DivisionByZeroException</code>; instead, the affected lane keeps its
+ * value (same as a <code>Calculator</code> whose <code>calculate</code> call failed) and its bit is set in the error
+ * bitmap, which can be inspected through <code>hasError(int)</code> or <code>getErrors()</code>.</p>
+ *
+ * @see Calculator
+ */
+public class CalculatorBatch {
+    private final double[] values;
+    private final long[] errors;
+    private OperatorRegistry operatorRegistry = OperatorRegistry.shared();
+
+    /**
+     * Creates a new batch of <code>size</code> accumulators, each one set to <code>0.0</code>.
+     *
+     * @param size The number of lanes (accumulators) in the batch.
+     * @throws IllegalArgumentException If <code>size</code> is negative.
+     */
+    public CalculatorBatch(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("Expected a non-negative batch size, received: " + size);
+        this.values = new double[size];
+        this.errors = new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * Creates a new batch, with one lane per element of <code>initialValues</code> (the array is copied).
+     *
+     * @param initialValues The starting values of the accumulators.
+     */
+    public CalculatorBatch(double[] initialValues) {
+        this(initialValues.length);
+        System.arraycopy(initialValues, 0, values, 0, initialValues.length);
+    }
+
+    /**
+     * @return The number of lanes (accumulators) in the batch.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param lane The index of the lane.
+     * @return The current value of the lane's accumulator.
+     */
+    public double get(int lane) {
+        return values[lane];
+    }
+
+    /**
+     * @param lane The index of the lane.
+     * @param value The new value of the lane's accumulator.
+     */
+    public void set(int lane, double value) {
+        values[lane] = value;
+    }
+
+    /**
+     * Sets every lane's accumulator to <code>value</code>.
+     *
+     * @param value The new value of all accumulators.
+     */
+    public void fill(double value) {
+        Arrays.fill(values, value);
+    }
+
+    /**
+     * Copies the accumulators into <code>target</code>, which has to hold at least <code>size()</code> elements.
+     *
+     * @param target The destination array.
+     * @return The <code>target</code> array.
+     */
+    public double[] copyTo(double[] target) {
+        System.arraycopy(values, 0, target, 0, values.length);
+        return target;
+    }
+
+    /**
+     * @return A copy of all accumulator values.
+     */
+    public double[] toArray() {
+        return values.clone();
+    }
+
+    /**
+     * @param lane The index of the lane.
+     * @return <code>true</code> if an operation on the lane failed since the last <code>clearErrors()</code> call.
+     */
+    public boolean hasError(int lane) {
+        return (errors[lane >>> 6] & (1L << lane)) != 0;
+    }
+
+    /**
+     * @return The number of lanes flagged in the error bitmap.
+     */
+    public int errorCount() {
+        int count = 0;
+        for (long word : errors) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns a copy of the error bitmap, where bit <code>i % 64</code> of word <code>i / 64</code> corresponds to lane
+     * <code>i</code>.
+     *
+     * @return The error bitmap.
+     */
+    public long[] getErrors() {
+        return errors.clone();
+    }
+
+    /**
+     * Clears the error bitmap.
+     */
+    public void clearErrors() {
+        Arrays.fill(errors, 0L);
+    }
+
+    /**
+     * @return The registry of the operators this batch dispatches on.
+     */
+    public OperatorRegistry getOperatorRegistry() {
+        return operatorRegistry;
+    }
+
+    /**
+     * Replaces the registry of the operators this batch dispatches on (by default,
+     * <code>OperatorRegistry.shared()</code>). The built-in arithmetic operators are applied through dedicated loops,
+     * any other registered operator through a loop calling it once per lane.
+     *
+     * @param operatorRegistry The registry.
+     * @see OperatorRegistry
+     */
+    public void setOperatorRegistry(OperatorRegistry operatorRegistry) {
+        this.operatorRegistry = Objects.requireNonNull(operatorRegistry, "operatorRegistry");
+    }
+
+    /**
+     * Applies the arithmetic operation to every lane, using the same scalar <code>value</code> as the second operand.
+     * If <code>operator</code> is a division (or any operator rejecting a zero operand) and <code>value</code> is zero,
+     * no lane is modified and every lane is flagged in the error bitmap.
+     *
+     * @param value Value to be used as a second operand in the specified arithmetic operation.
+     * @param operator The arithmetic operation indicator
+     *                 (<code>+</code>, <code>-</code>, <code>*</code>, or <code>/</code>).
+     * @throws NotSupportedOperationException If any symbol other than <code>+</code>, <code>-</code>, <code>*</code>
+     *                                        or <code>/</code> is passed as a parameter value of <code>operator</code>.
+     */
+    public void calculate(double value, char operator) throws NotSupportedOperationException {
+        final double[] v = values;
+        final int n = v.length;
+        final OperatorRegistry operators = operatorRegistry;
+        final DoubleBinaryOperator operation = operators.getBinary(operator);
+        if (operation == null)
+            throw new NotSupportedOperationException("Invalid operand: " + operator);
+        if (value == 0.0 && operators.rejectsZero(operator)) {
+            flagAll();
+            return;
+        }
+
+        if (operation == OperatorRegistry.ADD) {
+            for (int i = 0; i < n; i++) v[i] += value;
+        } else if (operation == OperatorRegistry.SUBTRACT) {
+            for (int i = 0; i < n; i++) v[i] -= value;
+        } else if (operation == OperatorRegistry.MULTIPLY) {
+            for (int i = 0; i < n; i++) v[i] *= value;
+        } else if (operation == OperatorRegistry.DIVIDE) {
+            for (int i = 0; i < n; i++) v[i] /= value;
+        } else {
+            for (int i = 0; i < n; i++) v[i] = operation.applyAsDouble(v[i], value);
+        }
+    }
+
+    /**
+     * Applies the arithmetic operation lane-wise, using <code>operands[i]</code> as the second operand of lane
+     * <code>i</code>. For a division (or any operator rejecting a zero operand), lanes with a zero operand keep their
+     * value and are flagged in the error bitmap.
+     *
+     * @param operands Per-lane second operands, holding at least <code>size()</code> elements.
+     * @param operator The arithmetic operation indicator
+     *                 (<code>+</code>, <code>-</code>, <code>*</code>, or <code>/</code>).
+     * @throws NotSupportedOperationException If any symbol other than <code>+</code>, <code>-</code>, <code>*</code>
+     *                                        or <code>/</code> is passed as a parameter value of <code>operator</code>.
+     * @throws IllegalArgumentException If <code>operands</code> holds fewer elements than there are lanes.
+     */
+    public void calculate(double[] operands, char operator) throws NotSupportedOperationException {
+        final double[] v = values;
+        final int n = v.length;
+        if (operands.length < n)
+            throw new IllegalArgumentException("Expected at least " + n + " operands, received: " + operands.length);
+
+        final OperatorRegistry operators = operatorRegistry;
+        final DoubleBinaryOperator operation = operators.getBinary(operator);
+        if (operation == null)
+            throw new NotSupportedOperationException("Invalid operand: " + operator);
+        final boolean rejectsZero = operators.rejectsZero(operator);
+
+        if (operation == OperatorRegistry.ADD && !rejectsZero) {
+            for (int i = 0; i < n; i++) v[i] += operands[i];
+        } else if (operation == OperatorRegistry.SUBTRACT && !rejectsZero) {
+            for (int i = 0; i < n; i++) v[i] -= operands[i];
+        } else if (operation == OperatorRegistry.MULTIPLY && !rejectsZero) {
+            for (int i = 0; i < n; i++) v[i] *= operands[i];
+        } else if (operation == OperatorRegistry.DIVIDE && rejectsZero) {
+            /* branch-free select keeps the loop vectorizable, the bitmap is filled in a separate pass */
+            for (int i = 0; i < n; i++) {
+                double d = operands[i];
+                v[i] = d == 0.0 ? v[i] : v[i] / d;
+            }
+        } else if (rejectsZero) {
+            for (int i = 0; i < n; i++) {
+                double d = operands[i];
+                v[i] = d == 0.0 ? v[i] : operation.applyAsDouble(v[i], d);
+            }
+        } else {
+            for (int i = 0; i < n; i++) v[i] = operation.applyAsDouble(v[i], operands[i]);
+        }
+        if (rejectsZero)
+            markZeroOperands(operands, n);
+    }
+
+    private void markZeroOperands(double[] operands, int n) {
+        for (int word = 0, base = 0; base < n; word++, base += 64) {
+            long bits = 0L;
+            int end = Math.min(64, n - base);
+            for (int j = 0; j < end; j++) {
+                if (operands[base + j] == 0.0) bits |= 1L << j;
+            }
+            errors[word] |= bits;
+        }
+    }
+
+    private void flagAll() {
+        int n = values.length;
+        for (int word = 0; word < errors.length; word++) {
+            int remaining = n - (word << 6);
+            errors[word] = remaining >= 64 ? -1L : (1L << remaining) - 1;
+        }
+    }
+}
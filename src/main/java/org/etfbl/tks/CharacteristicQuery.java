@@ -0,0 +1,495 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.exceptions.CalculatorExceptions;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.etfbl.tks.math.ArmstrongNumbers;
+import org.etfbl.tks.math.DivisorSieve;
+import org.etfbl.tks.math.DivisorSums;
+import org.etfbl.tks.math.PrimeSieve;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Range queries over one of the <code>hasCharacteristic</code> characteristics (<code>A</code>, <code>P</code>,
+ * <code>B</code>, <code>D</code> or <code>R</code>), such as the count of perfect numbers in <code>[1, 10^9]</code>, or
+ * a stream of all Armstrong numbers in a range. The results are the same as of setting each value of the range as the
+ * accumulator of a <code>CalculatorAdvanced</code> and calling <code>hasCharacteristic</code>, including its convention
+ * of <code>1</code> being a perfect number, but a query holds no mutable state, so it can be used by any number of
+ * threads.
+ *
+ * <p>Ranges are searched in segments: the divisor sums of a whole segment are computed at once, through the segmented
+ * sieve of <code>DivisorSums.sigmaRange</code> (or looked up in the shared <code>DivisorSieve</code>, within its
+ * limit), primes through the shared <code>PrimeSieve</code>, while Armstrong numbers are checked one by one, or, for
+ * ranges too long to be scanned, taken at once out of the table of <code>ArmstrongNumbers.all()</code>, without
+ * splitting the range. <code>count</code>, <code>forEach</code> and <code>submit</code> split the range
+ * into segments across a <code>ForkJoinPool</code> (the common one, unless given another), and <code>submit</code>
+ * additionally supports cancellation and time limits. <code>stream</code> is lazy and ordered, and can be split by
+ * parallel streams as well.</p>
+ *
+ * @see CalculatorAdvanced#hasCharacteristic(char)
+ */
+public final class CharacteristicQuery {
+    /**
+     * The largest value a range may contain, which keeps divisor sums within the <code>long</code> range.
+     */
+    public static final long MAX_VALUE = Long.MAX_VALUE / 8;
+
+    private static final int MIN_SEGMENT = 1 << 12;
+    private static final int MAX_SEGMENT = 1 << 18;
+
+    /* Armstrong ranges at least this long are answered from the table, rather than by checking each value */
+    private static final long TABLE_THRESHOLD = 1L << 24;
+
+    private final char characteristic;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a query of <code>characteristic</code>, searching ranges on the common <code>ForkJoinPool</code>.
+     *
+     * @param characteristic The characteristic symbol (<code>A</code>, <code>P</code>, <code>B</code>,
+     *                       <code>D</code> or <code>R</code>).
+     * @throws NotSupportedOperationException If any other symbol is passed.
+     */
+    public CharacteristicQuery(char characteristic) throws NotSupportedOperationException {
+        this(characteristic, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a query of <code>characteristic</code>, searching ranges on <code>pool</code>.
+     *
+     * @param characteristic The characteristic symbol (<code>A</code>, <code>P</code>, <code>B</code>,
+     *                       <code>D</code> or <code>R</code>).
+     * @param pool The pool the segments of a range are searched on.
+     * @throws NotSupportedOperationException If any other symbol is passed.
+     */
+    public CharacteristicQuery(char characteristic, ForkJoinPool pool) throws NotSupportedOperationException {
+        if (characteristic != 'A' && characteristic != 'P' && characteristic != 'B' && characteristic != 'D'
+                && characteristic != 'R')
+            throw CalculatorExceptions.notSupported();
+        this.characteristic = characteristic;
+        this.pool = Objects.requireNonNull(pool, "pool");
+    }
+
+    /**
+     * @return The characteristic symbol of this query.
+     */
+    public char getCharacteristic() {
+        return characteristic;
+    }
+
+    /**
+     * Counts the values in <code>[from, to]</code> which satisfy the characteristic, waiting for all of the segments
+     * to be searched.
+     *
+     * @param from The first value of the range.
+     * @param to The last value of the range (the range is empty if it is less than <code>from</code>).
+     * @return The number of matching values.
+     * @throws NumberNotInAreaException If <code>from</code> is less than 1, or <code>to</code> is greater than
+     * <code>MAX_VALUE</code>.
+     */
+    public long count(long from, long to) throws NumberNotInAreaException {
+        return search(from, to, null, 0L, false).invoke();
+    }
+
+    /**
+     * Passes every value in <code>[from, to]</code> which satisfies the characteristic to <code>action</code>, waiting
+     * for all of the segments to be searched. The matches of a segment are passed in ascending order, but segments are
+     * searched concurrently, so <code>action</code> must be thread-safe, and may be called from any thread of the pool.
+     *
+     * @param from The first value of the range.
+     * @param to The last value of the range (the range is empty if it is less than <code>from</code>).
+     * @param action The action to be applied to each matching value.
+     * @throws NumberNotInAreaException If <code>from</code> is less than 1, or <code>to</code> is greater than
+     * <code>MAX_VALUE</code>.
+     */
+    public void forEach(long from, long to, LongConsumer action) throws NumberNotInAreaException {
+        search(from, to, Objects.requireNonNull(action, "action"), 0L, false).invoke();
+    }
+
+    /**
+     * Starts searching <code>[from, to]</code> in the background, passing the matching values to <code>action</code>
+     * (if any) as <code>forEach</code> does.
+     *
+     * @param from The first value of the range.
+     * @param to The last value of the range (the range is empty if it is less than <code>from</code>).
+     * @param action The action to be applied to each matching value, or <code>null</code> to only count them.
+     * @return The search, which completes with the number of matching values.
+     * @throws NumberNotInAreaException If <code>from</code> is less than 1, or <code>to</code> is greater than
+     * <code>MAX_VALUE</code>.
+     */
+    public Search submit(long from, long to, LongConsumer action) throws NumberNotInAreaException {
+        return search(from, to, action, 0L, false).start();
+    }
+
+    /**
+     * Starts searching <code>[from, to]</code> in the background, as <code>submit(from, to, action)</code> does, but
+     * stops once <code>timeout</code> elapses. A search which runs out of time completes with the number of matches
+     * found by then, and reports <code>isTimedOut()</code>.
+     *
+     * @param from The first value of the range.
+     * @param to The last value of the range (the range is empty if it is less than <code>from</code>).
+     * @param action The action to be applied to each matching value, or <code>null</code> to only count them.
+     * @param timeout The time limit of the search.
+     * @param unit The unit of <code>timeout</code>.
+     * @return The search, which completes with the number of matching values.
+     * @throws NumberNotInAreaException If <code>from</code> is less than 1, or <code>to</code> is greater than
+     * <code>MAX_VALUE</code>.
+     */
+    public Search submit(long from, long to, LongConsumer action, long timeout, TimeUnit unit)
+            throws NumberNotInAreaException {
+        return search(from, to, action, System.nanoTime() + unit.toNanos(timeout), true).start();
+    }
+
+    /**
+     * Creates a lazy, ordered stream of the values in <code>[from, to]</code> which satisfy the characteristic. The
+     * range is searched segment by segment, as the stream is consumed, so short-circuiting operations, such as
+     * <code>limit</code> or <code>findFirst</code>, search no more segments than they need. The stream is sequential;
+     * a parallel one splits the range by segments, and runs on the common <code>ForkJoinPool</code>.
+     *
+     * @param from The first value of the range.
+     * @param to The last value of the range (the range is empty if it is less than <code>from</code>).
+     * @return The stream of matching values, in ascending order.
+     * @throws NumberNotInAreaException If <code>from</code> is less than 1, or <code>to</code> is greater than
+     * <code>MAX_VALUE</code>.
+     */
+    public LongStream stream(long from, long to) throws NumberNotInAreaException {
+        checkRange(from, to);
+        return StreamSupport.longStream(new Matches(new Matcher(characteristic, from, to), from, to), false);
+    }
+
+    private Search search(long from, long to, LongConsumer action, long deadline, boolean limited)
+            throws NumberNotInAreaException {
+        checkRange(from, to);
+        return new Search(new Matcher(characteristic, from, to), from, to, action, deadline, limited);
+    }
+
+    private static void checkRange(long from, long to) throws NumberNotInAreaException {
+        if (from < 1)
+            throw CalculatorExceptions.notInArea("Expected floor value greater than 1, received: " + from);
+        if (to > MAX_VALUE)
+            throw CalculatorExceptions.notInArea("Expected a value not greater than " + MAX_VALUE
+                    + ", received: " + to);
+    }
+
+    /**
+     * A range search running on the pool of its query. Cancelling a search completes it at once; the segments being
+     * searched stop passing matches to <code>action</code>, and no further segments are started. A search running out
+     * of time stops before its next segment, so a time limit may be overrun by the time it takes to search a single
+     * segment. Once <code>get</code> returns (or throws), <code>action</code> is no longer called, except that a call
+     * already in progress when the search is cancelled runs to its end.
+     */
+    public final class Search implements Future<Long> {
+        private final Matcher matcher;
+        private final LongConsumer action;
+        private final long deadline;
+        private final boolean limited;
+        private final Segment root;
+        /* completed by the root segment, or by cancel, without waiting for the segments in flight */
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        private volatile boolean timedOut;
+        private volatile boolean failed;
+
+        Search(Matcher matcher, long from, long to, LongConsumer action, long deadline, boolean limited) {
+            this.matcher = matcher;
+            this.action = action;
+            this.deadline = deadline;
+            this.limited = limited;
+            this.root = new Segment(from, to);
+        }
+
+        /**
+         * Completes the search as cancelled, stopping its segments.
+         *
+         * @param mayInterruptIfRunning Ignored, as segments are never interrupted.
+         * @return <code>false</code> if the search has already completed.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return result.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return result.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return result.isDone();
+        }
+
+        /**
+         * @return <code>true</code> if the search stopped because its time limit elapsed.
+         */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * @return The number of matching values found (only the ones found in time, if the search timed out).
+         * @throws CancellationException If the search was cancelled.
+         * @throws ExecutionException If the action threw an exception.
+         * @throws InterruptedException If the current thread was interrupted while waiting.
+         */
+        @Override
+        public Long get() throws InterruptedException, ExecutionException {
+            return result.get();
+        }
+
+        @Override
+        public Long get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return result.get(timeout, unit);
+        }
+
+        Search start() {
+            pool.execute(() -> {
+                try {
+                    result.complete(root.invoke());
+                } catch (RuntimeException | Error e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            return this;
+        }
+
+        long invoke() {
+            return pool.invoke(root);
+        }
+
+        private boolean stopped() {
+            if (timedOut || failed || result.isCancelled())
+                return true;
+            if (limited && System.nanoTime() - deadline >= 0) {
+                timedOut = true;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Binary splitting of the range, down to (at most two) segments, which are searched in ascending order.
+         */
+        private final class Segment extends RecursiveTask<Long> {
+            private static final long serialVersionUID = 1L;
+
+            private final long from;
+            private final long to;
+
+            Segment(long from, long to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected Long compute() {
+                final int length = matcher.segmentLength;
+                if (stopped())
+                    return 0L;
+                if (matcher.armstrong != null) {
+                    long[] matches = matcher.armstrong(from, to);
+                    accept(matches, matches.length);
+                    return (long)matches.length;
+                }
+                if (to - from >= 2L * length) {
+                    long middle = from + ((to - from) / 2 / length) * length - 1;
+                    Segment upper = new Segment(middle + 1, to);
+                    upper.fork();
+                    long lower = new Segment(from, middle).compute();
+                    return lower + upper.join();
+                }
+
+                long count = 0;
+                long[] buffer = new long[(int)Math.min(length, to - from + 1)];
+                for (long start = from; start <= to && (start == from || !stopped()); start += length) {
+                    int found = matcher.find(start, (int)Math.min(length, to - start + 1), buffer);
+                    accept(buffer, found);
+                    count += found;
+                }
+                return count;
+            }
+
+            private void accept(long[] matches, int found) {
+                if (action == null)
+                    return;
+                try {
+                    for (int i = 0; i < found && !result.isCancelled(); i++) {
+                        action.accept(matches[i]);
+                    }
+                } catch (RuntimeException | Error e) {
+                    failed = true;
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the matching values of a segment, for a range of up to <code>to</code>.
+     */
+    private static final class Matcher {
+        /* shared by every query: the Armstrong numbers which fit a long (0 is not one of them) */
+        private static final long[] ARMSTRONG_TABLE = longArmstrongNumbers();
+
+        final char characteristic;
+        final int segmentLength;
+        /* the Armstrong numbers table, if the range is too long to be scanned */
+        final long[] armstrong;
+
+        Matcher(char characteristic, long from, long to) {
+            this.characteristic = characteristic;
+            if (characteristic == 'A') {
+                this.segmentLength = MIN_SEGMENT;
+                this.armstrong = to - from >= TABLE_THRESHOLD ? ARMSTRONG_TABLE : null;
+            } else {
+                /* sieving a segment takes O(length log(to) + sqrt(to)) steps, so segments cover at least sqrt(to) */
+                long root = (long)Math.sqrt((double)Math.max(to, 1L));
+                this.segmentLength = (int)Math.max(MIN_SEGMENT, Math.min(MAX_SEGMENT, Long.highestOneBit(root) << 1));
+                this.armstrong = null;
+            }
+        }
+
+        /**
+         * Stores the matching values of <code>[from, from + length)</code> into <code>buffer</code>, in ascending
+         * order.
+         *
+         * @return The number of matching values.
+         */
+        int find(long from, int length, long[] buffer) {
+            int found = 0;
+            if (characteristic == 'A') {
+                for (int i = 0; i < length; i++) {
+                    if (ArmstrongNumbers.isArmstrong(from + i))
+                        buffer[found++] = from + i;
+                }
+                return found;
+            }
+            if (characteristic == 'R')
+                return PrimeSieve.shared().primes(from, buffer, length);
+
+            DivisorSieve sieve = DivisorSieve.shared();
+            if (from + length - 1 <= sieve.getLimit()) {
+                for (int i = 0; i < length; i++) {
+                    buffer[i] = sieve.sigma((int)from + i);
+                }
+            } else DivisorSums.sigmaRange(from, buffer, 0, length);
+            /* matches are written over the divisor sums already compared, so a single buffer is enough */
+            for (int i = 0; i < length; i++) {
+                long value = from + i;
+                long aliquotSum = value == 1 ? 1 : buffer[i] - value;
+                boolean result = characteristic == 'P' ? aliquotSum == value
+                        : characteristic == 'B' ? aliquotSum > value : aliquotSum < value;
+                if (result)
+                    buffer[found++] = value;
+            }
+            return found;
+        }
+
+        /**
+         * @return The Armstrong numbers of <code>[from, to]</code>, in ascending order, sliced out of the table (only
+         * for ranges answered from it).
+         */
+        long[] armstrong(long from, long to) {
+            return Arrays.copyOfRange(armstrong, insertionPoint(armstrong, from), insertionPoint(armstrong, to + 1));
+        }
+
+        private static long[] longArmstrongNumbers() {
+            BigInteger[] all = ArmstrongNumbers.all();
+            long[] values = new long[all.length];
+            int count = 0;
+            for (BigInteger value : all) {
+                if (value.bitLength() < Long.SIZE)
+                    values[count++] = value.longValue();
+            }
+            return Arrays.copyOf(values, count);
+        }
+
+        private static int insertionPoint(long[] values, long key) {
+            int index = Arrays.binarySearch(values, key);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    /**
+     * The matching values of a range, found a segment at a time.
+     */
+    private static final class Matches implements Spliterator.OfLong {
+        private final Matcher matcher;
+        private final long to;
+        private long next;
+        private long[] buffer;
+        private int index;
+        private int count;
+
+        Matches(Matcher matcher, long from, long to) {
+            this.matcher = matcher;
+            this.next = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            while (index == count) {
+                if (next > to)
+                    return false;
+                if (matcher.armstrong != null) {
+                    buffer = matcher.armstrong(next, to);
+                    count = buffer.length;
+                    index = 0;
+                    next = to + 1;
+                    continue;
+                }
+                int length = (int)Math.min(matcher.segmentLength, to - next + 1);
+                if (buffer == null)
+                    buffer = new long[length];
+                count = matcher.find(next, length, buffer);
+                index = 0;
+                next += length;
+            }
+            action.accept(buffer[index++]);
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            final int length = matcher.segmentLength;
+            if (matcher.armstrong != null || index < count || to - next < 2L * length)
+                return null;
+            long middle = next + ((to - next) / 2 / length) * length - 1;
+            Matches lower = new Matches(matcher, next, middle);
+            next = middle + 1;
+            return lower;
+        }
+
+        @Override
+        public long estimateSize() {
+            return next > to ? count - index : to - next + 1 + count - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null;
+        }
+    }
+}
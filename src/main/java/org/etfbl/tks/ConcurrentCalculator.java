@@ -0,0 +1,371 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.exceptions.CalculatorExceptions;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.etfbl.tks.math.Powers;
+import org.etfbl.tks.metrics.CalculatorMetrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * A thread-safe variant of <code>CalculatorAdvanced</code>, whose accumulator can be shared between threads without
+ * losing updates. Two accumulator representations are available, chosen at construction time:
+ *
+ * <ul>
+ *     <li><i><code>Mode.CAS</code>: the raw bits of the accumulator are kept in an <code>AtomicLong</code>, and every
+ *     operation is applied through a compare-and-set loop, so no thread ever blocks.</i></li>
+ *     <li><i><code>Mode.STRIPED</code>: the accumulator is split into several padded cells, similar to
+ *     <code>DoubleAdder</code>. Additions and subtractions are a single compare-and-set on the cell assigned to the
+ *     calling thread, so writers rarely contend. Reading the accumulator is optimistic: the cells are summed twice,
+ *     and the sum is returned if neither pass saw a change, otherwise (after a few attempts) the cells are taken over,
+ *     as for any other operation. The other operations take over every cell (making additions wait until they are
+ *     done), and operate on their sum. Suited for workloads dominated by many writers of <code>+</code> and
+ *     <code>-</code>.</i></li>
+ * </ul>
+ *
+ * In both modes, every operation (including <code>getAsDouble()</code>) is linearizable, and the results (along with
+ * the exceptions thrown) are the same as <code>CalculatorAdvanced</code>'s, with one exception: in the striped mode, the
+ * sum of concurrent additions may be rounded differently than if they were applied in a single order. The factorial
+ * limit is not guarded, and should be configured before the instance is shared.
+ *
+ * @see CalculatorAdvanced
+ */
+public class ConcurrentCalculator extends CalculatorAdvanced {
+    /**
+     * The representation of a <code>ConcurrentCalculator</code>'s accumulator.
+     */
+    public enum Mode { CAS, STRIPED }
+
+    private static final long ZERO_BITS = Double.doubleToRawLongBits(0.0);
+    private static final int MAX_CELLS = 64;
+    /* the distance between two cells, in longs, so that they never share a (pair of) cache lines */
+    private static final int STRIDE = 16;
+    /* a NaN never produced by Double.doubleToLongBits, marking the cells taken over by an operation */
+    private static final long TAKEN = 0x7FF0_0000_0000_0001L;
+    private static final int OPTIMISTIC_READS = 4;
+
+    private final Mode mode;
+    private final AtomicLong bits;
+    /*
+     * In the striped mode, every cell is a pair of slots: the sum of the non-negative (or NaN) addends, and the sum of
+     * the magnitudes of the negative ones, so that the value of a slot never decreases between two takeovers, and a
+     * slot that reads the same twice has not changed in between. The first cell also holds the base value. The
+     * version is odd while an operation has taken over the cells, and grows by two with every takeover.
+     */
+    private final AtomicLongArray cells;
+    private final int cellMask;
+    private final AtomicLong version;
+
+    /**
+     * Creates a new compare-and-set based instance, with the accumulator set to <code>0.0</code>.
+     */
+    public ConcurrentCalculator() { this(0.0, Mode.CAS); }
+
+    /**
+     * Creates a new compare-and-set based instance, with the accumulator set to <code>value</code>.
+     *
+     * @param value The value to be assigned for the accumulator.
+     */
+    public ConcurrentCalculator(double value) { this(value, Mode.CAS); }
+
+    /**
+     * Creates a new instance, with the accumulator set to <code>value</code>. The striped mode uses one cell per
+     * available processor (rounded up to a power of two, at most 64).
+     *
+     * @param value The value to be assigned for the accumulator.
+     * @param mode The representation of the accumulator.
+     */
+    public ConcurrentCalculator(double value, Mode mode) {
+        this(value, mode, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+    }
+
+    /* [package-private] for unit-testing purposes, with a power of two number of cells */
+    ConcurrentCalculator(double value, Mode mode, int count) {
+        this.mode = mode;
+        if (mode == Mode.STRIPED) {
+            count = Math.min(MAX_CELLS, count);
+            this.bits = null;
+            /* a cell of padding before the first and after the last one */
+            this.cells = new AtomicLongArray((count + 2) * STRIDE);
+            this.cellMask = count - 1;
+            /* taken over until the initial value is stored */
+            this.version = new AtomicLong(1);
+            store(value);
+        } else {
+            this.bits = new AtomicLong(Double.doubleToRawLongBits(value));
+            this.cells = null;
+            this.cellMask = 0;
+            this.version = null;
+        }
+    }
+
+    /**
+     * @return The representation of the accumulator.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns a linearizable snapshot of the accumulator; in the striped mode, the sum of all cells.
+     *
+     * @return The value of currentValue.
+     */
+    @Override
+    public double getAsDouble() {
+        if (cells == null)
+            return Double.longBitsToDouble(bits.get());
+
+        for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            long before = version.get();
+            if ((before & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            /*
+             * the bits of a slot grow with its (non-negative) value, so if the exact sums of all the bits are the same
+             * in both passes, no slot changed in between, and they all held the summed values at once
+             */
+            double sum = 0.0;
+            long high = 0, low = 0;
+            for (int i = 0; i <= cellMask; i++) {
+                long positive = cells.get(slot(i)), negative = cells.get(slot(i) + 1);
+                high += (positive >>> 32) + (negative >>> 32);
+                low += (positive & 0xFFFF_FFFFL) + (negative & 0xFFFF_FFFFL);
+                sum = i == 0 ? cellValue(positive, negative) : sum + cellValue(positive, negative);
+            }
+            for (int i = cellMask; i >= 0; i--) {
+                long positive = cells.get(slot(i)), negative = cells.get(slot(i) + 1);
+                high -= (positive >>> 32) + (negative >>> 32);
+                low -= (positive & 0xFFFF_FFFFL) + (negative & 0xFFFF_FFFFL);
+            }
+            if (high == 0 && low == 0 && version.get() == before)
+                return sum;
+        }
+
+        double sum = takeOver();
+        store(sum);
+        return sum;
+    }
+
+    @Override
+    public void setCurrentValue(double currentValue) {
+        if (cells == null) {
+            bits.set(Double.doubleToRawLongBits(currentValue));
+            return;
+        }
+
+        takeOver();
+        store(currentValue);
+    }
+
+    @Override
+    public int tryCalculate(double value, char operator) {
+        /* both failures depend on the operands only, so they are detected before touching the accumulator */
+        OperatorRegistry operators = getOperatorRegistry();
+        DoubleBinaryOperator operation = operators.getBinary(operator);
+        if (operation == null)
+            return Status.NOT_SUPPORTED;
+        if (value == 0.0 && operators.rejectsZero(operator))
+            return Status.DIVISION_BY_ZERO;
+
+        if (cells == null) {
+            long previous;
+            long next;
+            do {
+                previous = bits.get();
+                next = Double.doubleToRawLongBits(operation.applyAsDouble(Double.longBitsToDouble(previous), value));
+            } while (!bits.compareAndSet(previous, next));
+        } else if (operation == OperatorRegistry.ADD || operation == OperatorRegistry.SUBTRACT) {
+            add(operation == OperatorRegistry.ADD ? value : -value);
+        } else {
+            double currentValue = takeOver(), result = currentValue;
+            try {
+                result = operation.applyAsDouble(currentValue, value);
+            } finally {
+                store(result);
+            }
+        }
+        return Status.OK;
+    }
+
+    @Override
+    public void calculateAdvanced(char action)
+            throws NotSupportedOperationException, NumberNotInAreaException
+    {
+        if (!CalculatorMetrics.ENABLED) {
+            advance(action);
+            return;
+        }
+
+        long start = CalculatorMetrics.ADVANCED.start(action);
+        boolean failed = true;
+        try {
+            advance(action);
+            failed = false;
+        } finally {
+            CalculatorMetrics.ADVANCED.stop(action, start, failed);
+        }
+    }
+
+    private void advance(char action) throws NotSupportedOperationException, NumberNotInAreaException {
+        /* the range error reports the value the operation was applied to, which is only known inside the loop */
+        if (cells != null) {
+            double currentValue = finite(takeOver()), result = Double.NaN;
+            try {
+                result = advanced(currentValue, action);
+            } finally {
+                /* a failure keeps the (reset) value */
+                store(Double.isNaN(result) ? currentValue : result);
+            }
+            if (Double.isNaN(result) && advancedFailure(action) == Status.NOT_IN_AREA)
+                throw advancedNotInArea(currentValue, action);
+            if (Double.isNaN(result))
+                throw CalculatorExceptions.invalidAction(action);
+            return;
+        }
+
+        for (;;) {
+            long previous = reset(bits.get());
+            double currentValue = Double.longBitsToDouble(previous);
+            double result = advanced(currentValue, action);
+            if (Double.isNaN(result) && advancedFailure(action) == Status.NOT_IN_AREA)
+                throw advancedNotInArea(currentValue, action);
+            if (Double.isNaN(result))
+                throw CalculatorExceptions.invalidAction(action);
+            if (bits.compareAndSet(previous, Double.doubleToRawLongBits(result)))
+                return;
+        }
+    }
+
+    @Override
+    public int tryCalculateAdvanced(char action) {
+        if (cells != null) {
+            double currentValue = finite(takeOver()), result = Double.NaN;
+            try {
+                result = advanced(currentValue, action);
+            } finally {
+                store(Double.isNaN(result) ? currentValue : result);
+            }
+            return Double.isNaN(result) ? advancedFailure(action) : Status.OK;
+        }
+
+        for (;;) {
+            long previous = reset(bits.get());
+            double result = advanced(Double.longBitsToDouble(previous), action);
+            if (Double.isNaN(result))
+                return advancedFailure(action);
+            if (bits.compareAndSet(previous, Double.doubleToRawLongBits(result)))
+                return Status.OK;
+        }
+    }
+
+    @Override
+    public int tryCalculatePower(int exponent) {
+        if (cells != null) {
+            double currentValue = finite(takeOver());
+            if (exponent < 0 && currentValue == 0.0) {
+                store(currentValue);
+                return Status.DIVISION_BY_ZERO;
+            }
+            store(Powers.pow(currentValue, exponent));
+            return Status.OK;
+        }
+
+        for (;;) {
+            long previous = reset(bits.get());
+            double currentValue = Double.longBitsToDouble(previous);
+            if (exponent < 0 && currentValue == 0.0)
+                return Status.DIVISION_BY_ZERO;
+            if (bits.compareAndSet(previous, Double.doubleToRawLongBits(Powers.pow(currentValue, exponent))))
+                return Status.OK;
+        }
+    }
+
+    /**
+     * Same as <code>CalculatorAdvanced</code>, a <code>NaN</code> or infinite accumulator is reset to <code>0</code>
+     * before an advanced operation, even if the operation itself fails afterwards. Returns the bits the operation
+     * should be applied to.
+     */
+    private long reset(long previous) {
+        while (!isFinite(Double.longBitsToDouble(previous))) {
+            if (bits.compareAndSet(previous, ZERO_BITS))
+                return ZERO_BITS;
+            previous = bits.get();
+        }
+        return previous;
+    }
+
+    /* called with the cells taken over */
+    private static double finite(double currentValue) {
+        return isFinite(currentValue) ? currentValue : 0.0;
+    }
+
+    private static boolean isFinite(double value) {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+
+    private static int slot(int cell) {
+        return (cell + 1) * STRIDE;
+    }
+
+    private static double cellValue(long positive, long negative) {
+        return Double.longBitsToDouble(positive) - Double.longBitsToDouble(negative);
+    }
+
+    /**
+     * Adds a value to the slot of the calling thread's cell, waiting while an operation has taken over the cells.
+     */
+    private void add(double value) {
+        int slot = slot((int)Thread.currentThread().getId() & cellMask) + (value < 0.0 ? 1 : 0);
+        double magnitude = value < 0.0 ? -value : value;
+        for (;;) {
+            long previous = cells.get(slot);
+            if (previous == TAKEN) {
+                Thread.yield();
+                continue;
+            }
+            long next = Double.doubleToLongBits(Double.longBitsToDouble(previous) + magnitude);
+            if (cells.compareAndSet(slot, previous, next))
+                return;
+        }
+    }
+
+    /**
+     * Takes over the cells, for a single operation at a time, until <code>store</code> hands them back.
+     *
+     * @return The value of the accumulator, the sum of all cells.
+     */
+    private double takeOver() {
+        for (;;) {
+            long current = version.get();
+            if ((current & 1) == 0 && version.compareAndSet(current, current + 1))
+                break;
+            Thread.yield();
+        }
+        double sum = 0.0;
+        for (int i = 0; i <= cellMask; i++) {
+            /* an addition racing with the takeover fails its compare-and-set, and waits */
+            double value = cellValue(cells.getAndSet(slot(i), TAKEN), cells.getAndSet(slot(i) + 1, TAKEN));
+            sum = i == 0 ? value : sum + value;
+        }
+        return sum;
+    }
+
+    /**
+     * Sets the accumulator to <code>value</code>, held by the first cell, and hands the cells back.
+     */
+    private void store(double value) {
+        for (int i = cellMask; i > 0; i--) {
+            cells.set(slot(i) + 1, ZERO_BITS);
+            cells.set(slot(i), ZERO_BITS);
+        }
+        /* a negative zero is stored as a positive one, which a slot can't go back from */
+        cells.set(slot(0) + 1, value < 0.0 ? Double.doubleToLongBits(-value) : ZERO_BITS);
+        cells.set(slot(0), value < 0.0 ? ZERO_BITS : Double.doubleToLongBits(value + 0.0));
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,253 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.math.Factorials;
+import org.etfbl.tks.math.Powers;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.SwitchPoint;
+import java.util.Objects;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The operators a calculator dispatches on, kept in dense tables indexed by the (ASCII) operator character: binary
+ * operators, applied by <code>calculate(value, operator)</code> to the accumulator and the operand, and unary
+ * operators, applied by <code>calculateAdvanced(action)</code> to the accumulator alone.
+ *
+ * <p>A new registry holds the built-in operators: <code>+</code>, <code>-</code>, <code>*</code> and <code>/</code>
+ * (the latter rejecting a zero operand), the factorial <code>!</code> and the powers <code>0</code> to
+ * <code>9</code>. Any of them may be replaced, or removed, and new ones added, such as
+ * <code>registerBinary('%', (a, b) -&gt; a % b, true)</code>. A binary operator registered as rejecting zero fails with
+ * <code>Status.DIVISION_BY_ZERO</code> for a zero operand, while a unary operator signals a value out of its domain by
+ * returning <code>NaN</code>, which fails with <code>Status.NOT_IN_AREA</code>. Operators which are not registered
+ * fail with <code>Status.NOT_SUPPORTED</code>.</p>
+ *
+ * <p>Every calculator uses the <code>shared()</code> registry, unless given its own. Lookups are a single array read;
+ * the tables are copied on registration, so registries are safe for use by multiple threads. Until the four built-in
+ * arithmetic operators of the shared registry are first replaced or removed, <code>calculate</code> applies them
+ * directly, without a lookup (see <code>isSharedArithmeticBuiltin</code>); all the built-in binary operators are
+ * constants of a single class (and so are the built-in unary ones), which keeps the dispatch of other calls
+ * monomorphic, as long as only built-ins are in use.</p>
+ *
+ * @see Calculator#setOperatorRegistry(OperatorRegistry)
+ */
+public final class OperatorRegistry {
+    /** The built-in addition, <code>+</code>. */
+    public static final DoubleBinaryOperator ADD = Arithmetic.ADD;
+
+    /** The built-in subtraction, <code>-</code>. */
+    public static final DoubleBinaryOperator SUBTRACT = Arithmetic.SUBTRACT;
+
+    /** The built-in multiplication, <code>*</code>. */
+    public static final DoubleBinaryOperator MULTIPLY = Arithmetic.MULTIPLY;
+
+    /** The built-in division, <code>/</code>. */
+    public static final DoubleBinaryOperator DIVIDE = Arithmetic.DIVIDE;
+
+    /** The built-in factorial, <code>!</code>, of the integer part of a value in range <code>[0, 170]</code>. */
+    public static final DoubleUnaryOperator FACTORIAL = new Advanced(-1);
+
+    private static final int SIZE = 128;
+    /* invalidated (for good) once the shared arithmetic is changed; until then, the JIT compiles the check away */
+    private static final SwitchPoint SHARED_ARITHMETIC = new SwitchPoint();
+    private static final MethodHandle SHARED_ARITHMETIC_BUILTIN = SHARED_ARITHMETIC.guardWithTest(
+            MethodHandles.constant(boolean.class, true), MethodHandles.constant(boolean.class, false));
+    private static final OperatorRegistry SHARED = new OperatorRegistry();
+
+    private volatile Table table;
+
+    /**
+     * Creates a new registry, holding the built-in operators.
+     */
+    public OperatorRegistry() {
+        Table builtins = new Table();
+        builtins.binary['+'] = ADD;
+        builtins.binary['-'] = SUBTRACT;
+        builtins.binary['*'] = MULTIPLY;
+        builtins.binary['/'] = DIVIDE;
+        builtins.rejectsZero['/'] = true;
+        builtins.unary['!'] = FACTORIAL;
+        for (int exponent = 0; exponent <= 9; exponent++) {
+            builtins.unary['0' + exponent] = new Advanced(exponent);
+        }
+        this.table = builtins;
+    }
+
+    /**
+     * Creates a copy of <code>other</code>, so that operators can be registered without affecting it.
+     *
+     * @param other The registry to be copied.
+     */
+    public OperatorRegistry(OperatorRegistry other) {
+        this.table = new Table(other.table);
+    }
+
+    /**
+     * @return The registry used by every calculator which was not given its own.
+     */
+    public static OperatorRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Registers (or replaces) the binary operator of <code>operator</code>.
+     *
+     * @param operator The operator character, in ASCII range.
+     * @param operation The operation, applied to the accumulator and the operand, in that order.
+     * @param rejectsZero <code>true</code> if a zero operand should fail with <code>Status.DIVISION_BY_ZERO</code>,
+     *                    instead of being passed to the operation.
+     * @return This registry.
+     * @throws IllegalArgumentException If <code>operator</code> is not an ASCII character.
+     */
+    public synchronized OperatorRegistry registerBinary(char operator, DoubleBinaryOperator operation,
+                                                        boolean rejectsZero) {
+        Objects.requireNonNull(operation, "operation");
+        Table copy = new Table(table);
+        copy.binary[checkIndex(operator)] = operation;
+        copy.rejectsZero[operator] = rejectsZero;
+        replace(copy);
+        return this;
+    }
+
+    /**
+     * Registers (or replaces) the unary operator of <code>action</code>.
+     *
+     * @param action The operator character, in ASCII range.
+     * @param operation The operation, applied to the (finite) accumulator, returning <code>NaN</code> for values out
+     *                  of its domain.
+     * @return This registry.
+     * @throws IllegalArgumentException If <code>action</code> is not an ASCII character.
+     */
+    public synchronized OperatorRegistry registerUnary(char action, DoubleUnaryOperator operation) {
+        Objects.requireNonNull(operation, "operation");
+        Table copy = new Table(table);
+        copy.unary[checkIndex(action)] = operation;
+        replace(copy);
+        return this;
+    }
+
+    /**
+     * Removes the binary and the unary operator of <code>operator</code>, if there are any.
+     *
+     * @param operator The operator character.
+     * @return <code>true</code> if any operator was removed.
+     */
+    public synchronized boolean unregister(char operator) {
+        if (getBinary(operator) == null && getUnary(operator) == null)
+            return false;
+        Table copy = new Table(table);
+        copy.binary[operator] = null;
+        copy.rejectsZero[operator] = false;
+        copy.unary[operator] = null;
+        replace(copy);
+        return true;
+    }
+
+    /**
+     * @param operator The operator character.
+     * @return The binary operator of <code>operator</code>, or <code>null</code> if none is registered.
+     */
+    public DoubleBinaryOperator getBinary(char operator) {
+        return operator < SIZE ? table.binary[operator] : null;
+    }
+
+    /**
+     * @param operator The operator character.
+     * @return <code>true</code> if the binary operator of <code>operator</code> rejects a zero operand.
+     */
+    public boolean rejectsZero(char operator) {
+        return operator < SIZE && table.rejectsZero[operator];
+    }
+
+    /**
+     * @param action The operator character.
+     * @return The unary operator of <code>action</code>, or <code>null</code> if none is registered.
+     */
+    public DoubleUnaryOperator getUnary(char action) {
+        return action < SIZE ? table.unary[action] : null;
+    }
+
+    /**
+     * @return <code>true</code> if <code>+</code>, <code>-</code>, <code>*</code> and <code>/</code> of the shared
+     * registry have always been the built-in operators (with only the division rejecting zero), so that a calculator
+     * using it can apply them without a lookup. Once they are changed, this stays <code>false</code>, even if they
+     * are restored.
+     */
+    static boolean isSharedArithmeticBuiltin() {
+        try {
+            return (boolean) SHARED_ARITHMETIC_BUILTIN.invokeExact();
+        } catch (Throwable ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private void replace(Table copy) {
+        if (this == SHARED && !copy.hasBuiltinArithmetic() && !SHARED_ARITHMETIC.hasBeenInvalidated())
+            SwitchPoint.invalidateAll(new SwitchPoint[] { SHARED_ARITHMETIC });
+        table = copy;
+    }
+
+    private static int checkIndex(char operator) {
+        if (operator >= SIZE)
+            throw new IllegalArgumentException("Expected an ASCII operator, received: " + operator);
+        return operator;
+    }
+
+    private static final class Table {
+        final DoubleBinaryOperator[] binary;
+        final boolean[] rejectsZero;
+        final DoubleUnaryOperator[] unary;
+
+        Table() {
+            binary = new DoubleBinaryOperator[SIZE];
+            rejectsZero = new boolean[SIZE];
+            unary = new DoubleUnaryOperator[SIZE];
+        }
+
+        Table(Table other) {
+            binary = other.binary.clone();
+            rejectsZero = other.rejectsZero.clone();
+            unary = other.unary.clone();
+        }
+
+        boolean hasBuiltinArithmetic() {
+            return binary['+'] == ADD && binary['-'] == SUBTRACT && binary['*'] == MULTIPLY && binary['/'] == DIVIDE
+                    && !rejectsZero['+'] && !rejectsZero['-'] && !rejectsZero['*'] && rejectsZero['/'];
+        }
+    }
+
+    /* constants without bodies share the enum's class, so the call sites stay monomorphic */
+    private enum Arithmetic implements DoubleBinaryOperator {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE;
+
+        @Override
+        public double applyAsDouble(double left, double right) {
+            switch (this) {
+                case ADD: return left + right;
+                case SUBTRACT: return left - right;
+                case MULTIPLY: return left * right;
+                default: return left / right;
+            }
+        }
+    }
+
+    /* the factorial (exponent -1), or the power of the integer part of a value */
+    private static final class Advanced implements DoubleUnaryOperator {
+        private final int exponent;
+
+        Advanced(int exponent) {
+            this.exponent = exponent;
+        }
+
+        @Override
+        public double applyAsDouble(double value) {
+            if (exponent < 0)
+                return value >= 0.0 && value <= Factorials.MAX_DOUBLE ? Factorials.factorialDouble((int)value)
+                        : Double.NaN;
+
+            double base = value < 0.0 ? Math.ceil(value) : Math.floor(value);
+            return Powers.powIntegral(base, exponent);
+        }
+    }
+}
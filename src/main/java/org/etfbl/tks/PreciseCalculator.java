@@ -0,0 +1,452 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.exceptions.CalculatorExceptions;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.metrics.CalculatorMetrics;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Objects;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * A calculator whose accumulator does not drift over long chains of operations on decimal values, such as adding
+ * <code>0.1</code> ten times, which yields exactly <code>1.0</code>, rather than <code>0.9999999999999999</code>.
+ *
+ * <p>Operands are taken as the shortest decimal which rounds to them (the one <code>Double.toString</code> prints), and
+ * the accumulator is kept in one of three representations:</p>
+ *
+ * <ul>
+ *     <li><i><code>Representation.SCALED</code>: an unscaled <code>long</code> and a decimal scale of at most
+ *     <code>MAX_SCALE</code> digits. The built-in operators are exact and allocation-free, as long as their results fit
+ *     in this representation, including quotients with a finite decimal expansion.</i></li>
+ *     <li><i><code>Representation.DECIMAL</code>: a <code>BigDecimal</code>, rounded to the calculator's
+ *     <code>MathContext</code>. The accumulator is promoted to it only once a result does not fit the scaled
+ *     representation (such as <code>1 / 3</code>, or a product of too many digits), and demoted back as soon as a
+ *     result fits again.</i></li>
+ *     <li><i><code>Representation.DOUBLE</code>: a plain <code>double</code>, only for infinite and <code>NaN</code>
+ *     values.</i></li>
+ * </ul>
+ *
+ * The <code>calculate(value, operator)</code> contract is kept: the same operators are accepted, the same exceptions
+ * are thrown, and <code>getAsDouble()</code> returns the accumulator rounded to the nearest <code>double</code>.
+ * Operators registered in the calculator's <code>OperatorRegistry</code>, other than the built-in ones, are applied to
+ * that <code>double</code>, so they are as precise as they are for a plain <code>Calculator</code>.
+ *
+ * @see Calculator
+ */
+public class PreciseCalculator extends Calculator {
+    /**
+     * The representation of a <code>PreciseCalculator</code>'s accumulator.
+     */
+    public enum Representation { SCALED, DECIMAL, DOUBLE }
+
+    /**
+     * The largest scale (number of fractional decimal digits) of the scaled representation.
+     */
+    public static final int MAX_SCALE = 18;
+
+    /* operands are scaled to integers below 2^53, so that they convert exactly from (and back to) a double */
+    private static final int MAX_OPERAND_SCALE = 15;
+    private static final double EXACT_LIMIT = 0x1p53;
+
+    /** <code>POWERS_OF_TEN[i] = 10^i</code>, for <code>i</code> in <code>[0, 18]</code> (exact, even as doubles). */
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+    private static final double[] DOUBLE_POWERS_OF_TEN = new double[MAX_SCALE + 1];
+
+    /** <code>MAX_UNSCALED[i]</code> is the largest value which can be multiplied by <code>10^i</code>. */
+    private static final long[] MAX_UNSCALED = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+        for (int i = 0; i <= MAX_SCALE; i++) {
+            DOUBLE_POWERS_OF_TEN[i] = POWERS_OF_TEN[i];
+            MAX_UNSCALED[i] = Long.MAX_VALUE / POWERS_OF_TEN[i];
+        }
+    }
+
+    private final MathContext mathContext;
+    private final MathContext divisionContext;
+
+    private Representation representation = Representation.SCALED;
+    private long unscaled;
+    private int scale;
+    private BigDecimal decimal;
+    /* the value of a non-finite accumulator, or the (lazily computed) nearest double to a decimal one */
+    private double approximation;
+    private boolean approximated;
+
+    /* the last operand converted by toScaled, which is usually the next one as well */
+    private double lastOperand = Double.NaN;
+    private long operandUnscaled;
+    private int operandScale;
+
+    /**
+     * Creates a new instance, with the accumulator set to <code>0</code>, rounding to
+     * <code>MathContext.DECIMAL128</code> (34 significant digits) once promoted.
+     */
+    public PreciseCalculator() { this(0.0, MathContext.DECIMAL128); }
+
+    /**
+     * Creates a new instance, with the accumulator set to <code>value</code>, rounding to
+     * <code>MathContext.DECIMAL128</code> (34 significant digits) once promoted.
+     *
+     * @param value The value to be assigned for the accumulator.
+     */
+    public PreciseCalculator(double value) { this(value, MathContext.DECIMAL128); }
+
+    /**
+     * Creates a new instance, with the accumulator set to <code>value</code>. An unlimited context keeps every result
+     * exact, except for quotients without a finite decimal expansion, which are rounded to
+     * <code>MathContext.DECIMAL128</code>.
+     *
+     * @param value The value to be assigned for the accumulator.
+     * @param mathContext The precision and rounding mode of results which do not fit the scaled representation.
+     */
+    public PreciseCalculator(double value, MathContext mathContext) {
+        this.mathContext = Objects.requireNonNull(mathContext, "mathContext");
+        this.divisionContext = mathContext.getPrecision() == 0 ? MathContext.DECIMAL128 : mathContext;
+        setCurrentValue(value);
+    }
+
+    /**
+     * @return The precision and rounding mode of results which do not fit the scaled representation.
+     */
+    public MathContext getMathContext() {
+        return mathContext;
+    }
+
+    /**
+     * @return The current representation of the accumulator.
+     */
+    public Representation getRepresentation() {
+        return representation;
+    }
+
+    /**
+     * Returns the accumulator, rounded to the nearest <code>double</code>.
+     *
+     * @return The value of currentValue.
+     */
+    @Override
+    public double getAsDouble() {
+        switch (representation) {
+            case SCALED:
+                /* both are exact, so the quotient is correctly rounded */
+                if (unscaled > -EXACT_LIMIT && unscaled < EXACT_LIMIT)
+                    return unscaled / DOUBLE_POWERS_OF_TEN[scale];
+                return BigDecimal.valueOf(unscaled, scale).doubleValue();
+            case DECIMAL:
+                if (!approximated) {
+                    approximation = decimal.doubleValue();
+                    approximated = true;
+                }
+                return approximation;
+            default:
+                return approximation;
+        }
+    }
+
+    /**
+     * Returns the accumulator, without rounding it to a <code>double</code>.
+     *
+     * @return The value of currentValue.
+     * @throws ArithmeticException If the accumulator is infinite, or <code>NaN</code>.
+     */
+    public BigDecimal getExactValue() {
+        switch (representation) {
+            case SCALED:
+                return BigDecimal.valueOf(unscaled, scale);
+            case DECIMAL:
+                return decimal;
+            default:
+                throw new ArithmeticException("Accumulator is not finite: " + approximation);
+        }
+    }
+
+    /**
+     * Updates the value of accumulator with the shortest decimal which rounds to <code>currentValue</code>.
+     *
+     * @param currentValue The new updated value of acumulator.
+     */
+    @Override
+    public void setCurrentValue(double currentValue) {
+        if (!Double.isFinite(currentValue)) {
+            representation = Representation.DOUBLE;
+            approximation = currentValue;
+            decimal = null;
+        } else if (toScaled(currentValue)) {
+            setScaled(operandUnscaled, operandScale);
+        } else setDecimal(BigDecimal.valueOf(currentValue));
+    }
+
+    /**
+     * Updates the value of accumulator with <code>currentValue</code>, rounded to the calculator's
+     * <code>MathContext</code>. A <b>null</b> value resets the accumulator to <b>zero</b>.
+     *
+     * @param currentValue The new updated value of acumulator.
+     */
+    public void setExactValue(BigDecimal currentValue) {
+        setDecimal(currentValue != null ? currentValue.round(mathContext) : BigDecimal.ZERO);
+    }
+
+    /**
+     * Performs a basic calculator operation, as <code>calculate(double, char)</code> does, with an exact decimal
+     * operand, such as <code>new BigDecimal("0.1")</code>. A <b>null</b> operand is treated as <b>zero</b>.
+     *
+     * @param value Value to be used as a second operand in the specified arithmetic operation.
+     * @param operator The arithmetic operation indicator
+     *                 (<code>+</code>, <code>-</code>, <code>*</code>, or <code>/</code>).
+     * @throws DivisionByZeroException If the specified char operators division and the supplied operand is equal to zero.
+     * @throws NotSupportedOperationException If any symbol other than <code>+</code>, <code>-</code>, <code>*</code>
+     *                                        or <code>/</code> is passed as a parameter value of <code>operator</code>.
+     */
+    public void calculateExact(BigDecimal value, char operator)
+            throws DivisionByZeroException, NotSupportedOperationException
+    {
+        long start = CalculatorMetrics.ENABLED ? CalculatorMetrics.CALCULATE.start(operator) : 0L;
+        int status = tryCalculateExact(value, operator);
+        if (CalculatorMetrics.ENABLED)
+            CalculatorMetrics.CALCULATE.stop(operator, start, status != Status.OK);
+        if (status == Status.DIVISION_BY_ZERO)
+            throw CalculatorExceptions.divisionByZero();
+        if (status != Status.OK)
+            throw CalculatorExceptions.invalidOperand(operator);
+    }
+
+    /**
+     * Non-throwing variant of <code>calculateExact(BigDecimal, char)</code>, signaling failures through the returned
+     * status code instead of exceptions. A failed operation leaves the accumulator unchanged.
+     *
+     * @param value Value to be used as a second operand in the specified arithmetic operation.
+     * @param operator The arithmetic operation indicator
+     *                 (<code>+</code>, <code>-</code>, <code>*</code>, or <code>/</code>).
+     * @return <code>Status.OK</code>, <code>Status.DIVISION_BY_ZERO</code> or <code>Status.NOT_SUPPORTED</code>.
+     * @see Status
+     */
+    public int tryCalculateExact(BigDecimal value, char operator) {
+        if (value == null)
+            value = BigDecimal.ZERO;
+        OperatorRegistry operators = getOperatorRegistry();
+        DoubleBinaryOperator operation = operators.getBinary(operator);
+        if (operation == null)
+            return Status.NOT_SUPPORTED;
+        if (value.signum() == 0 && operators.rejectsZero(operator))
+            return Status.DIVISION_BY_ZERO;
+
+        if (representation == Representation.SCALED && fitsScaled(value)
+                && applyScaled(operation, value.unscaledValue().longValue(), value.scale()))
+            return Status.OK;
+        if (representation == Representation.DOUBLE || !isBuiltin(operation)
+                || (value.signum() == 0 && operation == OperatorRegistry.DIVIDE))
+            setCurrentValue(operation.applyAsDouble(getAsDouble(), value.doubleValue()));
+        else applyDecimal(operation, value);
+        return Status.OK;
+    }
+
+    /**
+     * Non-throwing variant of <code>calculate(double, char)</code>, signaling failures through the returned status
+     * code instead of exceptions. A failed operation leaves the accumulator unchanged.
+     *
+     * @param value Value to be used as a second operand in the specified arithmetic operation.
+     * @param operator The arithmetic operation indicator
+     *                 (<code>+</code>, <code>-</code>, <code>*</code>, or <code>/</code>).
+     * @return <code>Status.OK</code>, <code>Status.DIVISION_BY_ZERO</code> or <code>Status.NOT_SUPPORTED</code>.
+     * @see Status
+     */
+    @Override
+    public int tryCalculate(double value, char operator) {
+        OperatorRegistry operators = getOperatorRegistry();
+        DoubleBinaryOperator operation = operators.getBinary(operator);
+        if (operation == null)
+            return Status.NOT_SUPPORTED;
+        if (value == 0.0 && operators.rejectsZero(operator))
+            return Status.DIVISION_BY_ZERO;
+
+        boolean decimalOperand = Double.isFinite(value) && toScaled(value);
+        if (decimalOperand && representation == Representation.SCALED
+                && applyScaled(operation, operandUnscaled, operandScale))
+            return Status.OK;
+        if (!Double.isFinite(value) || representation == Representation.DOUBLE || !isBuiltin(operation)
+                || (value == 0.0 && operation == OperatorRegistry.DIVIDE))
+            setCurrentValue(operation.applyAsDouble(getAsDouble(), value));
+        else applyDecimal(operation, decimalOperand
+                ? BigDecimal.valueOf(operandUnscaled, operandScale) : BigDecimal.valueOf(value));
+        return Status.OK;
+    }
+
+    private static boolean isBuiltin(DoubleBinaryOperator operation) {
+        return operation == OperatorRegistry.ADD || operation == OperatorRegistry.SUBTRACT
+                || operation == OperatorRegistry.MULTIPLY || operation == OperatorRegistry.DIVIDE;
+    }
+
+    /**
+     * Converts <code>value</code> into <code>operandUnscaled * 10^-operandScale</code>, with the smallest scale which
+     * rounds back to it. The product <code>value * 10^scale</code> is rounded as well, so the unscaled value is either
+     * the nearest integer to it, or one of its neighbours, within a few ulps of the product; scales whose product is
+     * further from an integer are skipped without dividing.
+     *
+     * @return <code>false</code> if there is no such scale of at most <code>MAX_OPERAND_SCALE</code> digits.
+     */
+    private boolean toScaled(double value) {
+        if (value == lastOperand)
+            return true;
+        for (int scale = 0; scale <= MAX_OPERAND_SCALE; scale++) {
+            double power = DOUBLE_POWERS_OF_TEN[scale];
+            double product = value * power;
+            double scaled = Math.rint(product);
+            if (!(scaled > -EXACT_LIMIT && scaled < EXACT_LIMIT))
+                return false;
+            if (Math.abs(product - scaled) > Math.abs(product) * 0x1p-50)
+                continue;
+            long candidate = (long)scaled;
+            if (candidate / power != value) {
+                if ((candidate - 1) / power == value)
+                    candidate--;
+                else if ((candidate + 1) / power == value)
+                    candidate++;
+                else continue;
+            }
+            lastOperand = value;
+            operandUnscaled = candidate;
+            operandScale = scale;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Applies a built-in operation in the scaled representation.
+     *
+     * @return <code>false</code> (leaving the accumulator unchanged) if the operation is not a built-in one, or its
+     * result does not fit the scaled representation.
+     */
+    private boolean applyScaled(DoubleBinaryOperator operation, long operand, int operandScale) {
+        if (operation == OperatorRegistry.ADD)
+            return add(operand, operandScale);
+        if (operation == OperatorRegistry.SUBTRACT)
+            return operand != Long.MIN_VALUE && add(-operand, operandScale);
+        if (operation == OperatorRegistry.MULTIPLY)
+            return multiply(operand, operandScale);
+        if (operation == OperatorRegistry.DIVIDE)
+            return divide(operand, operandScale);
+        return false;
+    }
+
+    private boolean add(long operand, int operandScale) {
+        long left = unscaled;
+        int resultScale = scale;
+        if (operandScale > resultScale) {
+            if (!fits(left, operandScale - resultScale))
+                return false;
+            left *= POWERS_OF_TEN[operandScale - resultScale];
+            resultScale = operandScale;
+        } else if (operandScale < resultScale) {
+            if (!fits(operand, resultScale - operandScale))
+                return false;
+            operand *= POWERS_OF_TEN[resultScale - operandScale];
+        }
+
+        long result = left + operand;
+        if (((left ^ result) & (operand ^ result)) < 0)
+            return false;
+        setScaled(result, resultScale);
+        return true;
+    }
+
+    private boolean multiply(long operand, int operandScale) {
+        long result;
+        try {
+            result = Math.multiplyExact(unscaled, operand);
+        } catch (ArithmeticException ex) {
+            return false;
+        }
+        int resultScale = scale + operandScale;
+        while (resultScale > MAX_SCALE && result % 10 == 0) {
+            result /= 10;
+            resultScale--;
+        }
+        if (resultScale > MAX_SCALE)
+            return false;
+        setScaled(result, resultScale);
+        return true;
+    }
+
+    private boolean divide(long operand, int operandScale) {
+        if (operand == 0)
+            return false;
+
+        /* (n / 10^scale) / (operand / 10^operandScale) = (n / operand) / 10^(scale - operandScale) */
+        long numerator = unscaled;
+        int resultScale = scale - operandScale;
+        if (resultScale < 0) {
+            if (!fits(numerator, -resultScale))
+                return false;
+            numerator *= POWERS_OF_TEN[-resultScale];
+            resultScale = 0;
+        }
+        /* the quotient is exact once the numerator is scaled up by enough digits, if at all */
+        while (numerator % operand != 0) {
+            if (resultScale == MAX_SCALE || !fits(numerator, 1))
+                return false;
+            numerator *= 10;
+            resultScale++;
+        }
+        if (numerator == Long.MIN_VALUE && operand == -1)
+            return false;
+        setScaled(numerator / operand, resultScale);
+        return true;
+    }
+
+    private static boolean fits(long value, int digits) {
+        return value >= -MAX_UNSCALED[digits] && value <= MAX_UNSCALED[digits];
+    }
+
+    private void applyDecimal(DoubleBinaryOperator operation, BigDecimal operand) {
+        BigDecimal left = getExactValue();
+        BigDecimal result;
+        if (operation == OperatorRegistry.ADD)
+            result = left.add(operand, mathContext);
+        else if (operation == OperatorRegistry.SUBTRACT)
+            result = left.subtract(operand, mathContext);
+        else if (operation == OperatorRegistry.MULTIPLY)
+            result = left.multiply(operand, mathContext);
+        else result = left.divide(operand, divisionContext);
+        setDecimal(result);
+    }
+
+    private void setScaled(long unscaled, int scale) {
+        this.representation = Representation.SCALED;
+        this.unscaled = unscaled;
+        this.scale = scale;
+        this.decimal = null;
+    }
+
+    /* demotes the value to the scaled representation, if it fits, with or without its trailing zeros */
+    private void setDecimal(BigDecimal value) {
+        /* an odd unscaled value has no trailing zeros to be stripped */
+        if (!fitsScaled(value) && (value.scale() < 0 || !value.unscaledValue().testBit(0))) {
+            BigDecimal stripped = value.stripTrailingZeros();
+            if (stripped.scale() < 0 && stripped.precision() - stripped.scale() <= MAX_SCALE)
+                stripped = stripped.setScale(0);
+            if (fitsScaled(stripped))
+                value = stripped;
+        }
+
+        if (fitsScaled(value)) {
+            setScaled(value.unscaledValue().longValue(), value.scale());
+        } else {
+            representation = Representation.DECIMAL;
+            decimal = value;
+            approximated = false;
+        }
+    }
+
+    private static boolean fitsScaled(BigDecimal value) {
+        return value.scale() >= 0 && value.scale() <= MAX_SCALE && value.precision() <= MAX_SCALE;
+    }
+}
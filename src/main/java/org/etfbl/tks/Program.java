@@ -0,0 +1,319 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.exceptions.CalculatorExceptions;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A fixed sequence of <code>calculate</code> and <code>calculateAdvanced</code> steps, recorded by a
+ * <code>ProgramRecorder</code> and simplified once, which can then be applied to any number of starting values (seeds)
+ * at a time. Applying a program to a seed gives the same result, bit for bit, as setting the seed as the accumulator of
+ * a <code>CalculatorAdvanced</code> and replaying the recorded steps, one by one (unless it was compiled with
+ * <code>Folding.REASSOCIATE</code>).
+ *
+ * <p>Steps are simplified by rewrites which never change a result: a subtraction of a constant becomes an addition of
+ * its negation, a division by a power of two becomes a multiplication by its (exact) reciprocal, additions of
+ * <code>-0.0</code> and multiplications by <code>1.0</code> are dropped, and a multiplication by a power of two (at
+ * least <code>1</code>) is merged with the following one, if that one does not shrink the value. Merging any other
+ * pair of additions or multiplications rounds differently, and is left to <code>Folding.REASSOCIATE</code>.</p>
+ *
+ * <p><code>run(double[])</code> makes a single pass over the seeds, in blocks small enough to stay in the L1 cache,
+ * applying every step to a whole block through a tight loop the JIT compiler is able to unroll and auto-vectorize.
+ * Same as with <code>CalculatorBatch</code>, a seed whose step fails does not throw; it keeps the value it had before
+ * the failed step, the rest of the steps are skipped for it, and its bit is set in the returned error bitmap.</p>
+ *
+ * @see ProgramRecorder
+ */
+public final class Program {
+    /**
+     * The rewrites a program is simplified with.
+     */
+    public enum Folding {
+        /** Only the rewrites which never change a result. */
+        EXACT,
+        /**
+         * Additionally, consecutive additions (and subtractions) of constants are merged into one addition, and
+         * consecutive multiplications (and divisions) by constants into one multiplication, which may round
+         * differently than the recorded steps.
+         */
+        REASSOCIATE
+    }
+
+    static final int ADD = 0;
+    static final int MULTIPLY = 1;
+    static final int DIVIDE = 2;
+    static final int BINARY = 3;
+    static final int UNARY = 4;
+
+    /* the number of seeds every step is applied to at a time: 8 KiB of doubles, a multiple of the 64-bit words */
+    private static final int BLOCK = 1024;
+
+    private final int[] kinds;
+    private final double[] operands;
+    private final Object[] operations;
+    private final char[] actions;
+    private final int factorialLimit;
+    private final int recordedSize;
+
+    private Program(int[] kinds, double[] operands, Object[] operations, char[] actions, int factorialLimit,
+                    int recordedSize) {
+        this.kinds = kinds;
+        this.operands = operands;
+        this.operations = operations;
+        this.actions = actions;
+        this.factorialLimit = factorialLimit;
+        this.recordedSize = recordedSize;
+    }
+
+    /**
+     * @return The number of steps of the simplified program.
+     */
+    public int size() {
+        return kinds.length;
+    }
+
+    /**
+     * @return The number of steps the program was recorded with.
+     */
+    public int getRecordedSize() {
+        return recordedSize;
+    }
+
+    /**
+     * Applies the program to a single seed.
+     *
+     * @param seed The starting value of the accumulator.
+     * @return The value of the accumulator after the last step.
+     * @throws NumberNotInAreaException If an advanced step is out of the domain of its operator, with the same message
+     * as <code>calculateAdvanced</code>'s.
+     */
+    public double apply(double seed) throws NumberNotInAreaException {
+        double value = seed;
+        for (int step = 0; step < kinds.length; step++) {
+            switch (kinds[step]) {
+                case ADD:
+                    value += operands[step];
+                    break;
+                case MULTIPLY:
+                    value *= operands[step];
+                    break;
+                case DIVIDE:
+                    value /= operands[step];
+                    break;
+                case BINARY:
+                    value = ((DoubleBinaryOperator)operations[step]).applyAsDouble(value, operands[step]);
+                    break;
+                default:
+                    if (Double.isNaN(value) || Double.isInfinite(value))
+                        value = 0.0;
+                    double result = unary(step, value);
+                    if (Double.isNaN(result))
+                        throw notInArea(step, value);
+                    value = result;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Applies the program to every element of <code>values</code>, in place.
+     *
+     * @param values The seeds, replaced by the results.
+     * @return The error bitmap, where bit <code>i % 64</code> of word <code>i / 64</code> is set if an advanced step
+     * failed for seed <code>i</code>.
+     */
+    public long[] run(double[] values) {
+        final long[] errors = new long[(values.length + 63) >>> 6];
+        /* the values of the seeds which failed in the current block, restored once the block is done */
+        double[] failed = null;
+        for (int from = 0; from < values.length; from += BLOCK) {
+            int to = Math.min(values.length, from + BLOCK);
+            boolean anyFailed = false;
+            for (int step = 0; step < kinds.length; step++) {
+                final double operand = operands[step];
+                switch (kinds[step]) {
+                    case ADD:
+                        for (int i = from; i < to; i++) values[i] += operand;
+                        break;
+                    case MULTIPLY:
+                        for (int i = from; i < to; i++) values[i] *= operand;
+                        break;
+                    case DIVIDE:
+                        for (int i = from; i < to; i++) values[i] /= operand;
+                        break;
+                    case BINARY:
+                        DoubleBinaryOperator operation = (DoubleBinaryOperator)operations[step];
+                        for (int i = from; i < to; i++) values[i] = operation.applyAsDouble(values[i], operand);
+                        break;
+                    default:
+                        for (int i = from; i < to; i++) {
+                            if ((errors[i >>> 6] & (1L << i)) != 0)
+                                continue;
+                            double value = values[i];
+                            if (Double.isNaN(value) || Double.isInfinite(value))
+                                value = 0.0;
+                            double result = unary(step, value);
+                            if (Double.isNaN(result)) {
+                                if (failed == null)
+                                    failed = new double[BLOCK];
+                                failed[i - from] = value;
+                                errors[i >>> 6] |= 1L << i;
+                                anyFailed = true;
+                            }
+                            values[i] = result;
+                        }
+                }
+            }
+            if (anyFailed) {
+                for (int i = from; i < to; i++) {
+                    if ((errors[i >>> 6] & (1L << i)) != 0)
+                        values[i] = failed[i - from];
+                }
+            }
+        }
+        return errors;
+    }
+
+    private double unary(int step, double value) {
+        DoubleUnaryOperator operation = (DoubleUnaryOperator)operations[step];
+        if (operation == OperatorRegistry.FACTORIAL && value > factorialLimit)
+            return Double.NaN;
+        return operation.applyAsDouble(value);
+    }
+
+    private NumberNotInAreaException notInArea(int step, double value) {
+        if (operations[step] == OperatorRegistry.FACTORIAL)
+            return CalculatorExceptions.notInArea("Expected a non-negative integer in range [0, " + factorialLimit
+                    + "], received: " + (int)value);
+        return CalculatorExceptions.notInArea("Value out of the domain of " + actions[step] + ": " + value);
+    }
+
+    /**
+     * @return The steps of the simplified program, such as <code>[* 8.0, + 3.0, !]</code>.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int step = 0; step < kinds.length; step++) {
+            if (step > 0)
+                builder.append(", ");
+            if (kinds[step] == UNARY)
+                builder.append(actions[step]);
+            else builder.append(actions[step]).append(' ').append(operands[step]);
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Simplifies the recorded steps into a program.
+     */
+    static Program compile(List<Step> recorded, int factorialLimit, Folding folding) {
+        List<Step> steps = new ArrayList<>(recorded.size());
+        for (Step step : recorded) {
+            Step rewritten = rewrite(step, folding);
+            if (rewritten == null)
+                continue;
+            Step previous = steps.isEmpty() ? null : steps.get(steps.size() - 1);
+            Step merged = previous != null ? merge(previous, rewritten, folding) : null;
+            if (merged != null) {
+                steps.set(steps.size() - 1, merged);
+                if (isIdentity(merged))
+                    steps.remove(steps.size() - 1);
+            } else steps.add(rewritten);
+        }
+
+        int size = steps.size();
+        int[] kinds = new int[size];
+        double[] operands = new double[size];
+        Object[] operations = new Object[size];
+        char[] actions = new char[size];
+        for (int i = 0; i < size; i++) {
+            Step step = steps.get(i);
+            kinds[i] = step.kind;
+            operands[i] = step.operand;
+            operations[i] = step.operation;
+            actions[i] = step.action;
+        }
+        return new Program(kinds, operands, operations, actions, factorialLimit, recorded.size());
+    }
+
+    /* the single-step rewrites; null if the step can be dropped */
+    private static Step rewrite(Step step, Folding folding) {
+        if (step.kind != BINARY)
+            return step;
+
+        double operand = step.operand;
+        Step result = step;
+        if (step.operation == OperatorRegistry.ADD) {
+            result = new Step(ADD, '+', operand, null);
+        } else if (step.operation == OperatorRegistry.SUBTRACT) {
+            /* x - c and x + (-c) are the same IEEE operation */
+            result = new Step(ADD, '+', -operand, null);
+        } else if (step.operation == OperatorRegistry.MULTIPLY) {
+            result = new Step(MULTIPLY, '*', operand, null);
+        } else if (step.operation == OperatorRegistry.DIVIDE) {
+            double reciprocal = 1.0 / operand;
+            if (folding == Folding.REASSOCIATE ? Double.isFinite(reciprocal) && reciprocal != 0.0
+                    : isPowerOfTwo(operand) && isPowerOfTwo(reciprocal))
+                result = new Step(MULTIPLY, '*', reciprocal, null);
+            else result = new Step(DIVIDE, '/', operand, null);
+        }
+        return isIdentity(result) ? null : result;
+    }
+
+    /* the merge of two consecutive steps into one, or null */
+    private static Step merge(Step first, Step second, Folding folding) {
+        if (first.kind != second.kind)
+            return null;
+        if (first.kind == ADD && folding == Folding.REASSOCIATE)
+            return new Step(ADD, '+', first.operand + second.operand, null);
+        if (first.kind != MULTIPLY)
+            return null;
+
+        double product = first.operand * second.operand;
+        if (folding == Folding.REASSOCIATE)
+            return new Step(MULTIPLY, '*', product, null);
+        /*
+         * x * 2^k (k >= 0) is exact, unless it overflows, in which case so does x * 2^k * c for |c| >= 1; otherwise
+         * both round the same real number once
+         */
+        if (isPowerOfTwo(first.operand) && Math.abs(first.operand) >= 1.0 && Math.abs(second.operand) >= 1.0
+                && Double.isFinite(product))
+            return new Step(MULTIPLY, '*', product, null);
+        return null;
+    }
+
+    private static boolean isIdentity(Step step) {
+        /* x + 0.0 turns -0.0 into 0.0, while x + -0.0 is x for every x */
+        return step.kind == ADD && Double.doubleToRawLongBits(step.operand) == Long.MIN_VALUE
+                || step.kind == MULTIPLY && step.operand == 1.0;
+    }
+
+    /* a normal power of two, including negative ones */
+    private static boolean isPowerOfTwo(double value) {
+        int exponent = Math.getExponent(value);
+        return exponent >= Double.MIN_EXPONENT && exponent <= Double.MAX_EXPONENT
+                && (Double.doubleToRawLongBits(value) & 0x000f_ffff_ffff_ffffL) == 0;
+    }
+
+    /**
+     * A single recorded (or rewritten) step.
+     */
+    static final class Step {
+        final int kind;
+        final char action;
+        final double operand;
+        final Object operation;
+
+        Step(int kind, char action, double operand, Object operation) {
+            this.kind = kind;
+            this.action = action;
+            this.operand = operand;
+            this.operation = operation;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.exceptions.CalculatorExceptions;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.math.Factorials;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Records a sequence of <code>calculate</code> and <code>calculateAdvanced</code> steps, to be compiled into a
+ * <code>Program</code>. Every step is checked as it is recorded, with the same exceptions as a calculator would throw
+ * for it, so that a compiled program can only fail on the domain of its advanced steps: unsupported operators are
+ * rejected, and so are constant zero operands of a division (or of any operator rejecting zero).
+ *
+ * <p>The operators are looked up in the recorder's <code>OperatorRegistry</code> as they are recorded, so later
+ * changes to the registry do not affect the recorded steps.</p>
+ *
+ * @see Program
+ */
+public final class ProgramRecorder {
+    private final OperatorRegistry operatorRegistry;
+    private final int factorialLimit;
+    private final List<Program.Step> steps = new ArrayList<>();
+
+    /**
+     * Creates a new recorder, resolving operators through <code>OperatorRegistry.shared()</code>, with the default
+     * factorial limit of <code>CalculatorAdvanced</code>.
+     */
+    public ProgramRecorder() {
+        this(OperatorRegistry.shared(), CalculatorAdvanced.DEFAULT_FACTORIAL_LIMIT);
+    }
+
+    /**
+     * Creates a new recorder, resolving operators through <code>operatorRegistry</code>.
+     *
+     * @param operatorRegistry The registry of the operators.
+     * @param factorialLimit The upper bound of the factorial's range, as given to
+     *                       <code>CalculatorAdvanced.setFactorialLimit</code>.
+     * @throws IllegalArgumentException If <code>factorialLimit</code> is out of the range of <code>[0, 170]</code>.
+     */
+    public ProgramRecorder(OperatorRegistry operatorRegistry, int factorialLimit) {
+        if (factorialLimit < 0 || factorialLimit > Factorials.MAX_DOUBLE)
+            throw new IllegalArgumentException("Expected a factorial limit in range [0, " + Factorials.MAX_DOUBLE
+                    + "], received: " + factorialLimit);
+        this.operatorRegistry = Objects.requireNonNull(operatorRegistry, "operatorRegistry");
+        this.factorialLimit = factorialLimit;
+    }
+
+    /**
+     * Records a <code>calculate(value, operator)</code> step.
+     *
+     * @param value Value to be used as a second operand in the specified arithmetic operation.
+     * @param operator The arithmetic operation indicator.
+     * @return This recorder.
+     * @throws DivisionByZeroException If the operator rejects a zero operand, and <code>value</code> is zero.
+     * @throws NotSupportedOperationException If no binary operator is registered for <code>operator</code>.
+     */
+    public ProgramRecorder calculate(double value, char operator)
+            throws DivisionByZeroException, NotSupportedOperationException
+    {
+        DoubleBinaryOperator operation = operatorRegistry.getBinary(operator);
+        if (operation == null)
+            throw CalculatorExceptions.invalidOperand(operator);
+        if (value == 0.0 && operatorRegistry.rejectsZero(operator))
+            throw CalculatorExceptions.divisionByZero();
+        steps.add(new Program.Step(Program.BINARY, operator, value, operation));
+        return this;
+    }
+
+    /**
+     * Records a <code>calculateAdvanced(action)</code> step.
+     *
+     * @param action The advanced mathematical calculation to be performed.
+     * @return This recorder.
+     * @throws NotSupportedOperationException If no unary operator is registered for <code>action</code>.
+     */
+    public ProgramRecorder calculateAdvanced(char action) throws NotSupportedOperationException {
+        DoubleUnaryOperator operation = operatorRegistry.getUnary(action);
+        if (operation == null)
+            throw CalculatorExceptions.invalidAction(action);
+        steps.add(new Program.Step(Program.UNARY, action, 0.0, operation));
+        return this;
+    }
+
+    /**
+     * @return The number of recorded steps.
+     */
+    public int size() {
+        return steps.size();
+    }
+
+    /**
+     * Compiles the recorded steps, with the rewrites which never change a result.
+     *
+     * @return The program.
+     */
+    public Program compile() {
+        return compile(Program.Folding.EXACT);
+    }
+
+    /**
+     * Compiles the recorded steps. The recorder can be used to record further steps afterwards, without affecting the
+     * compiled program.
+     *
+     * @param folding The rewrites the program is simplified with.
+     * @return The program.
+     */
+    public Program compile(Program.Folding folding) {
+        return Program.compile(steps, factorialLimit, Objects.requireNonNull(folding, "folding"));
+    }
+}
@@ -0,0 +1,78 @@
+package org.etfbl.tks;
+
+/**
+ * Status codes returned by the non-throwing calculator API (<code>tryCalculate</code>,
+ * <code>tryCalculateAdvanced</code>, <code>tryCalculatePower</code>, <code>tryHasCharacteristic</code> and
+ * <code>tryEvaluate</code>), and by <code>CalculatorServer</code>. Negative codes signal failures, each one (except
+ * <code>SESSION_LIMIT</code>) corresponding to an exception of the throwing API; a failed operation leaves the
+ * accumulator the same as its throwing counterpart would.
+ */
+public final class Status {
+    /**
+     * The operation succeeded.
+     */
+    public static final int OK = 0;
+
+    /**
+     * The accumulator does not satisfy the characteristic (<code>tryHasCharacteristic</code> only).
+     */
+    public static final int FALSE = 0;
+
+    /**
+     * The accumulator satisfies the characteristic (<code>tryHasCharacteristic</code> only).
+     */
+    public static final int TRUE = 1;
+
+    /**
+     * Corresponds to a <code>DivisionByZeroException</code>.
+     */
+    public static final int DIVISION_BY_ZERO = -1;
+
+    /**
+     * Corresponds to a <code>NotSupportedOperationException</code>.
+     */
+    public static final int NOT_SUPPORTED = -2;
+
+    /**
+     * Corresponds to a <code>NumberNotInAreaException</code>.
+     */
+    public static final int NOT_IN_AREA = -3;
+
+    /**
+     * Corresponds to an <code>InvalidExpressionException</code>.
+     */
+    public static final int INVALID_EXPRESSION = -4;
+
+    /**
+     * The server's maximum number of sessions has been reached (<code>CalculatorServer</code> only).
+     */
+    public static final int SESSION_LIMIT = -5;
+
+    private Status() { }
+
+    /**
+     * @param status The status code.
+     * @return <code>true</code> if the status code signals a failure.
+     */
+    public static boolean isError(int status) {
+        return status < 0;
+    }
+
+    /**
+     * @param status The status code.
+     * @return The name of the status code's constant (<code>TRUE</code> for <code>1</code> and <code>OK</code> for
+     * <code>0</code>).
+     */
+    public static String toString(int status) {
+        switch (status) {
+            case OK: return "OK";
+            case TRUE: return "TRUE";
+            case DIVISION_BY_ZERO: return "DIVISION_BY_ZERO";
+            case NOT_SUPPORTED: return "NOT_SUPPORTED";
+            case NOT_IN_AREA: return "NOT_IN_AREA";
+            case INVALID_EXPRESSION: return "INVALID_EXPRESSION";
+            case SESSION_LIMIT: return "SESSION_LIMIT";
+            default: return "UNKNOWN(" + status + ")";
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.etfbl.tks.exceptions;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Creates the exceptions thrown by the calculators. By default, a new exception (with a filled-in stack trace) is
+ * created for every failure. For callers that rely on the checked-exception API on a hot path with frequent invalid
+ * input, stackless exceptions can be enabled, either through <code>setStackless(true)</code> or by starting the JVM
+ * with the <code>-Dorg.etfbl.tks.stacklessExceptions=true</code> system property. Stackless exceptions whose message
+ * does not depend on the accumulator value (division by zero and unsupported operators) are additionally cached, so
+ * the same instance is thrown for the same failure.
+ *
+ * <p>Callers that don't need exceptions at all should use the status-code API instead (<code>tryCalculate</code>
+ * and similar methods).</p>
+ *
+ * @see org.etfbl.tks.Status
+ */
+public final class CalculatorExceptions {
+    /**
+     * The name of the system property, enabling stackless exceptions at startup.
+     */
+    public static final String STACKLESS_PROPERTY = "org.etfbl.tks.stacklessExceptions";
+
+    private static final String DIVISION_BY_ZERO = "Arithmetic exception - division by zero.";
+
+    private static volatile boolean stackless = Boolean.getBoolean(STACKLESS_PROPERTY);
+
+    private static final DivisionByZeroException CACHED_DIVISION_BY_ZERO =
+            new DivisionByZeroException(DIVISION_BY_ZERO, false);
+    private static final NotSupportedOperationException CACHED_NOT_SUPPORTED =
+            new NotSupportedOperationException(null, false);
+    private static final AtomicReferenceArray<NotSupportedOperationException> CACHED_OPERANDS =
+            new AtomicReferenceArray<>(128);
+    private static final AtomicReferenceArray<NotSupportedOperationException> CACHED_ACTIONS =
+            new AtomicReferenceArray<>(128);
+
+    private CalculatorExceptions() { }
+
+    /**
+     * @return <code>true</code> if stackless (and, where possible, cached) exceptions are thrown.
+     */
+    public static boolean isStackless() {
+        return stackless;
+    }
+
+    /**
+     * Enables or disables stackless exceptions, for all calculators.
+     *
+     * @param stackless <code>true</code> to throw stackless exceptions.
+     */
+    public static void setStackless(boolean stackless) {
+        CalculatorExceptions.stackless = stackless;
+    }
+
+    /**
+     * @return The exception signaling a division by zero.
+     */
+    public static DivisionByZeroException divisionByZero() {
+        return stackless ? CACHED_DIVISION_BY_ZERO : new DivisionByZeroException(DIVISION_BY_ZERO);
+    }
+
+    /**
+     * @return The exception signaling an unsupported operation, without a message.
+     */
+    public static NotSupportedOperationException notSupported() {
+        return stackless ? CACHED_NOT_SUPPORTED : new NotSupportedOperationException();
+    }
+
+    /**
+     * @param operator The unsupported arithmetic operator.
+     * @return The exception signaling an unsupported <code>calculate</code> operator.
+     */
+    public static NotSupportedOperationException invalidOperand(char operator) {
+        return notSupported(CACHED_OPERANDS, "Invalid operand: ", operator);
+    }
+
+    /**
+     * @param action The unsupported advanced operation.
+     * @return The exception signaling an unsupported <code>calculateAdvanced</code> action.
+     */
+    public static NotSupportedOperationException invalidAction(char action) {
+        return notSupported(CACHED_ACTIONS, "Invalid action: ", action);
+    }
+
+    /**
+     * @param message The exception message.
+     * @return The exception signaling a value out of the allowed range (never cached, as the message depends on the
+     * value).
+     */
+    public static NumberNotInAreaException notInArea(String message) {
+        return stackless ? new NumberNotInAreaException(message, false) : new NumberNotInAreaException(message);
+    }
+
+    private static NotSupportedOperationException notSupported(
+            AtomicReferenceArray<NotSupportedOperationException> cache, String prefix, char symbol) {
+        if (!stackless)
+            return new NotSupportedOperationException(prefix + symbol);
+        if (symbol >= cache.length())
+            return new NotSupportedOperationException(prefix + symbol, false);
+
+        NotSupportedOperationException cached = cache.get(symbol);
+        if (cached == null) {
+            /* racing threads may create duplicates, which are equivalent */
+            cached = new NotSupportedOperationException(prefix + symbol, false);
+            cache.lazySet(symbol, cached);
+        }
+        return cached;
+    }
+}
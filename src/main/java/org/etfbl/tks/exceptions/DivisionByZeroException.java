@@ -7,4 +7,14 @@ package org.etfbl.tks.exceptions;
 public class DivisionByZeroException extends Exception {
     public DivisionByZeroException(String message) { super(message); }
     public DivisionByZeroException() { }
+
+    /**
+     * Creates an exception without a stack trace (and without suppressed exceptions), if
+     * <code>writableStackTrace</code> is <code>false</code>. Such instances are cheap to create, and can be cached and
+     * thrown repeatedly.
+     * @see CalculatorExceptions
+     */
+    public DivisionByZeroException(String message, boolean writableStackTrace) {
+        super(message, null, writableStackTrace, writableStackTrace);
+    }
 }
@@ -0,0 +1,21 @@
+package org.etfbl.tks.exceptions;
+
+/**
+ * Used for signaling syntax errors and unbound variables in calculator expressions, along with the position in the
+ * expression text at which the error was detected.
+ * @see org.etfbl.tks.Calculator
+ */
+public class InvalidExpressionException extends Exception {
+    private final int position;
+
+    public InvalidExpressionException(String message, int position) {
+        super(position >= 0 ? message + " (at position " + position + ")" : message);
+        this.position = position;
+    }
+    public InvalidExpressionException(String message) { this(message, -1); }
+
+    /**
+     * @return The zero-based position in the expression text, or <code>-1</code> if the error is not positional.
+     */
+    public int getPosition() { return position; }
+}
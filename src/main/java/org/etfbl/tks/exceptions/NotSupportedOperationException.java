@@ -8,4 +8,11 @@ package org.etfbl.tks.exceptions;
 public class NotSupportedOperationException extends Exception {
     public NotSupportedOperationException(String message) { super(message); }
     public NotSupportedOperationException() { }
+
+    /**
+     * Refer to <code>DivisionByZeroException(String, boolean)</code>.
+     */
+    public NotSupportedOperationException(String message, boolean writableStackTrace) {
+        super(message, null, writableStackTrace, writableStackTrace);
+    }
 }
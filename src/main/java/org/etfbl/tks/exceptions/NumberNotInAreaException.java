@@ -8,4 +8,11 @@ package org.etfbl.tks.exceptions;
 public class NumberNotInAreaException extends Exception {
     public NumberNotInAreaException(String message) { super(message); }
     public NumberNotInAreaException() {}
+
+    /**
+     * Refer to <code>DivisionByZeroException(String, boolean)</code>.
+     */
+    public NumberNotInAreaException(String message, boolean writableStackTrace) {
+        super(message, null, writableStackTrace, writableStackTrace);
+    }
 }
@@ -0,0 +1,282 @@
+package org.etfbl.tks.expression;
+
+import org.etfbl.tks.exceptions.CalculatorExceptions;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.InvalidExpressionException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.etfbl.tks.math.Factorials;
+import org.etfbl.tks.math.Powers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An infix expression, compiled into flat postfix code: a single <code>int[]</code> of opcodes (with inline operand
+ * indices), a constant pool and a list of variables. Evaluation is one loop over the code with a <code>double</code>
+ * operand stack (reused by every evaluation on the same thread), with no tree walking, virtual calls, boxing or
+ * allocation, so the same compiled form can be re-evaluated cheaply with new variable bindings, by any number of
+ * threads.
+ *
+ * <p>Supported are the <code>+</code>, <code>-</code>, <code>*</code> and <code>/</code> operators, unary minus,
+ * exponentiation (<code>^</code>, right-associative), factorial (<code>!</code>, postfix), parentheses, decimal
+ * numbers (with an optional exponent) and variables. Sub-expressions without variables are evaluated once, at
+ * compile time.</p>
+ *
+ * @see ExpressionCache
+ */
+public final class CompiledExpression {
+    static final int CONST = 0;
+    static final int VAR = 1;
+    static final int ADD = 2;
+    static final int SUB = 3;
+    static final int MUL = 4;
+    static final int DIV = 5;
+    static final int POW = 6;
+    static final int NEG = 7;
+    static final int FACT = 8;
+
+    /** The operand stack of every thread's evaluations, grown to the deepest expression it has evaluated. */
+    private static final ThreadLocal<double[]> STACKS = ThreadLocal.withInitial(() -> new double[16]);
+
+    private final String source;
+    private final int[] code;
+    private final double[] constants;
+    private final List<String> variables;
+    private final int maxStack;
+
+    private CompiledExpression(String source, int[] code, double[] constants, List<String> variables, int maxStack) {
+        this.source = source;
+        this.code = code;
+        this.constants = constants;
+        this.variables = variables;
+        this.maxStack = maxStack;
+    }
+
+    /**
+     * Parses and compiles an infix expression. Refer to <code>ExpressionCache</code> for a cached variant.
+     *
+     * @param expression The expression text.
+     * @return The compiled expression.
+     * @throws InvalidExpressionException If the expression is not syntactically valid.
+     */
+    public static CompiledExpression compile(String expression) throws InvalidExpressionException {
+        if (expression == null)
+            throw new InvalidExpressionException("Expected an expression, received: null");
+
+        List<String> variables = new ArrayList<>();
+        Node root = new ExpressionParser(expression, variables).parse();
+        Builder builder = new Builder();
+        builder.emit(root);
+        return builder.build(expression, Collections.unmodifiableList(variables));
+    }
+
+    /**
+     * @return The expression text this instance was compiled from.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return The names of the expression's variables, in the order in which their values are expected by
+     * <code>evaluate</code>.
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * Evaluates the expression.
+     *
+     * @param values The values of the variables, in the order of <code>getVariables()</code>.
+     * @return The value of the expression.
+     * @throws DivisionByZeroException If a divisor evaluates to zero, or zero is raised to a negative power.
+     * @throws NumberNotInAreaException If the factorial of a value out of the range of <code>[0, 170]</code> is
+     * requested.
+     * @throws IllegalArgumentException If the number of values does not match the number of variables.
+     */
+    public double evaluate(double... values) throws DivisionByZeroException, NumberNotInAreaException {
+        if (values.length != variables.size())
+            throw new IllegalArgumentException("Expected " + variables.size() + " variable values, received: "
+                    + values.length);
+
+        final int[] code = this.code;
+        double[] stack = STACKS.get();
+        if (stack.length < maxStack) {
+            stack = new double[Math.max(maxStack, 2 * stack.length)];
+            STACKS.set(stack);
+        }
+        int sp = 0;
+
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case CONST:
+                    stack[sp++] = constants[code[++pc]];
+                    break;
+                case VAR:
+                    stack[sp++] = values[code[++pc]];
+                    break;
+                case ADD:
+                    sp--;
+                    stack[sp - 1] += stack[sp];
+                    break;
+                case SUB:
+                    sp--;
+                    stack[sp - 1] -= stack[sp];
+                    break;
+                case MUL:
+                    sp--;
+                    stack[sp - 1] *= stack[sp];
+                    break;
+                case DIV:
+                    sp--;
+                    if (stack[sp] == 0.0)
+                        throw CalculatorExceptions.divisionByZero();
+                    stack[sp - 1] /= stack[sp];
+                    break;
+                case POW:
+                    sp--;
+                    stack[sp - 1] = power(stack[sp - 1], stack[sp]);
+                    break;
+                case NEG:
+                    stack[sp - 1] = -stack[sp - 1];
+                    break;
+                case FACT:
+                    stack[sp - 1] = factorial(stack[sp - 1]);
+                    break;
+                default:
+                    throw new IllegalStateException("Invalid opcode: " + code[pc]);
+            }
+        }
+        return stack[0];
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /* [package-private] for unit-testing purposes */
+    int codeLength() {
+        return code.length;
+    }
+
+    private static double power(double base, double exponent) throws DivisionByZeroException {
+        if (base == 0.0 && exponent < 0.0)
+            throw CalculatorExceptions.divisionByZero();
+        if (exponent == (int)exponent)
+            return Powers.pow(base, (int)exponent);
+        return Math.pow(base, exponent);
+    }
+
+    private static double factorial(double value) throws NumberNotInAreaException {
+        if (!(value >= 0.0 && value < Factorials.MAX_DOUBLE + 1))
+            throw CalculatorExceptions.notInArea("Expected a non-negative integer in range [0, " + Factorials.MAX_DOUBLE
+                    + "], received: " + value);
+        return Factorials.factorialDouble((int)value);
+    }
+
+    static int binaryOpcode(char operator) {
+        switch (operator) {
+            case '+': return ADD;
+            case '-': return SUB;
+            case '*': return MUL;
+            case '/': return DIV;
+            case '^': return POW;
+            default: throw new IllegalArgumentException("Invalid operator: " + operator);
+        }
+    }
+
+    /**
+     * Accumulates the postfix code of an expression, folding its constant sub-expressions.
+     */
+    static final class Builder {
+        private int[] code = new int[16];
+        private int length;
+        private double[] constants = new double[4];
+        private int constantCount;
+        private int stack;
+        private int maxStack;
+        private final boolean folding;
+
+        Builder() {
+            this(true);
+        }
+
+        private Builder(boolean folding) {
+            this.folding = folding;
+        }
+
+        /**
+         * Emits the code of a node, replacing it with a single constant if it does not depend on any variable (and
+         * its evaluation succeeds; otherwise the error is left to be raised on each evaluation). The chain of first
+         * operands is walked iteratively, so only the nesting of the expression (which the parser limits) recurses.
+         */
+        void emit(Node node) {
+            ArrayDeque<Node> pending = new ArrayDeque<>();
+            boolean foldable = folding;
+            while (true) {
+                if (foldable && node.constant && !(node instanceof Node.Constant)) {
+                    Builder folded = new Builder(false);
+                    folded.emit(node);
+                    try {
+                        constant(folded.build("", Collections.<String>emptyList()).evaluate());
+                        break;
+                    } catch (DivisionByZeroException | NumberNotInAreaException ex) {
+                        /* not folded, nor are its first operands: the whole chain always fails */
+                        foldable = false;
+                    }
+                }
+                Node first = node.first();
+                if (first == null) {
+                    node.emitRest(this);
+                    break;
+                }
+                pending.push(node);
+                node = first;
+            }
+            while (!pending.isEmpty()) {
+                pending.pop().emitRest(this);
+            }
+        }
+
+        void constant(double value) {
+            if (constantCount == constants.length)
+                constants = Arrays.copyOf(constants, constantCount * 2);
+            constants[constantCount] = value;
+            append(CONST);
+            append(constantCount++);
+            push();
+        }
+
+        void variable(int index) {
+            append(VAR);
+            append(index);
+            push();
+        }
+
+        void operation(int opcode) {
+            append(opcode);
+            if (opcode != NEG && opcode != FACT)
+                stack--;
+        }
+
+        CompiledExpression build(String source, List<String> variables) {
+            return new CompiledExpression(source, Arrays.copyOf(code, length),
+                    Arrays.copyOf(constants, constantCount), variables, maxStack);
+        }
+
+        private void push() {
+            maxStack = Math.max(maxStack, ++stack);
+        }
+
+        private void append(int value) {
+            if (length == code.length)
+                code = Arrays.copyOf(code, length * 2);
+            code[length++] = value;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.etfbl.tks.expression;
+
+import org.etfbl.tks.exceptions.InvalidExpressionException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of compiled expressions, keyed by the expression text, so that re-evaluating
+ * an expression (for example, with new variable bindings) skips parsing and compilation. Instances are safe for use
+ * by multiple threads.
+ *
+ * @see CompiledExpression
+ */
+public final class ExpressionCache {
+    /**
+     * The capacity of the cache shared by all <code>Calculator</code> instances.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final ExpressionCache SHARED = new ExpressionCache(DEFAULT_CAPACITY);
+
+    private final int capacity;
+    private final LinkedHashMap<String, CompiledExpression> entries;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a new, empty cache.
+     *
+     * @param capacity The maximum number of compiled expressions held by the cache.
+     * @throws IllegalArgumentException If <code>capacity</code> is not positive.
+     */
+    public ExpressionCache(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Expected a positive capacity, received: " + capacity);
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<String, CompiledExpression>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+                return size() > ExpressionCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @return The cache shared by all <code>Calculator</code> instances.
+     */
+    public static ExpressionCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the compiled form of <code>expression</code>, compiling and caching it first if it is not cached yet.
+     *
+     * @param expression The expression text.
+     * @return The compiled expression.
+     * @throws InvalidExpressionException If the expression is not syntactically valid (invalid expressions are not
+     * cached).
+     */
+    public CompiledExpression get(String expression) throws InvalidExpressionException {
+        synchronized (entries) {
+            CompiledExpression compiled = entries.get(expression);
+            if (compiled != null) {
+                hits++;
+                return compiled;
+            }
+            misses++;
+        }
+
+        /* compiled outside of the lock; concurrent misses of the same text may compile it more than once */
+        CompiledExpression compiled = CompiledExpression.compile(expression);
+        synchronized (entries) {
+            entries.put(expression, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * @return The maximum number of compiled expressions held by the cache.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of compiled expressions currently held by the cache.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return The number of <code>get</code> calls answered from the cache.
+     */
+    public long getHits() {
+        synchronized (entries) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return The number of <code>get</code> calls which required compilation.
+     */
+    public long getMisses() {
+        synchronized (entries) {
+            return misses;
+        }
+    }
+
+    /**
+     * Removes all compiled expressions and resets the hit and miss counters.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            hits = 0;
+            misses = 0;
+        }
+    }
+}
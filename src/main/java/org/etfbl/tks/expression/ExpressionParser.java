@@ -0,0 +1,187 @@
+package org.etfbl.tks.expression;
+
+import org.etfbl.tks.exceptions.InvalidExpressionException;
+
+import java.util.List;
+
+/**
+ * A recursive-descent parser of infix expressions, producing an abstract syntax tree of <code>Node</code> instances.
+ * The grammar, from the lowest to the highest precedence, is:
+ *
+ * <pre>
+ * expression := term (('+' | '-') term)*
+ * term       := unary (('*' | '/') unary)*
+ * unary      := ('+' | '-') unary | power
+ * power      := postfix ('^' unary)?          (right-associative)
+ * postfix    := primary '!'*
+ * primary    := number | identifier | '(' expression ')'
+ * </pre>
+ *
+ * Variables (identifiers) are numbered in the order of their first appearance, and their names are collected into
+ * the supplied list.
+ *
+ * <p>Both the parser and the compiler recurse over nested sub-expressions, so expressions nested deeper than
+ * <code>MAX_DEPTH</code> levels (of parentheses, signs and exponents) are rejected, rather than overflowing the stack.
+ * Chains of operators at the same level, such as long sums, are not limited.</p>
+ */
+final class ExpressionParser {
+    /** The deepest nesting of parentheses, signs and exponents accepted. */
+    static final int MAX_DEPTH = 256;
+
+    private final String text;
+    private final List<String> variables;
+    private int position;
+    private int depth;
+
+    ExpressionParser(String text, List<String> variables) {
+        this.text = text;
+        this.variables = variables;
+    }
+
+    Node parse() throws InvalidExpressionException {
+        Node root = expression();
+        skipWhitespace();
+        if (position < text.length())
+            throw new InvalidExpressionException("Unexpected character '" + text.charAt(position) + "'", position);
+        return root;
+    }
+
+    private Node expression() throws InvalidExpressionException {
+        Node left = term();
+        while (true) {
+            char c = peek();
+            if (c != '+' && c != '-')
+                return left;
+            position++;
+            left = new Node.Binary(c, left, term());
+        }
+    }
+
+    private Node term() throws InvalidExpressionException {
+        Node left = unary();
+        while (true) {
+            char c = peek();
+            if (c != '*' && c != '/')
+                return left;
+            position++;
+            left = new Node.Binary(c, left, unary());
+        }
+    }
+
+    private Node unary() throws InvalidExpressionException {
+        char c = peek();
+        if (c == '-') {
+            position++;
+            enter();
+            Node operand = unary();
+            depth--;
+            return new Node.Negate(operand);
+        } else if (c == '+') {
+            position++;
+            enter();
+            Node operand = unary();
+            depth--;
+            return operand;
+        }
+        return power();
+    }
+
+    private Node power() throws InvalidExpressionException {
+        Node base = postfix();
+        if (peek() == '^') {
+            position++;
+            enter();
+            Node exponent = unary();
+            depth--;
+            return new Node.Binary('^', base, exponent);
+        }
+        return base;
+    }
+
+    private Node postfix() throws InvalidExpressionException {
+        Node operand = primary();
+        while (peek() == '!') {
+            position++;
+            operand = new Node.Factorial(operand);
+        }
+        return operand;
+    }
+
+    private Node primary() throws InvalidExpressionException {
+        char c = peek();
+        int start = position;
+
+        if (c == '(') {
+            position++;
+            enter();
+            Node inner = expression();
+            depth--;
+            if (peek() != ')')
+                throw new InvalidExpressionException("Expected ')'", position);
+            position++;
+            return inner;
+        } else if (isDigit(c) || c == '.') {
+            return number();
+        } else if (Character.isLetter(c) || c == '_') {
+            while (position < text.length()
+                    && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '_')) {
+                position++;
+            }
+            String name = text.substring(start, position);
+            int index = variables.indexOf(name);
+            if (index < 0) {
+                index = variables.size();
+                variables.add(name);
+            }
+            return new Node.Variable(index);
+        } else if (c == '\0') {
+            throw new InvalidExpressionException("Unexpected end of expression", position);
+        }
+        throw new InvalidExpressionException("Unexpected character '" + c + "'", position);
+    }
+
+    private Node number() throws InvalidExpressionException {
+        int start = position;
+        while (position < text.length() && (isDigit(text.charAt(position)) || text.charAt(position) == '.'))
+            position++;
+        if (position < text.length() && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+            int mark = position++;
+            if (position < text.length() && (text.charAt(position) == '+' || text.charAt(position) == '-'))
+                position++;
+            if (position < text.length() && isDigit(text.charAt(position))) {
+                while (position < text.length() && isDigit(text.charAt(position)))
+                    position++;
+            } else {
+                /* not an exponent, e.g. '2e' is left for the caller to reject */
+                position = mark;
+            }
+        }
+        try {
+            return new Node.Constant(Double.parseDouble(text.substring(start, position)));
+        } catch (NumberFormatException ex) {
+            throw new InvalidExpressionException("Malformed number '" + text.substring(start, position) + "'", start);
+        }
+    }
+
+    private void enter() throws InvalidExpressionException {
+        if (++depth > MAX_DEPTH)
+            throw new InvalidExpressionException("Expression nested deeper than " + MAX_DEPTH + " levels", position);
+    }
+
+    /**
+     * Skips whitespace, and returns the next character without consuming it (<code>'\0'</code> at the end).
+     */
+    private char peek() {
+        skipWhitespace();
+        return position < text.length() ? text.charAt(position) : '\0';
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+            position++;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
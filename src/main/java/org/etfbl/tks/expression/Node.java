@@ -0,0 +1,98 @@
+package org.etfbl.tks.expression;
+
+/**
+ * A node of an expression's abstract syntax tree. The tree is only used during compilation: it is folded where its
+ * operands are constant, and then flattened into the postfix code of a <code>CompiledExpression</code>.
+ *
+ * <p>A node's code is its first operand's code (if any), followed by the rest of its code, so that the compiler can
+ * walk down long left-leaning chains (such as <code>a + b + c + ...</code>, or <code>3!!!</code>) iteratively.</p>
+ */
+abstract class Node {
+    /** <code>true</code> if the node's value does not depend on any variable. */
+    final boolean constant;
+
+    Node(boolean constant) { this.constant = constant; }
+
+    /**
+     * @return The operand whose code comes first, or <code>null</code> for a leaf.
+     */
+    abstract Node first();
+
+    /**
+     * Appends the node's postfix code which follows the code of <code>first()</code>, emitting any other children
+     * through the program's <code>emit</code>, so that they can be folded.
+     */
+    abstract void emitRest(CompiledExpression.Builder program);
+
+    static final class Constant extends Node {
+        final double value;
+
+        Constant(double value) {
+            super(true);
+            this.value = value;
+        }
+
+        @Override Node first() { return null; }
+
+        @Override void emitRest(CompiledExpression.Builder program) { program.constant(value); }
+    }
+
+    static final class Variable extends Node {
+        final int index;
+
+        Variable(int index) {
+            super(false);
+            this.index = index;
+        }
+
+        @Override Node first() { return null; }
+
+        @Override void emitRest(CompiledExpression.Builder program) { program.variable(index); }
+    }
+
+    static final class Negate extends Node {
+        final Node operand;
+
+        Negate(Node operand) {
+            super(operand.constant);
+            this.operand = operand;
+        }
+
+        @Override Node first() { return operand; }
+
+        @Override void emitRest(CompiledExpression.Builder program) { program.operation(CompiledExpression.NEG); }
+    }
+
+    static final class Factorial extends Node {
+        final Node operand;
+
+        Factorial(Node operand) {
+            super(operand.constant);
+            this.operand = operand;
+        }
+
+        @Override Node first() { return operand; }
+
+        @Override void emitRest(CompiledExpression.Builder program) { program.operation(CompiledExpression.FACT); }
+    }
+
+    static final class Binary extends Node {
+        final char operator;
+        final Node left;
+        final Node right;
+
+        Binary(char operator, Node left, Node right) {
+            super(left.constant && right.constant);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override Node first() { return left; }
+
+        @Override void emitRest(CompiledExpression.Builder program) {
+            program.emit(right);
+            program.operation(CompiledExpression.binaryOpcode(operator));
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package org.etfbl.tks.io;
+
+import org.etfbl.tks.Calculator;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays a text log of operations, one <code>&lt;operator&gt; &lt;operand&gt;</code> pair per line (for example,
+ * <code>+ 12.5</code> or <code>/ -3e2</code>), through the <code>calculate</code> method of a calculator. Blank lines
+ * and lines starting with <code>#</code> are skipped.
+ *
+ * <p>The file is memory-mapped through a <code>FileChannel</code>, one window at a time, and operators and operands
+ * are parsed straight from the mapped bytes, without creating a <code>String</code> per line; decimal operands whose
+ * significant digits fit into 53 bits, with a small exponent, are converted exactly through a single multiplication
+ * or division. Parsed operations are buffered into primitive arrays and fed to the calculator in chunks, after each of
+ * which the progress listener (if any) is notified.</p>
+ *
+ * <p>A malformed line, or an operation rejected by the calculator, does not abort the replay: it is counted, and
+ * (up to a limit) recorded as a <code>ReplayError</code> with its line number and byte offset.</p>
+ *
+ * @see ReplayReport
+ */
+public final class OperationLogReplayer {
+    /** The default size of a single mapped window, in bytes. */
+    public static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+
+    /** The default number of operations parsed before they are fed to the calculator. */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    /** The default number of errors recorded in the report (all errors are counted). */
+    public static final int DEFAULT_MAX_ERRORS = 100;
+
+    /** <code>POWERS_OF_TEN[i] = 10^i</code>, all exactly representable as a <code>double</code>. */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Notified after each chunk of operations is fed to the calculator.
+     */
+    public interface ProgressListener {
+        /**
+         * @param bytesRead The number of bytes of the file processed so far.
+         * @param totalBytes The size of the file.
+         * @param operations The number of operations applied so far.
+         */
+        void onProgress(long bytesRead, long totalBytes, long operations);
+    }
+
+    private final int windowSize;
+    private final int chunkSize;
+    private final int maxErrors;
+    private ProgressListener progressListener;
+
+    /**
+     * Creates a new replayer, with the default window size, chunk size and error limit.
+     */
+    public OperationLogReplayer() {
+        this(DEFAULT_WINDOW_SIZE, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_ERRORS);
+    }
+
+    /**
+     * Creates a new replayer.
+     *
+     * @param windowSize The number of bytes mapped at once, which also bounds the length of a line.
+     * @param chunkSize The number of operations parsed before they are fed to the calculator.
+     * @param maxErrors The number of errors recorded in the report.
+     * @throws IllegalArgumentException If <code>windowSize</code> or <code>chunkSize</code> is not positive, or
+     * <code>maxErrors</code> is negative.
+     */
+    public OperationLogReplayer(int windowSize, int chunkSize, int maxErrors) {
+        if (windowSize <= 0 || chunkSize <= 0 || maxErrors < 0)
+            throw new IllegalArgumentException("Expected positive window and chunk sizes, and a non-negative error "
+                    + "limit, received: " + windowSize + ", " + chunkSize + ", " + maxErrors);
+        this.windowSize = windowSize;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * @param progressListener The listener to be notified after each chunk, or <code>null</code>.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Replays all operations of the log file through <code>calculator</code>.
+     *
+     * @param file The operation log.
+     * @param calculator The calculator to which the operations are applied.
+     * @return The number of applied operations and failed lines, along with the throughput.
+     * @throws IOException If the file can not be opened, mapped or read.
+     */
+    public ReplayReport replay(Path file, Calculator calculator) throws IOException {
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Replay replay = new Replay(calculator, size);
+
+            long position = 0;
+            while (position < size) {
+                int length = (int)Math.min(windowSize, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length == size;
+
+                int consumed = replay.parseWindow(window, position, length, last);
+                if (consumed == 0) {
+                    /* a single line does not fit into the window, it is reported and skipped */
+                    replay.error(position, "Line exceeds " + windowSize + " bytes");
+                    position = skipLine(channel, position, size);
+                    replay.line++;
+                } else {
+                    position += consumed;
+                }
+            }
+
+            replay.flush(size);
+            return new ReplayReport(replay.operations, replay.errorCount, replay.errors, size,
+                    System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * @return The position right after the next line feed at or after <code>position</code>, or the file size.
+     */
+    private long skipLine(FileChannel channel, long position, long size) throws IOException {
+        while (position < size) {
+            int length = (int)Math.min(windowSize, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                if (window.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += length;
+        }
+        return size;
+    }
+
+    /**
+     * The state of a single replay: the pending chunk of parsed operations and the counters.
+     */
+    private final class Replay {
+        final Calculator calculator;
+        final long size;
+        final char[] operators = new char[chunkSize];
+        final double[] operands = new double[chunkSize];
+        final long[] lines = new long[chunkSize];
+        final long[] offsets = new long[chunkSize];
+        final List<ReplayError> errors = new ArrayList<>();
+        int pending;
+        long line = 1;
+        long operations;
+        long errorCount;
+
+        /** The parsed operand of the last <code>parseLine</code> call. */
+        double operand;
+        /** The error of the last failed <code>parseLine</code> call. */
+        String failure;
+
+        Replay(Calculator calculator, long size) {
+            this.calculator = calculator;
+            this.size = size;
+        }
+
+        /**
+         * Parses all complete lines of the window (the last line is complete only if the window ends the file).
+         *
+         * @return The number of bytes consumed, up to the start of the first incomplete line.
+         */
+        int parseWindow(MappedByteBuffer window, long base, int length, boolean last) {
+            int start = 0;
+            while (start < length) {
+                int end = start;
+                while (end < length && window.get(end) != '\n')
+                    end++;
+                if (end == length && !last)
+                    return start;
+
+                parseLine(window, start, end, base + start);
+                line++;
+                start = end + 1;
+            }
+            return length;
+        }
+
+        void parseLine(MappedByteBuffer buffer, int from, int to, long offset) {
+            if (to > from && buffer.get(to - 1) == '\r')
+                to--;
+            int p = skipBlanks(buffer, from, to);
+            if (p == to || buffer.get(p) == '#')
+                return;
+
+            char operator = (char)(buffer.get(p++) & 0xff);
+            p = skipBlanks(buffer, p, to);
+            int tokenEnd = p;
+            while (tokenEnd < to && !isBlank(buffer.get(tokenEnd)))
+                tokenEnd++;
+            if (p == tokenEnd) {
+                error(offset, "Missing operand");
+                return;
+            }
+            if (skipBlanks(buffer, tokenEnd, to) != to) {
+                error(offset, "Unexpected characters after the operand");
+                return;
+            }
+            if (!parseNumber(buffer, p, tokenEnd)) {
+                error(offset, failure);
+                return;
+            }
+
+            operators[pending] = operator;
+            operands[pending] = operand;
+            lines[pending] = line;
+            offsets[pending] = offset;
+            if (++pending == chunkSize)
+                flush(offset + (to - from));
+        }
+
+        /**
+         * Parses a decimal number; exactly, through a single multiplication or division, when its significant digits
+         * fit into 53 bits and its power of ten is within <code>[-22, 22]</code>, and through
+         * <code>Double.parseDouble</code> otherwise.
+         */
+        boolean parseNumber(MappedByteBuffer buffer, int from, int to) {
+            int p = from;
+            byte first = buffer.get(p);
+            boolean negative = first == '-';
+            if (negative || first == '+')
+                p++;
+
+            long mantissa = 0;
+            int significant = 0, exponent = 0;
+            boolean digits = false, truncated = false;
+            for (; p < to && isDigit(buffer.get(p)); p++, digits = true) {
+                if (significant < 18) {
+                    mantissa = mantissa * 10 + (buffer.get(p) - '0');
+                    if (mantissa != 0) significant++;
+                } else {
+                    truncated |= buffer.get(p) != '0';
+                    exponent++;
+                }
+            }
+            if (p < to && buffer.get(p) == '.') {
+                for (p++; p < to && isDigit(buffer.get(p)); p++, digits = true) {
+                    if (significant < 18) {
+                        mantissa = mantissa * 10 + (buffer.get(p) - '0');
+                        if (mantissa != 0) significant++;
+                        exponent--;
+                    } else {
+                        truncated |= buffer.get(p) != '0';
+                    }
+                }
+            }
+            if (!digits)
+                return parseSlow(buffer, from, to);
+
+            if (p < to && (buffer.get(p) == 'e' || buffer.get(p) == 'E')) {
+                p++;
+                boolean negativeExponent = p < to && buffer.get(p) == '-';
+                if (p < to && (buffer.get(p) == '-' || buffer.get(p) == '+'))
+                    p++;
+                if (p == to)
+                    return malformed(buffer, from, to);
+                int value = 0;
+                for (; p < to && isDigit(buffer.get(p)); p++) {
+                    value = Math.min(value * 10 + (buffer.get(p) - '0'), 100_000);
+                }
+                exponent += negativeExponent ? -value : value;
+            }
+            if (p != to)
+                return malformed(buffer, from, to);
+
+            if (!truncated && mantissa <= (1L << 53) && exponent >= -22 && exponent <= 22) {
+                double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent]
+                        : mantissa / POWERS_OF_TEN[-exponent];
+                operand = negative ? -value : value;
+                return true;
+            }
+            return parseSlow(buffer, from, to);
+        }
+
+        /**
+         * Parses the token through <code>Double.parseDouble</code> (long mantissas, large exponents, NaN, Infinity).
+         */
+        boolean parseSlow(MappedByteBuffer buffer, int from, int to) {
+            byte[] token = new byte[to - from];
+            for (int i = 0; i < token.length; i++)
+                token[i] = buffer.get(from + i);
+            try {
+                operand = Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+                return true;
+            } catch (NumberFormatException ex) {
+                return malformed(buffer, from, to);
+            }
+        }
+
+        boolean malformed(MappedByteBuffer buffer, int from, int to) {
+            StringBuilder token = new StringBuilder(Math.min(to - from, 32));
+            for (int i = from; i < to && token.length() < 32; i++)
+                token.append((char)(buffer.get(i) & 0xff));
+            failure = "Malformed operand '" + token + (to - from > 32 ? "...'" : "'");
+            return false;
+        }
+
+        /**
+         * Feeds the pending chunk to the calculator, and notifies the progress listener.
+         */
+        void flush(long bytesRead) {
+            for (int i = 0; i < pending; i++) {
+                try {
+                    calculator.calculate(operands[i], operators[i]);
+                    operations++;
+                } catch (DivisionByZeroException | NotSupportedOperationException ex) {
+                    record(new ReplayError(lines[i], offsets[i], ex.getMessage()));
+                }
+            }
+            pending = 0;
+            if (progressListener != null)
+                progressListener.onProgress(bytesRead, size, operations);
+        }
+
+        /**
+         * Reports a malformed line; the pending operations are applied first, so errors are kept in line order.
+         */
+        void error(long offset, String message) {
+            if (pending > 0)
+                flush(offset);
+            record(new ReplayError(line, offset, message));
+        }
+
+        private void record(ReplayError error) {
+            errorCount++;
+            if (errors.size() < maxErrors)
+                errors.add(error);
+        }
+    }
+
+    private static int skipBlanks(MappedByteBuffer buffer, int from, int to) {
+        while (from < to && isBlank(buffer.get(from)))
+            from++;
+        return from;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
@@ -0,0 +1,39 @@
+package org.etfbl.tks.io;
+
+/**
+ * A single failed line of an operation log replay: either a malformed line, or an operation rejected by the
+ * calculator (for example, a division by zero).
+ *
+ * @see OperationLogReplayer
+ */
+public final class ReplayError {
+    private final long line;
+    private final long offset;
+    private final String message;
+
+    public ReplayError(long line, long offset, String message) {
+        this.line = line;
+        this.offset = offset;
+        this.message = message;
+    }
+
+    /**
+     * @return The one-based line number.
+     */
+    public long getLine() { return line; }
+
+    /**
+     * @return The byte offset of the line's start, within the file.
+     */
+    public long getOffset() { return offset; }
+
+    /**
+     * @return The description of the error.
+     */
+    public String getMessage() { return message; }
+
+    @Override
+    public String toString() {
+        return "line " + line + " (offset " + offset + "): " + message;
+    }
+}
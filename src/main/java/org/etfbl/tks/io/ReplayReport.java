@@ -0,0 +1,72 @@
+package org.etfbl.tks.io;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of an operation log replay: the number of applied operations and failed lines (along with the first
+ * few errors), the number of bytes read and the elapsed time.
+ *
+ * @see OperationLogReplayer
+ */
+public final class ReplayReport {
+    private final long operations;
+    private final long errorCount;
+    private final List<ReplayError> errors;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    ReplayReport(long operations, long errorCount, List<ReplayError> errors, long bytes, long elapsedNanos) {
+        this.operations = operations;
+        this.errorCount = errorCount;
+        this.errors = Collections.unmodifiableList(errors);
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return The number of operations successfully applied to the calculator.
+     */
+    public long getOperations() { return operations; }
+
+    /**
+     * @return The total number of failed lines.
+     */
+    public long getErrorCount() { return errorCount; }
+
+    /**
+     * @return The first errors, up to the replayer's limit, in the order of their lines.
+     */
+    public List<ReplayError> getErrors() { return errors; }
+
+    /**
+     * @return The number of bytes read.
+     */
+    public long getBytes() { return bytes; }
+
+    /**
+     * @return The duration of the replay, in nanoseconds.
+     */
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    /**
+     * @return The replay throughput, in bytes per second.
+     */
+    public double getBytesPerSecond() {
+        return elapsedNanos > 0 ? bytes * 1e9 / elapsedNanos : 0.0;
+    }
+
+    /**
+     * @return The replay throughput, in applied operations per second.
+     */
+    public double getOperationsPerSecond() {
+        return elapsedNanos > 0 ? operations * 1e9 / elapsedNanos : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d operations, %d errors, %d bytes in %.3f ms (%.1f MB/s, %.0f ops/s)",
+                operations, errorCount, bytes, elapsedNanos / 1e6, getBytesPerSecond() / 1e6,
+                getOperationsPerSecond());
+    }
+}
@@ -0,0 +1,476 @@
+package org.etfbl.tks.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * A durable, append-only journal of accumulator operations, kept in a directory of memory-mapped segment files. Every
+ * operation is stored as a fixed-size, 32-byte record:
+ *
+ * <pre>
+ *  0  sequence number (8 bytes)     12  CRC-32 of the other 28 bytes (4 bytes)
+ *  8  kind (1 byte), unused (1)     16  operand (8 bytes)
+ * 10  operator (2 bytes)            24  accumulator value after the operation (8 bytes)
+ * </pre>
+ *
+ * Since each record holds the resulting accumulator value, the value at any sequence number can be read back directly,
+ * without replaying the operations before it, which is what undoing and redoing (<code>JournaledCalculator.restore</code>)
+ * is based on.
+ *
+ * <p>Records are written straight into the mapped segment; the segment is forced to the storage device (group commit)
+ * once <code>groupCommitRecords</code> records were appended since the last force, or the first time a record is
+ * appended <code>groupCommitMillis</code> after it, as well as on <code>sync()</code>, segment roll-over, snapshots and
+ * <code>close()</code>. A crash may therefore lose the records appended since the last force, but never leaves the
+ * journal inconsistent.</p>
+ *
+ * <p>A snapshot stores the current sequence number and accumulator value into a separate file (replaced atomically),
+ * either every <code>snapshotInterval</code> records, or on <code>snapshot()</code> and <code>close()</code>. On
+ * opening, the journal is recovered from the latest snapshot: only the records following it are scanned, up to the
+ * first one with a wrong sequence number or checksum (a torn or never written record), which becomes the end of the
+ * journal. Segments entirely covered by the snapshot can be deleted through <code>compact()</code>.</p>
+ *
+ * <p>Same as <code>Calculator</code>, a journal is not thread-safe.</p>
+ *
+ * @see JournaledCalculator
+ */
+public final class Journal implements Closeable {
+    /** The size of a single record, in bytes. */
+    public static final int RECORD_SIZE = 32;
+
+    /** The default number of records per segment file (32 MiB). */
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+
+    /** The default number of records appended between two forces. */
+    public static final int DEFAULT_GROUP_COMMIT_RECORDS = 1024;
+
+    /** The default time between two forces, in milliseconds. */
+    public static final long DEFAULT_GROUP_COMMIT_MILLIS = 10;
+
+    /** The default number of records between two automatic snapshots. */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 1 << 20;
+
+    /** A <code>calculate(value, operator)</code> record, with the bits of <code>value</code> as the operand. */
+    public static final byte CALCULATE = 1;
+
+    /** A <code>calculateAdvanced(action)</code> record, with the action as the operator. */
+    public static final byte ADVANCED = 2;
+
+    /** A <code>calculatePower(exponent)</code> record, with the exponent as the operand. */
+    public static final byte POWER = 3;
+
+    /** A <code>setCurrentValue(value)</code> record, with the bits of <code>value</code> as the operand. */
+    public static final byte SET = 4;
+
+    /** A restore of the accumulator value at another sequence number, which is the operand. */
+    public static final byte RESTORE = 5;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String SNAPSHOT_FILE = "snapshot";
+    private static final int SNAPSHOT_SIZE = 24;
+    private static final int READ_BUFFER_RECORDS = 2048;
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final int groupCommitRecords;
+    private final long groupCommitNanos;
+    private final int snapshotInterval;
+
+    private final NavigableMap<Long, Path> segments = new TreeMap<>();
+    private final byte[] scratch = new byte[RECORD_SIZE];
+    private final ByteBuffer record = ByteBuffer.wrap(scratch);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private MappedByteBuffer active;
+    private long activeFirst;
+    private int activeCapacity;
+
+    private long sequence;
+    private double value;
+    private long snapshotSequence;
+    private double snapshotValue;
+    private int unforced;
+    private long lastForce = System.nanoTime();
+    private long recoveredRecords;
+    private boolean closed;
+
+    /**
+     * Opens (or creates) the journal in <code>directory</code>, with the default segment size, group commit and
+     * snapshot settings.
+     *
+     * @param directory The journal directory, created if it does not exist.
+     * @throws IOException If the journal can't be read or written, or is missing records.
+     */
+    public Journal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_RECORDS, DEFAULT_GROUP_COMMIT_RECORDS, DEFAULT_GROUP_COMMIT_MILLIS,
+                DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Opens (or creates) the journal in <code>directory</code>, recovering its state from the latest snapshot and the
+     * records following it.
+     *
+     * @param directory The journal directory, created if it does not exist.
+     * @param segmentRecords The number of records per newly created segment file.
+     * @param groupCommitRecords The number of records appended between two forces.
+     * @param groupCommitMillis The time between two forces, in milliseconds.
+     * @param snapshotInterval The number of records between two automatic snapshots, or <code>0</code> to only take
+     *                         snapshots on request.
+     * @throws IOException If the journal can't be read or written, or is missing records.
+     * @throws IllegalArgumentException If <code>segmentRecords</code> or <code>groupCommitRecords</code> is not
+     * positive, or <code>groupCommitMillis</code> or <code>snapshotInterval</code> is negative.
+     */
+    public Journal(Path directory, int segmentRecords, int groupCommitRecords, long groupCommitMillis,
+                   int snapshotInterval) throws IOException {
+        if (segmentRecords < 1 || groupCommitRecords < 1 || groupCommitMillis < 0 || snapshotInterval < 0)
+            throw new IllegalArgumentException("Expected positive segment and group commit sizes, received: "
+                    + segmentRecords + ", " + groupCommitRecords + ", " + groupCommitMillis + ", " + snapshotInterval);
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.groupCommitRecords = groupCommitRecords;
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+        this.snapshotInterval = snapshotInterval;
+
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * @return The sequence number of the last record, or of the snapshot if no record follows it (<code>0</code> for
+     * an empty journal).
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The accumulator value after the last record.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @return The sequence number of the latest snapshot.
+     */
+    public long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    /**
+     * Appends a record, which becomes durable with the next force.
+     *
+     * @param kind The kind of the operation (<code>CALCULATE</code>, <code>ADVANCED</code>, <code>POWER</code>,
+     *             <code>SET</code> or <code>RESTORE</code>).
+     * @param operator The operator, or the action, of the operation.
+     * @param operand The raw operand.
+     * @param result The accumulator value after the operation.
+     * @return The sequence number of the record.
+     * @throws IOException If the record can't be written.
+     */
+    public long append(byte kind, char operator, long operand, double result) throws IOException {
+        ensureOpen();
+        long next = sequence + 1;
+        if (next - activeFirst >= activeCapacity) {
+            sync();
+            channel.close();
+            openSegment(next, segmentRecords);
+        }
+
+        int offset = (int)(next - activeFirst) * RECORD_SIZE;
+        encode(next, kind, operator, operand, result);
+        for (int i = 0; i < RECORD_SIZE; i += 8) {
+            active.putLong(offset + i, record.getLong(i));
+        }
+        clearSlot(offset + RECORD_SIZE);
+
+        sequence = next;
+        value = result;
+        if (++unforced >= groupCommitRecords || System.nanoTime() - lastForce >= groupCommitNanos)
+            sync();
+        if (snapshotInterval > 0 && next - snapshotSequence >= snapshotInterval)
+            snapshot();
+        return next;
+    }
+
+    /**
+     * Reads back a record.
+     *
+     * @param sequence The sequence number of the record.
+     * @return The decoded record.
+     * @throws IOException If the record can't be read, or is corrupt.
+     * @throws IllegalArgumentException If there is no record with the sequence number (including records in segments
+     * deleted by <code>compact()</code>).
+     */
+    public JournalRecord read(long sequence) throws IOException {
+        ensureOpen();
+        if (sequence < 1 || sequence > this.sequence)
+            throw new IllegalArgumentException("Expected a sequence number in range [1, " + this.sequence
+                    + "], received: " + sequence);
+
+        if (sequence >= activeFirst) {
+            int offset = (int)(sequence - activeFirst) * RECORD_SIZE;
+            for (int i = 0; i < RECORD_SIZE; i += 8) {
+                record.putLong(i, active.getLong(offset + i));
+            }
+        } else {
+            Map.Entry<Long, Path> segment = segments.floorEntry(sequence);
+            if (segment == null)
+                throw new IllegalArgumentException("The record " + sequence + " was compacted");
+            try (FileChannel file = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                record.clear();
+                long position = (sequence - segment.getKey()) * RECORD_SIZE;
+                while (record.hasRemaining()) {
+                    if (file.read(record, position + record.position()) < 0)
+                        throw new IllegalArgumentException("The record " + sequence + " was compacted");
+                }
+            }
+        }
+
+        if (!isValid(record, 0, sequence))
+            throw new IOException("Corrupt journal record " + sequence);
+        return decode(record, 0);
+    }
+
+    /**
+     * Returns the accumulator value after the record with the given sequence number, where the value at sequence
+     * number <code>0</code> is <code>0.0</code>.
+     *
+     * @param sequence The sequence number.
+     * @return The accumulator value.
+     * @throws IOException If the record can't be read, or is corrupt.
+     * @throws IllegalArgumentException If there is no record with the sequence number.
+     */
+    public double valueAt(long sequence) throws IOException {
+        if (sequence == 0)
+            return 0.0;
+        if (sequence == snapshotSequence)
+            return snapshotValue;
+        return read(sequence).getResult();
+    }
+
+    /**
+     * Forces the appended records to the storage device.
+     *
+     * @throws IOException If the journal was closed.
+     */
+    public void sync() throws IOException {
+        ensureOpen();
+        active.force();
+        unforced = 0;
+        lastForce = System.nanoTime();
+    }
+
+    /**
+     * Forces the appended records, and stores the current sequence number and accumulator value as the latest
+     * snapshot, from which the journal is recovered.
+     *
+     * @throws IOException If the snapshot can't be written.
+     */
+    public void snapshot() throws IOException {
+        sync();
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_SIZE);
+        buffer.putLong(0, sequence).putLong(8, Double.doubleToRawLongBits(value));
+        crc.reset();
+        crc.update(buffer.array(), 0, 16);
+        buffer.putLong(16, crc.getValue());
+
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                file.write(buffer);
+            }
+            file.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        snapshotSequence = sequence;
+        snapshotValue = value;
+    }
+
+    /**
+     * Deletes the segment files whose records all precede the latest snapshot. The values at their sequence numbers
+     * can no longer be read (or restored) afterwards.
+     *
+     * @return The number of deleted segment files.
+     * @throws IOException If a segment file can't be deleted.
+     */
+    public int compact() throws IOException {
+        ensureOpen();
+        int deleted = 0;
+        Iterator<Map.Entry<Long, Path>> iterator = segments.headMap(activeFirst, false).entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Path> segment = iterator.next();
+            long last = segment.getKey() + Files.size(segment.getValue()) / RECORD_SIZE - 1;
+            if (last > snapshotSequence)
+                break;
+            Files.delete(segment.getValue());
+            iterator.remove();
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Takes a final snapshot, and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        try {
+            snapshot();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /* [package-private] for unit-testing purposes */
+    long recoveredRecords() {
+        return recoveredRecords;
+    }
+
+    static String kindName(byte kind) {
+        switch (kind) {
+            case CALCULATE: return "CALCULATE";
+            case ADVANCED: return "ADVANCED";
+            case POWER: return "POWER";
+            case SET: return "SET";
+            case RESTORE: return "RESTORE";
+            default: return "UNKNOWN(" + kind + ")";
+        }
+    }
+
+    private void recover() throws IOException {
+        readSnapshot();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+
+        sequence = snapshotSequence;
+        value = snapshotValue;
+        for (;;) {
+            Map.Entry<Long, Path> segment = segments.floorEntry(sequence + 1);
+            if (segment == null || scan(segment.getValue(), segment.getKey()) == 0)
+                break;
+        }
+
+        Map.Entry<Long, Path> later = segments.higherEntry(sequence + 1);
+        if (later != null)
+            throw new IOException("The journal segment " + later.getValue() + " follows missing records, after "
+                    + sequence);
+
+        Map.Entry<Long, Path> segment = segments.floorEntry(sequence + 1);
+        if (segment != null && sequence + 1 - segment.getKey() < Files.size(segment.getValue()) / RECORD_SIZE)
+            openSegment(segment.getKey(), (int)(Files.size(segment.getValue()) / RECORD_SIZE));
+        else openSegment(sequence + 1, segmentRecords);
+        clearSlot((int)(sequence + 1 - activeFirst) * RECORD_SIZE);
+    }
+
+    /* scans the valid records following sequence in the segment, returning their number */
+    private long scan(Path file, long first) throws IOException {
+        long scanned = 0;
+        try (FileChannel segment = FileChannel.open(file, StandardOpenOption.READ)) {
+            long capacity = segment.size() / RECORD_SIZE;
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_RECORDS * RECORD_SIZE);
+            long slot = sequence + 1 - first;
+            while (slot < capacity) {
+                buffer.clear();
+                buffer.limit((int)Math.min(buffer.capacity(), (capacity - slot) * RECORD_SIZE));
+                while (buffer.hasRemaining()) {
+                    if (segment.read(buffer, slot * RECORD_SIZE + buffer.position()) < 0)
+                        return scanned;
+                }
+
+                for (int offset = 0; offset < buffer.limit(); offset += RECORD_SIZE, slot++) {
+                    if (!isValid(buffer, offset, sequence + 1))
+                        return scanned;
+                    sequence++;
+                    value = Double.longBitsToDouble(buffer.getLong(offset + 24));
+                    scanned++;
+                    recoveredRecords++;
+                }
+            }
+        }
+        return scanned;
+    }
+
+    private void readSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file) || Files.size(file) != SNAPSHOT_SIZE)
+            return;
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        crc.reset();
+        crc.update(buffer.array(), 0, 16);
+        if (buffer.getLong(16) != crc.getValue())
+            return;
+        snapshotSequence = buffer.getLong(0);
+        snapshotValue = Double.longBitsToDouble(buffer.getLong(8));
+    }
+
+    private void openSegment(long first, int capacity) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", first, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long)capacity * RECORD_SIZE);
+        activeFirst = first;
+        activeCapacity = capacity;
+        segments.put(first, file);
+    }
+
+    /* the slot following the last record is zeroed, so that stale records never extend the journal on recovery */
+    private void clearSlot(int offset) {
+        if (offset + RECORD_SIZE <= activeCapacity * RECORD_SIZE) {
+            for (int i = 0; i < RECORD_SIZE; i += 8) {
+                active.putLong(offset + i, 0L);
+            }
+        }
+    }
+
+    private void encode(long sequence, byte kind, char operator, long operand, double result) {
+        record.putLong(0, sequence);
+        record.put(8, kind);
+        record.put(9, (byte)0);
+        record.putChar(10, operator);
+        record.putLong(16, operand);
+        record.putLong(24, Double.doubleToRawLongBits(result));
+        record.putInt(12, checksum(scratch, 0));
+    }
+
+    private boolean isValid(ByteBuffer buffer, int offset, long sequence) {
+        return buffer.getLong(offset) == sequence && buffer.getInt(offset + 12) == checksum(buffer.array(), offset);
+    }
+
+    private int checksum(byte[] bytes, int offset) {
+        crc.reset();
+        crc.update(bytes, offset, 12);
+        crc.update(bytes, offset + 16, 16);
+        return (int)crc.getValue();
+    }
+
+    private static JournalRecord decode(ByteBuffer buffer, int offset) {
+        return new JournalRecord(buffer.getLong(offset), buffer.get(offset + 8), buffer.getChar(offset + 10),
+                buffer.getLong(offset + 16), Double.longBitsToDouble(buffer.getLong(offset + 24)));
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new ClosedChannelException();
+    }
+}
@@ -0,0 +1,59 @@
+package org.etfbl.tks.journal;
+
+/**
+ * A single, decoded journal record.
+ *
+ * @see Journal
+ */
+public final class JournalRecord {
+    private final long sequence;
+    private final byte kind;
+    private final char operator;
+    private final long operand;
+    private final double result;
+
+    JournalRecord(long sequence, byte kind, char operator, long operand, double result) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.operator = operator;
+        this.operand = operand;
+        this.result = result;
+    }
+
+    /**
+     * @return The sequence number of the record, starting from <code>1</code>.
+     */
+    public long getSequence() { return sequence; }
+
+    /**
+     * @return The kind of the operation, one of the <code>Journal</code> kind constants.
+     */
+    public byte getKind() { return kind; }
+
+    /**
+     * @return The operator of a <code>calculate</code> record, or the action of a <code>calculateAdvanced</code> one.
+     */
+    public char getOperator() { return operator; }
+
+    /**
+     * @return The raw operand: the bits of a <code>double</code> operand for <code>calculate</code> and
+     * <code>SET</code> records, the exponent of <code>POWER</code> records, and the restored sequence number of
+     * <code>RESTORE</code> records.
+     */
+    public long getOperand() { return operand; }
+
+    /**
+     * @return The operand of a <code>calculate</code> or <code>SET</code> record, as a <code>double</code>.
+     */
+    public double getOperandAsDouble() { return Double.longBitsToDouble(operand); }
+
+    /**
+     * @return The accumulator value after the operation.
+     */
+    public double getResult() { return result; }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + Journal.kindName(kind) + " '" + operator + "' " + operand + " = " + result;
+    }
+}
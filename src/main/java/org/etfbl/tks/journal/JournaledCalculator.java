@@ -0,0 +1,167 @@
+package org.etfbl.tks.journal;
+
+import org.etfbl.tks.CalculatorAdvanced;
+import org.etfbl.tks.Status;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * A <code>CalculatorAdvanced</code> whose accumulator survives restarts: every successful <code>calculate</code>,
+ * <code>calculateAdvanced</code>, <code>calculatePower</code> and <code>setCurrentValue</code> call (including the
+ * ones made by <code>evaluate</code>, and the status-code variants) is appended to a <code>Journal</code>, and a newly
+ * created instance starts from the journal's recovered value. Operations which fail are not journaled, unless they
+ * still changed the accumulator (a <code>NaN</code> or infinite value reset to <code>0</code> by an advanced
+ * operation), which is journaled as a <code>SET</code> record.
+ *
+ * <p>As the journal holds the accumulator value after every record, <code>restore(sequence)</code> can move the
+ * accumulator to any earlier state (undo), or back to a later one (redo), without keeping a history on the heap. A
+ * restore is journaled itself, so it survives restarts as well.</p>
+ *
+ * <p>The journal's <code>IOException</code>s are rethrown as <code>UncheckedIOException</code>s, as the calculator
+ * methods don't declare them.</p>
+ *
+ * @see Journal
+ */
+public class JournaledCalculator extends CalculatorAdvanced implements Closeable {
+    private final Journal journal;
+    /* set while a base operation runs, as it may update the accumulator through setCurrentValue */
+    private boolean applying;
+
+    /**
+     * Opens (or creates) a journal with the default settings in <code>directory</code>, and creates a calculator
+     * over it.
+     *
+     * @param directory The journal directory.
+     * @throws IOException If the journal can't be opened.
+     */
+    public JournaledCalculator(Path directory) throws IOException {
+        this(new Journal(directory));
+    }
+
+    /**
+     * Creates a calculator over an open journal, with the accumulator set to the journal's value. The calculator
+     * takes ownership of the journal, which is closed along with it.
+     *
+     * @param journal The journal.
+     */
+    public JournaledCalculator(Journal journal) {
+        this.journal = journal;
+        super.setCurrentValue(journal.getValue());
+    }
+
+    /**
+     * @return The underlying journal.
+     */
+    public Journal getJournal() {
+        return journal;
+    }
+
+    /**
+     * @return The sequence number of the last journaled operation.
+     */
+    public long getSequence() {
+        return journal.getSequence();
+    }
+
+    @Override
+    public void setCurrentValue(double currentValue) {
+        super.setCurrentValue(currentValue);
+        if (!applying)
+            append(Journal.SET, '=', Double.doubleToRawLongBits(currentValue));
+    }
+
+    @Override
+    public int tryCalculate(double value, char operator) {
+        int status;
+        applying = true;
+        try {
+            status = super.tryCalculate(value, operator);
+        } finally {
+            applying = false;
+        }
+        if (status == Status.OK)
+            append(Journal.CALCULATE, operator, Double.doubleToRawLongBits(value));
+        return status;
+    }
+
+    @Override
+    public int tryCalculateAdvanced(char action) {
+        long before = Double.doubleToRawLongBits(getAsDouble());
+        int status;
+        applying = true;
+        try {
+            status = super.tryCalculateAdvanced(action);
+        } finally {
+            applying = false;
+        }
+        if (status == Status.OK)
+            append(Journal.ADVANCED, action, 0L);
+        else if (Double.doubleToRawLongBits(getAsDouble()) != before)
+            append(Journal.SET, '=', Double.doubleToRawLongBits(getAsDouble()));
+        return status;
+    }
+
+    @Override
+    public int tryCalculatePower(int exponent) {
+        long before = Double.doubleToRawLongBits(getAsDouble());
+        int status;
+        applying = true;
+        try {
+            status = super.tryCalculatePower(exponent);
+        } finally {
+            applying = false;
+        }
+        if (status == Status.OK)
+            append(Journal.POWER, '^', exponent);
+        else if (Double.doubleToRawLongBits(getAsDouble()) != before)
+            append(Journal.SET, '=', Double.doubleToRawLongBits(getAsDouble()));
+        return status;
+    }
+
+    /**
+     * Sets the accumulator to its value after the operation with the given sequence number, which may precede (undo)
+     * or follow (redo) the operation the current value originates from. Sequence number <code>0</code> restores the
+     * initial <code>0.0</code> value.
+     *
+     * @param sequence The sequence number of the operation.
+     * @throws IllegalArgumentException If there is no such operation in the journal (or it was compacted).
+     * @throws UncheckedIOException If the journal can't be read or written.
+     */
+    public void restore(long sequence) {
+        try {
+            double restored = journal.valueAt(sequence);
+            super.setCurrentValue(restored);
+            append(Journal.RESTORE, '@', sequence);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Forces the journaled operations to the storage device.
+     *
+     * @throws IOException If the journal can't be forced.
+     */
+    public void sync() throws IOException {
+        journal.sync();
+    }
+
+    /**
+     * Closes the underlying journal, taking a final snapshot.
+     */
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    private void append(byte kind, char operator, long operand) {
+        try {
+            journal.append(kind, operator, operand, getAsDouble());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package org.etfbl.tks.math;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Armstrong (narcissistic) number checks over the whole non-negative <code>long</code> and <code>BigInteger</code>
+ * ranges. An N-digit number is an Armstrong number if the sum of its digits, each raised to the N-th power, is equal to
+ * the number itself.
+ *
+ * <p>Since <code>N * 9^N</code> has fewer than N digits for every <code>N</code> above 60, there are finitely many
+ * Armstrong numbers: the 88 positive ones (the largest having 39 digits) are held in a sorted table, so a single check
+ * is a binary search, and never allocates (for <code>long</code> values). <code>upTo</code> finds them independently,
+ * by enumerating the multisets of digits, with the N-th powers looked up in a precomputed <code>digit^N</code> table
+ * (for <code>N</code> in <code>[1, 19]</code>).</p>
+ */
+public final class ArmstrongNumbers {
+    /**
+     * The maximum number of decimal digits of a <code>long</code> value.
+     */
+    public static final int MAX_DIGITS = 19;
+
+    /**
+     * The number of positive Armstrong numbers.
+     */
+    public static final int COUNT = 88;
+
+    /** All positive Armstrong numbers, in ascending order. */
+    private static final String[] DIGITS = {
+            "1", "2", "3", "4", "5", "6", "7", "8", "9", "153", "370", "371", "407", "1634", "8208", "9474", "54748",
+            "92727", "93084", "548834", "1741725", "4210818", "9800817", "9926315", "24678050", "24678051", "88593477",
+            "146511208", "472335975", "534494836", "912985153", "4679307774", "32164049650", "32164049651",
+            "40028394225", "42678290603", "44708635679", "49388550606", "82693916578", "94204591914", "28116440335967",
+            "4338281769391370", "4338281769391371", "21897142587612075", "35641594208964132", "35875699062250035",
+            "1517841543307505039", "3289582984443187032", "4498128791164624869", "4929273885928088826",
+            "63105425988599693916", "128468643043731391252", "449177399146038697307", "21887696841122916288858",
+            "27879694893054074471405", "27907865009977052567814", "28361281321319229463398", "35452590104031691935943",
+            "174088005938065293023722", "188451485447897896036875", "239313664430041569350093",
+            "1550475334214501539088894", "1553242162893771850669378", "3706907995955475988644380",
+            "3706907995955475988644381", "4422095118095899619457938", "121204998563613372405438066",
+            "121270696006801314328439376", "128851796696487777842012787", "174650464499531377631639254",
+            "177265453171792792366489765", "14607640612971980372614873089", "19008174136254279995012734740",
+            "19008174136254279995012734741", "23866716435523975980390369295", "1145037275765491025924292050346",
+            "1927890457142960697580636236639", "2309092682616190307509695338915", "17333509997782249308725103962772",
+            "186709961001538790100634132976990", "186709961001538790100634132976991",
+            "1122763285329372541592822900204593", "12639369517103790328947807201478392",
+            "12679937780272278566303885594196922", "1219167219625434121569735803609966019",
+            "12815792078366059955099770545296129367", "115132219018763992565095597973971522400",
+            "115132219018763992565095597973971522401"
+    };
+
+    private static final BigInteger[] ALL = new BigInteger[COUNT];
+
+    /** The Armstrong numbers which fit a <code>long</code>, including <code>0</code>. */
+    private static final long[] LONG_VALUES;
+
+    /** <code>POWERS_OF_TEN[i] = 10^i</code>, for <code>i</code> in <code>[0, 18]</code>. */
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS];
+
+    /** <code>DIGIT_POWERS[n][d] = d^n</code>, for <code>n</code> in <code>[0, 19]</code> (9^19 still fits a long). */
+    private static final long[][] DIGIT_POWERS = new long[MAX_DIGITS + 1][10];
+
+    static {
+        for (int i = 0; i < COUNT; i++) {
+            ALL[i] = new BigInteger(DIGITS[i]);
+        }
+        int longCount = 0;
+        while (longCount < ALL.length && ALL[longCount].bitLength() < Long.SIZE) {
+            longCount++;
+        }
+        LONG_VALUES = new long[longCount + 1];
+        for (int i = 0; i < longCount; i++) {
+            LONG_VALUES[i + 1] = ALL[i].longValue();
+        }
+
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+        for (int d = 0; d < 10; d++) {
+            DIGIT_POWERS[0][d] = 1;
+            for (int n = 1; n <= MAX_DIGITS; n++) {
+                DIGIT_POWERS[n][d] = DIGIT_POWERS[n - 1][d] * d;
+            }
+        }
+    }
+
+    private ArmstrongNumbers() { }
+
+    /**
+     * Counts the decimal digits of a non-negative value, without converting it to a <code>String</code>.
+     *
+     * @param value A non-negative value.
+     * @return The number of decimal digits of <code>value</code> (<code>1</code> for <code>0</code>).
+     */
+    public static int digitCount(long value) {
+        int count = 1;
+        while (count < MAX_DIGITS && value >= POWERS_OF_TEN[count]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether <code>value</code> is an Armstrong number, through a binary search of the table of all Armstrong
+     * numbers which fit a <code>long</code>.
+     *
+     * @param value The value to be checked.
+     * @return <code>true</code> if <code>value</code> is a non-negative Armstrong number (including <code>0</code>).
+     */
+    public static boolean isArmstrong(long value) {
+        return value >= 0 && Arrays.binarySearch(LONG_VALUES, value) >= 0;
+    }
+
+    /**
+     * Checks whether <code>value</code> is an Armstrong number, through a binary search of the table of all Armstrong
+     * numbers.
+     *
+     * @param value The value to be checked.
+     * @return <code>true</code> if <code>value</code> is a non-negative Armstrong number (including <code>0</code>).
+     */
+    public static boolean isArmstrong(BigInteger value) {
+        if (value.bitLength() < Long.SIZE)
+            return isArmstrong(value.longValue());
+        return value.signum() > 0 && Arrays.binarySearch(ALL, value) >= 0;
+    }
+
+    /**
+     * @return All <code>COUNT</code> positive Armstrong numbers, in ascending order.
+     */
+    public static BigInteger[] all() {
+        return ALL.clone();
+    }
+
+    /**
+     * Produces every Armstrong number in <code>[0, bound]</code>. Instead of checking each value, all multisets of N
+     * digits are enumerated for every length N (the sum of digit powers depends on the digits, not on their order),
+     * and a multiset is accepted if its power sum is an N-digit number built out of exactly those digits.
+     *
+     * @param bound The largest value to be considered.
+     * @return All Armstrong numbers not greater than <code>bound</code>, in ascending order (empty if
+     * <code>bound</code> is negative).
+     */
+    public static long[] upTo(long bound) {
+        if (bound < 0)
+            return new long[0];
+
+        Enumeration enumeration = new Enumeration(bound);
+        for (int length = 1, maxLength = digitCount(bound); length <= maxLength; length++) {
+            enumeration.length = length;
+            enumeration.enumerate(9, length, 0);
+        }
+
+        long[] result = Arrays.copyOf(enumeration.found, enumeration.count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * The state of a single <code>upTo</code> enumeration.
+     */
+    private static final class Enumeration {
+        final long bound;
+        final int[] counts = new int[10];
+        final int[] scratch = new int[10];
+        long[] found = new long[64];
+        int count;
+        int length;
+
+        Enumeration(long bound) {
+            this.bound = bound;
+        }
+
+        /**
+         * Distributes <code>remaining</code> digit slots among the digits <code>[0, digit]</code>, where
+         * <code>sum</code> is the power sum of the digits chosen so far.
+         */
+        void enumerate(int digit, int remaining, long sum) {
+            if (digit == 0) {
+                counts[0] = remaining;
+                accept(sum);
+                return;
+            }
+
+            final long power = DIGIT_POWERS[length][digit];
+            /* the power sum only grows as digits are added, so branches above the bound are pruned */
+            for (int k = 0; k <= remaining; k++) {
+                if (k > 0) {
+                    if (power > bound - sum)
+                        break;
+                    sum += power;
+                }
+                counts[digit] = k;
+                enumerate(digit - 1, remaining - k, sum);
+            }
+            counts[digit] = 0;
+        }
+
+        void accept(long sum) {
+            if (digitCount(sum) != length)
+                return;
+
+            Arrays.fill(scratch, 0);
+            long temp = sum;
+            for (int i = 0; i < length; i++) {
+                scratch[(int)(temp % 10)]++;
+                temp /= 10;
+            }
+            if (!Arrays.equals(scratch, counts))
+                return;
+
+            if (count == found.length)
+                found = Arrays.copyOf(found, count * 2);
+            found[count++] = sum;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.etfbl.tks.math;
+
+/**
+ * A lazily grown table of divisor sums, <code>&sigma;(n)</code>, stored in a primitive <code>long[]</code>. The table
+ * starts small and is extended segment by segment (see <code>DivisorSums.sigmaRange</code>) whenever a value beyond
+ * its current end is queried, up to a fixed maximum; values above the maximum are calculated on demand, through
+ * <code>DivisorSums.sigma</code>. Once a value is in the table, queries are answered in <code>O(1)</code>.
+ *
+ * <p>Instances are safe for use by multiple threads: the table is only ever replaced by a larger copy, which is
+ * published through a volatile field, so readers never block.</p>
+ *
+ * @see DivisorSums
+ */
+public final class DivisorSieve {
+    /**
+     * The default maximum value held by the table, used by <code>shared()</code> (a table of <code>8 MiB</code>).
+     */
+    public static final int DEFAULT_LIMIT = 1 << 20;
+
+    private static final int INITIAL_SIZE = 1 << 10;
+
+    private static final DivisorSieve SHARED = new DivisorSieve(DEFAULT_LIMIT);
+
+    private final int limit;
+    private volatile long[] sigma;
+
+    /**
+     * Creates a new, empty sieve, which will hold the divisor sums of at most <code>[1, limit]</code>.
+     *
+     * @param limit The largest value to be held by the table.
+     * @throws IllegalArgumentException If <code>limit</code> is negative, or equal to
+     * <code>Integer.MAX_VALUE</code>.
+     */
+    public DivisorSieve(int limit) {
+        if (limit < 0 || limit == Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Expected a limit in range [0, " + (Integer.MAX_VALUE - 1)
+                    + "], received: " + limit);
+        this.limit = limit;
+        this.sigma = new long[1];
+    }
+
+    /**
+     * @return The sieve shared by all <code>CalculatorAdvanced</code> instances, with the limit of
+     * <code>DEFAULT_LIMIT</code>.
+     */
+    public static DivisorSieve shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return The largest value this sieve will hold in its table.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return The largest value currently held by the table (<code>0</code> if it is empty).
+     */
+    public int size() {
+        return sigma.length - 1;
+    }
+
+    /**
+     * Returns <code>&sigma;(n)</code>, from the table if <code>n</code> does not exceed the limit (extending the table
+     * first, if needed), or calculated through trial division otherwise.
+     *
+     * @param n A positive integer.
+     * @return The sum of all positive divisors of <code>n</code>, including <code>n</code> itself.
+     * @throws IllegalArgumentException If <code>n</code> is less than 1.
+     */
+    public long sigma(int n) {
+        long[] table = sigma;
+        if (n < table.length && n > 0)
+            return table[n];
+        if (n < 1)
+            throw new IllegalArgumentException("Expected a positive integer, received: " + n);
+        if (n > limit)
+            return DivisorSums.sigma(n);
+        return grow(n)[n];
+    }
+
+    /**
+     * Returns the aliquot sum of <code>n</code>, <code>&sigma;(n) - n</code>.
+     *
+     * @param n A positive integer.
+     * @return The sum of all positive divisors of <code>n</code>, other than <code>n</code> itself.
+     * @throws IllegalArgumentException If <code>n</code> is less than 1.
+     */
+    public long aliquotSum(int n) {
+        return sigma(n) - n;
+    }
+
+    /**
+     * Extends the table, so that it holds at least <code>[1, n]</code>, at most doubling it (bounded by the limit).
+     *
+     * @param n The largest value to be held by the table.
+     * @return The extended table.
+     */
+    private synchronized long[] grow(int n) {
+        long[] table = sigma;
+        if (n < table.length)
+            return table;
+
+        int length = (int)Math.min((long)limit + 1, Math.max((long)n + 1, Math.max(INITIAL_SIZE, 2L * table.length)));
+        long[] extended = java.util.Arrays.copyOf(table, length);
+        DivisorSums.sigmaRange(table.length, extended, table.length, length - table.length);
+        sigma = extended;
+        return extended;
+    }
+}
@@ -0,0 +1,174 @@
+package org.etfbl.tks.math;
+
+import java.math.BigInteger;
+
+/**
+ * Divisor-function (<code>&sigma;(n)</code>, the sum of all positive divisors of <code>n</code>) calculations, both for
+ * a single value, through trial division bounded by <code>&radic;n</code> (or, when only compared with
+ * <code>2n</code>, through Pollard's rho method), and for a whole range of values, through a segmented sieve.
+ *
+ * @see DivisorSieve
+ */
+public final class DivisorSums {
+    /** Factors below this bound are found by trial division, and larger ones by Pollard's rho method. */
+    private static final long TRIAL_DIVISION_LIMIT = 1 << 10;
+
+    private DivisorSums() { }
+
+    /**
+     * Calculates <code>&sigma;(n)</code> by factoring <code>n</code> through trial division up to <code>&radic;n</code>,
+     * as the product of <code>(p^(k+1) - 1) / (p - 1)</code> over all prime powers <code>p^k</code> dividing it.
+     *
+     * @param n A positive integer.
+     * @return The sum of all positive divisors of <code>n</code>, including <code>n</code> itself.
+     * @throws IllegalArgumentException If <code>n</code> is less than 1.
+     * @throws ArithmeticException If the sum does not fit into a <code>long</code>.
+     */
+    public static long sigma(long n) {
+        if (n < 1)
+            throw new IllegalArgumentException("Expected a positive integer, received: " + n);
+
+        long result = 1;
+        if ((n & 1) == 0) {
+            int k = Long.numberOfTrailingZeros(n);
+            n >>>= k;
+            /* 1 + 2 + ... + 2^k, where k <= 62 for any positive long */
+            result = (1L << (k + 1)) - 1;
+        }
+        for (long p = 3; p <= n / p; p += 2) {
+            if (n % p == 0) {
+                long term = 1, power = 1;
+                do {
+                    n /= p;
+                    power *= p;
+                    term = Math.addExact(term, power);
+                } while (n % p == 0);
+                result = Math.multiplyExact(result, term);
+            }
+        }
+        if (n > 1) {
+            result = Math.multiplyExact(result, n + 1);
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the aliquot sum of <code>n</code>, i.e. the sum of its proper divisors, <code>&sigma;(n) - n</code>.
+     *
+     * @param n A positive integer.
+     * @return The sum of all positive divisors of <code>n</code>, other than <code>n</code> itself.
+     * @throws IllegalArgumentException If <code>n</code> is less than 1.
+     * @throws ArithmeticException If the divisor sum does not fit into a <code>long</code>.
+     */
+    public static long aliquotSum(long n) {
+        return sigma(n) - n;
+    }
+
+    /**
+     * Compares the aliquot sum of <code>n</code> with <code>n</code> itself, i.e. <code>&sigma;(n)</code> with
+     * <code>2n</code>, exactly for any positive <code>long</code>, even where <code>&sigma;(n)</code> overflows. The
+     * value is factored through trial division by the primes below <code>TRIAL_DIVISION_LIMIT</code>, and then, unless
+     * the remaining cofactor is a prime (see <code>Primes.isPrime</code>), through Pollard's rho method, so that even
+     * a product of two large primes takes <code>O(n^(1/4))</code>, rather than <code>O(&radic;n)</code>, steps.
+     *
+     * @param n A positive integer.
+     * @return A positive value if <code>n</code> is abundant, <code>0</code> if it is perfect, and a negative value if
+     * it is deficient.
+     * @throws IllegalArgumentException If <code>n</code> is less than 1.
+     */
+    public static int abundance(long n) {
+        if (n < 1)
+            throw new IllegalArgumentException("Expected a positive integer, received: " + n);
+        try {
+            return Long.compare(sigmaFactored(n) - n, n);
+        } catch (ArithmeticException ex) {
+            /* sigma(n) exceeds Long.MAX_VALUE, and so 2n as well, unless n is above Long.MAX_VALUE / 2 */
+            if (n <= Long.MAX_VALUE / 2)
+                return 1;
+            return sigmaFactoredExact(n).compareTo(BigInteger.valueOf(n).shiftLeft(1));
+        }
+    }
+
+    /* sigma(n), from the factors found by nextFactor */
+    private static long sigmaFactored(long n) {
+        int k = Long.numberOfTrailingZeros(n);
+        n >>>= k;
+        long result = (1L << (k + 1)) - 1;
+        for (long p = nextFactor(n); p > 1; p = nextFactor(n)) {
+            long term = 1, power = 1;
+            do {
+                n /= p;
+                power *= p;
+                term = Math.addExact(term, power);
+            } while (n % p == 0);
+            result = Math.multiplyExact(result, term);
+        }
+        return result;
+    }
+
+    private static BigInteger sigmaFactoredExact(long n) {
+        int k = Long.numberOfTrailingZeros(n);
+        n >>>= k;
+        BigInteger result = BigInteger.ONE.shiftLeft(k + 1).subtract(BigInteger.ONE);
+        for (long p = nextFactor(n); p > 1; p = nextFactor(n)) {
+            BigInteger term = BigInteger.ONE, power = BigInteger.ONE;
+            do {
+                n /= p;
+                power = power.multiply(BigInteger.valueOf(p));
+                term = term.add(power);
+            } while (n % p == 0);
+            result = result.multiply(term);
+        }
+        return result;
+    }
+
+    /**
+     * @return A prime factor of an odd <code>n</code>, or <code>1</code> if <code>n</code> is <code>1</code>.
+     */
+    private static long nextFactor(long n) {
+        for (long p = 3; p < TRIAL_DIVISION_LIMIT; p += 2) {
+            if (p > n / p)
+                return n;
+            if (n % p == 0)
+                return p;
+        }
+        /* n has no factor below the limit */
+        long factor = n;
+        while (!Primes.isPrime(factor)) {
+            factor = Primes.factor(factor);
+        }
+        return factor;
+    }
+
+    /**
+     * Fills <code>target[offset .. offset + length)</code> with <code>&sigma;(from) .. &sigma;(from + length - 1)</code>,
+     * through a segmented sieve: every divisor <code>d &le; &radic;to</code> is paired with its co-divisor
+     * <code>m / d</code> for all of its multiples <code>m</code> within the segment, which takes
+     * <code>O(length &middot; log(to) + &radic;to)</code> steps and no allocation.
+     *
+     * @param from The first value of the segment, a positive integer.
+     * @param target The array to be filled.
+     * @param offset The index in <code>target</code> at which <code>&sigma;(from)</code> is stored.
+     * @param length The number of consecutive values in the segment.
+     * @throws IllegalArgumentException If <code>from</code> is less than 1, or the segment exceeds
+     * <code>Long.MAX_VALUE</code>.
+     */
+    public static void sigmaRange(long from, long[] target, int offset, int length) {
+        if (from < 1)
+            throw new IllegalArgumentException("Expected a positive integer, received: " + from);
+        if (length <= 0)
+            return;
+        if (from > Long.MAX_VALUE - (length - 1))
+            throw new IllegalArgumentException("Segment exceeds the long range: " + from + " + " + length);
+
+        long to = from + length - 1;
+        java.util.Arrays.fill(target, offset, offset + length, 0L);
+        for (long d = 1; d <= to / d; d++) {
+            /* the smallest co-divisor q, such that q >= d and q * d >= from */
+            long q = Math.max(d, (from + d - 1) / d);
+            for (long m = q * d; m <= to; m += d, q++) {
+                target[offset + (int)(m - from)] += q == d ? d : d + q;
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.etfbl.tks.math;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Factorial calculations: constant lookup tables for every result that fits a <code>long</code> (up to
+ * <code>20!</code>) or a <code>double</code> (up to <code>170!</code>), and arbitrary-size <code>BigInteger</code>
+ * results above that.
+ *
+ * <p>Large factorials are calculated by binary splitting: the product of a range is the product of its two halves,
+ * so the multiplied numbers stay balanced in size, which lets <code>BigInteger</code> use its sub-quadratic
+ * multiplication algorithms. Products of very large ranges are split across the common <code>ForkJoinPool</code>. The
+ * most recently used large results are kept in a bounded memo.</p>
+ */
+public final class Factorials {
+    /** The largest <code>n</code> for which <code>n!</code> fits a <code>long</code>. */
+    public static final int MAX_LONG = 20;
+
+    /** The largest <code>n</code> for which <code>n!</code> is finite as a <code>double</code>. */
+    public static final int MAX_DOUBLE = 170;
+
+    /** The number of <code>BigInteger</code> results kept in the memo. */
+    public static final int MEMO_CAPACITY = 16;
+
+    /** Ranges with fewer factors than this are multiplied sequentially. */
+    private static final int SEQUENTIAL_THRESHOLD = 64;
+
+    /** Factorials of <code>n</code> at and above this value split their product across the fork-join pool. */
+    private static final int PARALLEL_THRESHOLD = 20_000;
+
+    private static final long[] LONG_TABLE = new long[MAX_LONG + 1];
+    private static final double[] DOUBLE_TABLE = new double[MAX_DOUBLE + 1];
+
+    private static final Map<Integer, BigInteger> MEMO = new LinkedHashMap<Integer, BigInteger>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, BigInteger> eldest) {
+            return size() > MEMO_CAPACITY;
+        }
+    };
+
+    static {
+        BigInteger product = BigInteger.ONE;
+        for (int n = 0; n <= MAX_DOUBLE; n++) {
+            if (n > 0)
+                product = product.multiply(BigInteger.valueOf(n));
+            if (n <= MAX_LONG)
+                LONG_TABLE[n] = product.longValue();
+            /* correctly rounded, unlike a running double product */
+            DOUBLE_TABLE[n] = product.doubleValue();
+        }
+    }
+
+    private Factorials() { }
+
+    /**
+     * Looks <code>n!</code> up, for <code>n</code> in <code>[0, 20]</code>.
+     *
+     * @param n A non-negative integer.
+     * @return <code>n!</code>.
+     * @throws IllegalArgumentException If <code>n</code> is negative.
+     * @throws ArithmeticException If <code>n!</code> does not fit a <code>long</code>.
+     */
+    public static long factorialLong(int n) {
+        checkArgument(n);
+        if (n > MAX_LONG)
+            throw new ArithmeticException("Factorial overflows a long: " + n + "!");
+        return LONG_TABLE[n];
+    }
+
+    /**
+     * Looks <code>n!</code> up, rounded to the nearest <code>double</code>, for <code>n</code> in
+     * <code>[0, 170]</code>.
+     *
+     * @param n A non-negative integer.
+     * @return <code>n!</code>, or <code>Double.POSITIVE_INFINITY</code> if <code>n</code> is greater than 170.
+     * @throws IllegalArgumentException If <code>n</code> is negative.
+     */
+    public static double factorialDouble(int n) {
+        checkArgument(n);
+        return n <= MAX_DOUBLE ? DOUBLE_TABLE[n] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Calculates <code>n!</code> exactly.
+     *
+     * @param n A non-negative integer.
+     * @return <code>n!</code>.
+     * @throws IllegalArgumentException If <code>n</code> is negative.
+     */
+    public static BigInteger factorial(int n) {
+        checkArgument(n);
+        if (n <= MAX_LONG)
+            return BigInteger.valueOf(LONG_TABLE[n]);
+
+        BigInteger result;
+        synchronized (MEMO) {
+            result = MEMO.get(n);
+        }
+        if (result != null)
+            return result;
+
+        BigInteger tail = n >= PARALLEL_THRESHOLD
+                ? ForkJoinPool.commonPool().invoke(new ProductTask(MAX_LONG + 1, n))
+                : product(MAX_LONG + 1, n);
+        result = tail.multiply(BigInteger.valueOf(LONG_TABLE[MAX_LONG]));
+
+        synchronized (MEMO) {
+            MEMO.put(n, result);
+        }
+        return result;
+    }
+
+    /**
+     * Multiplies all integers in <code>[from, to]</code>, by binary splitting.
+     */
+    static BigInteger product(long from, long to) {
+        if (to - from < SEQUENTIAL_THRESHOLD) {
+            /* accumulate in a long while possible, to save on BigInteger multiplications */
+            BigInteger result = BigInteger.ONE;
+            long partial = 1;
+            for (long i = from; i <= to; i++) {
+                if (partial > Long.MAX_VALUE / i) {
+                    result = result.multiply(BigInteger.valueOf(partial));
+                    partial = 1;
+                }
+                partial *= i;
+            }
+            return result.multiply(BigInteger.valueOf(partial));
+        }
+
+        long middle = (from + to) >>> 1;
+        return product(from, middle).multiply(product(middle + 1, to));
+    }
+
+    private static void checkArgument(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Expected a non-negative integer, received: " + n);
+    }
+
+    /**
+     * Binary splitting of a range product, with the halves multiplied in parallel.
+     */
+    private static final class ProductTask extends RecursiveTask<BigInteger> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+
+        ProductTask(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            if (to - from < PARALLEL_THRESHOLD / 4)
+                return product(from, to);
+
+            long middle = (from + to) >>> 1;
+            ProductTask upper = new ProductTask(middle + 1, to);
+            upper.fork();
+            BigInteger lower = new ProductTask(from, middle).compute();
+            return lower.multiply(upper.join());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.etfbl.tks.math;
+
+import java.math.BigInteger;
+
+/**
+ * Perfect number checks over the whole positive <code>long</code> and <code>BigInteger</code> ranges, without summing
+ * any divisors. By the Euclid&ndash;Euler theorem, an even number is perfect if and only if it is of the form
+ * <code>2^(p-1) * (2^p - 1)</code>, where <code>2^p - 1</code> is a (Mersenne) prime, so a check only inspects the bit
+ * pattern of the value, and runs the Lucas&ndash;Lehmer test on <code>p</code> if the pattern matches. No odd perfect
+ * number is known, and none exists below <code>10^1500</code>, so odd values are never reported as perfect.
+ *
+ * @see DivisorSums
+ */
+public final class PerfectNumbers {
+    private static final BigInteger TWO = BigInteger.valueOf(2);
+    private static final BigInteger FOUR = BigInteger.valueOf(4);
+
+    private PerfectNumbers() { }
+
+    /**
+     * Checks whether <code>value</code> is a perfect number, i.e. equal to the sum of its proper divisors.
+     *
+     * @param value The value to be checked.
+     * @return <code>true</code> if <code>value</code> is a perfect number (<code>1</code> is not).
+     */
+    public static boolean isPerfect(long value) {
+        if (value <= 0)
+            return false;
+        int p = Long.numberOfTrailingZeros(value) + 1;
+        /* 2^(p-1) * (2^p - 1) has 2p - 1 bits, so p <= 32 for a long */
+        return p > 1 && p <= 32 && value >>> (p - 1) == (1L << p) - 1 && isMersennePrime(p);
+    }
+
+    /**
+     * Checks whether <code>value</code> is a perfect number, i.e. equal to the sum of its proper divisors.
+     *
+     * @param value The value to be checked.
+     * @return <code>true</code> if <code>value</code> is a perfect number (<code>1</code> is not).
+     */
+    public static boolean isPerfect(BigInteger value) {
+        if (value.signum() <= 0)
+            return false;
+        int p = value.getLowestSetBit() + 1;
+        if (p == 1)
+            return false;
+        BigInteger mersenne = value.shiftRight(p - 1);
+        return mersenne.bitLength() == p && mersenne.bitCount() == p && isMersennePrime(p);
+    }
+
+    /**
+     * Checks whether <code>2^p - 1</code> is a prime, through the Lucas&ndash;Lehmer test: for an odd prime
+     * <code>p</code>, <code>M = 2^p - 1</code> is a prime if and only if <code>s(p - 2) = 0 (mod M)</code>, where
+     * <code>s(0) = 4</code> and <code>s(i) = s(i - 1)^2 - 2</code>. The test takes <code>p - 2</code> modular squarings,
+     * in <code>long</code> arithmetic for <code>p</code> below 63, and with the reduction <code>x mod M = (x &amp; M) +
+     * (x &gt;&gt; p)</code> (which needs no division) on <code>BigInteger</code> values above.
+     *
+     * @param p The exponent.
+     * @return <code>true</code> if <code>2^p - 1</code> is a prime.
+     */
+    public static boolean isMersennePrime(int p) {
+        if (p == 2)
+            return true;
+        if (p < 2 || !Primes.isPrime(p))
+            return false;
+
+        if (p < 63) {
+            long mersenne = (1L << p) - 1;
+            long s = 4;
+            for (int i = 0; i < p - 2; i++) {
+                s = Powers.mulMod(s, s, mersenne);
+                s = s >= 2 ? s - 2 : s + mersenne - 2;
+            }
+            return s == 0;
+        }
+
+        BigInteger mersenne = BigInteger.ONE.shiftLeft(p).subtract(BigInteger.ONE);
+        BigInteger s = FOUR;
+        for (int i = 0; i < p - 2; i++) {
+            s = s.multiply(s).subtract(TWO);
+            if (s.signum() < 0)
+                s = s.add(mersenne);
+            while (s.bitLength() > p) {
+                s = s.and(mersenne).add(s.shiftRight(p));
+            }
+            if (s.equals(mersenne))
+                s = BigInteger.ZERO;
+        }
+        return s.signum() == 0;
+    }
+}
@@ -0,0 +1,177 @@
+package org.etfbl.tks.math;
+
+import java.math.BigInteger;
+
+/**
+ * Exponentiation by squaring, in <code>O(log e)</code> multiplications, over several domains: overflow-checked
+ * <code>long</code> values, arbitrary-size <code>BigInteger</code> results, modular arithmetic, and fractional
+ * <code>double</code> bases (with negative exponents).
+ */
+public final class Powers {
+    /** Moduli up to this value can be multiplied directly, since the product of two residues fits a long. */
+    private static final long DIRECT_MUL_MOD_LIMIT = 3_037_000_499L;
+
+    private Powers() { }
+
+    /**
+     * Raises <code>base</code> to the power of <code>exponent</code>.
+     *
+     * @param base The value to be exponentiated (base).
+     * @param exponent The exponent value, non-negative.
+     * @return <code>base^exponent</code>.
+     * @throws IllegalArgumentException If <code>exponent</code> is negative.
+     * @throws ArithmeticException If the result does not fit into a <code>long</code>.
+     */
+    public static long powExact(long base, int exponent) {
+        checkExponent(exponent);
+        long result = 1;
+        while (true) {
+            if ((exponent & 1) != 0)
+                result = Math.multiplyExact(result, base);
+            exponent >>>= 1;
+            if (exponent == 0)
+                return result;
+            base = Math.multiplyExact(base, base);
+        }
+    }
+
+    /**
+     * Checks, without calculating it, whether <code>base^exponent</code> is guaranteed to fit into a
+     * <code>long</code>, from the bit length of <code>base</code>. A <code>false</code> result does not imply an
+     * overflow, only that the fast path can not be taken.
+     *
+     * @param base The value to be exponentiated (base).
+     * @param exponent The exponent value, non-negative.
+     * @return <code>true</code> if <code>powExact(base, exponent)</code> can not overflow.
+     */
+    public static boolean fitsLong(long base, int exponent) {
+        if (base >= -1 && base <= 1)
+            return true;
+        /* |base| < 2^bits, so |base^exponent| < 2^(bits * exponent) */
+        long bits = 64 - Long.numberOfLeadingZeros(base == Long.MIN_VALUE ? base : Math.abs(base));
+        return bits * exponent <= 63;
+    }
+
+    /**
+     * Raises <code>base</code> to the power of <code>exponent</code>, using <code>long</code> arithmetic whenever the
+     * result is known to fit, and falling back to <code>BigInteger</code> otherwise.
+     *
+     * @param base The value to be exponentiated (base).
+     * @param exponent The exponent value, non-negative.
+     * @return <code>base^exponent</code>, exact.
+     * @throws IllegalArgumentException If <code>exponent</code> is negative.
+     */
+    public static BigInteger pow(long base, int exponent) {
+        checkExponent(exponent);
+        if (fitsLong(base, exponent))
+            return BigInteger.valueOf(powExact(base, exponent));
+        return BigInteger.valueOf(base).pow(exponent);
+    }
+
+    /**
+     * Raises an integer-valued <code>double</code> to the power of <code>exponent</code>, exactly (using
+     * <code>long</code> arithmetic) while the result fits into a <code>long</code>, and through repeated squaring
+     * in <code>double</code> otherwise. Never allocates.
+     *
+     * @param base The value to be exponentiated (base), expected to have no fractional part.
+     * @param exponent The exponent value, non-negative.
+     * @return <code>base^exponent</code>, rounded to the nearest <code>double</code> while the result fits a
+     * <code>long</code>.
+     */
+    public static double powIntegral(double base, int exponent) {
+        if (base > -0x1p62 && base < 0x1p62 && exponent >= 0 && fitsLong((long)base, exponent))
+            return (double)powExact((long)base, exponent);
+        return pow(base, exponent);
+    }
+
+    /**
+     * Raises a (possibly fractional) <code>base</code> to an integer power, by repeated squaring. Negative exponents
+     * produce the reciprocal of the positive power.
+     *
+     * @param base The value to be exponentiated (base).
+     * @param exponent The exponent value, of any sign.
+     * @return <code>base^exponent</code>.
+     */
+    public static double pow(double base, int exponent) {
+        long e = exponent;
+        boolean reciprocal = e < 0;
+        if (reciprocal)
+            e = -e;
+
+        double result = 1.0, square = base;
+        while (true) {
+            if ((e & 1) != 0)
+                result *= square;
+            e >>>= 1;
+            if (e == 0)
+                break;
+            square *= square;
+        }
+
+        if (!reciprocal)
+            return result;
+        /* the positive power overflowed, although its reciprocal may still be representable */
+        if (Double.isInfinite(result) && base != 0.0 && !Double.isInfinite(base))
+            return Math.pow(base, exponent);
+        return 1.0 / result;
+    }
+
+    /**
+     * Calculates <code>base^exponent mod modulus</code>, without overflowing, for any <code>long</code> values.
+     *
+     * @param base The value to be exponentiated (base), of any sign.
+     * @param exponent The exponent value, non-negative.
+     * @param modulus The modulus, positive.
+     * @return The result in range <code>[0, modulus)</code>.
+     * @throws IllegalArgumentException If <code>exponent</code> is negative, or <code>modulus</code> is not positive.
+     */
+    public static long powMod(long base, long exponent, long modulus) {
+        if (exponent < 0)
+            throw new IllegalArgumentException("Expected a non-negative exponent, received: " + exponent);
+        if (modulus <= 0)
+            throw new IllegalArgumentException("Expected a positive modulus, received: " + modulus);
+
+        long result = 1 % modulus, square = Math.floorMod(base, modulus);
+        while (exponent > 0) {
+            if ((exponent & 1) != 0)
+                result = mulMod(result, square, modulus);
+            exponent >>>= 1;
+            if (exponent > 0)
+                square = mulMod(square, square, modulus);
+        }
+        return result;
+    }
+
+    /**
+     * Calculates <code>a * b mod modulus</code> for residues <code>a</code> and <code>b</code> in range
+     * <code>[0, modulus)</code>, directly when the product fits a <code>long</code>, and through doubling and adding
+     * (which never exceeds <code>2 * modulus</code>) otherwise.
+     *
+     * @param a The first residue.
+     * @param b The second residue.
+     * @param modulus The modulus, positive.
+     * @return The product, in range <code>[0, modulus)</code>.
+     */
+    public static long mulMod(long a, long b, long modulus) {
+        if (modulus <= DIRECT_MUL_MOD_LIMIT)
+            return a * b % modulus;
+
+        long result = 0;
+        while (b > 0) {
+            if ((b & 1) != 0)
+                result = addMod(result, a, modulus);
+            a = addMod(a, a, modulus);
+            b >>>= 1;
+        }
+        return result;
+    }
+
+    private static long addMod(long a, long b, long modulus) {
+        return a >= modulus - b ? a - (modulus - b) : a + b;
+    }
+
+    private static void checkExponent(int exponent) {
+        if (exponent < 0)
+            throw new IllegalArgumentException("Expected a non-negative exponent, received: " + exponent);
+    }
+}
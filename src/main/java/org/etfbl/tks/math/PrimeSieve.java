@@ -0,0 +1,305 @@
+package org.etfbl.tks.math;
+
+import java.util.Arrays;
+
+/**
+ * A lazily grown sieve of Eratosthenes, holding a bit per odd value (set for the composite ones) in a primitive
+ * <code>long[]</code>, so that a word covers <code>128</code> values. The table starts small and is extended segment
+ * by segment whenever a value beyond its current end is queried, up to a fixed maximum; only the new values are sieved,
+ * in chunks small enough to stay in the L1 cache. Values above the maximum are tested through
+ * <code>Primes.isPrime</code>, and ranges above it are sieved on demand, with the base primes taken from the table.
+ *
+ * <p>Instances are safe for use by multiple threads: the table is only ever replaced by a larger copy, which is
+ * published through a volatile field, so readers never block.</p>
+ *
+ * @see Primes
+ */
+public final class PrimeSieve {
+    /**
+     * The default maximum value held by the table, used by <code>shared()</code> (a table of <code>1 MiB</code>).
+     */
+    public static final int DEFAULT_LIMIT = 1 << 24;
+
+    private static final int INITIAL_WORDS = 1 << 6;
+    /* the values sieved at a time: 16 KiB of the table */
+    private static final int CHUNK = 1 << 18;
+
+    private static final PrimeSieve SHARED = new PrimeSieve(DEFAULT_LIMIT);
+
+    private final int limit;
+    private volatile long[] composite;
+
+    /**
+     * Creates a new, empty sieve, which will hold at most <code>[0, limit]</code>.
+     *
+     * @param limit The largest value to be held by the table.
+     * @throws IllegalArgumentException If <code>limit</code> is negative, or equal to
+     * <code>Integer.MAX_VALUE</code>.
+     */
+    public PrimeSieve(int limit) {
+        if (limit < 0 || limit == Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Expected a limit in range [0, " + (Integer.MAX_VALUE - 1)
+                    + "], received: " + limit);
+        this.limit = limit;
+        this.composite = new long[0];
+    }
+
+    /**
+     * @return The sieve shared by all <code>CalculatorAdvanced</code> instances, with the limit of
+     * <code>DEFAULT_LIMIT</code>.
+     */
+    public static PrimeSieve shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return The largest value this sieve will hold in its table.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return The largest value currently held by the table (<code>0</code> if it is empty).
+     */
+    public int size() {
+        return (int)Math.min(limit, covered(composite));
+    }
+
+    /**
+     * Checks whether <code>n</code> is a prime number, from the table if <code>n</code> does not exceed the limit
+     * (extending the table first, if needed), or through <code>Primes.isPrime</code> otherwise.
+     *
+     * @param n Any value.
+     * @return <code>true</code> if <code>n</code> is a prime (values less than 2 are not).
+     */
+    public boolean isPrime(long n) {
+        if (n < 3 || (n & 1) == 0)
+            return n == 2;
+        if (n > limit)
+            return Primes.isPrime(n);
+        long[] table = composite;
+        if (n > covered(table))
+            table = grow((int)n);
+        return (table[(int)(n >>> 7)] & (1L << (n >>> 1))) == 0;
+    }
+
+    /**
+     * Finds the smallest prime greater than <code>n</code>, scanning the table a word at a time while it holds the
+     * next prime.
+     *
+     * @param n Any value.
+     * @return The next prime.
+     * @throws ArithmeticException If <code>n</code> is not less than <code>Primes.MAX_PRIME</code>.
+     */
+    public long nextPrime(long n) {
+        if (n < 2)
+            return 2;
+        if (n >= limit)
+            return Primes.nextPrime(n);
+
+        long[] table = composite;
+        long candidate = (n + 1) | 1;
+        while (candidate <= limit) {
+            if (candidate > covered(table))
+                table = grow((int)Math.min(limit, candidate + CHUNK));
+            int word = (int)(candidate >>> 7);
+            /* the primes of the word, from the candidate on */
+            long primes = ~table[word] & (-1L << (candidate >>> 1));
+            if (primes != 0)
+                return ((long)word << 7) + 2L * Long.numberOfTrailingZeros(primes) + 1;
+            candidate = ((long)word + 1 << 7) + 1;
+        }
+        return Primes.nextPrime(limit);
+    }
+
+    /**
+     * Counts the primes in <code>[from, to]</code>: through the population counts of the table's words while the range
+     * is held by it, and by sieving the rest of the range, a chunk at a time, otherwise. Beyond the square of the limit,
+     * where the table no longer holds the base primes, every odd value is tested through <code>Primes.isPrime</code>.
+     *
+     * @param from The first value of the range.
+     * @param to The last value of the range (the range is empty if it is less than <code>from</code>).
+     * @return The number of primes in the range.
+     */
+    public long primeCount(long from, long to) {
+        from = Math.max(from, 2);
+        if (to < from)
+            return 0;
+
+        long count = 0;
+        if (from == 2) {
+            count++;
+            from = 3;
+        }
+        if (from <= limit) {
+            int last = (int)Math.min(to, limit);
+            count += countTable(grow(last), from, last);
+            from = (long)last + 1;
+        }
+        while (from <= to) {
+            int length = (int)Math.min(CHUNK, to - from + 1);
+            long[] chunk = sieve(from, length);
+            if (chunk == null) {
+                for (long value = from | 1; value <= to && value > 0; value += 2) {
+                    if (Primes.isPrime(value))
+                        count++;
+                }
+                break;
+            }
+            count += (length + (from & 1)) / 2 - popCount(chunk);
+            from += length;
+        }
+        return count;
+    }
+
+    /**
+     * Stores the primes of <code>[from, from + length)</code> into <code>buffer</code>, in ascending order.
+     *
+     * @param from The first value of the range, non-negative.
+     * @param buffer The destination array, of at least <code>length</code> elements.
+     * @param length The number of values in the range.
+     * @return The number of primes stored.
+     * @throws IllegalArgumentException If <code>from</code> or <code>length</code> is negative.
+     */
+    public int primes(long from, long[] buffer, int length) {
+        if (from < 0 || length < 0)
+            throw new IllegalArgumentException("Expected a non-negative range, received: [" + from + ", +"
+                    + length + ")");
+        if (length == 0)
+            return 0;
+        long to = from + length - 1;
+        int found = 0;
+        if (from <= 2 && to >= 2)
+            buffer[found++] = 2;
+
+        long[] table;
+        long first;
+        if (to <= limit) {
+            table = to > 2 ? grow((int)to) : composite;
+            first = 0;
+        } else {
+            table = sieve(from, length);
+            first = from | 1;
+        }
+        for (long value = Math.max(from | 1, 3); value <= to; value += 2) {
+            boolean prime;
+            if (table == null) {
+                prime = Primes.isPrime(value);
+            } else {
+                long bit = (value - first) >>> 1;
+                prime = (table[(int)(bit >>> 6)] & (1L << bit)) == 0;
+            }
+            if (prime)
+                buffer[found++] = value;
+        }
+        return found;
+    }
+
+    /**
+     * Sieves the odd values of <code>[from, from + length)</code>, beyond the table.
+     *
+     * @return The composite bits, where bit <code>i</code> stands for <code>(from | 1) + 2i</code>, or
+     * <code>null</code> if the table does not hold the base primes of the range.
+     */
+    private long[] sieve(long from, int length) {
+        long first = from | 1, last = from + length - 1;
+        if (last > (long)limit * limit)
+            return null;
+        int bits = (int)((last - first + 2) >>> 1);
+        long root = (long)Math.sqrt((double)last);
+        while (root * root > last) root--;
+        while ((root + 1) * (root + 1) <= last) root++;
+
+        long[] chunk = new long[(bits + 63) >>> 6];
+        long[] table = root >= 3 ? grow((int)root) : composite;
+        for (long p = 3; p <= root; p += 2) {
+            if ((table[(int)(p >>> 7)] & (1L << (p >>> 1))) != 0)
+                continue;
+            /* the first odd multiple of p in the range, not below p^2 */
+            long multiple = Math.max(p * p, (first + p - 1) / p * p);
+            if ((multiple & 1) == 0)
+                multiple += p;
+            for (long bit = (multiple - first) >>> 1; bit < bits; bit += p) {
+                chunk[(int)(bit >>> 6)] |= 1L << bit;
+            }
+        }
+        if (first == 1)
+            chunk[0] |= 1;
+        return chunk;
+    }
+
+    /* the number of primes among the odd values of [from, to], where 3 <= from <= to <= covered(table) */
+    private static long countTable(long[] table, long from, int to) {
+        long firstBit = from >>> 1, lastBit = (long)to - 1 >>> 1;
+        if (firstBit > lastBit)
+            return 0;
+        int firstWord = (int)(firstBit >>> 6), lastWord = (int)(lastBit >>> 6);
+        long composites;
+        if (firstWord == lastWord) {
+            composites = Long.bitCount(table[firstWord] & (-1L << firstBit) & (-1L >>> ~lastBit));
+        } else {
+            composites = Long.bitCount(table[firstWord] & (-1L << firstBit))
+                    + Long.bitCount(table[lastWord] & (-1L >>> ~lastBit));
+            for (int word = firstWord + 1; word < lastWord; word++) {
+                composites += Long.bitCount(table[word]);
+            }
+        }
+        return lastBit - firstBit + 1 - composites;
+    }
+
+    private static long popCount(long[] words) {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /* the largest value held by a table */
+    private static long covered(long[] table) {
+        return table.length == 0 ? 0 : ((long)table.length << 7) - 1;
+    }
+
+    /**
+     * Extends the table, so that it holds at least <code>[0, n]</code>, at most doubling it (bounded by the limit).
+     *
+     * @param n The largest value to be held by the table.
+     * @return The extended table.
+     */
+    private synchronized long[] grow(int n) {
+        long[] table = composite;
+        if (n <= covered(table))
+            return table;
+
+        long maxWords = ((long)limit >>> 7) + 1;
+        int length = (int)Math.min(maxWords, Math.max(((long)n >>> 7) + 1,
+                Math.max(INITIAL_WORDS, 2L * table.length)));
+        long[] extended = Arrays.copyOf(table, length);
+        if (table.length == 0)
+            extended[0] = 1;
+        long end = (long)length << 7;
+        for (long from = (long)table.length << 7; from < end; from += CHUNK) {
+            sieveChunk(extended, from, Math.min(end, from + CHUNK));
+        }
+        composite = extended;
+        return extended;
+    }
+
+    /*
+     * marks the odd composites of [from, to) in the table; the base primes up to sqrt(to) are either held by the
+     * table already, or in the chunk itself, where every composite below p has been marked by the smaller primes
+     */
+    private static void sieveChunk(long[] table, long from, long to) {
+        for (long p = 3; p * p < to; p += 2) {
+            if ((table[(int)(p >>> 7)] & (1L << (p >>> 1))) != 0)
+                continue;
+            long multiple = Math.max(p * p, (from + p - 1) / p * p);
+            if ((multiple & 1) == 0)
+                multiple += p;
+            for (; multiple < to; multiple += 2 * p) {
+                table[(int)(multiple >>> 7)] |= 1L << (multiple >>> 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.etfbl.tks.math;
+
+/**
+ * Primality testing for any <code>long</code> value, through a deterministic Miller&ndash;Rabin test: the bases
+ * <code>2, 7, 61</code> are known to identify every prime below <code>4,759,123,141</code>, and the seven bases of
+ * <code>MOD64_BASES</code> every prime below <code>2^64</code>, so the result is never probabilistic. Residues of small
+ * moduli are multiplied directly (see <code>Powers.mulMod</code>); larger ones in the Montgomery form, which replaces
+ * every division of a 128-bit product by two 64-bit multiplications.
+ *
+ * @see PrimeSieve
+ */
+public final class Primes {
+    /**
+     * The largest prime representable as a <code>long</code>, <code>2^63 - 25</code>.
+     */
+    public static final long MAX_PRIME = Long.MAX_VALUE - 24;
+
+    private static final long[] SMALL_PRIMES = { 2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37 };
+    private static final long[] MOD32_BASES = { 2, 7, 61 };
+    private static final long[] MOD64_BASES = { 2, 325, 9375, 28178, 450775, 9780504, 1795265022 };
+
+    /** Moduli up to this value can be multiplied directly, since the product of two residues fits a long. */
+    private static final long DIRECT_MUL_MOD_LIMIT = 3_037_000_499L;
+
+    private Primes() { }
+
+    /**
+     * Checks whether <code>n</code> is a prime number.
+     *
+     * @param n Any value.
+     * @return <code>true</code> if <code>n</code> is a prime (values less than 2 are not).
+     */
+    public static boolean isPrime(long n) {
+        if (n < 2)
+            return false;
+        for (long p : SMALL_PRIMES) {
+            if (n % p == 0)
+                return n == p;
+        }
+        /* no factor up to 37, so any value below 41^2 is a prime */
+        if (n < 41 * 41)
+            return true;
+
+        long d = n - 1;
+        int s = Long.numberOfTrailingZeros(d);
+        d >>>= s;
+        if (n <= DIRECT_MUL_MOD_LIMIT) {
+            for (long base : MOD32_BASES) {
+                if (!isStrongProbablePrime(n, d, s, base))
+                    return false;
+            }
+            return true;
+        }
+
+        Montgomery montgomery = new Montgomery(n);
+        for (long base : MOD64_BASES) {
+            long a = base % n;
+            if (a != 0 && !montgomery.isStrongProbablePrime(d, s, a))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the smallest prime greater than <code>n</code>, testing the odd values after it one by one.
+     *
+     * @param n Any value.
+     * @return The next prime.
+     * @throws ArithmeticException If <code>n</code> is not less than <code>MAX_PRIME</code>.
+     */
+    public static long nextPrime(long n) {
+        if (n >= MAX_PRIME)
+            throw new ArithmeticException("No prime greater than " + n + " fits into a long");
+        if (n < 2)
+            return 2;
+        long candidate = (n + 1) | 1;
+        while (!isPrime(candidate)) {
+            candidate += 2;
+        }
+        return candidate;
+    }
+
+    /**
+     * Finds a non-trivial factor of an odd composite <code>n</code>, through Pollard's rho method, with Brent's cycle
+     * detection and the differences multiplied together between the gcd evaluations, in <code>O(n^(1/4))</code>
+     * expected steps (some 65,000 multiplications for any <code>long</code>).
+     *
+     * @param n An odd composite value, greater than 1.
+     * @return A factor of <code>n</code>, greater than 1 and less than <code>n</code> (not necessarily a prime).
+     */
+    static long factor(long n) {
+        long root = (long)Math.sqrt((double)n);
+        while (root * root > n) {
+            root--;
+        }
+        while (root < DIRECT_MUL_MOD_LIMIT && (root + 1) * (root + 1) <= n) {
+            root++;
+        }
+        /* rho can't tell the two cycles of a square of a prime apart */
+        if (root * root == n)
+            return root;
+
+        Montgomery montgomery = n <= DIRECT_MUL_MOD_LIMIT ? null : new Montgomery(n);
+        for (long c = 1; ; c++) {
+            long factor = rho(n, montgomery, c);
+            if (factor != n)
+                return factor;
+        }
+    }
+
+    /* a factor of n, or n itself if the walk x -> x^2 + c closed its cycle modulo n before modulo any factor */
+    private static long rho(long n, Montgomery montgomery, long c) {
+        final int batch = 128;
+        long x = 0, y = 2, saved = 2, product = 1, g = 1;
+        for (int r = 1; g == 1; r <<= 1) {
+            x = y;
+            for (int i = 0; i < r; i++) {
+                y = step(n, montgomery, c, y);
+            }
+            for (int k = 0; k < r && g == 1; k += batch) {
+                saved = y;
+                for (int i = Math.min(batch, r - k); i > 0; i--) {
+                    y = step(n, montgomery, c, y);
+                    long difference = x > y ? x - y : y - x;
+                    product = montgomery == null ? product * difference % n : montgomery.multiply(product, difference);
+                }
+                g = gcd(product, n);
+            }
+        }
+        if (g == n) {
+            /* the batch overshot, so retrace it one step at a time */
+            do {
+                saved = step(n, montgomery, c, saved);
+                g = gcd(x > saved ? x - saved : saved - x, n);
+            } while (g == 1);
+        }
+        return g;
+    }
+
+    private static long step(long n, Montgomery montgomery, long c, long x) {
+        x = montgomery == null ? x * x % n : montgomery.multiply(x, x);
+        return x >= n - c ? x - (n - c) : x + c;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /* a single round, for an odd n, where n - 1 = d * 2^s, with d odd */
+    private static boolean isStrongProbablePrime(long n, long d, int s, long base) {
+        long x = Powers.powMod(base, d, n);
+        if (x == 1 || x == n - 1)
+            return true;
+        for (int i = 1; i < s; i++) {
+            x = x * x % n;
+            if (x == n - 1)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * The upper 64 bits of the unsigned 128-bit product of <code>a</code> and <code>b</code>.
+     */
+    static long multiplyHighUnsigned(long a, long b) {
+        long a0 = a & 0xFFFF_FFFFL, a1 = a >>> 32;
+        long b0 = b & 0xFFFF_FFFFL, b1 = b >>> 32;
+        long low = a0 * b0, cross1 = a0 * b1, cross2 = a1 * b0;
+        long middle = (low >>> 32) + (cross1 & 0xFFFF_FFFFL) + (cross2 & 0xFFFF_FFFFL);
+        return a1 * b1 + (cross1 >>> 32) + (cross2 >>> 32) + (middle >>> 32);
+    }
+
+    /**
+     * Arithmetic modulo an odd <code>n</code>, on residues kept as <code>x * 2^64 mod n</code>.
+     */
+    private static final class Montgomery {
+        final long n;
+        /* n^-1 mod 2^64 */
+        final long inverse;
+        /* 2^64 mod n, the Montgomery form of 1, and 2^128 mod n, which converts residues into the form */
+        final long one;
+        final long r2;
+
+        Montgomery(long n) {
+            this.n = n;
+            /* every odd n is its own inverse modulo 8, and each Newton step doubles the correct low bits */
+            long x = n;
+            for (int i = 0; i < 5; i++) {
+                x *= 2 - n * x;
+            }
+            this.inverse = x;
+            this.one = Long.remainderUnsigned(-1L, n) + 1;
+            this.r2 = Powers.mulMod(one, one, n);
+        }
+
+        /* a * b * 2^-64 mod n, for a and b in [0, n) */
+        long multiply(long a, long b) {
+            long high = multiplyHighUnsigned(a, b);
+            /* m * n has the same low 64 bits as a * b, so the difference is exactly (high - mHigh) * 2^64 */
+            long m = a * b * inverse;
+            long mHigh = multiplyHighUnsigned(m, n);
+            return high < mHigh ? high - mHigh + n : high - mHigh;
+        }
+
+        boolean isStrongProbablePrime(long d, int s, long base) {
+            long minusOne = n - one;
+            long x = one, square = multiply(base, r2);
+            while (true) {
+                if ((d & 1) != 0)
+                    x = multiply(x, square);
+                d >>>= 1;
+                if (d == 0)
+                    break;
+                square = multiply(square, square);
+            }
+            if (x == one || x == minusOne)
+                return true;
+            for (int i = 1; i < s; i++) {
+                x = multiply(x, x);
+                if (x == minusOne)
+                    return true;
+            }
+            return false;
+        }
+    }
+}
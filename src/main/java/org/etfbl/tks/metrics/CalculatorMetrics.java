@@ -0,0 +1,166 @@
+package org.etfbl.tks.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Opt-in instrumentation of the calculator methods <code>calculate</code>, <code>calculateAdvanced</code>,
+ * <code>hasCharacteristic</code> and <code>exponent</code>: call and exception counts, and sampled latency histograms,
+ * per operator character.
+ *
+ * <p>The instrumentation is enabled by starting the JVM with <code>-Dorg.etfbl.tks.metrics=true</code>. The flag is
+ * read once, into a <code>static final</code> field, so when it is off the JIT compiler removes the instrumentation
+ * from the calculator methods entirely. When it is on, the metrics are registered with the platform MBean server, as
+ * <code>org.etfbl.tks:type=CalculatorMetrics</code>, and can be read through any JMX client, or dumped as plain text
+ * through <code>dump()</code>.</p>
+ *
+ * <p>Latencies are sampled, one in every 64 calls by default, which keeps the enabled overhead to a few nanoseconds
+ * per call even where <code>System.nanoTime()</code> is expensive; <code>-Dorg.etfbl.tks.metrics.sampleRate=1</code>
+ * times every call.</p>
+ *
+ * @see CalculatorMetricsMXBean
+ */
+public final class CalculatorMetrics implements CalculatorMetricsMXBean {
+    /**
+     * The system property enabling the instrumentation.
+     */
+    public static final String PROPERTY = "org.etfbl.tks.metrics";
+
+    /**
+     * The system property setting the number of calls per latency sample (rounded up to a power of two).
+     */
+    public static final String SAMPLE_RATE_PROPERTY = "org.etfbl.tks.metrics.sampleRate";
+
+    /**
+     * The name the metrics are registered under, with the platform MBean server.
+     */
+    public static final String OBJECT_NAME = "org.etfbl.tks:type=CalculatorMetrics";
+
+    /**
+     * <code>true</code> if the instrumentation is enabled.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+    private static final int SAMPLE_RATE = Math.max(1, Integer.getInteger(SAMPLE_RATE_PROPERTY, 64));
+
+    public static final OperationMetrics CALCULATE = new OperationMetrics("calculate", SAMPLE_RATE);
+    public static final OperationMetrics ADVANCED = new OperationMetrics("calculateAdvanced", SAMPLE_RATE);
+    public static final OperationMetrics CHARACTERISTIC = new OperationMetrics("hasCharacteristic", SAMPLE_RATE);
+    public static final OperationMetrics EXPONENT = new OperationMetrics("exponent", SAMPLE_RATE);
+
+    private static final OperationMetrics[] OPERATIONS = { CALCULATE, ADVANCED, CHARACTERISTIC, EXPONENT };
+    private static final CalculatorMetrics INSTANCE = new CalculatorMetrics();
+
+    static {
+        if (ENABLED)
+            register();
+    }
+
+    private CalculatorMetrics() {
+    }
+
+    /**
+     * @return The (only) instance of the metrics.
+     */
+    public static CalculatorMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, unless they are registered already. Done automatically
+     * when the instrumentation is enabled.
+     *
+     * @throws IllegalStateException If the registration fails.
+     */
+    public static void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name))
+                server.registerMBean(INSTANCE, name);
+        } catch (InstanceAlreadyExistsException e) {
+            /* registered concurrently */
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public Map<String, Long> getCalls() {
+        return collect(OperationMetrics::getCalls);
+    }
+
+    @Override
+    public Map<String, Long> getExceptions() {
+        return collect(OperationMetrics::getExceptions);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP50Nanos() {
+        return collect((operation, operator) -> percentile(operation.getLatency(operator), 50.0));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP99Nanos() {
+        return collect((operation, operator) -> percentile(operation.getLatency(operator), 99.0));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyMaxNanos() {
+        return collect((operation, operator) -> {
+            LatencyHistogram latency = operation.getLatency(operator);
+            return latency == null ? 0L : latency.getMax();
+        });
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder dump = new StringBuilder();
+        for (OperationMetrics operation : OPERATIONS) {
+            for (char operator : operation.operators()) {
+                LatencyHistogram latency = operation.getLatency(operator);
+                dump.append(String.format(
+                        "%-24s calls=%d exceptions=%d samples=%d p50=%dns p90=%dns p99=%dns max=%dns%n",
+                        operation.label(operator), operation.getCalls(operator), operation.getExceptions(operator),
+                        latency == null ? 0L : latency.getCount(), percentile(latency, 50.0),
+                        percentile(latency, 90.0), percentile(latency, 99.0), latency == null ? 0L : latency.getMax()));
+            }
+        }
+        return dump.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (OperationMetrics operation : OPERATIONS) {
+            operation.reset();
+        }
+    }
+
+    private static long percentile(LatencyHistogram latency, double percentile) {
+        return latency == null ? 0L : latency.getPercentile(percentile);
+    }
+
+    private interface Metric {
+        long get(OperationMetrics operation, char operator);
+    }
+
+    private static Map<String, Long> collect(Metric metric) {
+        Map<String, Long> values = new TreeMap<>();
+        for (OperationMetrics operation : OPERATIONS) {
+            for (char operator : operation.operators()) {
+                values.put(operation.label(operator), metric.get(operation, operator));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,50 @@
+package org.etfbl.tks.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of <code>CalculatorMetrics</code>, registered as <code>org.etfbl.tks:type=CalculatorMetrics</code>. All
+ * maps are keyed by the method and operator, such as <code>calculate('+')</code> or
+ * <code>hasCharacteristic('P')</code>, and only hold the operators which were called.
+ */
+public interface CalculatorMetricsMXBean {
+    /**
+     * @return <code>true</code> if the instrumentation was enabled at startup.
+     */
+    boolean isEnabled();
+
+    /**
+     * @return The number of calls, per method and operator.
+     */
+    Map<String, Long> getCalls();
+
+    /**
+     * @return The number of calls which threw an exception, per method and operator.
+     */
+    Map<String, Long> getExceptions();
+
+    /**
+     * @return The median latency, in nanoseconds, per method and operator.
+     */
+    Map<String, Long> getLatencyP50Nanos();
+
+    /**
+     * @return The 99th percentile latency, in nanoseconds, per method and operator.
+     */
+    Map<String, Long> getLatencyP99Nanos();
+
+    /**
+     * @return The maximum latency, in nanoseconds, per method and operator.
+     */
+    Map<String, Long> getLatencyMaxNanos();
+
+    /**
+     * @return A plain-text snapshot of all metrics, one line per method and operator.
+     */
+    String dump();
+
+    /**
+     * Clears all metrics.
+     */
+    void reset();
+}
@@ -0,0 +1,130 @@
+package org.etfbl.tks.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values (latencies, in nanoseconds), with log-linear buckets: every power of
+ * two is split into 16 equally wide sub-buckets, so any recorded value is reported within 1/16 (6.25%) of its exact
+ * value, over the whole <code>long</code> range, in a fixed 8 KiB of counters. Recording a value is a single atomic
+ * increment (plus a compare-and-set, if the value is a new maximum), so the histogram can be shared between threads.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = 64 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a single value.
+     *
+     * @param value The value; negative values are recorded as <code>0</code>.
+     */
+    public void record(long value) {
+        record(value, 1L);
+    }
+
+    /**
+     * Records the same value <code>count</code> times.
+     *
+     * @param value The value; negative values are recorded as <code>0</code>.
+     * @param count The number of occurrences.
+     */
+    public void record(long value, long count) {
+        value = Math.max(value, 0L);
+        counts.addAndGet(index(value), count);
+        long previous = max.get();
+        while (value > previous && !max.compareAndSet(previous, value)) {
+            previous = max.get();
+        }
+    }
+
+    /**
+     * Adds the counts of <code>other</code> to this histogram.
+     *
+     * @param other The histogram to be merged.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0)
+                counts.addAndGet(i, count);
+        }
+        record(other.getMax(), 0L);
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return The largest recorded value (exact), or <code>0</code> if none was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value at the percentile, as the upper bound of the bucket holding it (but no larger than the
+     * maximum). Under concurrent recording, the result reflects some of the values recorded meanwhile.
+     *
+     * @param percentile The percentile, in range <code>[0, 100]</code>.
+     * @return The value at the percentile, or <code>0</code> if no value was recorded.
+     * @throws IllegalArgumentException If <code>percentile</code> is out of range.
+     */
+    public long getPercentile(double percentile) {
+        if (!(percentile >= 0.0 && percentile <= 100.0))
+            throw new IllegalArgumentException("Expected a percentile in range [0, 100], received: " + percentile);
+
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        long rank = Math.max(1L, (long)Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(upperBound(i), getMax());
+        }
+        return 0L;
+    }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently may or may not be cleared.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        max.set(0L);
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS)
+            return (int)value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return ((exponent + 1) << SUB_BITS) + (int)((value >>> exponent) & (SUB_BUCKETS - 1));
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int exponent = (index >>> SUB_BITS) - 1;
+        long mantissa = SUB_BUCKETS | (index & (SUB_BUCKETS - 1));
+        long bound = ((mantissa + 1) << exponent) - 1;
+        return bound < 0 ? Long.MAX_VALUE : bound;
+    }
+}
@@ -0,0 +1,142 @@
+package org.etfbl.tks.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The call and exception counts, and the latencies, of a single instrumented calculator method, kept per operator
+ * character (ASCII characters have a slot of their own, all the other ones share a single slot).
+ *
+ * <p>The counts are exact, while the latency is only measured for one in every <code>sampleRate</code> calls (always
+ * including the first one), since reading the clock twice can cost more than the calculation itself. The latency
+ * histogram of an operator is created on its first sampled call.</p>
+ *
+ * @see CalculatorMetrics
+ */
+public final class OperationMetrics {
+    private static final int OTHER = 128;
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final String name;
+    private final long sampleMask;
+    private final AtomicLongArray calls = new AtomicLongArray(OTHER + 1);
+    private final AtomicLongArray exceptions = new AtomicLongArray(OTHER + 1);
+    private final AtomicReferenceArray<LatencyHistogram> latencies = new AtomicReferenceArray<>(OTHER + 1);
+
+    OperationMetrics(String name, int sampleRate) {
+        if (sampleRate < 1)
+            throw new IllegalArgumentException("Expected a positive sample rate, received: " + sampleRate);
+        this.name = name;
+        this.sampleMask = Integer.highestOneBit(Math.min(sampleRate, 1 << 30) * 2 - 1) - 1;
+    }
+
+    /**
+     * @return The name of the instrumented method.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The number of calls per latency sample, a power of two.
+     */
+    public long getSampleRate() {
+        return sampleMask + 1;
+    }
+
+    /**
+     * Counts a call, at its start.
+     *
+     * @param operator The operator the method was called with.
+     * @return The start time of the call, if its latency is sampled, to be passed on to <code>stop</code>.
+     */
+    public long start(char operator) {
+        long call = calls.getAndIncrement(slot(operator));
+        return (call & sampleMask) == 0 ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /**
+     * Completes a call, counted through <code>start</code>.
+     *
+     * @param operator The operator the method was called with.
+     * @param start The value returned by <code>start</code>.
+     * @param failed <code>true</code> if the call threw an exception (or returned an error status).
+     */
+    public void stop(char operator, long start, boolean failed) {
+        int slot = slot(operator);
+        if (failed)
+            exceptions.incrementAndGet(slot);
+        if (start != NOT_SAMPLED)
+            histogram(slot).record(System.nanoTime() - start);
+    }
+
+    /**
+     * @param operator The operator.
+     * @return The number of calls with the operator.
+     */
+    public long getCalls(char operator) {
+        return calls.get(slot(operator));
+    }
+
+    /**
+     * @param operator The operator.
+     * @return The number of failed calls with the operator.
+     */
+    public long getExceptions(char operator) {
+        return exceptions.get(slot(operator));
+    }
+
+    /**
+     * @param operator The operator.
+     * @return The sampled latencies of the calls with the operator, in nanoseconds, or <code>null</code> if none was
+     * sampled yet.
+     */
+    public LatencyHistogram getLatency(char operator) {
+        return latencies.get(slot(operator));
+    }
+
+    /**
+     * Clears all counts and latencies.
+     */
+    public void reset() {
+        for (int slot = 0; slot <= OTHER; slot++) {
+            calls.set(slot, 0L);
+            exceptions.set(slot, 0L);
+            LatencyHistogram histogram = latencies.get(slot);
+            if (histogram != null)
+                histogram.reset();
+        }
+    }
+
+    /* the operators with at least one recorded call, with characters outside of ASCII represented by 0x80 */
+    char[] operators() {
+        StringBuilder operators = new StringBuilder();
+        for (int slot = 0; slot <= OTHER; slot++) {
+            if (calls.get(slot) > 0)
+                operators.append((char)slot);
+        }
+        return operators.toString().toCharArray();
+    }
+
+    /* the label of an operator, such as calculate('+') */
+    String label(char operator) {
+        if (slot(operator) == OTHER)
+            return name + "(other)";
+        if (operator < 0x20 || operator == 0x7f)
+            return name + "(0x" + Integer.toHexString(operator) + ")";
+        return name + "('" + operator + "')";
+    }
+
+    private static int slot(char operator) {
+        return operator < OTHER ? operator : OTHER;
+    }
+
+    private LatencyHistogram histogram(int slot) {
+        LatencyHistogram histogram = latencies.get(slot);
+        if (histogram == null) {
+            latencies.compareAndSet(slot, null, new LatencyHistogram());
+            histogram = latencies.get(slot);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,376 @@
+package org.etfbl.tks.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A TCP server, holding up to a configured number of session-keyed <code>ConcurrentCalculator</code> accumulators,
+ * accessed through the binary, pipelined <code>Protocol</code>. Two modes of serving connections are available:
+ *
+ * <ul>
+ *     <li><i><code>Mode.NIO</code>: connections are multiplexed over a fixed number of event loops (one per available
+ *     processor by default), each one running a <code>Selector</code> on its own thread.</i></li>
+ *     <li><i><code>Mode.THREAD_PER_CONNECTION</code>: every connection is served by blocking reads and writes on a
+ *     thread of its own. On a runtime with virtual threads (Java 21 and later), a virtual thread is used per
+ *     connection, otherwise a platform thread.</i></li>
+ * </ul>
+ *
+ * In both modes, all the requests received by a single read are executed before their responses are written back at
+ * once, so pipelining clients get batched responses. Run <code>main</code> to start a stand-alone server, and
+ * <code>LoadTestClient</code> to measure it.
+ *
+ * @see Protocol
+ * @see LoadTestClient
+ */
+public class CalculatorServer implements Closeable {
+    /**
+     * The way connections are served.
+     */
+    public enum Mode { NIO, THREAD_PER_CONNECTION }
+
+    /**
+     * The default maximum number of sessions.
+     */
+    public static final int DEFAULT_MAX_SESSIONS = 65_536;
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    /* the pause after a failed accept, before it is retried */
+    private static final long ACCEPT_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Mode mode;
+    private final ServerSocketChannel server;
+    private final SessionTable sessions;
+    private final EventLoop[] loops;
+    private final ExecutorService connections;
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    /**
+     * Creates and starts a new server, with one event loop per available processor in the <code>NIO</code> mode, and
+     * at most <code>DEFAULT_MAX_SESSIONS</code> sessions.
+     *
+     * @param address The address to listen on; a port of <code>0</code> picks an ephemeral port.
+     * @param mode The way connections are served.
+     * @throws IOException If the server socket can't be bound.
+     */
+    public CalculatorServer(InetSocketAddress address, Mode mode) throws IOException {
+        this(address, mode, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates and starts a new server, with at most <code>DEFAULT_MAX_SESSIONS</code> sessions.
+     *
+     * @param address The address to listen on; a port of <code>0</code> picks an ephemeral port.
+     * @param mode The way connections are served.
+     * @param eventLoops The number of event loops in the <code>NIO</code> mode (ignored otherwise).
+     * @throws IOException If the server socket can't be bound.
+     * @throws IllegalArgumentException If <code>eventLoops</code> is not positive.
+     */
+    public CalculatorServer(InetSocketAddress address, Mode mode, int eventLoops) throws IOException {
+        this(address, mode, eventLoops, DEFAULT_MAX_SESSIONS);
+    }
+
+    /**
+     * Creates and starts a new server.
+     *
+     * @param address The address to listen on; a port of <code>0</code> picks an ephemeral port.
+     * @param mode The way connections are served.
+     * @param eventLoops The number of event loops in the <code>NIO</code> mode (ignored otherwise).
+     * @param maxSessions The maximum number of sessions; once reached, binding to a new session is answered with
+     *                    <code>Status.SESSION_LIMIT</code>, until sessions are removed.
+     * @throws IOException If the server socket can't be bound.
+     * @throws IllegalArgumentException If <code>eventLoops</code> or <code>maxSessions</code> is not positive.
+     */
+    public CalculatorServer(InetSocketAddress address, Mode mode, int eventLoops, int maxSessions)
+            throws IOException {
+        if (eventLoops < 1)
+            throw new IllegalArgumentException("Expected a positive number of event loops, received: " + eventLoops);
+        if (maxSessions < 1)
+            throw new IllegalArgumentException("Expected a positive number of sessions, received: " + maxSessions);
+
+        this.mode = mode;
+        this.sessions = new SessionTable(maxSessions);
+        this.server = ServerSocketChannel.open();
+        server.bind(address, 1024);
+
+        if (mode == Mode.NIO) {
+            this.loops = new EventLoop[eventLoops];
+            this.connections = null;
+            for (int i = 0; i < eventLoops; i++) {
+                loops[i] = new EventLoop(i);
+                loops[i].start();
+            }
+        } else {
+            this.loops = null;
+            this.connections = connectionExecutor();
+        }
+
+        this.acceptor = new Thread(this::accept, "calculator-server-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return The way connections are served.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return The number of sessions created through the <code>SESSION</code> opcode, and not removed since.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Waits until the server is closed.
+     *
+     * @throws InterruptedException If the calling thread is interrupted.
+     */
+    public void join() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Stops accepting connections and closes all the open ones.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        if (loops != null) {
+            for (EventLoop loop : loops) {
+                loop.selector.wakeup();
+            }
+        } else {
+            connections.shutdownNow();
+        }
+    }
+
+    private void accept() {
+        int next = 0;
+        while (!closed) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException ex) {
+                return;
+            } catch (IOException ex) {
+                /* a persistent failure (such as running out of file descriptors) would otherwise spin the thread */
+                LockSupport.parkNanos(ACCEPT_BACKOFF_NANOS);
+                continue;
+            }
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException ex) {
+                /* the connection was reset right after it was accepted */
+                closeQuietly(channel);
+                continue;
+            }
+
+            if (loops != null) {
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } else {
+                try {
+                    connections.execute(() -> serveBlocking(channel));
+                } catch (RejectedExecutionException ex) {
+                    closeQuietly(channel);
+                }
+            }
+        }
+    }
+
+    /**
+     * Virtual threads are looked up reflectively, so that the server still runs on Java 8.
+     */
+    static ExecutorService connectionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "calculator-server-connection-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void serveBlocking(SocketChannel channel) {
+        Session session = new Session(sessions);
+        ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try {
+            while (!closed && channel.read(in) >= 0) {
+                in.flip();
+                do {
+                    session.process(in, out);
+                    out.flip();
+                    while (out.hasRemaining()) {
+                        channel.write(out);
+                    }
+                    out.clear();
+                } while (in.remaining() >= Protocol.REQUEST_SIZE);
+                in.compact();
+            }
+        } catch (IOException ex) {
+            /* the client went away */
+        } finally {
+            closeQuietly(channel);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ex) {
+            /* nothing left to do */
+        }
+    }
+
+    /**
+     * A selector thread, serving a subset of the connections.
+     */
+    private final class EventLoop extends Thread {
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+
+        EventLoop(int index) throws IOException {
+            super("calculator-server-loop-" + index);
+            setDaemon(true);
+            this.selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    registerPending();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection)key.attachment();
+                        try {
+                            if (key.isWritable())
+                                connection.writable(key);
+                            else if (key.isReadable())
+                                connection.readable(key);
+                        } catch (IOException | CancelledKeyException ex) {
+                            key.cancel();
+                            closeQuietly(key.channel());
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                /* the selector failed, the connections are closed below */
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly(key.channel());
+                }
+                closeQuietly(selector);
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                try {
+                    channel.configureBlocking(false);
+                    channel.register(selector, SelectionKey.OP_READ, new Connection(new Session(sessions)));
+                } catch (IOException ex) {
+                    closeQuietly(channel);
+                }
+            }
+        }
+    }
+
+    /**
+     * The buffers of a non-blocking connection. Both buffers are kept in write mode (ready to be filled) between
+     * events. While responses are pending, no more requests are read, which applies back-pressure to the client.
+     */
+    private static final class Connection {
+        private final Session session;
+        private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Connection(Session session) {
+            this.session = session;
+        }
+
+        void readable(SelectionKey key) throws IOException {
+            SocketChannel channel = (SocketChannel)key.channel();
+            if (channel.read(in) < 0) {
+                key.cancel();
+                channel.close();
+                return;
+            }
+            processAndFlush(key, channel);
+        }
+
+        void writable(SelectionKey key) throws IOException {
+            processAndFlush(key, (SocketChannel)key.channel());
+        }
+
+        private void processAndFlush(SelectionKey key, SocketChannel channel) throws IOException {
+            do {
+                in.flip();
+                session.process(in, out);
+                in.compact();
+
+                out.flip();
+                channel.write(out);
+                boolean flushed = !out.hasRemaining();
+                out.compact();
+                if (!flushed) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+            } while (in.position() >= Protocol.REQUEST_SIZE);
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Starts a stand-alone server: <code>CalculatorServer [port] [NIO|THREAD_PER_CONNECTION]</code>.
+     *
+     * @param args The optional port (<code>7070</code> by default) and mode (<code>NIO</code> by default).
+     * @throws Exception If the server can't be started.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        Mode mode = args.length > 1 ? Mode.valueOf(args[1]) : Mode.NIO;
+        try (CalculatorServer server = new CalculatorServer(new InetSocketAddress(port), mode)) {
+            System.out.println("Listening on port " + server.getPort() + " (" + mode + ")");
+            server.join();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package org.etfbl.tks.server;
+
+import org.etfbl.tks.Status;
+import org.etfbl.tks.metrics.LatencyHistogram;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * A closed-loop load generator for <code>CalculatorServer</code>. The connections are spread over a number of client
+ * threads; in every round, a thread writes a pipelined batch of requests to each of its connections, and then reads the
+ * responses of all batches, so up to <code>connections * pipeline</code> requests are in flight at once. Each
+ * connection is bound to a session of its own, and sends a repeating <code>+ 3</code>, <code>* 3</code>,
+ * <code>- 3</code>, <code>/ 3</code> sequence, which only grows the accumulators by <code>2</code> per cycle.
+ *
+ * <p>The latency of a request is measured from the write of its batch to the read of the batch's last response, so
+ * the reported percentiles are an upper bound of the server's per-request latency.</p>
+ *
+ * @see CalculatorServer
+ */
+public class LoadTestClient {
+    private static final char[] OPERATORS = { '+', '*', '-', '/' };
+
+    private final InetSocketAddress address;
+    private final int connections;
+    private final int threads;
+    private final int pipeline;
+
+    /**
+     * @param address The address of the server.
+     * @param connections The total number of connections.
+     * @param threads The number of client threads (at most <code>connections</code> are used).
+     * @param pipeline The number of requests per batch, written to a connection without waiting for responses.
+     * @throws IllegalArgumentException If any of the counts is not positive.
+     */
+    public LoadTestClient(InetSocketAddress address, int connections, int threads, int pipeline) {
+        if (connections < 1 || threads < 1 || pipeline < 1)
+            throw new IllegalArgumentException("Expected positive connection, thread and pipeline counts, received: "
+                    + connections + ", " + threads + ", " + pipeline);
+        this.address = address;
+        this.connections = connections;
+        this.threads = Math.min(threads, connections);
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Opens the connections, runs the load for the given duration, and closes the connections.
+     *
+     * @param durationMillis The duration of the measurement, in milliseconds.
+     * @return The measured throughput and latencies.
+     * @throws IOException If a connection fails.
+     * @throws InterruptedException If the calling thread is interrupted.
+     */
+    public Result run(long durationMillis) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch connected = new CountDownLatch(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            long[] deadline = new long[1];
+            List<Future<Worker>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = (int)((long)connections * t / threads);
+                int last = (int)((long)connections * (t + 1) / threads);
+                Worker worker = new Worker(first, last);
+                futures.add(executor.submit(() -> {
+                    try {
+                        try {
+                            worker.connect();
+                        } finally {
+                            connected.countDown();
+                        }
+                        start.await();
+                        worker.run(deadline[0]);
+                        return worker;
+                    } finally {
+                        worker.close();
+                    }
+                }));
+            }
+
+            connected.await();
+            long begin = System.nanoTime();
+            deadline[0] = begin + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+            start.countDown();
+
+            Result result = new Result();
+            for (Future<Worker> future : futures) {
+                Worker worker = future.get();
+                result.operations += worker.operations;
+                result.errors += worker.errors;
+                result.histogram.add(worker.histogram);
+            }
+            result.elapsedNanos = System.nanoTime() - begin;
+            return result;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException)
+                throw (IOException)ex.getCause();
+            throw new IOException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The connections of a single client thread.
+     */
+    private final class Worker {
+        private final int first;
+        private final SocketChannel[] channels;
+        private final long[] sent;
+        private final int[] steps;
+        /* room for at least the two set-up requests */
+        private final ByteBuffer requests = ByteBuffer.allocateDirect(Protocol.REQUEST_SIZE * Math.max(pipeline, 2));
+        private final ByteBuffer responses = ByteBuffer.allocateDirect(Protocol.RESPONSE_SIZE * Math.max(pipeline, 2));
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long operations;
+        private long errors;
+
+        Worker(int first, int last) {
+            this.first = first;
+            this.channels = new SocketChannel[last - first];
+            this.sent = new long[channels.length];
+            this.steps = new int[channels.length];
+        }
+
+        void connect() throws IOException {
+            for (int i = 0; i < channels.length; i++) {
+                channels[i] = SocketChannel.open(address);
+                channels[i].setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+                requests.clear();
+                Protocol.putRequest(requests, Protocol.SESSION, (long)(first + i));
+                Protocol.putRequest(requests, Protocol.SET, Double.doubleToRawLongBits(1.0));
+                requests.flip();
+                write(channels[i]);
+                read(channels[i], 2);
+            }
+        }
+
+        void run(long deadline) throws IOException {
+            while (System.nanoTime() < deadline) {
+                for (int i = 0; i < channels.length; i++) {
+                    requests.clear();
+                    for (int j = 0; j < pipeline; j++) {
+                        Protocol.putRequest(requests, OPERATORS[steps[i]++ & 3], 3.0);
+                    }
+                    requests.flip();
+                    sent[i] = System.nanoTime();
+                    write(channels[i]);
+                }
+                for (int i = 0; i < channels.length; i++) {
+                    errors += read(channels[i], pipeline);
+                    histogram.record(System.nanoTime() - sent[i], pipeline);
+                    operations += pipeline;
+                }
+            }
+        }
+
+        void close() throws IOException {
+            for (SocketChannel channel : channels) {
+                if (channel != null)
+                    channel.close();
+            }
+        }
+
+        private void write(SocketChannel channel) throws IOException {
+            while (requests.hasRemaining()) {
+                channel.write(requests);
+            }
+        }
+
+        /* reads count responses, returning the number of failed ones */
+        private int read(SocketChannel channel, int count) throws IOException {
+            responses.clear().limit(Protocol.RESPONSE_SIZE * count);
+            while (responses.hasRemaining()) {
+                if (channel.read(responses) < 0)
+                    throw new EOFException("The server closed the connection");
+            }
+
+            int failed = 0;
+            for (int i = 0; i < count; i++) {
+                if (Status.isError(responses.get(i * Protocol.RESPONSE_SIZE)))
+                    failed++;
+            }
+            return failed;
+        }
+    }
+
+    /**
+     * The outcome of a load test.
+     */
+    public static final class Result {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long operations;
+        private long errors;
+        private long elapsedNanos;
+
+        /**
+         * @return The number of completed requests.
+         */
+        public long getOperations() { return operations; }
+
+        /**
+         * @return The number of requests answered with an error status.
+         */
+        public long getErrors() { return errors; }
+
+        /**
+         * @return The duration of the measurement, in nanoseconds.
+         */
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        /**
+         * @return The number of completed requests per second.
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0.0 : operations * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @param percentile The percentile, in range <code>[0, 100]</code>.
+         * @return The request latency at the percentile, in nanoseconds (within 1/16 of the exact value).
+         */
+        public long getLatency(double percentile) {
+            return histogram.getPercentile(percentile);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d ops in %.2f s: %.0f ops/s, p50 %.1f us, p99 %.1f us, p99.9 %.1f us, errors %d",
+                    operations, elapsedNanos / 1e9, getThroughput(), getLatency(50) / 1e3, getLatency(99) / 1e3,
+                    getLatency(99.9) / 1e3, errors);
+        }
+    }
+
+    /**
+     * Runs a load test: <code>LoadTestClient [host] [port] [connections] [threads] [pipeline] [seconds]</code>.
+     *
+     * @param args The optional host (<code>localhost</code>), port (<code>7070</code>), number of connections
+     *             (<code>1000</code>), threads (the number of available processors), pipeline depth (<code>16</code>)
+     *             and duration in seconds (<code>10</code>).
+     * @throws Exception If the load test fails.
+     */
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7070;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int pipeline = args.length > 4 ? Integer.parseInt(args[4]) : 16;
+        long seconds = args.length > 5 ? Long.parseLong(args[5]) : 10;
+
+        LoadTestClient client = new LoadTestClient(new InetSocketAddress(host, port), connections, threads, pipeline);
+        System.out.println(client.run(TimeUnit.SECONDS.toMillis(seconds)));
+    }
+}
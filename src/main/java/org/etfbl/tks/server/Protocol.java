@@ -0,0 +1,87 @@
+package org.etfbl.tks.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The wire format of <code>CalculatorServer</code>. Every request is a fixed-size, 9-byte frame: a 1-byte opcode,
+ * followed by an 8-byte, big-endian operand (the raw bits of a <code>double</code>, or a <code>long</code> session
+ * key). The opcodes map directly onto the calculator methods:
+ *
+ * <ul>
+ *     <li><i><code>+</code>, <code>-</code>, <code>*</code> and <code>/</code> (and any other binary operator of the
+ *     shared <code>OperatorRegistry</code>): <code>calculate(operand, opcode)</code>; any opcode without a mapping of its
+ *     own is passed to <code>calculate</code> as well, which rejects it.</i></li>
+ *     <li><i><code>!</code> and <code>0</code> - <code>9</code> (and any other unary operator of the shared
+ *     <code>OperatorRegistry</code>): <code>calculateAdvanced(opcode)</code>, the operand is ignored.</i></li>
+ *     <li><i><code>A</code>, <code>P</code>, <code>B</code>, <code>D</code> and <code>R</code>:
+ *     <code>hasCharacteristic(opcode)</code>, the operand is ignored.</i></li>
+ *     <li><i><code>SESSION</code>, <code>GET</code>, <code>SET</code> and <code>REMOVE</code>: control opcodes, below
+ *     the printable ASCII range.</i></li>
+ * </ul>
+ *
+ * Every request is answered by a 9-byte response frame, in the order of the requests: a 1-byte status (one of the
+ * <code>Status</code> codes), followed by the 8-byte accumulator value, read after the operation. Clients may pipeline
+ * any number of requests without waiting for the responses, which the server batches into as few writes as possible.
+ *
+ * @see org.etfbl.tks.Status
+ */
+public final class Protocol {
+    /**
+     * The size of a request frame, in bytes.
+     */
+    public static final int REQUEST_SIZE = 9;
+
+    /**
+     * The size of a response frame, in bytes.
+     */
+    public static final int RESPONSE_SIZE = 9;
+
+    /**
+     * Binds the connection to the session keyed by the operand (a <code>long</code>), creating the session if needed.
+     * Until bound, a connection operates on an accumulator of its own. If the server's maximum number of sessions has
+     * been reached, a new session is not created, and the connection stays bound to its current accumulator, with
+     * <code>Status.SESSION_LIMIT</code>.
+     */
+    public static final byte SESSION = 0x01;
+
+    /**
+     * Only responds with the accumulator value.
+     */
+    public static final byte GET = 0x02;
+
+    /**
+     * Sets the accumulator to the operand.
+     */
+    public static final byte SET = 0x03;
+
+    /**
+     * Removes the session keyed by the operand (a <code>long</code>). Connections bound to it keep their accumulator.
+     */
+    public static final byte REMOVE = 0x04;
+
+    private Protocol() { }
+
+    /**
+     * Appends a request frame with a <code>double</code> operand.
+     *
+     * @param buffer The buffer, with at least <code>REQUEST_SIZE</code> bytes remaining.
+     * @param opcode The opcode.
+     * @param operand The operand.
+     * @return The <code>buffer</code>.
+     */
+    public static ByteBuffer putRequest(ByteBuffer buffer, char opcode, double operand) {
+        return buffer.put((byte)opcode).putLong(Double.doubleToRawLongBits(operand));
+    }
+
+    /**
+     * Appends a request frame with a <code>long</code> operand (a session key).
+     *
+     * @param buffer The buffer, with at least <code>REQUEST_SIZE</code> bytes remaining.
+     * @param opcode The opcode.
+     * @param operand The operand.
+     * @return The <code>buffer</code>.
+     */
+    public static ByteBuffer putRequest(ByteBuffer buffer, byte opcode, long operand) {
+        return buffer.put(opcode).putLong(operand);
+    }
+}
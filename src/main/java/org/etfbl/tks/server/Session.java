@@ -0,0 +1,67 @@
+package org.etfbl.tks.server;
+
+import org.etfbl.tks.ConcurrentCalculator;
+import org.etfbl.tks.OperatorRegistry;
+import org.etfbl.tks.Status;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The protocol state of a single connection: the accumulator it is currently bound to. Shared by both server modes,
+ * which only differ in how the bytes are moved.
+ */
+final class Session {
+    private final SessionTable sessions;
+    private ConcurrentCalculator calculator = new ConcurrentCalculator();
+
+    Session(SessionTable sessions) {
+        this.sessions = sessions;
+    }
+
+    /**
+     * Executes every complete request frame in <code>in</code>, for as long as <code>out</code> has room for the
+     * responses. Incomplete frames, and the ones without room for a response, are left in <code>in</code>.
+     *
+     * @return The number of executed requests.
+     */
+    int process(ByteBuffer in, ByteBuffer out) {
+        int count = 0;
+        while (in.remaining() >= Protocol.REQUEST_SIZE && out.remaining() >= Protocol.RESPONSE_SIZE) {
+            byte opcode = in.get();
+            long operand = in.getLong();
+            int status = execute(opcode, operand);
+            out.put((byte)status).putLong(Double.doubleToRawLongBits(calculator.getAsDouble()));
+            count++;
+        }
+        return count;
+    }
+
+    private int execute(byte opcode, long operand) {
+        switch (opcode) {
+            case Protocol.SESSION: {
+                ConcurrentCalculator session = sessions.get(operand);
+                if (session == null)
+                    return Status.SESSION_LIMIT;
+                calculator = session;
+                return Status.OK;
+            }
+            case Protocol.GET:
+                return Status.OK;
+            case Protocol.SET:
+                calculator.setCurrentValue(Double.longBitsToDouble(operand));
+                return Status.OK;
+            case Protocol.REMOVE:
+                sessions.remove(operand);
+                return Status.OK;
+            case 'A': case 'P': case 'B': case 'D': case 'R':
+                return calculator.tryHasCharacteristic((char)opcode);
+            default:
+                /* operators with a unary (but no binary) handler, such as '!' and the digits, ignore the operand */
+                char operator = (char)(opcode & 0xFF);
+                OperatorRegistry operators = calculator.getOperatorRegistry();
+                if (operators.getBinary(operator) == null && operators.getUnary(operator) != null)
+                    return calculator.tryCalculateAdvanced(operator);
+                return calculator.tryCalculate(Double.longBitsToDouble(operand), operator);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.etfbl.tks.server;
+
+import org.etfbl.tks.ConcurrentCalculator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The server-wide, session-keyed accumulators, bounded in number, so that clients binding to ever new keys can't run
+ * the server out of memory. Sessions are only removed on request.
+ */
+final class SessionTable {
+    private final ConcurrentMap<Long, ConcurrentCalculator> sessions = new ConcurrentHashMap<>();
+    /* the number of sessions, including the ones reserved but not put yet, so that the limit is never exceeded */
+    private final AtomicInteger count = new AtomicInteger();
+    private final int maxSessions;
+
+    SessionTable(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * @return The session keyed by <code>key</code>, created if needed, or <code>null</code> if it does not exist and
+     * the maximum number of sessions has been reached.
+     */
+    ConcurrentCalculator get(long key) {
+        ConcurrentCalculator session = sessions.get(key);
+        if (session != null)
+            return session;
+
+        if (count.incrementAndGet() > maxSessions) {
+            count.decrementAndGet();
+            return sessions.get(key);
+        }
+        ConcurrentCalculator created = new ConcurrentCalculator();
+        session = sessions.putIfAbsent(key, created);
+        if (session != null) {
+            /* created concurrently by another connection */
+            count.decrementAndGet();
+            return session;
+        }
+        return created;
+    }
+
+    void remove(long key) {
+        if (sessions.remove(key) != null)
+            count.decrementAndGet();
+    }
+
+    int size() {
+        return sessions.size();
+    }
+}
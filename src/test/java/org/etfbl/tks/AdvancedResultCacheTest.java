@@ -0,0 +1,113 @@
+package org.etfbl.tks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AdvancedResultCacheTest {
+    private static final long ABSENT = Long.MIN_VALUE;
+
+    /* Atomic unit testing */
+    @Test
+    public void testGetAndPut() {
+        AdvancedResultCache cache = new AdvancedResultCache(16);
+        assertThat(cache.get('P', 28, ABSENT), is(equalTo(ABSENT)));
+
+        cache.put('P', 28, Status.TRUE);
+        cache.put('B', 28, Status.FALSE);
+        cache.put('P', -28, 7L);
+        assertThat(cache.get('P', 28, ABSENT), is(equalTo((long)Status.TRUE)));
+        assertThat(cache.get('B', 28, ABSENT), is(equalTo((long)Status.FALSE)));
+        assertThat(cache.get('P', -28, ABSENT), is(equalTo(7L)));
+        assertThat(cache.get('D', 28, ABSENT), is(equalTo(ABSENT)));
+
+        /* replacing a result does not take another slot */
+        cache.put('P', -28, 8L);
+        assertThat(cache.get('P', -28, ABSENT), is(equalTo(8L)));
+        assertThat(cache.size(), is(equalTo(3)));
+        assertThat(cache.getHits(), is(equalTo(4L)));
+        assertThat(cache.getMisses(), is(equalTo(2L)));
+
+        cache.clear();
+        assertThat(cache.size(), is(equalTo(0)));
+        assertThat(cache.getHits(), is(equalTo(0L)));
+        assertThat(cache.get('P', 28, ABSENT), is(equalTo(ABSENT)));
+    }
+
+    @Test
+    public void testEviction() {
+        AdvancedResultCache cache = new AdvancedResultCache(64);
+        for (int value = 0; value < 1000; value++) {
+            cache.put('A', value, value);
+        }
+
+        assertThat(cache.size(), is(lessThanOrEqualTo(cache.getCapacity())));
+        assertThat(cache.getEvictions(), is(equalTo(1000L - cache.size())));
+        assertThat(cache.get('A', 999, ABSENT), is(equalTo(999L)));
+        for (int value = 0; value < 1000; value++) {
+            long result = cache.get('A', value, ABSENT);
+            assertThat(result == ABSENT || result == value, is(true));
+        }
+    }
+
+    @Test
+    public void testReferencedEntriesSurvive() {
+        AdvancedResultCache cache = new AdvancedResultCache(8);
+        cache.put('P', 6, Status.TRUE);
+        for (int value = 100; value < 200; value++) {
+            /* a hot entry, read between insertions, keeps getting a second chance */
+            assertThat(cache.get('P', 6, ABSENT), is(equalTo((long)Status.TRUE)));
+            cache.put('D', value, Status.TRUE);
+        }
+        assertThat(cache.get('P', 6, ABSENT), is(equalTo((long)Status.TRUE)));
+    }
+
+    @Test
+    public void testConcurrentReaders() throws InterruptedException {
+        AdvancedResultCache cache = new AdvancedResultCache(32);
+        AtomicInteger mismatches = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    int value = (i * 7 + offset) & 255;
+                    long result = cache.get('B', value, ABSENT);
+                    if (result == ABSENT)
+                        cache.put('B', value, value * 3L);
+                    else if (result != value * 3L)
+                        mismatches.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(mismatches.get(), is(equalTo(0)));
+        assertThat(cache.getHits() + cache.getMisses(), is(equalTo(200_000L)));
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new AdvancedResultCache(4));
+        assertThrows(IllegalArgumentException.class, () -> new AdvancedResultCache(AdvancedResultCache.MAX_CAPACITY + 1));
+    }
+
+    /* Parameterized tests */
+    @ParameterizedTest
+    @ValueSource(ints = { 8, 9, 100, 1024, 1025 })
+    public void testCapacityRoundedUp(int capacity) {
+        int rounded = new AdvancedResultCache(capacity).getCapacity();
+        assertThat(Integer.bitCount(rounded), is(equalTo(1)));
+        assertThat(rounded, is(both(greaterThanOrEqualTo(capacity)).and(lessThan(capacity * 2))));
+    }
+}
@@ -3,14 +3,18 @@ package org.etfbl.tks;
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import org.junit.jupiter.api.*;
 
 import org.etfbl.tks.exceptions.*;
+import org.etfbl.tks.math.Primes;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
 import java.util.stream.Stream;
 
 public class CalculatorAdvancedTest {
@@ -59,7 +63,203 @@ public class CalculatorAdvancedTest {
         assertThat(calc.getCurrentValue(), is(equalTo(25.0)));
     }
 
+    @Test
+    public void testExponentSquaring() {
+        assertThat(calc.exponent(3, 13), is(equalTo(1594323)));
+        assertThat(calc.exponent(-2, 31), is(equalTo(Integer.MIN_VALUE)));
+        assertThat(calc.exponent(7, 0), is(equalTo(1)));
+        assertThat(calc.exponent(2, -1), is(equalTo(0)));
+        assertThat(calc.exponent(-1, -3), is(equalTo(-1)));
+        assertThrows(ArithmeticException.class, () -> calc.exponent(0, -1));
+    }
+
+    @Test
+    public void testFactorialLimit()
+            throws NumberNotInAreaException, NotSupportedOperationException {
+        assertThat(calc.getFactorialLimit(), is(equalTo(CalculatorAdvanced.DEFAULT_FACTORIAL_LIMIT)));
+        calc.setFactorialLimit(170);
+
+        calc.setCurrentValue(20.0);
+        calc.calculateAdvanced('!');
+        assertThat(calc.getCurrentValue(), is(equalTo(2432902008176640000.0)));
+
+        calc.setCurrentValue(170.5);
+        assertThrows(NumberNotInAreaException.class, () -> calc.calculateAdvanced('!'));
+
+        calc.setFactorialLimit(3);
+        calc.setCurrentValue(4.0);
+        assertThrows(NumberNotInAreaException.class, () -> calc.calculateAdvanced('!'));
+
+        assertThrows(IllegalArgumentException.class, () -> calc.setFactorialLimit(171));
+        assertThrows(IllegalArgumentException.class, () -> calc.setFactorialLimit(-1));
+    }
+
+    @Test
+    public void testCalculatePower() throws DivisionByZeroException {
+        calc.setCurrentValue(1.5);
+        calc.calculatePower(2);
+        assertThat(calc.getCurrentValue(), is(equalTo(2.25)));
+
+        calc.setCurrentValue(2.0);
+        calc.calculatePower(20);
+        assertThat(calc.getCurrentValue(), is(equalTo(1048576.0)));
+
+        calc.setCurrentValue(-4.0);
+        calc.calculatePower(-1);
+        assertThat(calc.getCurrentValue(), is(equalTo(-0.25)));
+
+        calc.setCurrentValue(0.0);
+        Exception ex = assertThrows(
+                DivisionByZeroException.class,
+                () -> calc.calculatePower(-2)
+        );
+        assertThat(ex, is(instanceOf(DivisionByZeroException.class)));
+    }
+
+    @Test
+    public void testTryCalculateAdvanced() {
+        calc.setCurrentValue(4.0);
+        assertThat(calc.tryCalculateAdvanced('!'), is(equalTo(Status.OK)));
+        assertThat(calc.tryCalculateAdvanced('!'), is(equalTo(Status.NOT_IN_AREA)));
+        assertThat(calc.tryCalculateAdvanced('^'), is(equalTo(Status.NOT_SUPPORTED)));
+        assertThat(calc.getAsDouble(), is(equalTo(24.0)));
+
+        assertThat(calc.tryCalculatePower(-1), is(equalTo(Status.OK)));
+        assertThat(calc.getAsDouble(), is(equalTo(1.0 / 24.0)));
+        calc.setCurrentValue(Double.NaN);
+        assertThat(calc.tryCalculatePower(-1), is(equalTo(Status.DIVISION_BY_ZERO)));
+        assertThat(calc.getAsDouble(), is(equalTo(0.0)));
+    }
+
+    @Test
+    public void testTryHasCharacteristic() {
+        calc.setCurrentValue(28.0);
+        assertThat(calc.tryHasCharacteristic('P'), is(equalTo(Status.TRUE)));
+        assertThat(calc.tryHasCharacteristic('B'), is(equalTo(Status.FALSE)));
+        assertThat(calc.tryHasCharacteristic('X'), is(equalTo(Status.NOT_SUPPORTED)));
+
+        calc.setCurrentValue(0.5);
+        assertThat(calc.tryHasCharacteristic('X'), is(equalTo(Status.NOT_IN_AREA)));
+    }
+
+    @Test
+    public void testResultCache()
+            throws NumberNotInAreaException, NotSupportedOperationException {
+        AdvancedResultCache cache = new AdvancedResultCache(64);
+        CalculatorAdvanced other = new CalculatorAdvanced();
+        calc.setResultCache(cache);
+        other.setResultCache(cache);
+
+        calc.setCurrentValue(33550336.75);
+        assertThat(calc.hasCharacteristic('P'), is(true));
+        other.setCurrentValue(33550336.0);
+        assertThat(other.hasCharacteristic('P'), is(true));
+        assertThat(other.tryHasCharacteristic('D'), is(equalTo(Status.FALSE)));
+        assertThat(other.tryHasCharacteristic('D'), is(equalTo(Status.FALSE)));
+        assertThat(cache.getHits(), is(equalTo(2L)));
+
+        /* failed operations, and values the divisor sieve covers, are not cached */
+        assertThat(other.tryHasCharacteristic('X'), is(equalTo(Status.NOT_SUPPORTED)));
+        calc.setCurrentValue(8128.0);
+        assertThat(calc.hasCharacteristic('P'), is(true));
+        calc.calculateAdvanced('2');
+        assertThat(cache.size(), is(equalTo(2)));
+
+        calc.setResultCache(null);
+        assertThat(calc.getResultCache(), is(nullValue()));
+    }
+
+    @Test
+    public void testExceptionMessages() {
+        calc.setCurrentValue(12.5);
+        Exception ex1 = assertThrows(NumberNotInAreaException.class, () -> calc.calculateAdvanced('!'));
+        Exception ex2 = assertThrows(NotSupportedOperationException.class, () -> calc.calculateAdvanced('^'));
+        calc.setCurrentValue(-3.0);
+        Exception ex3 = assertThrows(NumberNotInAreaException.class, () -> calc.hasCharacteristic('A'));
+
+        assertThat(ex1.getMessage(), is(equalTo("Expected a non-negative integer in range [0, 10], received: 12")));
+        assertThat(ex2.getMessage(), is(equalTo("Invalid action: ^")));
+        assertThat(ex3.getMessage(), is(equalTo("Expected floor value greater than 1, received: -3")));
+    }
+
+    @Test
+    public void testWideCharacteristics()
+            throws NumberNotInAreaException, NotSupportedOperationException {
+        long perfect = 2_305_843_008_139_952_128L;
+        assertThat(calc.hasCharacteristic(perfect, 'P'), is(true));
+        assertThat(calc.hasCharacteristic(perfect, 'B'), is(false));
+        assertThat(calc.hasCharacteristic(perfect, 'D'), is(false));
+        assertThat(calc.hasCharacteristic(4_679_307_774L, 'A'), is(true));
+        assertThat(calc.hasCharacteristic(9_223_372_036_854_761_295L, 'D'), is(true));
+        assertThat(calc.hasCharacteristic(9_223_372_036_854_362_940L, 'B'), is(true));
+        assertThat(calc.hasCharacteristic(Primes.MAX_PRIME, 'R'), is(true));
+        assertThat(calc.hasCharacteristic(28L, 'P'), is(true));
+        assertThat(calc.getCurrentValue(), is(equalTo(0.0)));
+
+        BigInteger mersenne = BigInteger.ONE.shiftLeft(127).subtract(BigInteger.ONE);
+        assertThat(calc.hasCharacteristic(mersenne, 'R'), is(true));
+        assertThat(calc.hasCharacteristic(mersenne.shiftLeft(126), 'P'), is(true));
+        assertThat(calc.hasCharacteristic(mersenne.shiftLeft(127), 'P'), is(false));
+        assertThat(calc.hasCharacteristic(new BigInteger("115132219018763992565095597973971522401"), 'A'), is(true));
+        assertThat(calc.hasCharacteristic(BigInteger.valueOf(153), 'A'), is(true));
+
+        /* the accumulator is no longer truncated to an int */
+        calc.setCurrentValue(8_589_869_056.0);
+        assertThat(calc.hasCharacteristic('P'), is(true));
+        assertThat(calc.tryHasCharacteristic('B'), is(equalTo(Status.FALSE)));
+        calc.setCurrentValue(0x1p127);
+        assertThat(calc.hasCharacteristic('P'), is(false));
+        calc.setCurrentValue(Double.POSITIVE_INFINITY);
+        assertThat(calc.tryHasCharacteristic('P'), is(equalTo(Status.NOT_IN_AREA)));
+    }
+
+    @Test
+    public void testCharacteristicNoAllocation()
+            throws NumberNotInAreaException, NotSupportedOperationException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        long threadId = Thread.currentThread().getId(), matches = 0;
+        char[] characteristics = { 'P', 'R', 'A', 'D' };
+        BigInteger perfect = BigInteger.valueOf(8_589_869_056L);
+
+        /* warm-up, which also grows the sieves up to the checked values */
+        for (int round = 0; round < 2; round++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 40_000; i++) {
+                calc.setCurrentValue(1.0 + (i & 4095));
+                if (calc.hasCharacteristic(characteristics[i & 3])) matches++;
+                calc.setCurrentValue(8_589_869_056.0);
+                if (calc.hasCharacteristic('P')) matches++;
+                if (calc.hasCharacteristic(2_147_483_647L + (i & 63), characteristics[i & 3])) matches++;
+                if (calc.hasCharacteristic(perfect, 'P')) matches++;
+            }
+            long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+            /* formatting the checked value for every call would amount to ~3 MB */
+            if (round == 1)
+                assertThat(allocated, is(lessThan(1024L)));
+        }
+        assertThat(matches, is(greaterThan(0L)));
+    }
+
     /* Exception-handling testing */
+    @Test
+    public void testWideCharacteristicsEx() {
+        BigInteger large = BigInteger.TEN.pow(30);
+        assertThrows(NotSupportedOperationException.class, () -> calc.hasCharacteristic(large, 'B'));
+        assertThrows(NotSupportedOperationException.class, () -> calc.hasCharacteristic(large, 'X'));
+        assertThrows(NotSupportedOperationException.class, () -> calc.hasCharacteristic(1L << 40, 'X'));
+        Exception ex1 = assertThrows(NumberNotInAreaException.class, () -> calc.hasCharacteristic(-5L, 'R'));
+        Exception ex2 = assertThrows(NumberNotInAreaException.class,
+                () -> calc.hasCharacteristic(large.negate(), 'A'));
+
+        assertThat(ex1.getMessage(), is(equalTo("Expected floor value greater than 1, received: -5")));
+        assertThat(ex2.getMessage(), is(equalTo("Expected floor value greater than 1, received: -" + large)));
+    }
+
     @Test
     public void testNumberArea() {
         calc.setCurrentValue(0.999999999);
@@ -158,6 +358,9 @@ public class CalculatorAdvancedTest {
                 Arguments.of(0.99, '0', 1.0),
                 Arguments.of(5.55, '1', 5.00),
                 Arguments.of(1.0, '9', 1.0),
+                Arguments.of(46341.0, '2', 2147488281.0),
+                Arguments.of(-7.9, '3', -343.0),
+                Arguments.of(1e10, '1', 1e10),
                 Arguments.of(Double.NaN, '0', 1.0),
                 Arguments.of(Double.POSITIVE_INFINITY, '0', 1.0),
                 Arguments.of(Double.NEGATIVE_INFINITY, '0', 1.0),
@@ -183,7 +386,24 @@ public class CalculatorAdvancedTest {
 
                 Arguments.of(1.0, 'P', true),
                 Arguments.of(2.0, 'P', false),
-                Arguments.of(6.0, 'P', true)
+                Arguments.of(6.0, 'P', true),
+                Arguments.of(33550336.0, 'P', true),
+
+                Arguments.of(1.0, 'B', false),
+                Arguments.of(12.0, 'B', true),
+                Arguments.of(945.0, 'B', true),
+                Arguments.of(28.0, 'B', false),
+
+                Arguments.of(1.0, 'D', false),
+                Arguments.of(2.0, 'D', true),
+                Arguments.of(28.0, 'D', false),
+                Arguments.of(1048576.0, 'D', true),
+
+                Arguments.of(1.0, 'R', false),
+                Arguments.of(2.0, 'R', true),
+                Arguments.of(91.0, 'R', false),
+                Arguments.of(16777213.0, 'R', true),
+                Arguments.of(2147483647.0, 'R', true)
         );
     }
 
@@ -0,0 +1,110 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CalculatorBatchTest {
+    private CalculatorBatch batch;
+
+    @BeforeEach
+    void setUp() {
+        batch = new CalculatorBatch(new double[] { 1.0, 2.0, 3.0, 4.0 });
+    }
+
+    /* Atomic unit testing */
+    @Test
+    public void testScalarOperations() throws NotSupportedOperationException {
+        batch.calculate(1.0, '+');
+        batch.calculate(2.0, '*');
+        batch.calculate(4.0, '/');
+        batch.calculate(0.5, '-');
+        assertThat(batch.toArray(), is(equalTo(new double[] { 0.5, 1.0, 1.5, 2.0 })));
+        assertThat(batch.errorCount(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testLaneOperations() throws NotSupportedOperationException {
+        batch.calculate(new double[] { 1.0, 1.0, 1.0, 1.0 }, '-');
+        batch.calculate(new double[] { 2.0, 2.0, 2.0, 2.0 }, '*');
+        batch.calculate(new double[] { 3.0, 2.0, 1.0, 0.5 }, '+');
+        assertThat(batch.toArray(), is(equalTo(new double[] { 3.0, 4.0, 5.0, 6.5 })));
+    }
+
+    @Test
+    public void testScalarDivisionByZero() throws NotSupportedOperationException {
+        batch.calculate(0.0, '/');
+        assertThat(batch.toArray(), is(equalTo(new double[] { 1.0, 2.0, 3.0, 4.0 })));
+        assertThat(batch.errorCount(), is(equalTo(4)));
+        assertThat(batch.getErrors()[0], is(equalTo(0b1111L)));
+
+        batch.clearErrors();
+        assertThat(batch.errorCount(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testLaneDivisionByZero() throws NotSupportedOperationException {
+        batch.calculate(new double[] { 2.0, 0.0, -0.0, 4.0 }, '/');
+        assertThat(batch.toArray(), is(equalTo(new double[] { 0.5, 2.0, 3.0, 1.0 })));
+        assertThat(batch.hasError(0), is(equalTo(false)));
+        assertThat(batch.hasError(1), is(equalTo(true)));
+        assertThat(batch.hasError(2), is(equalTo(true)));
+        assertThat(batch.hasError(3), is(equalTo(false)));
+    }
+
+    @Test
+    public void testUnsupportedOp() {
+        Exception ex1 = assertThrows(
+                NotSupportedOperationException.class,
+                () -> batch.calculate(1.0, '^')
+        );
+        Exception ex2 = assertThrows(
+                NotSupportedOperationException.class,
+                () -> batch.calculate(new double[4], '%')
+        );
+
+        assertThat(ex1, is(instanceOf(NotSupportedOperationException.class)));
+        assertThat(ex2, is(instanceOf(NotSupportedOperationException.class)));
+    }
+
+    @Test
+    public void testShortOperands() {
+        assertThrows(IllegalArgumentException.class, () -> batch.calculate(new double[3], '+'));
+        assertThrows(IllegalArgumentException.class, () -> new CalculatorBatch(-1));
+    }
+
+    /* Parameterized tests, comparing against per-object Calculator instances */
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 63, 64, 65, 130 })
+    public void testMatchesCalculator(int size)
+            throws NotSupportedOperationException, DivisionByZeroException {
+        CalculatorBatch lanes = new CalculatorBatch(size);
+        Calculator[] calculators = new Calculator[size];
+        double[] operands = new double[size];
+        for (int i = 0; i < size; i++) {
+            lanes.set(i, i * 0.5);
+            calculators[i] = new Calculator(i * 0.5);
+            operands[i] = i % 3 == 0 ? 0.0 : i * 1.25;
+        }
+
+        lanes.calculate(operands, '/');
+        lanes.calculate(3.0, '*');
+        for (int i = 0; i < size; i++) {
+            if (operands[i] != 0.0) calculators[i].calculate(operands[i], '/');
+            calculators[i].calculate(3.0, '*');
+        }
+
+        for (int i = 0; i < size; i++) {
+            assertThat(lanes.get(i), is(equalTo(calculators[i].getAsDouble())));
+            assertThat(lanes.hasError(i), is(equalTo(operands[i] == 0.0)));
+        }
+        assertThat(lanes.errorCount(), is(equalTo((size + 2) / 3)));
+    }
+}
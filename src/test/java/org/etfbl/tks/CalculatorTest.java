@@ -1,19 +1,26 @@
 package org.etfbl.tks;
 
+import org.etfbl.tks.exceptions.CalculatorExceptions;
 import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.InvalidExpressionException;
 import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class CalculatorTest {
     private Calculator calc = new Calculator();
@@ -128,4 +135,192 @@ public class CalculatorTest {
         this.calc = new Calculator(startingValue);
         assertThat(calc.getCurrentValue(), is(equalTo(expectedValue)));
     }
+
+    /* Primitive (allocation-free) path testing */
+    @Test
+    public void testCalculatePrimitive()
+            throws DivisionByZeroException, NotSupportedOperationException {
+        calc.setCurrentValue(2.0);
+        calc.calculate(3.0, '*');
+        calc.calculate(1.5, '/');
+        calc.calculate(0.5, '-');
+        assertThat(calc.getAsDouble(), is(equalTo(3.5)));
+        assertThat(calc.getCurrentValue(), is(equalTo(3.5)));
+    }
+
+    @Test
+    public void testSetCurrentValueNull() {
+        calc.setCurrentValue(5.0);
+        calc.setCurrentValue((Double) null);
+        assertThat(calc.getAsDouble(), is(equalTo(0.0)));
+    }
+
+    @Test
+    public void testCalculatePrimitiveNoAllocation()
+            throws DivisionByZeroException, NotSupportedOperationException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        long threadId = Thread.currentThread().getId();
+        char[] operators = {'+', '*', '-', '/'};
+        calc.setCurrentValue(1.0);
+
+        /* warm-up, so that the measured loop does not include class loading or profiling allocations */
+        for (int i = 0; i < 10_000; i++) {
+            calc.calculate(1.0 + (i & 7), operators[i & 3]);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            calc.calculate(1.0 + (i & 7), operators[i & 3]);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        /* a single boxed Double per operation would amount to ~1.6 MB */
+        assertThat(allocated, is(lessThan(1024L)));
+    }
+
+    /* Expression evaluation testing */
+    @Test
+    public void testEvaluate()
+            throws InvalidExpressionException, DivisionByZeroException, NumberNotInAreaException {
+        calc.evaluate("(1.5 + 2) * 3^2 - 4!");
+        assertThat(calc.getCurrentValue(), is(equalTo(7.5)));
+    }
+
+    @Test
+    public void testEvaluateWithVariables()
+            throws InvalidExpressionException, DivisionByZeroException, NumberNotInAreaException {
+        Map<String, Double> variables = new HashMap<>();
+        variables.put("rate", 0.5);
+        variables.put("amount", 10.0);
+        calc.evaluate("amount * (1 + rate)", variables);
+        assertThat(calc.getCurrentValue(), is(equalTo(15.0)));
+
+        variables.put("rate", 0.25);
+        calc.evaluate("amount * (1 + rate)", variables);
+        assertThat(calc.getCurrentValue(), is(equalTo(12.5)));
+    }
+
+    @Test
+    public void testEvaluateErrors() {
+        calc.setCurrentValue(3.0);
+        assertThrows(InvalidExpressionException.class, () -> calc.evaluate("x + 1"));
+        assertThrows(InvalidExpressionException.class, () -> calc.evaluate("1 +"));
+        assertThrows(InvalidExpressionException.class, () -> calc.evaluate(null));
+        assertThrows(DivisionByZeroException.class, () -> calc.evaluate("1 / (2 - 2)"));
+        assertThat(calc.getCurrentValue(), is(equalTo(3.0)));
+    }
+
+    /* Status-code API testing */
+    @Test
+    public void testTryCalculate() {
+        calc.setCurrentValue(6.0);
+        assertThat(calc.tryCalculate(2.0, '/'), is(equalTo(Status.OK)));
+        assertThat(calc.tryCalculate(0.0, '/'), is(equalTo(Status.DIVISION_BY_ZERO)));
+        assertThat(calc.tryCalculate(2.0, '^'), is(equalTo(Status.NOT_SUPPORTED)));
+        assertThat(calc.getAsDouble(), is(equalTo(3.0)));
+
+        assertThat(Status.isError(Status.NOT_SUPPORTED), is(equalTo(true)));
+        assertThat(Status.isError(Status.TRUE), is(equalTo(false)));
+        assertThat(Status.toString(Status.DIVISION_BY_ZERO), is(equalTo("DIVISION_BY_ZERO")));
+    }
+
+    @Test
+    public void testTryEvaluate() {
+        Map<String, Double> variables = new HashMap<>();
+        variables.put("x", 4.0);
+        assertThat(calc.tryEvaluate("x^2 + 1", variables), is(equalTo(Status.OK)));
+        assertThat(calc.tryEvaluate("x / (x - 4)", variables), is(equalTo(Status.DIVISION_BY_ZERO)));
+        assertThat(calc.tryEvaluate("(0 - x)!", variables), is(equalTo(Status.NOT_IN_AREA)));
+        assertThat(calc.tryEvaluate("y + 1", variables), is(equalTo(Status.INVALID_EXPRESSION)));
+        assertThat(calc.getAsDouble(), is(equalTo(17.0)));
+    }
+
+    @Test
+    public void testTryEvaluateDeepExpressions() {
+        Map<String, Double> variables = new HashMap<>();
+        variables.put("x", 1.0);
+        StringBuilder parentheses = new StringBuilder(), signs = new StringBuilder(), sums = new StringBuilder("x");
+        StringBuilder factorials = new StringBuilder("3");
+        for (int i = 0; i < 20_000; i++) {
+            parentheses.append('(');
+            signs.append('-');
+            sums.append("+x");
+            factorials.append('!');
+        }
+        parentheses.append('1');
+        for (int i = 0; i < 20_000; i++) {
+            parentheses.append(')');
+        }
+        signs.append('1');
+
+        calc.setCurrentValue(3.0);
+        assertThat(calc.tryEvaluate(parentheses.toString(), variables), is(equalTo(Status.INVALID_EXPRESSION)));
+        assertThat(calc.tryEvaluate(signs.toString(), variables), is(equalTo(Status.INVALID_EXPRESSION)));
+        assertThat(calc.getAsDouble(), is(equalTo(3.0)));
+
+        /* long chains at a single level are not nested, and are compiled without recursion */
+        assertThat(calc.tryEvaluate(factorials.toString(), variables), is(equalTo(Status.NOT_IN_AREA)));
+        assertThat(calc.tryEvaluate(sums.toString(), variables), is(equalTo(Status.OK)));
+        assertThat(calc.getAsDouble(), is(equalTo(20_001.0)));
+
+        StringBuilder nested = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            nested.append("-(");
+        }
+        nested.append('x');
+        for (int i = 0; i < 100; i++) {
+            nested.append(')');
+        }
+        assertThat(calc.tryEvaluate(nested.toString(), variables), is(equalTo(Status.OK)));
+        assertThat(calc.getAsDouble(), is(equalTo(1.0)));
+    }
+
+    @Test
+    public void testTryCalculateFailureNoAllocation() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        long threadId = Thread.currentThread().getId();
+        int failures = 0;
+        for (int i = 0; i < 10_000; i++) {
+            failures += calc.tryCalculate(0.0, (i & 1) == 0 ? '/' : '%');
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            failures += calc.tryCalculate(0.0, (i & 1) == 0 ? '/' : '%');
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(failures, is(equalTo(-165_000)));
+        assertThat(allocated, is(lessThan(1024L)));
+    }
+
+    @Test
+    public void testStacklessExceptions() {
+        Exception ex1 = assertThrows(DivisionByZeroException.class, () -> calc.calculate(0.0, '/'));
+        assertThat(ex1.getStackTrace().length, is(greaterThan(0)));
+
+        CalculatorExceptions.setStackless(true);
+        try {
+            Exception ex2 = assertThrows(DivisionByZeroException.class, () -> calc.calculate(0.0, '/'));
+            Exception ex3 = assertThrows(DivisionByZeroException.class, () -> calc.calculate(0.0, '/'));
+            Exception ex4 = assertThrows(NotSupportedOperationException.class, () -> calc.calculate(1.0, '%'));
+            Exception ex5 = assertThrows(NotSupportedOperationException.class, () -> calc.calculate(1.0, '%'));
+
+            assertThat(ex2, is(sameInstance(ex3)));
+            assertThat(ex4, is(sameInstance(ex5)));
+            assertThat(ex2.getStackTrace().length, is(equalTo(0)));
+            assertThat(ex2.getMessage(), is(equalTo(ex1.getMessage())));
+            assertThat(ex4.getMessage(), is(equalTo("Invalid operand: %")));
+        } finally {
+            CalculatorExceptions.setStackless(false);
+        }
+    }
 }
@@ -0,0 +1,226 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.etfbl.tks.math.ArmstrongNumbers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CharacteristicQueryTest {
+
+    private static long[] oneByOne(char characteristic, long from, long to)
+            throws NotSupportedOperationException, NumberNotInAreaException {
+        CalculatorAdvanced calc = new CalculatorAdvanced();
+        LongStream.Builder matches = LongStream.builder();
+        for (long value = from; value <= to; value++) {
+            calc.setCurrentValue(value);
+            if (calc.hasCharacteristic(characteristic))
+                matches.add(value);
+        }
+        return matches.build().toArray();
+    }
+
+    /* Atomic unit testing */
+    @Test
+    public void testPerfectNumbers() throws NotSupportedOperationException, NumberNotInAreaException {
+        CharacteristicQuery query = new CharacteristicQuery('P');
+        /* 1 is a perfect number by the calculator's convention */
+        assertThat(query.stream(1, 10_000_000).toArray(), is(equalTo(new long[] { 1, 6, 28, 496, 8128 })));
+        assertThat(query.count(2, 10_000_000), is(equalTo(4L)));
+        assertThat(query.count(33_550_336, 33_550_336), is(equalTo(1L)));
+        assertThat(query.count(100, 99), is(equalTo(0L)));
+    }
+
+    @Test
+    public void testPrimes() throws NotSupportedOperationException, NumberNotInAreaException {
+        CharacteristicQuery query = new CharacteristicQuery('R');
+        assertThat(query.stream(1, 30).toArray(), is(equalTo(new long[] { 2, 3, 5, 7, 11, 13, 17, 19, 23, 29 })));
+        assertThat(query.count(1, 10_000_000), is(equalTo(664_579L)));
+        /* past the shared sieve's table */
+        assertThat(query.count(100_000_000, 101_000_000), is(equalTo(54_208L)));
+    }
+
+    @Test
+    public void testArmstrongEnumeration() throws NotSupportedOperationException, NumberNotInAreaException {
+        CharacteristicQuery query = new CharacteristicQuery('A');
+        /* long enough to be enumerated, rather than scanned */
+        assertThat(query.count(1, 999_999_999), is(equalTo(31L)));
+        assertThat(query.stream(100, 1_000_000_000).limit(4).toArray(),
+                is(equalTo(new long[] { 153, 370, 371, 407 })));
+        assertThat(query.stream(9_000_000, 9_999_999).toArray(), is(equalTo(new long[] { 9800817, 9926315 })));
+        assertThat(query.count(912_985_153, 912_985_153), is(equalTo(1L)));
+    }
+
+    @Test
+    public void testArmstrongHugeRanges() throws NotSupportedOperationException, NumberNotInAreaException,
+            InterruptedException, ExecutionException {
+        CharacteristicQuery query = new CharacteristicQuery('A');
+        /* answered out of the table, rather than by walking the range */
+        long[] table = ArmstrongNumbers.upTo(1_000_000_000_000_000L);
+        long[] expected = Arrays.copyOfRange(table, 1, table.length);
+        assertThat(expected.length, is(equalTo(41)));
+        assertThat(query.count(1, 1_000_000_000_000_000L), is(equalTo((long)expected.length)));
+        assertThat(query.stream(1, 1_000_000_000_000_000L).toArray(), is(equalTo(expected)));
+        assertThat(query.stream(1, 1_000_000_000_000_000L).parallel().toArray(), is(equalTo(expected)));
+        assertThat(query.submit(1, 1_000_000_000_000_000L, null).get(), is(equalTo((long)expected.length)));
+
+        ConcurrentSkipListSet<Long> found = new ConcurrentSkipListSet<>();
+        query.forEach(1_000, CharacteristicQuery.MAX_VALUE, found::add);
+        assertThat(found.first(), is(equalTo(1634L)));
+        /* the 19-digit Armstrong numbers are all above MAX_VALUE */
+        assertThat(found.last(), is(equalTo(35_875_699_062_250_035L)));
+        assertThat(query.count(1, CharacteristicQuery.MAX_VALUE), is(equalTo(46L)));
+        assertThat(found.size(), is(equalTo(46 - 13)));
+        assertThat(query.count(912_985_154, 4_679_307_773L), is(equalTo(0L)));
+    }
+
+    @Test
+    public void testForEachOnOwnPool() throws NotSupportedOperationException, NumberNotInAreaException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            CharacteristicQuery query = new CharacteristicQuery('B', pool);
+            ConcurrentSkipListSet<Long> matches = new ConcurrentSkipListSet<>();
+            query.forEach(1, 100_000, matches::add);
+
+            assertThat(matches.size(), is(equalTo((int)query.count(1, 100_000))));
+            assertThat(matches.stream().mapToLong(Long::longValue).toArray(),
+                    is(equalTo(query.stream(1, 100_000).toArray())));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubmit() throws NotSupportedOperationException, NumberNotInAreaException,
+            InterruptedException, ExecutionException {
+        CharacteristicQuery.Search search = new CharacteristicQuery('D').submit(1, 50_000, null);
+        assertThat(search.get(), is(equalTo(new CharacteristicQuery('D').count(1, 50_000))));
+        assertThat(search.isDone(), is(true));
+        assertThat(search.isTimedOut(), is(false));
+        assertThat(search.cancel(false), is(false));
+    }
+
+    @Test
+    public void testTimeLimit() throws NotSupportedOperationException, NumberNotInAreaException,
+            InterruptedException, ExecutionException {
+        CharacteristicQuery.Search search = new CharacteristicQuery('P')
+                .submit(1, 1L << 40, null, 50, TimeUnit.MILLISECONDS);
+        assertThat(search.get(), is(greaterThanOrEqualTo(0L)));
+        assertThat(search.isTimedOut(), is(true));
+        assertThat(search.isCancelled(), is(false));
+    }
+
+    @Test
+    public void testCancellation() throws NotSupportedOperationException, NumberNotInAreaException {
+        CharacteristicQuery.Search search = new CharacteristicQuery('A')
+                .submit(CharacteristicQuery.MAX_VALUE - (1L << 23), CharacteristicQuery.MAX_VALUE, null);
+        assertThat(search.cancel(true), is(true));
+        assertThrows(CancellationException.class, search::get);
+        assertThat(search.isCancelled(), is(true));
+        assertThat(search.isDone(), is(true));
+    }
+
+    @Test
+    public void testCancellationInFlight() throws NotSupportedOperationException, NumberNotInAreaException,
+            InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            CharacteristicQuery.Search search = new CharacteristicQuery('D', pool).submit(1, 1_000_000, value -> {
+                calls.incrementAndGet();
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertThat(entered.await(10, TimeUnit.SECONDS), is(true));
+
+            /* completed at once, while its segment is still blocked in the action */
+            assertThat(search.cancel(false), is(true));
+            assertThat(search.isDone(), is(true));
+            assertThat(search.isCancelled(), is(true));
+            assertThrows(CancellationException.class, () -> search.get(1, TimeUnit.SECONDS));
+
+            release.countDown();
+            pool.shutdown();
+            assertThat(pool.awaitTermination(10, TimeUnit.SECONDS), is(true));
+            assertThat(calls.get(), is(equalTo(1)));
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParallelStream() throws NotSupportedOperationException, NumberNotInAreaException {
+        CharacteristicQuery query = new CharacteristicQuery('B');
+        assertThat(query.stream(1, 300_000).parallel().toArray(), is(equalTo(query.stream(1, 300_000).toArray())));
+        assertThat(query.stream(1, 300_000).parallel().count(), is(equalTo(query.count(1, 300_000))));
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testInvalidQueries() throws NotSupportedOperationException {
+        assertThrows(NotSupportedOperationException.class, () -> new CharacteristicQuery('X'));
+        CharacteristicQuery query = new CharacteristicQuery('P');
+        Exception ex = assertThrows(NumberNotInAreaException.class, () -> query.count(0, 10));
+        assertThat(ex.getMessage(), is(equalTo("Expected floor value greater than 1, received: 0")));
+        assertThrows(NumberNotInAreaException.class, () -> query.stream(1, CharacteristicQuery.MAX_VALUE + 1));
+        assertThrows(NullPointerException.class, () -> query.forEach(1, 10, null));
+    }
+
+    @Test
+    public void testFailingAction() throws NotSupportedOperationException, NumberNotInAreaException {
+        CharacteristicQuery.Search search = new CharacteristicQuery('D').submit(1, 100_000, value -> {
+            if (value == 12_345)
+                throw new IllegalStateException();
+        });
+        ExecutionException ex = assertThrows(ExecutionException.class, search::get);
+        assertThat(ex.getCause(), is(instanceOf(IllegalStateException.class)));
+        assertThrows(IllegalStateException.class, () -> new CharacteristicQuery('D').forEach(1, 100_000, value -> {
+            throw new IllegalStateException();
+        }));
+    }
+
+    /* Parameterized tests */
+    @ParameterizedTest
+    @ValueSource(chars = { 'A', 'P', 'B', 'D', 'R' })
+    public void testMatchesHasCharacteristic(char characteristic)
+            throws NotSupportedOperationException, NumberNotInAreaException {
+        CharacteristicQuery query = new CharacteristicQuery(characteristic);
+        long[][] ranges = { { 1, 20_000 }, { 1_048_000, 1_060_000 }, { 2_147_000_000L, 2_147_010_000L } };
+        for (long[] range : ranges) {
+            long[] expected = oneByOne(characteristic, range[0], range[1]);
+            assertThat(query.stream(range[0], range[1]).toArray(), is(equalTo(expected)));
+            assertThat(query.count(range[0], range[1]), is(equalTo((long)expected.length)));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = { 1, 4_095, 4_096, 4_097, 123_456 })
+    public void testDivisorCharacteristicsPartitionRange(long to)
+            throws NotSupportedOperationException, NumberNotInAreaException {
+        long total = new CharacteristicQuery('P').count(1, to) + new CharacteristicQuery('B').count(1, to)
+                + new CharacteristicQuery('D').count(1, to);
+        assertThat(total, is(equalTo(to)));
+    }
+}
@@ -0,0 +1,197 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConcurrentCalculatorTest {
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 20_000;
+
+    /* Atomic unit testing */
+    @ParameterizedTest
+    @EnumSource(ConcurrentCalculator.Mode.class)
+    public void testOperations(ConcurrentCalculator.Mode mode)
+            throws DivisionByZeroException, NotSupportedOperationException, NumberNotInAreaException {
+        ConcurrentCalculator calc = new ConcurrentCalculator(2.0, mode);
+        assertThat(calc.getMode(), is(equalTo(mode)));
+
+        calc.calculate(3.0, '+');
+        calc.calculate(1.0, '-');
+        calc.calculate(2.5, '*');
+        calc.calculate(2.0, '/');
+        assertThat(calc.getCurrentValue(), is(equalTo(5.0)));
+
+        calc.calculateAdvanced('!');
+        assertThat(calc.getCurrentValue(), is(equalTo(120.0)));
+        calc.calculateAdvanced('2');
+        assertThat(calc.getCurrentValue(), is(equalTo(14400.0)));
+        calc.calculatePower(-1);
+        assertThat(calc.getCurrentValue(), is(equalTo(1.0 / 14400.0)));
+
+        calc.setCurrentValue(28.0);
+        assertThat(calc.hasCharacteristic('P'), is(equalTo(true)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ConcurrentCalculator.Mode.class)
+    public void testNonFiniteReset(ConcurrentCalculator.Mode mode) {
+        ConcurrentCalculator calc = new ConcurrentCalculator(Double.NaN, mode);
+        assertThrows(NotSupportedOperationException.class, () -> calc.calculateAdvanced('^'));
+        assertThat(calc.getAsDouble(), is(equalTo(0.0)));
+
+        calc.setCurrentValue(Double.POSITIVE_INFINITY);
+        assertThrows(DivisionByZeroException.class, () -> calc.calculatePower(-2));
+        assertThat(calc.getAsDouble(), is(equalTo(0.0)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ConcurrentCalculator.Mode.class)
+    public void testStatusCodes(ConcurrentCalculator.Mode mode) {
+        ConcurrentCalculator calc = new ConcurrentCalculator(3.0, mode);
+        assertThat(calc.tryCalculate(2.0, '-'), is(equalTo(Status.OK)));
+        assertThat(calc.tryCalculate(0.0, '/'), is(equalTo(Status.DIVISION_BY_ZERO)));
+        assertThat(calc.tryCalculate(1.0, '%'), is(equalTo(Status.NOT_SUPPORTED)));
+        assertThat(calc.tryCalculateAdvanced('!'), is(equalTo(Status.OK)));
+        assertThat(calc.tryCalculateAdvanced('?'), is(equalTo(Status.NOT_SUPPORTED)));
+        assertThat(calc.tryCalculatePower(3), is(equalTo(Status.OK)));
+        assertThat(calc.tryHasCharacteristic('P'), is(equalTo(Status.TRUE)));
+
+        calc.setCurrentValue(0.0);
+        assertThat(calc.tryCalculatePower(-3), is(equalTo(Status.DIVISION_BY_ZERO)));
+        calc.setCurrentValue(-1.0);
+        assertThat(calc.tryCalculateAdvanced('!'), is(equalTo(Status.NOT_IN_AREA)));
+        assertThat(calc.getAsDouble(), is(equalTo(-1.0)));
+    }
+
+    /* Exception-handling testing */
+    @ParameterizedTest
+    @EnumSource(ConcurrentCalculator.Mode.class)
+    public void testFailedOperationsKeepValue(ConcurrentCalculator.Mode mode) {
+        ConcurrentCalculator calc = new ConcurrentCalculator(11.0, mode);
+
+        Exception ex1 = assertThrows(DivisionByZeroException.class, () -> calc.calculate(0.0, '/'));
+        Exception ex2 = assertThrows(NotSupportedOperationException.class, () -> calc.calculate(1.0, '%'));
+        Exception ex3 = assertThrows(NumberNotInAreaException.class, () -> calc.calculateAdvanced('!'));
+
+        assertThat(ex1.getMessage(), is(equalTo("Arithmetic exception - division by zero.")));
+        assertThat(ex2.getMessage(), is(equalTo("Invalid operand: %")));
+        assertThat(ex3.getMessage(), is(equalTo("Expected a non-negative integer in range [0, 10], received: 11")));
+        assertThat(calc.getAsDouble(), is(equalTo(11.0)));
+    }
+
+    @Test
+    public void testDefaults() {
+        assertThat(new ConcurrentCalculator().getMode(), is(equalTo(ConcurrentCalculator.Mode.CAS)));
+        assertThat(new ConcurrentCalculator(4.0).getAsDouble(), is(equalTo(4.0)));
+    }
+
+    /* Concurrency testing */
+    @ParameterizedTest
+    @EnumSource(ConcurrentCalculator.Mode.class)
+    public void testNoLostAdditions(ConcurrentCalculator.Mode mode) throws Exception {
+        ConcurrentCalculator calc = new ConcurrentCalculator(0.0, mode);
+        runConcurrently(thread -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                calc.calculate(1.0, thread % 2 == 0 ? '+' : '-');
+                calc.calculate(2.0, '+');
+            }
+        });
+        assertThat(calc.getAsDouble(), is(equalTo((double)THREADS * ITERATIONS * 2)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ConcurrentCalculator.Mode.class)
+    public void testNoLostExclusiveOperations(ConcurrentCalculator.Mode mode) throws Exception {
+        /* multiplying and dividing by two are exact and commute, so any lost update changes the final value */
+        ConcurrentCalculator calc = new ConcurrentCalculator(3.0, mode);
+        runConcurrently(thread -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                calc.calculate(2.0, '*');
+                calc.calculatePower(1);
+                calc.calculate(2.0, '/');
+            }
+        });
+        assertThat(calc.getAsDouble(), is(equalTo(3.0)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ConcurrentCalculator.Mode.class)
+    public void testMonotonicSnapshots(ConcurrentCalculator.Mode mode) throws Exception {
+        ConcurrentCalculator calc = new ConcurrentCalculator(0.0, mode);
+        runConcurrently(thread -> {
+            if (thread % 2 == 0) {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    calc.calculate(1.0, '+');
+                }
+            } else {
+                double previous = 0.0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    double current = calc.getAsDouble();
+                    assertThat(current, is(greaterThanOrEqualTo(previous)));
+                    previous = current;
+                }
+            }
+        });
+        assertThat(calc.getAsDouble(), is(equalTo((double)THREADS / 2 * ITERATIONS)));
+    }
+
+    @Test
+    public void testManyCells() throws Exception {
+        /* more cells than processors, so that additions and snapshots span several of them on any machine */
+        ConcurrentCalculator calc = new ConcurrentCalculator(-0.5, ConcurrentCalculator.Mode.STRIPED, 8);
+        runConcurrently(thread -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                if (thread == 0) {
+                    /* exclusive operations, which keep the value */
+                    calc.calculate(1.0, '*');
+                    calc.calculatePower(1);
+                } else if (thread == 1) {
+                    double current = calc.getAsDouble();
+                    assertThat(current, is(both(greaterThanOrEqualTo(-0.5)).and(lessThan(THREADS * 2.0 * ITERATIONS))));
+                } else {
+                    calc.calculate(3.0, '+');
+                    calc.calculate(1.0, '-');
+                }
+            }
+        });
+        assertThat(calc.getAsDouble(), is(equalTo((THREADS - 2) * 2.0 * ITERATIONS - 0.5)));
+    }
+
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OperatorRegistryTest {
+
+    /* Atomic unit testing */
+    @Test
+    public void testBuiltins() {
+        OperatorRegistry operators = new OperatorRegistry();
+        assertThat(operators.getBinary('+'), is(sameInstance(OperatorRegistry.ADD)));
+        assertThat(operators.getBinary('/'), is(sameInstance(OperatorRegistry.DIVIDE)));
+        assertThat(operators.rejectsZero('/'), is(true));
+        assertThat(operators.rejectsZero('*'), is(false));
+        assertThat(operators.getUnary('!'), is(sameInstance(OperatorRegistry.FACTORIAL)));
+        assertThat(operators.getUnary('3').applyAsDouble(-2.5), is(equalTo(-8.0)));
+        assertThat(operators.getUnary('!').applyAsDouble(171.0), is(equalTo(Double.NaN)));
+
+        /* exponentiation stays an advanced (unary) operation only */
+        assertThat(operators.getBinary('^'), is(nullValue()));
+        assertThat(operators.getUnary('^'), is(nullValue()));
+        assertThat(operators.getBinary('\u20ac'), is(nullValue()));
+        assertThat(operators.rejectsZero('\u20ac'), is(false));
+    }
+
+    @Test
+    public void testCustomBinaryOperator() throws DivisionByZeroException, NotSupportedOperationException {
+        Calculator calc = new Calculator(17.0);
+        calc.setOperatorRegistry(new OperatorRegistry().registerBinary('%', (a, b) -> a % b, true));
+
+        calc.calculate(5.0, '%');
+        assertThat(calc.getAsDouble(), is(equalTo(2.0)));
+        assertThat(calc.tryCalculate(0.0, '%'), is(equalTo(Status.DIVISION_BY_ZERO)));
+        assertThrows(DivisionByZeroException.class, () -> calc.calculate(0.0, '%'));
+
+        /* other calculators are not affected */
+        assertThat(new Calculator().tryCalculate(5.0, '%'), is(equalTo(Status.NOT_SUPPORTED)));
+    }
+
+    @Test
+    public void testReplacedArithmetic() throws DivisionByZeroException, NotSupportedOperationException {
+        /* a calculator with its own registry always looks its operators up */
+        OperatorRegistry operators = new OperatorRegistry().registerBinary('+', Math::max, false);
+        Calculator own = new Calculator(7.0);
+        own.setOperatorRegistry(operators);
+        own.calculate(3.0, '+');
+        assertThat(own.getAsDouble(), is(equalTo(7.0)));
+
+        /* replacing a built-in of the shared registry turns the direct arithmetic off, for good */
+        OperatorRegistry shared = OperatorRegistry.shared();
+        Calculator calc = new Calculator(7.0);
+        calc.calculate(3.0, '+');
+        assertThat(calc.getAsDouble(), is(equalTo(10.0)));
+        try {
+            shared.registerBinary('+', OperatorRegistry.ADD, false).registerBinary('/', OperatorRegistry.DIVIDE, true);
+            assertThat(OperatorRegistry.isSharedArithmeticBuiltin(), is(true));
+
+            shared.registerBinary('+', Math::max, false);
+            assertThat(OperatorRegistry.isSharedArithmeticBuiltin(), is(false));
+            calc.calculate(3.0, '+');
+            assertThat(calc.getAsDouble(), is(equalTo(10.0)));
+
+            shared.registerBinary('+', OperatorRegistry.ADD, false);
+            assertThat(OperatorRegistry.isSharedArithmeticBuiltin(), is(false));
+            calc.calculate(3.0, '+');
+            assertThat(calc.getAsDouble(), is(equalTo(13.0)));
+            assertThrows(DivisionByZeroException.class, () -> calc.calculate(0.0, '/'));
+        } finally {
+            shared.registerBinary('+', OperatorRegistry.ADD, false);
+        }
+    }
+
+    @Test
+    public void testCustomUnaryOperator() throws NotSupportedOperationException, NumberNotInAreaException {
+        CalculatorAdvanced calc = new CalculatorAdvanced();
+        calc.setCurrentValue(16.0);
+        calc.setOperatorRegistry(new OperatorRegistry().registerUnary('r', v -> v < 0.0 ? Double.NaN : Math.sqrt(v)));
+
+        calc.calculateAdvanced('r');
+        assertThat(calc.getAsDouble(), is(equalTo(4.0)));
+
+        calc.setCurrentValue(-4.0);
+        assertThat(calc.tryCalculateAdvanced('r'), is(equalTo(Status.NOT_IN_AREA)));
+        Exception ex = assertThrows(NumberNotInAreaException.class, () -> calc.calculateAdvanced('r'));
+        assertThat(ex.getMessage(), is(equalTo("Value out of the domain of r: -4.0")));
+        assertThat(calc.getAsDouble(), is(equalTo(-4.0)));
+    }
+
+    @Test
+    public void testReplaceAndUnregister() {
+        OperatorRegistry original = new OperatorRegistry();
+        OperatorRegistry operators = new OperatorRegistry(original)
+                .registerBinary('/', OperatorRegistry.DIVIDE, false);
+        Calculator calc = new Calculator(1.0);
+        calc.setOperatorRegistry(operators);
+
+        assertThat(calc.tryCalculate(0.0, '/'), is(equalTo(Status.OK)));
+        assertThat(calc.getAsDouble(), is(equalTo(Double.POSITIVE_INFINITY)));
+        assertThat(original.rejectsZero('/'), is(true));
+
+        assertThat(operators.unregister('+'), is(true));
+        assertThat(operators.unregister('+'), is(false));
+        assertThat(calc.tryCalculate(1.0, '+'), is(equalTo(Status.NOT_SUPPORTED)));
+        assertThat(original.getBinary('+'), is(sameInstance(OperatorRegistry.ADD)));
+    }
+
+    @Test
+    public void testBatch() throws NotSupportedOperationException {
+        CalculatorBatch batch = new CalculatorBatch(new double[] { 7.0, 8.0, 9.0 });
+        batch.setOperatorRegistry(new OperatorRegistry().registerBinary('%', (a, b) -> a % b, true));
+
+        batch.calculate(new double[] { 4.0, 0.0, 5.0 }, '%');
+        assertThat(batch.get(0), is(equalTo(3.0)));
+        assertThat(batch.get(1), is(equalTo(8.0)));
+        assertThat(batch.get(2), is(equalTo(4.0)));
+        assertThat(batch.hasError(1), is(true));
+        assertThat(batch.hasError(0), is(false));
+
+        batch.calculate(0.0, '%');
+        assertThat(batch.hasError(0), is(true));
+        assertThrows(NotSupportedOperationException.class, () -> batch.calculate(1.0, '^'));
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testInvalidRegistration() {
+        OperatorRegistry operators = new OperatorRegistry();
+        assertThrows(IllegalArgumentException.class, () -> operators.registerBinary('\u20ac', (a, b) -> a, false));
+        assertThrows(IllegalArgumentException.class, () -> operators.registerUnary('\u00f7', a -> a));
+        assertThrows(NullPointerException.class, () -> operators.registerBinary('%', null, false));
+        assertThrows(NullPointerException.class, () -> new Calculator().setOperatorRegistry(null));
+    }
+
+    /* Parameterized tests */
+    @ParameterizedTest
+    @EnumSource(ConcurrentCalculator.Mode.class)
+    public void testConcurrentCalculator(ConcurrentCalculator.Mode mode)
+            throws NotSupportedOperationException, NumberNotInAreaException {
+        ConcurrentCalculator calc = new ConcurrentCalculator(10.0, mode);
+        calc.setOperatorRegistry(new OperatorRegistry()
+                .registerBinary('%', (a, b) -> a % b, true)
+                .registerUnary('h', v -> v / 2.0));
+
+        assertThat(calc.tryCalculate(4.0, '%'), is(equalTo(Status.OK)));
+        assertThat(calc.tryCalculate(0.0, '%'), is(equalTo(Status.DIVISION_BY_ZERO)));
+        calc.calculateAdvanced('h');
+        assertThat(calc.getAsDouble(), is(equalTo(1.0)));
+        assertThat(calc.tryCalculate(2.0, '+'), is(equalTo(Status.OK)));
+        assertThat(calc.getAsDouble(), is(equalTo(3.0)));
+        assertThrows(NotSupportedOperationException.class, () -> calc.calculateAdvanced('^'));
+    }
+}
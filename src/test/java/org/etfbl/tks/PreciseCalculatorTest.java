@@ -0,0 +1,175 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PreciseCalculatorTest {
+
+    /* Atomic unit testing */
+    @Test
+    public void testNoDrift() throws DivisionByZeroException, NotSupportedOperationException {
+        PreciseCalculator calc = new PreciseCalculator();
+        Calculator plain = new Calculator();
+        for (int i = 0; i < 10; i++) {
+            calc.calculate(0.1, '+');
+            plain.calculate(0.1, '+');
+        }
+        assertThat(calc.getAsDouble(), is(equalTo(1.0)));
+        assertThat(plain.getAsDouble(), is(not(equalTo(1.0))));
+        assertThat(calc.getRepresentation(), is(equalTo(PreciseCalculator.Representation.SCALED)));
+
+        calc.setCurrentValue(0.1);
+        calc.calculate(0.2, '+');
+        assertThat(calc.getAsDouble(), is(equalTo(0.3)));
+        assertThat(calc.getExactValue(), is(equalTo(new BigDecimal("0.3"))));
+    }
+
+    @Test
+    public void testShortestOperands() {
+        Random random = new Random(7);
+        PreciseCalculator calc = new PreciseCalculator();
+        for (int i = 0; i < 100_000; i++) {
+            double value = i % 10 == 0 ? random.nextDouble() * 1e6
+                    : random.nextInt() / Math.pow(10, random.nextInt(12));
+            calc.setCurrentValue(value);
+            assertThat(calc.getExactValue().compareTo(BigDecimal.valueOf(value)), is(equalTo(0)));
+            assertThat(calc.getAsDouble(), is(equalTo(value)));
+        }
+    }
+
+    @Test
+    public void testExactQuotients() throws DivisionByZeroException, NotSupportedOperationException {
+        PreciseCalculator calc = new PreciseCalculator(1.0);
+        calc.calculate(8.0, '/');
+        assertThat(calc.getExactValue(), is(equalTo(new BigDecimal("0.125"))));
+        calc.calculate(0.05, '/');
+        assertThat(calc.getExactValue(), is(equalTo(new BigDecimal("2.5"))));
+        calc.calculate(1.25, '*');
+        assertThat(calc.getExactValue(), is(equalTo(new BigDecimal("3.125"))));
+        assertThat(calc.getRepresentation(), is(equalTo(PreciseCalculator.Representation.SCALED)));
+    }
+
+    @Test
+    public void testPromotionAndDemotion() throws DivisionByZeroException, NotSupportedOperationException {
+        PreciseCalculator calc = new PreciseCalculator(1.0);
+        calc.calculate(3.0, '/');
+        assertThat(calc.getRepresentation(), is(equalTo(PreciseCalculator.Representation.DECIMAL)));
+        assertThat(calc.getExactValue(), is(equalTo(BigDecimal.ONE.divide(new BigDecimal(3), MathContext.DECIMAL128))));
+
+        calc.setCurrentValue(1e15);
+        calc.calculate(1e15, '*');
+        calc.calculate(1e15, '*');
+        assertThat(calc.getRepresentation(), is(equalTo(PreciseCalculator.Representation.DECIMAL)));
+        assertThat(calc.getExactValue().compareTo(new BigDecimal("1E+45")), is(equalTo(0)));
+
+        calc.calculate(1e15, '/');
+        calc.calculate(1e15, '/');
+        assertThat(calc.getRepresentation(), is(equalTo(PreciseCalculator.Representation.SCALED)));
+        assertThat(calc.getAsDouble(), is(equalTo(1e15)));
+    }
+
+    @Test
+    public void testMathContext() throws DivisionByZeroException, NotSupportedOperationException {
+        PreciseCalculator calc = new PreciseCalculator(2.0, new MathContext(5));
+        calc.calculate(3.0, '/');
+        assertThat(calc.getExactValue(), is(equalTo(new BigDecimal("0.66667"))));
+
+        PreciseCalculator unlimited = new PreciseCalculator(Long.MAX_VALUE / 1e3, MathContext.UNLIMITED);
+        unlimited.calculate(Long.MAX_VALUE / 1e3, '*');
+        unlimited.calculate(0.001, '+');
+        assertThat(unlimited.getExactValue().scale(), is(equalTo(3)));
+        unlimited.calculate(7.0, '/');
+        assertThat(unlimited.getExactValue().precision(), is(equalTo(34)));
+    }
+
+    @Test
+    public void testExactOperands() throws DivisionByZeroException, NotSupportedOperationException {
+        PreciseCalculator calc = new PreciseCalculator();
+        calc.calculateExact(new BigDecimal("0.1"), '+');
+        calc.calculateExact(new BigDecimal("12345678901234567890.5"), '+');
+        assertThat(calc.getExactValue(), is(equalTo(new BigDecimal("12345678901234567890.6"))));
+        calc.calculateExact(null, '*');
+        assertThat(calc.getExactValue().signum(), is(equalTo(0)));
+        calc.setExactValue(new BigDecimal("1E+2"));
+        assertThat(calc.getRepresentation(), is(equalTo(PreciseCalculator.Representation.SCALED)));
+        assertThat(calc.getAsDouble(), is(equalTo(100.0)));
+    }
+
+    @Test
+    public void testNonFiniteValues() throws DivisionByZeroException, NotSupportedOperationException {
+        PreciseCalculator calc = new PreciseCalculator(5.0);
+        calc.calculate(Double.POSITIVE_INFINITY, '+');
+        assertThat(calc.getRepresentation(), is(equalTo(PreciseCalculator.Representation.DOUBLE)));
+        assertThat(calc.getAsDouble(), is(equalTo(Double.POSITIVE_INFINITY)));
+        assertThrows(ArithmeticException.class, calc::getExactValue);
+
+        calc.setCurrentValue(5.0);
+        calc.calculate(Double.POSITIVE_INFINITY, '/');
+        assertThat(calc.getAsDouble(), is(equalTo(0.0)));
+        assertThat(calc.getRepresentation(), is(equalTo(PreciseCalculator.Representation.SCALED)));
+    }
+
+    @Test
+    public void testCustomOperators() throws DivisionByZeroException, NotSupportedOperationException {
+        PreciseCalculator calc = new PreciseCalculator(17.5);
+        calc.setOperatorRegistry(new OperatorRegistry()
+                .registerBinary('%', (a, b) -> a % b, true)
+                .registerBinary('/', OperatorRegistry.DIVIDE, false));
+        calc.calculate(5.0, '%');
+        assertThat(calc.getExactValue(), is(equalTo(new BigDecimal("2.5"))));
+        assertThat(calc.tryCalculate(0.0, '%'), is(equalTo(Status.DIVISION_BY_ZERO)));
+
+        calc.calculate(0.0, '/');
+        assertThat(calc.getAsDouble(), is(equalTo(Double.POSITIVE_INFINITY)));
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testCalculateContract() {
+        PreciseCalculator calc = new PreciseCalculator(3.5);
+        assertThrows(DivisionByZeroException.class, () -> calc.calculate(0.0, '/'));
+        assertThrows(DivisionByZeroException.class, () -> calc.calculateExact(BigDecimal.ZERO, '/'));
+        assertThrows(NotSupportedOperationException.class, () -> calc.calculate(1.0, '^'));
+        assertThrows(NotSupportedOperationException.class, () -> calc.calculateExact(BigDecimal.ONE, '^'));
+        assertThat(calc.getAsDouble(), is(equalTo(3.5)));
+        assertThrows(NullPointerException.class, () -> new PreciseCalculator(1.0, null));
+    }
+
+    /* Parameterized tests */
+    @ParameterizedTest
+    @ValueSource(longs = { 1, 2, 3, 42 })
+    public void testMatchesBigDecimal(long seed) throws DivisionByZeroException, NotSupportedOperationException {
+        Random random = new Random(seed);
+        char[] operators = { '+', '-', '*', '/' };
+        PreciseCalculator calc = new PreciseCalculator();
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < 2_000; i++) {
+            /* prices with up to 4 decimals, and occasional factors with a finite (or no finite) decimal expansion */
+            double operand = random.nextInt(2_000_000) / 1e4 + (random.nextInt(8) == 0 ? 0.0 : 0.0001);
+            char operator = operators[random.nextInt(operators.length)];
+            if (operator == '*' || operator == '/')
+                operand = (random.nextInt(7) + 1) / 4.0;
+
+            calc.calculate(operand, operator);
+            BigDecimal right = BigDecimal.valueOf(operand);
+            if (operator == '+') expected = expected.add(right, MathContext.DECIMAL128);
+            else if (operator == '-') expected = expected.subtract(right, MathContext.DECIMAL128);
+            else if (operator == '*') expected = expected.multiply(right, MathContext.DECIMAL128);
+            else expected = expected.divide(right, MathContext.DECIMAL128);
+
+            assertThat(calc.getExactValue().compareTo(expected), is(equalTo(0)));
+            assertThat(calc.getAsDouble(), is(equalTo(expected.doubleValue())));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package org.etfbl.tks;
+
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ProgramTest {
+    private static final double[] SPECIAL_SEEDS = {
+            0.0, -0.0, 1.0, -1.0, 3.7, 1e308, -1e308, Double.MIN_VALUE, -Double.MIN_NORMAL / 3,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1e-310
+    };
+
+    /* the recorded steps: operators, with their operand (ignored for the advanced ones) */
+    private static final class Recording {
+        final StringBuilder operators = new StringBuilder();
+        final StringBuilder kinds = new StringBuilder();
+        final java.util.List<Double> operands = new java.util.ArrayList<>();
+        final ProgramRecorder recorder = new ProgramRecorder(OperatorRegistry.shared(), 20);
+
+        Recording calculate(double value, char operator) throws DivisionByZeroException, NotSupportedOperationException {
+            recorder.calculate(value, operator);
+            operators.append(operator);
+            kinds.append('b');
+            operands.add(value);
+            return this;
+        }
+
+        Recording calculateAdvanced(char action) throws NotSupportedOperationException {
+            recorder.calculateAdvanced(action);
+            operators.append(action);
+            kinds.append('u');
+            operands.add(0.0);
+            return this;
+        }
+
+        /* replays the steps on a calculator, stopping at the first failure, which is reported through failed[0] */
+        double replay(double seed, boolean[] failed) throws DivisionByZeroException, NotSupportedOperationException {
+            CalculatorAdvanced calc = new CalculatorAdvanced();
+            calc.setFactorialLimit(20);
+            calc.setCurrentValue(seed);
+            failed[0] = false;
+            for (int i = 0; i < operators.length(); i++) {
+                try {
+                    if (kinds.charAt(i) == 'b')
+                        calc.calculate((double)operands.get(i), operators.charAt(i));
+                    else calc.calculateAdvanced(operators.charAt(i));
+                } catch (NumberNotInAreaException ex) {
+                    failed[0] = true;
+                    break;
+                }
+            }
+            return calc.getAsDouble();
+        }
+    }
+
+    private static void assertMatchesReplay(Recording recording, Program program, double[] seeds)
+            throws DivisionByZeroException, NotSupportedOperationException {
+        double[] values = seeds.clone();
+        long[] errors = program.run(values);
+        boolean[] failed = new boolean[1];
+        for (int i = 0; i < seeds.length; i++) {
+            double expected = recording.replay(seeds[i], failed);
+            assertThat("seed " + seeds[i] + " of " + program, Double.doubleToLongBits(values[i]),
+                    is(equalTo(Double.doubleToLongBits(expected))));
+            assertThat("seed " + seeds[i] + " of " + program, (errors[i >>> 6] & (1L << i)) != 0,
+                    is(equalTo(failed[0])));
+        }
+    }
+
+    /* Atomic unit testing */
+    @Test
+    public void testExactRewrites() throws DivisionByZeroException, NotSupportedOperationException {
+        Program program = new ProgramRecorder()
+                .calculate(3.0, '-')
+                .calculate(-0.0, '+')
+                .calculate(4.0, '/')
+                .calculate(1.0, '*')
+                .calculate(2.0, '*')
+                .calculate(3.0, '*')
+                .calculate(0.1, '+')
+                .calculate(0.2, '+')
+                .compile();
+
+        assertThat(program.getRecordedSize(), is(equalTo(8)));
+        assertThat(program.toString(), is(equalTo("[+ -3.0, * 0.25, * 6.0, + 0.1, + 0.2]")));
+    }
+
+    @Test
+    public void testUnsafeFoldsAreKept() throws DivisionByZeroException, NotSupportedOperationException,
+            NumberNotInAreaException {
+        /* 0.0 is not an additive identity (for -0.0), and neither order of these products is exact */
+        Program program = new ProgramRecorder()
+                .calculate(0.0, '+')
+                .calculate(3.0, '*')
+                .calculate(2.0, '*')
+                .calculate(0.5, '*')
+                .calculate(4.0, '*')
+                .calculate(3.0, '/')
+                .compile();
+        assertThat(program.size(), is(equalTo(6)));
+        assertThat(program.apply(-0.0), is(equalTo(0.0)));
+    }
+
+    @Test
+    public void testReassociate() throws DivisionByZeroException, NotSupportedOperationException,
+            NumberNotInAreaException {
+        ProgramRecorder recorder = new ProgramRecorder()
+                .calculate(0.1, '+')
+                .calculate(0.2, '+')
+                .calculate(0.3, '-')
+                .calculate(3.0, '*')
+                .calculate(3.0, '/')
+                .calculateAdvanced('2');
+        Program program = recorder.compile(Program.Folding.REASSOCIATE);
+
+        assertThat(program.size(), is(equalTo(2)));
+        assertThat(program.apply(10.0), is(closeTo(100.0, 1e-9)));
+        assertThat(recorder.compile().size(), is(equalTo(6)));
+    }
+
+    @Test
+    public void testFailingAdvancedSteps() throws DivisionByZeroException, NotSupportedOperationException {
+        Program program = new ProgramRecorder()
+                .calculate(8.0, '+')
+                .calculateAdvanced('!')
+                .calculate(1.0, '+')
+                .compile();
+        double[] values = new double[200];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i - 100;
+        }
+        long[] errors = program.run(values);
+
+        /* seeds out of [-8, 2] fail at the factorial, keeping the value they had before it */
+        assertThat(values[0], is(equalTo(-92.0)));
+        assertThat((errors[0] & 1L) != 0, is(true));
+        assertThat(values[92], is(equalTo(2.0)));
+        assertThat(values[102], is(equalTo(3628801.0)));
+        assertThat((errors[102 >>> 6] & (1L << 102)) != 0, is(false));
+        assertThat(values[103], is(equalTo(11.0)));
+        int failures = 0;
+        for (long word : errors) {
+            failures += Long.bitCount(word);
+        }
+        assertThat(failures, is(equalTo(189)));
+    }
+
+    @Test
+    public void testApply() throws DivisionByZeroException, NotSupportedOperationException, NumberNotInAreaException {
+        Program program = new ProgramRecorder().calculate(2.0, '*').calculateAdvanced('!').compile();
+        assertThat(program.apply(2.0), is(equalTo(24.0)));
+        assertThat(program.apply(Double.NaN), is(equalTo(1.0)));
+        Exception ex = assertThrows(NumberNotInAreaException.class, () -> program.apply(6.0));
+        assertThat(ex.getMessage(), is(equalTo("Expected a non-negative integer in range [0, 10], received: 12")));
+    }
+
+    @Test
+    public void testCustomOperators() throws DivisionByZeroException, NotSupportedOperationException {
+        OperatorRegistry operators = new OperatorRegistry()
+                .registerBinary('%', (a, b) -> a % b, true)
+                .registerUnary('r', v -> v < 0.0 ? Double.NaN : Math.sqrt(v));
+        Program program = new ProgramRecorder(operators, 10)
+                .calculate(7.0, '%')
+                .calculateAdvanced('r')
+                .compile();
+        /* later registrations do not affect the recorded steps */
+        operators.unregister('%');
+
+        double[] values = { 23.0, -5.0 };
+        long[] errors = program.run(values);
+        assertThat(values[0], is(equalTo(Math.sqrt(2.0))));
+        assertThat(values[1], is(equalTo(-5.0)));
+        assertThat(errors[0], is(equalTo(2L)));
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testRecordingChecks() {
+        ProgramRecorder recorder = new ProgramRecorder();
+        assertThrows(DivisionByZeroException.class, () -> recorder.calculate(0.0, '/'));
+        assertThrows(NotSupportedOperationException.class, () -> recorder.calculate(1.0, '^'));
+        assertThrows(NotSupportedOperationException.class, () -> recorder.calculateAdvanced('x'));
+        assertThat(recorder.size(), is(equalTo(0)));
+        assertThrows(IllegalArgumentException.class, () -> new ProgramRecorder(OperatorRegistry.shared(), 171));
+    }
+
+    /* Parameterized tests */
+    @ParameterizedTest
+    @ValueSource(longs = { 1, 2, 3, 4, 5, 6, 7, 8 })
+    public void testMatchesReplay(long seed) throws DivisionByZeroException, NotSupportedOperationException {
+        Random random = new Random(seed);
+        double[] constants = { 2.0, 0.5, 4.0, 1.0, -0.0, 0.0, 3.0, -2.0, 0.1, 1e300, 1e-300, 0x1p-1022, 7.25 };
+        char[] operators = { '+', '-', '*', '/' };
+        char[] actions = { '!', '0', '1', '2', '3', '9' };
+
+        Recording recording = new Recording();
+        for (int i = 0, steps = 2 + random.nextInt(12); i < steps; i++) {
+            if (random.nextInt(6) == 0) {
+                recording.calculateAdvanced(actions[random.nextInt(actions.length)]);
+            } else {
+                char operator = operators[random.nextInt(operators.length)];
+                double constant = constants[random.nextInt(constants.length)];
+                recording.calculate(operator == '/' && constant == 0.0 ? 2.0 : constant, operator);
+            }
+        }
+
+        double[] seeds = new double[3000];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = i < SPECIAL_SEEDS.length ? SPECIAL_SEEDS[i]
+                    : (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+        }
+        assertMatchesReplay(recording, recording.recorder.compile(), seeds);
+    }
+}
@@ -0,0 +1,173 @@
+package org.etfbl.tks.expression;
+
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.InvalidExpressionException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class CompiledExpressionTest {
+
+    /* Atomic unit testing */
+    @Test
+    public void testVariables()
+            throws InvalidExpressionException, DivisionByZeroException, NumberNotInAreaException {
+        CompiledExpression expression = CompiledExpression.compile("x^2 + 2*x*y + y^2");
+        assertThat(expression.getVariables(), is(equalTo(Arrays.asList("x", "y"))));
+        assertThat(expression.evaluate(1.0, 2.0), is(equalTo(9.0)));
+        assertThat(expression.evaluate(-3.0, 0.5), is(equalTo(6.25)));
+        assertThrows(IllegalArgumentException.class, () -> expression.evaluate(1.0));
+    }
+
+    @Test
+    public void testConstantFolding()
+            throws InvalidExpressionException, DivisionByZeroException, NumberNotInAreaException {
+        CompiledExpression folded = CompiledExpression.compile("(2 + 3) * 4! - x");
+        /* a single constant, a single variable and the subtraction */
+        assertThat(folded.codeLength(), is(equalTo(5)));
+        assertThat(folded.toString(), is(equalTo("(2 + 3) * 4! - x")));
+        assertThat(folded.evaluate(20.0), is(equalTo(100.0)));
+    }
+
+    @Test
+    public void testLongChains()
+            throws InvalidExpressionException, DivisionByZeroException, NumberNotInAreaException {
+        StringBuilder variables = new StringBuilder("x0"), constants = new StringBuilder("1");
+        double[] values = new double[1000];
+        for (int i = 1; i < values.length; i++) {
+            variables.append(i % 2 == 0 ? " + x" : " - x").append(i);
+            constants.append(" + 1");
+            values[i] = i;
+        }
+        CompiledExpression sum = CompiledExpression.compile(variables.toString());
+        assertThat(sum.getVariables().size(), is(equalTo(1000)));
+        assertThat(sum.evaluate(values), is(equalTo(-500.0)));
+
+        CompiledExpression folded = CompiledExpression.compile(constants.toString());
+        assertThat(folded.codeLength(), is(equalTo(2)));
+        assertThat(folded.evaluate(), is(equalTo(1000.0)));
+    }
+
+    @Test
+    public void testEvaluateNoAllocation() throws InvalidExpressionException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        CompiledExpression expression = CompiledExpression.compile("(x + 1) * (y - 2) / (x * y + 3)");
+        double[] values = new double[2];
+        long threadId = Thread.currentThread().getId();
+        double total = 0.0;
+        for (int i = 0; i < 100_000; i++) {
+            total += evaluate(expression, values, i);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            total += evaluate(expression, values, i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(total, is(not(equalTo(0.0))));
+        assertThat(allocated, is(lessThan(1024L)));
+    }
+
+    private static double evaluate(CompiledExpression expression, double[] values, int i) {
+        values[0] = i;
+        values[1] = i + 1;
+        try {
+            return expression.evaluate(values);
+        } catch (DivisionByZeroException | NumberNotInAreaException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    @Test
+    public void testCacheSkipsCompilation() throws InvalidExpressionException {
+        ExpressionCache cache = new ExpressionCache(2);
+        CompiledExpression first = cache.get("a + b");
+        assertThat(cache.get("a + b"), is(sameInstance(first)));
+        cache.get("a - b");
+        cache.get("a * b");
+
+        /* "a + b" was the least recently used entry */
+        assertThat(cache.size(), is(equalTo(2)));
+        assertThat(cache.get("a + b"), is(not(sameInstance(first))));
+        assertThat(cache.getHits(), is(equalTo(1L)));
+        assertThat(cache.getMisses(), is(equalTo(4L)));
+
+        cache.clear();
+        assertThat(cache.size(), is(equalTo(0)));
+        assertThrows(IllegalArgumentException.class, () -> new ExpressionCache(0));
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testEvaluationErrors() throws InvalidExpressionException {
+        CompiledExpression division = CompiledExpression.compile("1 / (x - 1)");
+        CompiledExpression factorial = CompiledExpression.compile("x!");
+        CompiledExpression constantDivision = CompiledExpression.compile("1 / 0");
+
+        assertThrows(DivisionByZeroException.class, () -> division.evaluate(1.0));
+        assertThrows(DivisionByZeroException.class, constantDivision::evaluate);
+        assertThat(constantDivision.codeLength(), is(equalTo(5)));
+        assertThrows(DivisionByZeroException.class, () -> CompiledExpression.compile("0 ^ -1").evaluate());
+        assertThrows(NumberNotInAreaException.class, () -> factorial.evaluate(-1.0));
+        assertThrows(NumberNotInAreaException.class, () -> factorial.evaluate(171.0));
+        assertThrows(NumberNotInAreaException.class, () -> factorial.evaluate(Double.NaN));
+    }
+
+    @Test
+    public void testSyntaxErrorPosition() {
+        InvalidExpressionException ex = assertThrows(
+                InvalidExpressionException.class,
+                () -> CompiledExpression.compile("1 + * 2")
+        );
+        assertThat(ex.getPosition(), is(equalTo(4)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "(1 + 2", "1 + 2)", "1 2", "2 $ 3", "1..2", "x y", "3e" })
+    public void testInvalidExpressions(String text) {
+        assertThrows(InvalidExpressionException.class, () -> CompiledExpression.compile(text));
+    }
+
+    /* Parameterized tests */
+    private static Stream<Arguments> expressionArgs() {
+        return Stream.of(
+                Arguments.of("1 + 2 * 3", 7.0),
+                Arguments.of("(1 + 2) * 3", 9.0),
+                Arguments.of("10 - 4 - 3", 3.0),
+                Arguments.of("64 / 4 / 2", 8.0),
+                Arguments.of("2 ^ 3 ^ 2", 512.0),
+                Arguments.of("-2 ^ 2", -4.0),
+                Arguments.of("2 ^ -1", 0.5),
+                Arguments.of("4 ^ 0.5", 2.0),
+                Arguments.of("3!!", 720.0),
+                Arguments.of("5.9!", 120.0),
+                Arguments.of("--3", 3.0),
+                Arguments.of("+1.5e2 * .5", 75.0),
+                Arguments.of("  7  ", 7.0)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("expressionArgs")
+    public void testEvaluateParameterized(String text, double expectedResult)
+            throws InvalidExpressionException, DivisionByZeroException, NumberNotInAreaException {
+        assertThat(CompiledExpression.compile(text).evaluate(), is(equalTo(expectedResult)));
+    }
+}
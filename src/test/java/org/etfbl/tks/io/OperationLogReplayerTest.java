@@ -0,0 +1,152 @@
+package org.etfbl.tks.io;
+
+import org.etfbl.tks.Calculator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OperationLogReplayerTest {
+    @TempDir
+    Path directory;
+
+    private Path write(String content) throws IOException {
+        Path file = directory.resolve("operations.log");
+        Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    /* Atomic unit testing */
+    @Test
+    public void testReplay() throws IOException {
+        Path file = write("# a comment\n+ 10\n* 2.5\n\n- 5e-1\r\n/ 4\n");
+        Calculator calc = new Calculator();
+        ReplayReport report = new OperationLogReplayer().replay(file, calc);
+
+        assertThat(calc.getAsDouble(), is(equalTo(6.125)));
+        assertThat(report.getOperations(), is(equalTo(4L)));
+        assertThat(report.getErrorCount(), is(equalTo(0L)));
+        assertThat(report.getBytes(), is(equalTo(Files.size(file))));
+    }
+
+    @Test
+    public void testPositionedErrors() throws IOException {
+        Path file = write("+ 1\n+ abc\n/ 0\n^ 2\n+\n* 3 4\n+ 2\n");
+        Calculator calc = new Calculator();
+        ReplayReport report = new OperationLogReplayer().replay(file, calc);
+
+        assertThat(calc.getAsDouble(), is(equalTo(3.0)));
+        assertThat(report.getOperations(), is(equalTo(2L)));
+        assertThat(report.getErrorCount(), is(equalTo(5L)));
+
+        List<ReplayError> errors = report.getErrors();
+        assertThat(errors.get(0).getLine(), is(equalTo(2L)));
+        assertThat(errors.get(0).getOffset(), is(equalTo(4L)));
+        assertThat(errors.get(0).getMessage(), containsString("abc"));
+        assertThat(errors.get(1).getLine(), is(equalTo(3L)));
+        assertThat(errors.get(1).getMessage(), containsString("division by zero"));
+        assertThat(errors.get(2).getLine(), is(equalTo(4L)));
+        assertThat(errors.get(3).getLine(), is(equalTo(5L)));
+        assertThat(errors.get(4).getLine(), is(equalTo(6L)));
+        assertThat(errors.get(4).getOffset(), is(equalTo(20L)));
+    }
+
+    @Test
+    public void testErrorLimit() throws IOException {
+        Path file = write("/ 0\n/ 0\n/ 0\n+ 1\n");
+        Calculator calc = new Calculator();
+        ReplayReport report = new OperationLogReplayer(1 << 10, 2, 1).replay(file, calc);
+
+        assertThat(report.getErrorCount(), is(equalTo(3L)));
+        assertThat(report.getErrors().size(), is(equalTo(1)));
+        assertThat(calc.getAsDouble(), is(equalTo(1.0)));
+    }
+
+    @Test
+    public void testLineLongerThanWindow() throws IOException {
+        Path file = write("+ 1\n+ 1000000000000000000000000000000000\n+ 2\n");
+        Calculator calc = new Calculator();
+        ReplayReport report = new OperationLogReplayer(16, 4, 10).replay(file, calc);
+
+        assertThat(calc.getAsDouble(), is(equalTo(3.0)));
+        assertThat(report.getErrorCount(), is(equalTo(1L)));
+        assertThat(report.getErrors().get(0).getLine(), is(equalTo(2L)));
+        assertThat(report.getErrors().get(0).getOffset(), is(equalTo(4L)));
+    }
+
+    @Test
+    public void testProgress() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            content.append("+ 1\n");
+        Path file = write(content.toString());
+
+        List<Long> progress = new ArrayList<>();
+        OperationLogReplayer replayer = new OperationLogReplayer(1 << 10, 16, 10);
+        replayer.setProgressListener((bytesRead, totalBytes, operations) -> {
+            assertThat(totalBytes, is(equalTo(400L)));
+            progress.add(operations);
+        });
+        Calculator calc = new Calculator();
+        replayer.replay(file, calc);
+
+        assertThat(calc.getAsDouble(), is(equalTo(100.0)));
+        assertThat(progress.size(), is(equalTo(7)));
+        assertThat(progress.get(progress.size() - 1), is(equalTo(100L)));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new OperationLogReplayer(0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new OperationLogReplayer(1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new OperationLogReplayer(1, 1, -1));
+    }
+
+    /* Parameterized tests, comparing against String-based parsing, with lines crossing window boundaries */
+    @ParameterizedTest
+    @ValueSource(ints = { 48, 101, 1 << 16 })
+    public void testMatchesStringParsing(int windowSize) throws IOException {
+        Random random = new Random(windowSize);
+        String[] operands = {
+                "0", "-0.0", "1", "12.5", "-3e2", "7.25E-3", "123456789012345678901234", "0.1", "1e300",
+                "4.9e-324", "NaN", "-Infinity", "+42", "9007199254740993", "000123.4500", ".5", "5.",
+                "0.000000000000000000001234", "1.7976931348623157e308", "2.2250738585072014E-308"
+        };
+        char[] operators = { '+', '-', '*', '/' };
+
+        StringBuilder content = new StringBuilder();
+        List<Double> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String operand = operands[random.nextInt(operands.length)];
+            if (random.nextBoolean())
+                operand = Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+            content.append(operators[i & 3]).append(random.nextBoolean() ? " " : "\t ").append(operand).append('\n');
+            expected.add(Double.parseDouble(operand));
+        }
+
+        /* records the operands instead of calculating, so that every parsed value is compared bit for bit */
+        List<Double> parsed = new ArrayList<>();
+        Calculator recorder = new Calculator() {
+            @Override
+            public void calculate(double value, char operator) {
+                parsed.add(value);
+            }
+        };
+        ReplayReport report = new OperationLogReplayer(windowSize, 100, 10).replay(write(content.toString()), recorder);
+
+        assertThat(report.getErrorCount(), is(equalTo(0L)));
+        assertThat(parsed, is(equalTo(expected)));
+    }
+}
@@ -0,0 +1,195 @@
+package org.etfbl.tks.journal;
+
+import org.etfbl.tks.Status;
+import org.etfbl.tks.exceptions.DivisionByZeroException;
+import org.etfbl.tks.exceptions.NotSupportedOperationException;
+import org.etfbl.tks.exceptions.NumberNotInAreaException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JournalTest {
+    @TempDir
+    Path directory;
+
+    /* Atomic unit testing */
+    @Test
+    public void testRecoveryAfterClose()
+            throws IOException, DivisionByZeroException, NotSupportedOperationException, NumberNotInAreaException {
+        try (JournaledCalculator calc = new JournaledCalculator(directory)) {
+            calc.setCurrentValue(2.0);
+            calc.calculate(1.0, '+');
+            calc.calculateAdvanced('!');
+            calc.calculatePower(-1);
+            assertThat(calc.getSequence(), is(equalTo(4L)));
+        }
+
+        try (JournaledCalculator calc = new JournaledCalculator(directory)) {
+            assertThat(calc.getAsDouble(), is(equalTo(1.0 / 6.0)));
+            assertThat(calc.getSequence(), is(equalTo(4L)));
+            assertThat(calc.getJournal().recoveredRecords(), is(equalTo(0L)));
+
+            JournalRecord record = calc.getJournal().read(2);
+            assertThat(record.getKind(), is(equalTo(Journal.CALCULATE)));
+            assertThat(record.getOperator(), is(equalTo('+')));
+            assertThat(record.getOperandAsDouble(), is(equalTo(1.0)));
+            assertThat(record.getResult(), is(equalTo(3.0)));
+            assertThat(calc.getJournal().read(4).getOperand(), is(equalTo(-1L)));
+        }
+    }
+
+    @Test
+    public void testCrashRecoveryReplaysTail() throws IOException {
+        Journal crashed = new Journal(directory, 64, 1, 0, 10);
+        JournaledCalculator calc = new JournaledCalculator(crashed);
+        for (int i = 0; i < 25; i++) {
+            calc.tryCalculate(1.0, '+');
+        }
+        assertThat(crashed.getSnapshotSequence(), is(equalTo(20L)));
+
+        /* the first journal is never closed, as if the process died */
+        try (Journal recovered = new Journal(directory, 64, 1, 0, 10)) {
+            assertThat(recovered.getSequence(), is(equalTo(25L)));
+            assertThat(recovered.getValue(), is(equalTo(25.0)));
+            assertThat(recovered.recoveredRecords(), is(equalTo(5L)));
+        }
+    }
+
+    @Test
+    public void testTornRecord() throws IOException {
+        try (Journal journal = new Journal(directory, 64, 1, 0, 0)) {
+            for (int i = 1; i <= 10; i++) {
+                journal.append(Journal.SET, '=', 0L, i);
+            }
+            journal.sync();
+            corrupt(segments().get(0), 7 * Journal.RECORD_SIZE + 20);
+        }
+        Files.delete(directory.resolve("snapshot"));
+
+        try (Journal journal = new Journal(directory, 64, 1, 0, 0)) {
+            assertThat(journal.getSequence(), is(equalTo(7L)));
+            assertThat(journal.getValue(), is(equalTo(7.0)));
+
+            /* the following records are overwritten, and the stale ones past them never come back */
+            assertThat(journal.append(Journal.SET, '=', 0L, 100.0), is(equalTo(8L)));
+        }
+        try (Journal journal = new Journal(directory, 64, 1, 0, 0)) {
+            assertThat(journal.getSequence(), is(equalTo(8L)));
+            assertThat(journal.getValue(), is(equalTo(100.0)));
+        }
+    }
+
+    @Test
+    public void testSegmentsAndCompaction() throws IOException {
+        try (JournaledCalculator calc = new JournaledCalculator(new Journal(directory, 8, 4, 1000, 0))) {
+            for (int i = 0; i < 50; i++) {
+                calc.tryCalculate(2.0, '+');
+            }
+            assertThat(segments().size(), is(equalTo(7)));
+            assertThat(calc.getJournal().valueAt(17), is(equalTo(34.0)));
+
+            calc.getJournal().snapshot();
+            assertThat(calc.getJournal().compact(), is(equalTo(6)));
+            assertThat(segments().size(), is(equalTo(1)));
+            assertThat(calc.getJournal().valueAt(50), is(equalTo(100.0)));
+            assertThrows(IllegalArgumentException.class, () -> calc.getJournal().valueAt(17));
+        }
+
+        try (JournaledCalculator calc = new JournaledCalculator(new Journal(directory, 8, 4, 1000, 0))) {
+            assertThat(calc.getAsDouble(), is(equalTo(100.0)));
+            calc.tryCalculate(2.0, '+');
+            assertThat(calc.getJournal().read(51).getResult(), is(equalTo(102.0)));
+        }
+    }
+
+    @Test
+    public void testRestore() throws IOException {
+        try (JournaledCalculator calc = new JournaledCalculator(directory)) {
+            calc.tryCalculate(5.0, '+');
+            calc.tryCalculate(3.0, '*');
+            calc.tryCalculate(1.0, '-');
+
+            calc.restore(1);
+            assertThat(calc.getAsDouble(), is(equalTo(5.0)));
+            calc.restore(3);
+            assertThat(calc.getAsDouble(), is(equalTo(14.0)));
+            calc.restore(0);
+            assertThat(calc.getAsDouble(), is(equalTo(0.0)));
+            assertThat(calc.getJournal().read(6).getKind(), is(equalTo(Journal.RESTORE)));
+            assertThrows(IllegalArgumentException.class, () -> calc.restore(100));
+        }
+
+        try (JournaledCalculator calc = new JournaledCalculator(directory)) {
+            assertThat(calc.getAsDouble(), is(equalTo(0.0)));
+            calc.restore(2);
+            assertThat(calc.getAsDouble(), is(equalTo(15.0)));
+        }
+    }
+
+    @Test
+    public void testFailedOperations() throws IOException {
+        try (JournaledCalculator calc = new JournaledCalculator(directory)) {
+            assertThat(calc.tryCalculate(0.0, '/'), is(equalTo(Status.DIVISION_BY_ZERO)));
+            assertThat(calc.tryCalculateAdvanced('^'), is(equalTo(Status.NOT_SUPPORTED)));
+            assertThat(calc.getSequence(), is(equalTo(0L)));
+
+            /* resetting a NaN accumulator is journaled, even though the operation fails */
+            calc.setCurrentValue(Double.NaN);
+            assertThat(calc.tryCalculatePower(-1), is(equalTo(Status.DIVISION_BY_ZERO)));
+            assertThat(calc.getSequence(), is(equalTo(2L)));
+            assertThat(calc.getJournal().read(2).getKind(), is(equalTo(Journal.SET)));
+            assertThat(calc.getJournal().read(2).getResult(), is(equalTo(0.0)));
+        }
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testMissingSegment() throws IOException {
+        try (Journal journal = new Journal(directory, 4, 1, 0, 0)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(Journal.SET, '=', 0L, i);
+            }
+        }
+        Files.delete(directory.resolve("snapshot"));
+        Files.delete(segments().get(1));
+
+        assertThrows(IOException.class, () -> new Journal(directory, 4, 1, 0, 0));
+    }
+
+    @Test
+    public void testClosedJournal() throws IOException {
+        Journal journal = new Journal(directory);
+        journal.close();
+        journal.close();
+        assertThrows(IOException.class, () -> journal.append(Journal.SET, '=', 0L, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new Journal(directory, 0, 1, 0, 0));
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.seg")) {
+            files.forEach(segments::add);
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private static void corrupt(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0x5a }), position);
+        }
+    }
+}
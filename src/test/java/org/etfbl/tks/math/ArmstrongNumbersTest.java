@@ -0,0 +1,137 @@
+package org.etfbl.tks.math;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ArmstrongNumbersTest {
+
+    private static boolean naiveIsArmstrong(long value) {
+        String digits = Long.toString(value);
+        long sum = 0;
+        for (char c : digits.toCharArray()) {
+            sum += (long)Math.pow(c - '0', digits.length());
+        }
+        return sum == value;
+    }
+
+    /* Atomic unit testing */
+    @Test
+    public void testMatchesNaiveCheck() {
+        for (long value = 0; value <= 200_000; value++) {
+            assertThat("isArmstrong(" + value + ")",
+                    ArmstrongNumbers.isArmstrong(value), is(equalTo(naiveIsArmstrong(value))));
+        }
+    }
+
+    @Test
+    public void testDigitCount() {
+        assertThat(ArmstrongNumbers.digitCount(0), is(equalTo(1)));
+        assertThat(ArmstrongNumbers.digitCount(9), is(equalTo(1)));
+        assertThat(ArmstrongNumbers.digitCount(10), is(equalTo(2)));
+        assertThat(ArmstrongNumbers.digitCount(999_999_999_999_999_999L), is(equalTo(18)));
+        assertThat(ArmstrongNumbers.digitCount(1_000_000_000_000_000_000L), is(equalTo(19)));
+        assertThat(ArmstrongNumbers.digitCount(Long.MAX_VALUE), is(equalTo(19)));
+    }
+
+    @Test
+    public void testUpToSmallBound() {
+        assertThat(ArmstrongNumbers.upTo(10_000), is(equalTo(new long[] {
+                0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 153, 370, 371, 407, 1634, 8208, 9474 })));
+        assertThat(ArmstrongNumbers.upTo(370).length, is(equalTo(12)));
+        assertThat(ArmstrongNumbers.upTo(-1).length, is(equalTo(0)));
+    }
+
+    @Test
+    public void testUpToLongRange() {
+        long[] all = ArmstrongNumbers.upTo(Long.MAX_VALUE);
+        /* 0 and the 50 positive Armstrong numbers with at most 19 digits */
+        assertThat(all.length, is(equalTo(51)));
+        assertThat(all[all.length - 1], is(equalTo(4929273885928088826L)));
+        for (long value : all) {
+            assertThat("isArmstrong(" + value + ")", ArmstrongNumbers.isArmstrong(value), is(equalTo(true)));
+        }
+    }
+
+    @Test
+    public void testAllArmstrongNumbers() {
+        BigInteger[] all = ArmstrongNumbers.all();
+        assertThat(all.length, is(equalTo(ArmstrongNumbers.COUNT)));
+        assertThat(all[all.length - 1].toString().length(), is(equalTo(39)));
+        for (int i = 0; i < all.length; i++) {
+            String digits = all[i].toString();
+            BigInteger sum = BigInteger.ZERO;
+            for (char c : digits.toCharArray()) {
+                sum = sum.add(BigInteger.valueOf(c - '0').pow(digits.length()));
+            }
+            assertThat("digit power sum of " + digits, sum, is(equalTo(all[i])));
+            assertThat(ArmstrongNumbers.isArmstrong(all[i]), is(true));
+            assertThat(ArmstrongNumbers.isArmstrong(all[i].add(BigInteger.ONE)), is(i + 1 < all.length
+                    && all[i + 1].equals(all[i].add(BigInteger.ONE))));
+            if (i > 0)
+                assertThat(all[i], is(greaterThan(all[i - 1])));
+        }
+
+        /* the ones which fit a long are the ones enumerated by upTo */
+        long[] enumerated = ArmstrongNumbers.upTo(Long.MAX_VALUE);
+        for (int i = 1; i < enumerated.length; i++) {
+            assertThat(all[i - 1].longValueExact(), is(equalTo(enumerated[i])));
+        }
+        assertThat(all[enumerated.length - 1].bitLength(), is(greaterThan(63)));
+        assertThat(ArmstrongNumbers.isArmstrong(BigInteger.ZERO), is(true));
+        assertThat(ArmstrongNumbers.isArmstrong(BigInteger.valueOf(-153)), is(false));
+        assertThat(ArmstrongNumbers.isArmstrong(BigInteger.TEN.pow(39)), is(false));
+    }
+
+    @Test
+    public void testNoAllocation() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        long threadId = Thread.currentThread().getId(), matches = 0;
+        for (long value = 0; value < 10_000; value++) {
+            if (ArmstrongNumbers.isArmstrong(value)) matches++;
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (long value = 0; value < 100_000; value++) {
+            if (ArmstrongNumbers.isArmstrong(value * 92_233_720_368L)) matches++;
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(matches, is(greaterThan(0L)));
+        assertThat(allocated, is(lessThan(1024L)));
+    }
+
+    /* Parameterized tests */
+    private static Stream<Arguments> armstrongArgs() {
+        return Stream.of(
+                Arguments.of(-153L, false),
+                Arguments.of(548834L, true),
+                Arguments.of(548835L, false),
+                Arguments.of(4679307774L, true),
+                Arguments.of(28116440335967L, true),
+                Arguments.of(4338281769391371L, true),
+                Arguments.of(4929273885928088826L, true),
+                Arguments.of(Long.MAX_VALUE, false),
+                Arguments.of(999_999_999_999_999_999L, false)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("armstrongArgs")
+    public void testIsArmstrongParameterized(long value, boolean expectedResult) {
+        assertThat(ArmstrongNumbers.isArmstrong(value), is(equalTo(expectedResult)));
+    }
+}
@@ -0,0 +1,125 @@
+package org.etfbl.tks.math;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DivisorSieveTest {
+
+    private static long bruteForceSigma(long n) {
+        long sum = 0;
+        for (long d = 1; d <= n; d++) {
+            if (n % d == 0) sum += d;
+        }
+        return sum;
+    }
+
+    /* Atomic unit testing */
+    @Test
+    public void testSigmaMatchesBruteForce() {
+        for (long n = 1; n <= 2000; n++) {
+            assertThat("sigma(" + n + ")", DivisorSums.sigma(n), is(equalTo(bruteForceSigma(n))));
+        }
+    }
+
+    @Test
+    public void testSigmaRangeMatchesSingleCheck() {
+        long[] segment = new long[300];
+        long from = 999_850;
+        DivisorSums.sigmaRange(from, segment, 0, segment.length);
+        for (int i = 0; i < segment.length; i++) {
+            assertThat("sigma(" + (from + i) + ")", segment[i], is(equalTo(DivisorSums.sigma(from + i))));
+        }
+    }
+
+    @Test
+    public void testSieveGrowsLazily() {
+        DivisorSieve sieve = new DivisorSieve(5000);
+        assertThat(sieve.size(), is(equalTo(0)));
+
+        assertThat(sieve.sigma(28), is(equalTo(56L)));
+        int grown = sieve.size();
+        assertThat(grown, is(both(greaterThanOrEqualTo(28)).and(lessThanOrEqualTo(5000))));
+
+        assertThat(sieve.sigma(4999), is(equalTo(bruteForceSigma(4999))));
+        assertThat(sieve.sigma(5000), is(equalTo(bruteForceSigma(5000))));
+        assertThat(sieve.size(), is(equalTo(5000)));
+
+        /* beyond the limit, values are calculated without extending the table */
+        assertThat(sieve.aliquotSum(33_550_336), is(equalTo(33_550_336L)));
+        assertThat(sieve.size(), is(equalTo(5000)));
+    }
+
+    @Test
+    public void testLargeValues() {
+        /* the 8th perfect number, 2^30 * (2^31 - 1) */
+        long perfect = (1L << 30) * ((1L << 31) - 1);
+        assertThat(DivisorSums.aliquotSum(perfect), is(equalTo(perfect)));
+        assertThat(DivisorSums.sigma(Integer.MAX_VALUE), is(equalTo((long)Integer.MAX_VALUE + 1)));
+    }
+
+    @Test
+    public void testAbundance() {
+        for (long n = 1; n <= 5000; n++) {
+            assertThat("abundance(" + n + ")", Integer.signum(DivisorSums.abundance(n)),
+                    is(equalTo(Long.signum(bruteForceSigma(n) - 2 * n))));
+        }
+        assertThat(DivisorSums.abundance((1L << 30) * ((1L << 31) - 1)), is(equalTo(0)));
+        assertThat(DivisorSums.abundance(1L << 62), is(lessThan(0)));
+        /* sigma overflows in both: 24 * (p + 1) for 15p, and 1344 * (q + 1) for 420q, with p and q primes */
+        assertThat(DivisorSums.abundance(9_223_372_036_854_761_295L), is(lessThan(0)));
+        assertThat(DivisorSums.abundance(9_223_372_036_854_362_940L), is(greaterThan(0)));
+        assertThat(DivisorSums.abundance(Primes.MAX_PRIME), is(lessThan(0)));
+        /* products of two large primes, which would take seconds to factor through trial division */
+        assertThat(DivisorSums.abundance(4_294_967_291L * 2_147_483_647L), is(lessThan(0)));
+        assertThat(DivisorSums.abundance(3_037_000_493L * 3_037_000_493L), is(lessThan(0)));
+        assertThat(DivisorSums.abundance(6 * 1_000_000_007L * 1_000_000_009L), is(greaterThan(0)));
+
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            long n = 1 + (random.nextLong() >>> 24);
+            assertThat("abundance(" + n + ")", Integer.signum(DivisorSums.abundance(n)),
+                    is(equalTo(Long.signum(DivisorSums.sigma(n) - 2 * n))));
+        }
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testInvalidArguments() {
+        DivisorSieve sieve = new DivisorSieve(10);
+        assertThrows(IllegalArgumentException.class, () -> DivisorSums.sigma(0));
+        assertThrows(IllegalArgumentException.class, () -> sieve.sigma(-5));
+        assertThrows(IllegalArgumentException.class, () -> new DivisorSieve(-1));
+        assertThrows(IllegalArgumentException.class, () -> DivisorSums.sigmaRange(0, new long[4], 0, 4));
+        assertThrows(ArithmeticException.class, () -> DivisorSums.sigma(3L << 61));
+        assertThrows(IllegalArgumentException.class, () -> DivisorSums.abundance(0));
+    }
+
+    /* Parameterized tests */
+    private static Stream<Arguments> aliquotArgs() {
+        return Stream.of(
+                Arguments.of(1, 0L),
+                Arguments.of(2, 1L),
+                Arguments.of(12, 16L),
+                Arguments.of(496, 496L),
+                Arguments.of(8128, 8128L),
+                Arguments.of(945, 975L),
+                Arguments.of(1_048_576, 1_048_575L)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("aliquotArgs")
+    public void testAliquotSumParameterized(int value, long expectedSum) {
+        assertThat(DivisorSieve.shared().aliquotSum(value), is(equalTo(expectedSum)));
+        assertThat(DivisorSums.aliquotSum(value), is(equalTo(expectedSum)));
+    }
+}
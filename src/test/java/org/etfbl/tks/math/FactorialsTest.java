@@ -0,0 +1,65 @@
+package org.etfbl.tks.math;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FactorialsTest {
+
+    private static BigInteger naiveFactorial(int n) {
+        BigInteger product = BigInteger.ONE;
+        for (int i = 2; i <= n; i++) {
+            product = product.multiply(BigInteger.valueOf(i));
+        }
+        return product;
+    }
+
+    /* Atomic unit testing */
+    @Test
+    public void testTables() {
+        for (int n = 0; n <= Factorials.MAX_DOUBLE; n++) {
+            BigInteger expected = naiveFactorial(n);
+            if (n <= Factorials.MAX_LONG) {
+                assertThat(Factorials.factorialLong(n), is(equalTo(expected.longValue())));
+            }
+            assertThat(Factorials.factorialDouble(n), is(equalTo(expected.doubleValue())));
+        }
+        assertThat(Factorials.factorialLong(20), is(equalTo(2432902008176640000L)));
+        assertThat(Factorials.factorialDouble(171), is(equalTo(Double.POSITIVE_INFINITY)));
+    }
+
+    @Test
+    public void testLargeFactorialIsMemoized() {
+        BigInteger first = Factorials.factorial(3000);
+        assertThat(Factorials.factorial(3000), is(sameInstance(first)));
+    }
+
+    @Test
+    public void testParallelFactorial() {
+        BigInteger result = Factorials.factorial(25_000);
+        assertThat(result, is(equalTo(Factorials.product(1, 25_000))));
+        /* Legendre's formula: the exponent of 2 in n! is n minus the number of ones in n's binary form */
+        assertThat(result.getLowestSetBit(), is(equalTo(25_000 - Integer.bitCount(25_000))));
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> Factorials.factorial(-1));
+        assertThrows(IllegalArgumentException.class, () -> Factorials.factorialDouble(-1));
+        assertThrows(ArithmeticException.class, () -> Factorials.factorialLong(21));
+    }
+
+    /* Parameterized tests */
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 1, 20, 21, 64, 65, 171, 1000 })
+    public void testFactorialParameterized(int n) {
+        assertThat(Factorials.factorial(n), is(equalTo(naiveFactorial(n))));
+    }
+}
@@ -0,0 +1,71 @@
+package org.etfbl.tks.math;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PerfectNumbersTest {
+    /* all perfect numbers which fit a long */
+    private static final long[] PERFECT = {
+            6, 28, 496, 8128, 33_550_336, 8_589_869_056L, 137_438_691_328L, 2_305_843_008_139_952_128L
+    };
+
+    private static BigInteger perfect(int p) {
+        return BigInteger.ONE.shiftLeft(p).subtract(BigInteger.ONE).shiftLeft(p - 1);
+    }
+
+    /* Atomic unit testing */
+    @Test
+    public void testMatchesDivisorSums() {
+        for (long n = 1; n <= 100_000; n++) {
+            assertThat("isPerfect(" + n + ")", PerfectNumbers.isPerfect(n),
+                    is(equalTo(DivisorSums.aliquotSum(n) == n)));
+        }
+    }
+
+    @Test
+    public void testLongRange() {
+        for (long value : PERFECT) {
+            assertThat("isPerfect(" + value + ")", PerfectNumbers.isPerfect(value), is(true));
+            assertThat("isPerfect(" + value + ")", PerfectNumbers.isPerfect(BigInteger.valueOf(value)), is(true));
+            assertThat(PerfectNumbers.isPerfect(value + 2), is(false));
+        }
+        /* the shape of a perfect number, but 2^11 - 1 = 23 * 89 */
+        assertThat(PerfectNumbers.isPerfect(1024L * 2047), is(false));
+        assertThat(PerfectNumbers.isPerfect(0), is(false));
+        assertThat(PerfectNumbers.isPerfect(-6), is(false));
+        assertThat(PerfectNumbers.isPerfect(Long.MIN_VALUE), is(false));
+        assertThat(PerfectNumbers.isPerfect(1L << 62), is(false));
+    }
+
+    @Test
+    public void testBigIntegerRange() {
+        assertThat(PerfectNumbers.isPerfect(perfect(61)), is(true));
+        assertThat(PerfectNumbers.isPerfect(perfect(127)), is(true));
+        assertThat(PerfectNumbers.isPerfect(perfect(607)), is(true));
+        assertThat(PerfectNumbers.isPerfect(perfect(67)), is(false));
+        assertThat(PerfectNumbers.isPerfect(perfect(127).add(BigInteger.ONE.shiftLeft(126))), is(false));
+        assertThat(PerfectNumbers.isPerfect(BigInteger.ONE), is(false));
+        assertThat(PerfectNumbers.isPerfect(perfect(61).negate()), is(false));
+    }
+
+    /* Parameterized tests */
+    @ParameterizedTest
+    @ValueSource(ints = { 2, 3, 5, 7, 13, 17, 19, 31, 61, 89, 107, 127, 521, 607, 1279 })
+    public void testMersennePrimes(int p) {
+        assertThat(PerfectNumbers.isMersennePrime(p), is(true));
+        assertThat(PerfectNumbers.isMersennePrime(p), is(equalTo(
+                BigInteger.ONE.shiftLeft(p).subtract(BigInteger.ONE).isProbablePrime(50))));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { -3, 0, 1, 4, 11, 23, 29, 37, 41, 59, 67, 101, 257, 523 })
+    public void testMersenneComposites(int p) {
+        assertThat(PerfectNumbers.isMersennePrime(p), is(false));
+    }
+}
@@ -0,0 +1,105 @@
+package org.etfbl.tks.math;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PowersTest {
+
+    /* Atomic unit testing */
+    @Test
+    public void testPowExactMatchesBigInteger() {
+        for (long base = -40; base <= 40; base++) {
+            for (int exponent = 0; exponent <= 64; exponent++) {
+                BigInteger expected = BigInteger.valueOf(base).pow(exponent);
+                assertThat(Powers.pow(base, exponent), is(equalTo(expected)));
+                if (expected.bitLength() < 64) {
+                    assertThat(Powers.powExact(base, exponent), is(equalTo(expected.longValue())));
+                } else {
+                    final long b = base;
+                    final int e = exponent;
+                    assertThrows(ArithmeticException.class, () -> Powers.powExact(b, e));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPowBeyondLong() {
+        assertThat(Powers.pow(10, 30), is(equalTo(BigInteger.TEN.pow(30))));
+        assertThat(Powers.pow(Long.MIN_VALUE, 2), is(equalTo(BigInteger.ONE.shiftLeft(126))));
+        assertThat(Powers.pow(Long.MIN_VALUE, 0), is(equalTo(BigInteger.ONE)));
+    }
+
+    @Test
+    public void testPowModMatchesBigInteger() {
+        long[] moduli = { 1, 2, 97, 1_000_000_007L, 3_037_000_500L, (1L << 61) - 1, Long.MAX_VALUE };
+        long[] bases = { -7, 0, 2, 123_456_789_123L, Long.MAX_VALUE - 1 };
+        long[] exponents = { 0, 1, 2, 65_537, Long.MAX_VALUE };
+        for (long modulus : moduli) {
+            for (long base : bases) {
+                for (long exponent : exponents) {
+                    BigInteger expected = BigInteger.valueOf(base)
+                            .modPow(BigInteger.valueOf(exponent), BigInteger.valueOf(modulus));
+                    assertThat(base + "^" + exponent + " mod " + modulus,
+                            Powers.powMod(base, exponent, modulus), is(equalTo(expected.longValue())));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDoublePow() {
+        assertThat(Powers.pow(2.5, 2), is(equalTo(6.25)));
+        assertThat(Powers.pow(2.0, -3), is(equalTo(0.125)));
+        assertThat(Powers.pow(-3.0, 3), is(equalTo(-27.0)));
+        assertThat(Powers.pow(0.0, -1), is(equalTo(Double.POSITIVE_INFINITY)));
+        assertThat(Powers.pow(7.0, 0), is(equalTo(1.0)));
+        assertThat(Powers.pow(10.0, -320), is(equalTo(Math.pow(10.0, -320))));
+        assertThat(Powers.pow(2.0, Integer.MIN_VALUE), is(equalTo(0.0)));
+        assertThat(Powers.pow(1.0001, 100_000), is(closeTo(Math.pow(1.0001, 100_000), 1e-6)));
+    }
+
+    @Test
+    public void testPowIntegral() {
+        assertThat(Powers.powIntegral(46341.0, 2), is(equalTo(2147488281.0)));
+        assertThat(Powers.powIntegral(3.0, 39), is(equalTo((double)4052555153018976267L)));
+        assertThat(Powers.powIntegral(1e10, 9), is(closeTo(1e90, 1e76)));
+        assertThat(Powers.powIntegral(-2.0, 63), is(equalTo(-0x1p63)));
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> Powers.powExact(2, -1));
+        assertThrows(IllegalArgumentException.class, () -> Powers.pow(2L, -1));
+        assertThrows(IllegalArgumentException.class, () -> Powers.powMod(2, -1, 7));
+        assertThrows(IllegalArgumentException.class, () -> Powers.powMod(2, 3, 0));
+    }
+
+    /* Parameterized tests */
+    private static Stream<Arguments> fitsLongArgs() {
+        return Stream.of(
+                Arguments.of(0L, 1000, true),
+                Arguments.of(-1L, Integer.MAX_VALUE, true),
+                Arguments.of(2L, 31, true),
+                Arguments.of(2L, 32, false),
+                Arguments.of(3037000499L, 2, false),
+                Arguments.of(65535L, 3, true)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("fitsLongArgs")
+    public void testFitsLongParameterized(long base, int exponent, boolean expectedResult) {
+        assertThat(Powers.fitsLong(base, exponent), is(equalTo(expectedResult)));
+    }
+}
@@ -0,0 +1,169 @@
+package org.etfbl.tks.math;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PrimeSieveTest {
+
+    private static boolean trialDivision(long n) {
+        if (n < 2) return false;
+        for (long d = 2; d * d <= n; d++) {
+            if (n % d == 0) return false;
+        }
+        return true;
+    }
+
+    /* Atomic unit testing */
+    @Test
+    public void testIsPrimeMatchesTrialDivision() {
+        PrimeSieve sieve = new PrimeSieve(5000);
+        for (long n = -5; n <= 20_000; n++) {
+            assertThat("isPrime(" + n + ")", Primes.isPrime(n), is(equalTo(trialDivision(n))));
+            assertThat("isPrime(" + n + ")", sieve.isPrime(n), is(equalTo(trialDivision(n))));
+        }
+    }
+
+    @Test
+    public void testIsPrimeMatchesBigInteger() {
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            long n = random.nextLong() >>> (1 + random.nextInt(62));
+            assertThat("isPrime(" + n + ")", Primes.isPrime(n), is(equalTo(BigInteger.valueOf(n).isProbablePrime(64))));
+        }
+    }
+
+    @Test
+    public void testStrongPseudoprimes() {
+        /* strong pseudoprimes to several small bases, and Carmichael numbers */
+        long[] composites = { 561, 1_373_653, 25_326_001, 3_215_031_751L, 2_152_302_898_747L, 3_474_749_660_383L,
+                341_550_071_728_321L, 3_825_123_056_546_413_051L, 4_759_123_141L, 1_122_004_669_633L };
+        for (long n : composites) {
+            assertThat("isPrime(" + n + ")", Primes.isPrime(n),
+                    is(equalTo(BigInteger.valueOf(n).isProbablePrime(64))));
+        }
+        assertThat(Primes.isPrime(3_825_123_056_546_413_051L), is(false));
+        assertThat(Primes.isPrime(Primes.MAX_PRIME), is(true));
+        assertThat(Primes.isPrime((1L << 61) - 1), is(true));
+        assertThat(Primes.isPrime(Long.MAX_VALUE), is(false));
+    }
+
+    @Test
+    public void testFactor() {
+        long[] composites = { 9, 15, 561, 1_373_653, 4_294_967_291L * 2_147_483_647L,
+                3_037_000_493L * 3_037_000_493L, 3_825_123_056_546_413_051L, 1_000_000_007L * 1_000_000_009L * 7 };
+        for (long n : composites) {
+            long factor = Primes.factor(n);
+            assertThat("factor(" + n + ")", factor, is(both(greaterThan(1L)).and(lessThan(n))));
+            assertThat("factor(" + n + ")", n % factor, is(equalTo(0L)));
+        }
+    }
+
+    @Test
+    public void testSieveGrowsLazily() {
+        PrimeSieve sieve = new PrimeSieve(1_000_000);
+        assertThat(sieve.size(), is(equalTo(0)));
+
+        assertThat(sieve.isPrime(97), is(true));
+        int grown = sieve.size();
+        assertThat(grown, is(both(greaterThanOrEqualTo(97)).and(lessThan(1_000_000))));
+
+        assertThat(sieve.isPrime(999_983), is(true));
+        assertThat(sieve.size(), is(equalTo(1_000_000)));
+
+        /* beyond the limit, values are tested without extending the table */
+        assertThat(sieve.isPrime(1_000_003), is(true));
+        assertThat(sieve.size(), is(equalTo(1_000_000)));
+    }
+
+    @Test
+    public void testNextPrime() {
+        PrimeSieve sieve = new PrimeSieve(1000);
+        assertThat(sieve.nextPrime(-7), is(equalTo(2L)));
+        assertThat(sieve.nextPrime(2), is(equalTo(3L)));
+        assertThat(sieve.nextPrime(113), is(equalTo(127L)));
+        assertThat(sieve.nextPrime(996), is(equalTo(997L)));
+        assertThat(sieve.nextPrime(997), is(equalTo(1009L)));
+        assertThat(sieve.nextPrime(1_000_000), is(equalTo(1_000_003L)));
+        assertThat(Primes.nextPrime(Primes.MAX_PRIME - 1), is(equalTo(Primes.MAX_PRIME)));
+
+        long prime = 1;
+        for (int i = 0; i < 1000; i++) {
+            long next = sieve.nextPrime(prime);
+            assertThat(next, is(equalTo(Primes.nextPrime(prime))));
+            prime = next;
+        }
+        assertThat(prime, is(equalTo(7919L)));
+    }
+
+    @Test
+    public void testPrimesOfRange() {
+        long[] buffer = new long[100];
+        PrimeSieve sieve = new PrimeSieve(100);
+        assertThat(sieve.primes(0, buffer, 12), is(equalTo(5)));
+        assertThat(Arrays.copyOf(buffer, 5), is(equalTo(new long[] { 2, 3, 5, 7, 11 })));
+
+        /* both in and beyond the table */
+        int found = sieve.primes(90, buffer, 40);
+        assertThat(Arrays.copyOf(buffer, found), is(equalTo(new long[] { 97, 101, 103, 107, 109, 113, 127 })));
+        assertThat(sieve.primes(1_000_000_000_000L, buffer, 100),
+                is(equalTo((int)sieve.primeCount(1_000_000_000_000L, 1_000_000_000_099L))));
+        assertThat(sieve.primes(5, buffer, 0), is(equalTo(0)));
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new PrimeSieve(-1));
+        assertThrows(IllegalArgumentException.class, () -> new PrimeSieve(Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> PrimeSieve.shared().primes(-1, new long[4], 4));
+        assertThrows(ArithmeticException.class, () -> Primes.nextPrime(Primes.MAX_PRIME));
+        assertThrows(ArithmeticException.class, () -> PrimeSieve.shared().nextPrime(Long.MAX_VALUE));
+    }
+
+    /* Parameterized tests */
+    private static Stream<Arguments> primeCountArgs() {
+        return Stream.of(
+                Arguments.of(1L, 1L, 0L),
+                Arguments.of(0L, 2L, 1L),
+                Arguments.of(1L, 100L, 25L),
+                Arguments.of(1L, 1_000_000L, 78_498L),
+                Arguments.of(1L, 100_000_000L, 5_761_455L),
+                Arguments.of(1_000_000_000_000L, 1_000_000_100_000L, 3_614L),
+                Arguments.of(Long.MAX_VALUE - 1000, Long.MAX_VALUE, 23L)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("primeCountArgs")
+    public void testPrimeCountParameterized(long from, long to, long expectedCount) {
+        assertThat(PrimeSieve.shared().primeCount(from, to), is(equalTo(expectedCount)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 1, 2, 127, 128, 129, 5_000, 300_000 })
+    public void testPrimeCountMatchesIsPrime(int limit) {
+        PrimeSieve sieve = new PrimeSieve(limit);
+        long[] bounds = { 0, 1, 2, 3, 126, 127, 128, 129, limit - 1, limit, limit + 1, limit + 7, 2L * limit + 300 };
+        for (long from : bounds) {
+            for (long to : bounds) {
+                long expected = 0;
+                for (long n = from; n <= to; n++) {
+                    if (Primes.isPrime(n)) expected++;
+                }
+                assertThat("primeCount(" + from + ", " + to + ")", sieve.primeCount(from, to), is(equalTo(expected)));
+            }
+        }
+    }
+}
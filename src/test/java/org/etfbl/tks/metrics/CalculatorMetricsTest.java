@@ -0,0 +1,107 @@
+package org.etfbl.tks.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CalculatorMetricsTest {
+
+    @AfterEach
+    public void tearDown() {
+        CalculatorMetrics.get().reset();
+    }
+
+    /* Atomic unit testing */
+    @Test
+    public void testOperationMetrics() {
+        OperationMetrics metrics = new OperationMetrics("calculate", 1);
+        metrics.stop('+', metrics.start('+'), false);
+        metrics.stop('+', metrics.start('+'), false);
+        metrics.stop('/', metrics.start('/'), true);
+        metrics.stop('\u20ac', metrics.start('\u20ac'), true);
+        metrics.stop('\u00f7', metrics.start('\u00f7'), true);
+
+        assertThat(metrics.getCalls('+'), is(equalTo(2L)));
+        assertThat(metrics.getExceptions('+'), is(equalTo(0L)));
+        assertThat(metrics.getExceptions('/'), is(equalTo(1L)));
+        assertThat(metrics.getCalls('-'), is(equalTo(0L)));
+        assertThat(metrics.getLatency('-'), is(nullValue()));
+
+        /* characters outside of ASCII share a single slot */
+        assertThat(metrics.getCalls('\u20ac'), is(equalTo(2L)));
+        assertThat(new String(metrics.operators()), is(equalTo("+/\u0080")));
+        assertThat(metrics.label('+'), is(equalTo("calculate('+')")));
+        assertThat(metrics.label('\n'), is(equalTo("calculate(0xa)")));
+        assertThat(metrics.label('\u20ac'), is(equalTo("calculate(other)")));
+
+        metrics.reset();
+        assertThat(metrics.getCalls('+'), is(equalTo(0L)));
+        assertThat(metrics.getExceptions('/'), is(equalTo(0L)));
+        assertThat(metrics.operators().length, is(equalTo(0)));
+    }
+
+    @Test
+    public void testSampling() {
+        OperationMetrics metrics = new OperationMetrics("calculate", 50);
+        assertThat(metrics.getSampleRate(), is(equalTo(64L)));
+        assertThat(new OperationMetrics("calculate", 1).getSampleRate(), is(equalTo(1L)));
+
+        for (int i = 0; i < 200; i++) {
+            metrics.stop('+', metrics.start('+'), i % 2 == 0);
+        }
+        assertThat(metrics.getCalls('+'), is(equalTo(200L)));
+        assertThat(metrics.getExceptions('+'), is(equalTo(100L)));
+        assertThat(metrics.getLatency('+').getCount(), is(equalTo(4L)));
+    }
+
+    @Test
+    public void testMaps() {
+        CalculatorMetrics metrics = CalculatorMetrics.get();
+        CalculatorMetrics.CALCULATE.stop('*', CalculatorMetrics.CALCULATE.start('*'), false);
+        CalculatorMetrics.CHARACTERISTIC.stop('X', CalculatorMetrics.CHARACTERISTIC.start('X'), true);
+
+        Map<String, Long> calls = metrics.getCalls();
+        assertThat(calls.keySet(), contains("calculate('*')", "hasCharacteristic('X')"));
+        assertThat(calls.get("calculate('*')"), is(equalTo(1L)));
+        assertThat(metrics.getExceptions().get("hasCharacteristic('X')"), is(equalTo(1L)));
+        assertThat(metrics.getLatencyP99Nanos().get("calculate('*')"),
+                is(lessThanOrEqualTo(metrics.getLatencyMaxNanos().get("calculate('*')"))));
+        assertThat(metrics.getLatencyP50Nanos().size(), is(equalTo(2)));
+
+        String dump = metrics.dump();
+        assertThat(dump, containsString("calculate('*')"));
+        assertThat(dump, containsString("calls=1 exceptions=1"));
+        assertThat(dump.split(System.lineSeparator()).length, is(equalTo(2)));
+
+        metrics.reset();
+        assertThat(metrics.getCalls().isEmpty(), is(true));
+        assertThat(metrics.dump(), is(emptyString()));
+    }
+
+    @Test
+    public void testRegistration() throws Exception {
+        CalculatorMetrics.register();
+        CalculatorMetrics.register();
+        CalculatorMetrics.EXPONENT.stop('^', CalculatorMetrics.EXPONENT.start('^'), false);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(CalculatorMetrics.OBJECT_NAME);
+        assertThat(server.isRegistered(name), is(true));
+        assertThat(server.getAttribute(name, "Enabled"), is(equalTo(CalculatorMetrics.ENABLED)));
+        assertThat((String)server.invoke(name, "dump", null, null), containsString("exponent('^')"));
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testInvalidSampleRate() {
+        assertThrows(IllegalArgumentException.class, () -> new OperationMetrics("calculate", 0));
+    }
+}
@@ -0,0 +1,99 @@
+package org.etfbl.tks.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LatencyHistogramTest {
+
+    /* Atomic unit testing */
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.getCount(), is(equalTo(1000L)));
+        assertThat(histogram.getMax(), is(equalTo(1000L)));
+        assertThat(histogram.getPercentile(100.0), is(equalTo(1000L)));
+        assertThat(histogram.getPercentile(0.0), is(equalTo(1L)));
+        assertThat((double)histogram.getPercentile(50.0), is(closeTo(500.0, 500.0 / 16)));
+        assertThat((double)histogram.getPercentile(99.0), is(closeTo(990.0, 990.0 / 16)));
+    }
+
+    @Test
+    public void testEmptyAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getPercentile(99.0), is(equalTo(0L)));
+
+        histogram.record(-5L);
+        histogram.record(42L, 3L);
+        assertThat(histogram.getCount(), is(equalTo(4L)));
+        assertThat(histogram.getPercentile(25.0), is(equalTo(0L)));
+
+        histogram.reset();
+        assertThat(histogram.getCount(), is(equalTo(0L)));
+        assertThat(histogram.getMax(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void testAdd() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(10L, 9L);
+        second.record(1_000_000L);
+
+        first.add(second);
+        assertThat(first.getCount(), is(equalTo(10L)));
+        assertThat(first.getMax(), is(equalTo(1_000_000L)));
+        assertThat(first.getPercentile(90.0), is(equalTo(10L)));
+        assertThat(first.getPercentile(95.0), is(equalTo(1_000_000L)));
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(histogram.getCount(), is(equalTo(40_000L)));
+        assertThat(histogram.getMax(), is(equalTo(9_999L)));
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testInvalidPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(-1.0));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(100.5));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(Double.NaN));
+    }
+
+    /* Parameterized tests */
+    @ParameterizedTest
+    @ValueSource(longs = { 0L, 15L, 16L, 17L, 1000L, 123_456_789L, 1L << 40, Long.MAX_VALUE })
+    public void testBucketBounds(long value) {
+        int index = LatencyHistogram.index(value);
+        long upperBound = LatencyHistogram.upperBound(index);
+
+        assertThat(upperBound, is(greaterThanOrEqualTo(value)));
+        assertThat((double)(upperBound - value), is(lessThanOrEqualTo(value / 16.0)));
+        if (index > 0)
+            assertThat(LatencyHistogram.upperBound(index - 1), is(lessThan(value)));
+    }
+}
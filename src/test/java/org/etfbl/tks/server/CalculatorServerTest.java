@@ -0,0 +1,176 @@
+package org.etfbl.tks.server;
+
+import org.etfbl.tks.Status;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CalculatorServerTest {
+    private static final InetSocketAddress LOCALHOST = new InetSocketAddress("127.0.0.1", 0);
+
+    /* Atomic unit testing */
+    @ParameterizedTest
+    @EnumSource(CalculatorServer.Mode.class)
+    public void testPipelinedRequests(CalculatorServer.Mode mode) throws IOException {
+        try (CalculatorServer server = new CalculatorServer(LOCALHOST, mode, 2);
+             SocketChannel channel = connect(server)) {
+            ByteBuffer requests = ByteBuffer.allocate(Protocol.REQUEST_SIZE * 10);
+            Protocol.putRequest(requests, Protocol.SET, Double.doubleToRawLongBits(2.0));
+            Protocol.putRequest(requests, '+', 1.0);
+            Protocol.putRequest(requests, '!', 0.0);
+            Protocol.putRequest(requests, '2', 0.0);
+            Protocol.putRequest(requests, '/', 0.0);
+            Protocol.putRequest(requests, '%', 1.0);
+            Protocol.putRequest(requests, 'A', 0.0);
+            Protocol.putRequest(requests, 'B', 0.0);
+            Protocol.putRequest(requests, '*', -1.0);
+            Protocol.putRequest(requests, 'P', 0.0);
+
+            ByteBuffer responses = exchange(channel, requests, 10);
+            assertResponse(responses, 0, Status.OK, 2.0);
+            assertResponse(responses, 1, Status.OK, 3.0);
+            assertResponse(responses, 2, Status.OK, 6.0);
+            assertResponse(responses, 3, Status.OK, 36.0);
+            assertResponse(responses, 4, Status.DIVISION_BY_ZERO, 36.0);
+            assertResponse(responses, 5, Status.NOT_SUPPORTED, 36.0);
+            assertResponse(responses, 6, Status.FALSE, 36.0);
+            assertResponse(responses, 7, Status.TRUE, 36.0);
+            assertResponse(responses, 8, Status.OK, -36.0);
+            assertResponse(responses, 9, Status.NOT_IN_AREA, -36.0);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(CalculatorServer.Mode.class)
+    public void testSessions(CalculatorServer.Mode mode) throws IOException {
+        try (CalculatorServer server = new CalculatorServer(LOCALHOST, mode, 2);
+             SocketChannel first = connect(server);
+             SocketChannel second = connect(server)) {
+            ByteBuffer requests = ByteBuffer.allocate(Protocol.REQUEST_SIZE * 2);
+            Protocol.putRequest(requests, Protocol.SESSION, 42L);
+            Protocol.putRequest(requests, '+', 5.0);
+            exchange(first, requests, 2);
+
+            requests.clear();
+            Protocol.putRequest(requests, Protocol.SESSION, 42L);
+            Protocol.putRequest(requests, '*', 3.0);
+            assertResponse(exchange(second, requests, 2), 1, Status.OK, 15.0);
+            assertThat(server.getSessionCount(), is(equalTo(1)));
+
+            requests.clear();
+            Protocol.putRequest(requests, Protocol.GET, 0L);
+            Protocol.putRequest(requests, Protocol.REMOVE, 42L);
+            assertResponse(exchange(first, requests, 2), 0, Status.OK, 15.0);
+            assertThat(server.getSessionCount(), is(equalTo(0)));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(CalculatorServer.Mode.class)
+    public void testSessionLimit(CalculatorServer.Mode mode) throws IOException {
+        try (CalculatorServer server = new CalculatorServer(LOCALHOST, mode, 2, 2);
+             SocketChannel channel = connect(server)) {
+            ByteBuffer requests = ByteBuffer.allocate(Protocol.REQUEST_SIZE * 8);
+            Protocol.putRequest(requests, Protocol.SESSION, 1L);
+            Protocol.putRequest(requests, Protocol.SET, Double.doubleToRawLongBits(1.0));
+            Protocol.putRequest(requests, Protocol.SESSION, 2L);
+            Protocol.putRequest(requests, Protocol.SET, Double.doubleToRawLongBits(2.0));
+            Protocol.putRequest(requests, Protocol.SESSION, 3L);
+            Protocol.putRequest(requests, Protocol.SESSION, 1L);
+            Protocol.putRequest(requests, Protocol.REMOVE, 2L);
+            Protocol.putRequest(requests, Protocol.SESSION, 3L);
+
+            ByteBuffer responses = exchange(channel, requests, 8);
+            /* the connection stays bound to session 2 */
+            assertResponse(responses, 4, Status.SESSION_LIMIT, 2.0);
+            assertResponse(responses, 5, Status.OK, 1.0);
+            assertResponse(responses, 7, Status.OK, 0.0);
+            assertThat(server.getSessionCount(), is(equalTo(2)));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(CalculatorServer.Mode.class)
+    public void testSplitAndLargeBatches(CalculatorServer.Mode mode) throws IOException {
+        /* more requests than fit the server's buffers, written in pieces that split the frames */
+        int count = CalculatorServer.BUFFER_SIZE / Protocol.REQUEST_SIZE * 3;
+        try (CalculatorServer server = new CalculatorServer(LOCALHOST, mode, 1);
+             SocketChannel channel = connect(server)) {
+            ByteBuffer requests = ByteBuffer.allocate(Protocol.REQUEST_SIZE * count);
+            for (int i = 0; i < count; i++) {
+                Protocol.putRequest(requests, '+', 1.0);
+            }
+
+            ByteBuffer responses = exchange(channel, requests, count);
+            assertResponse(responses, 0, Status.OK, 1.0);
+            assertResponse(responses, count - 1, Status.OK, count);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(CalculatorServer.Mode.class)
+    public void testLoadTestClient(CalculatorServer.Mode mode) throws IOException, InterruptedException {
+        try (CalculatorServer server = new CalculatorServer(LOCALHOST, mode, 2)) {
+            LoadTestClient client = new LoadTestClient(
+                    new InetSocketAddress("127.0.0.1", server.getPort()), 16, 2, 8);
+            LoadTestClient.Result result = client.run(200);
+
+            assertThat(result.getOperations(), is(greaterThan(0L)));
+            assertThat(result.getOperations() % 8, is(equalTo(0L)));
+            assertThat(result.getErrors(), is(equalTo(0L)));
+            assertThat(result.getLatency(99), is(greaterThanOrEqualTo(result.getLatency(50))));
+            assertThat(server.getSessionCount(), is(equalTo(16)));
+        }
+    }
+
+    /* Exception-handling testing */
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CalculatorServer(LOCALHOST, CalculatorServer.Mode.NIO, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CalculatorServer(LOCALHOST, CalculatorServer.Mode.NIO, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new LoadTestClient(LOCALHOST, 1, 1, 0));
+    }
+
+    private static SocketChannel connect(CalculatorServer server) throws IOException {
+        return SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getPort()));
+    }
+
+    private static ByteBuffer exchange(SocketChannel channel, ByteBuffer requests, int count) throws IOException {
+        requests.flip();
+        ByteBuffer responses = ByteBuffer.allocate(Protocol.RESPONSE_SIZE * count);
+        while (requests.hasRemaining()) {
+            /* odd-sized writes, interleaved with reads so that neither side blocks on full socket buffers */
+            ByteBuffer piece = requests.duplicate();
+            piece.limit(Math.min(requests.limit(), requests.position() + 4099));
+            channel.write(piece);
+            requests.position(piece.position());
+
+            channel.configureBlocking(false);
+            channel.read(responses);
+            channel.configureBlocking(true);
+        }
+        while (responses.hasRemaining()) {
+            if (channel.read(responses) < 0)
+                throw new IOException("Connection closed");
+        }
+        responses.flip();
+        return responses;
+    }
+
+    private static void assertResponse(ByteBuffer responses, int index, int status, double value) {
+        int offset = index * Protocol.RESPONSE_SIZE;
+        assertThat((int)responses.get(offset), is(equalTo(status)));
+        assertThat(Double.longBitsToDouble(responses.getLong(offset + 1)), is(equalTo(value)));
+    }
+}